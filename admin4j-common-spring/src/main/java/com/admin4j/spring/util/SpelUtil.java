@@ -2,32 +2,47 @@ package com.admin4j.spring.util;
 
 import lombok.Getter;
 import org.apache.commons.lang3.StringUtils;
-import org.springframework.context.expression.MethodBasedEvaluationContext;
 import org.springframework.core.LocalVariableTableParameterNameDiscoverer;
+import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.SpelCompilerMode;
 import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
 
 import java.lang.reflect.Method;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 解析SPEL 表达式
+ * <p>
+ * 表达式按 (方法, 表达式) 缓存，使用 MIXED 模式编译；方法参数名每个方法只解析一次
  *
  * @author andanyang
  * @since 2018/1/20 13:50
  */
 public class SpelUtil {
 
+    /**
+     * 最多缓存的表达式数量，超过后不再缓存新的表达式
+     */
+    private static final int MAX_CACHED_EXPRESSIONS = 4096;
+
     /**
      * 是一种基于本地变量表的参数解析器，依赖于编译时的选项，可能无法在所有情况下获取参数名称
      */
     private static final LocalVariableTableParameterNameDiscoverer U = new LocalVariableTableParameterNameDiscoverer();
     // 使用SPEL进行key的解析
     @Getter
-    private static final ExpressionParser EL_PARSER = new SpelExpressionParser();
+    private static final ExpressionParser EL_PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, SpelUtil.class.getClassLoader()));
+
+    private static final Map<ExpressionKey, Expression> EXPRESSION_CACHE = new ConcurrentHashMap<>();
+    private static final Map<Method, MethodParameters> PARAMETER_CACHE = new ConcurrentHashMap<>();
 
     private SpelUtil() {
     }
@@ -44,12 +59,10 @@ public class SpelUtil {
         if (StringUtils.isBlank(spel)) {
             return null;
         }
-        // 获取被拦截方法参数名列表(使用Spring支持类库)
-        String[] paraNameArr = U.getParameterNames(method);
-
         // SPEL上下文
         StandardEvaluationContext context = new StandardEvaluationContext();
         // 把方法参数放入SPEL上下文中
+        String[] paraNameArr = parameters(method).names;
         if (paraNameArr != null) {
             for (int i = 0; i < paraNameArr.length; i++) {
                 context.setVariable(paraNameArr[i], args[i]);
@@ -57,7 +70,7 @@ public class SpelUtil {
         }
 
         try {
-            return EL_PARSER.parseExpression(spel).getValue(context, String.class);
+            return expression(method, spel).getValue(context, String.class);
         } catch (ParseException | SpelEvaluationException e) {
             throw new RuntimeException(e);
         }
@@ -78,26 +91,72 @@ public class SpelUtil {
         } else if (!spel.contains("#")) {
             return parse(spel, method, args);
         }
-        // 获取被拦截方法参数名列表(使用Spring支持类库)
-        String[] paraNameArr = U.getParameterNames(method);
+        try {
+            return expression(method, spel).getValue(methodContext(rootObject, method, args), String.class);
+        } catch (ParseException | SpelEvaluationException e) {
 
-        // SPEL上下文
-        StandardEvaluationContext context = new MethodBasedEvaluationContext(rootObject, method, args, U);
-        // 把方法参数放入SPEL上下文中
-        if (paraNameArr != null) {
-            for (int i = 0; i < paraNameArr.length; i++) {
-                context.setVariable(paraNameArr[i], args[i]);
-            }
+            return spel;
         }
+    }
+
+    /**
+     * 支持 #p0 参数索引的表达式计算，返回原始结果，如集合、数组
+     *
+     * @param rootObject 根对象,method 所在的对象
+     * @param spel       表达式
+     * @param method     ，目标方法
+     * @param args       方法入参
+     * @return 表达式计算结果
+     */
+    public static Object parseValue(Object rootObject, String spel, Method method, Object[] args) {
 
         try {
-            return EL_PARSER.parseExpression(spel).getValue(context, String.class);
+            return expression(method, spel).getValue(methodContext(rootObject, method, args));
         } catch (ParseException | SpelEvaluationException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            return spel;
+    /**
+     * 方法上下文，支持参数名、#p0 和 #a0
+     */
+    private static StandardEvaluationContext methodContext(Object rootObject, Method method, Object[] args) {
+
+        // SPEL上下文
+        StandardEvaluationContext context = new StandardEvaluationContext(rootObject);
+        MethodParameters parameters = parameters(method);
+        int count = Math.min(args.length, parameters.indexNames.length);
+        for (int i = 0; i < count; i++) {
+            context.setVariable(parameters.indexNames[i], args[i]);
+            context.setVariable(parameters.aliasNames[i], args[i]);
+            if (parameters.names != null) {
+                context.setVariable(parameters.names[i], args[i]);
+            }
         }
+        return context;
     }
 
+    /**
+     * 解析并缓存表达式
+     *
+     * @param method 表达式所在的方法，没有时为 null
+     */
+    private static Expression expression(Method method, String spel) {
+
+        ExpressionKey key = new ExpressionKey(method, spel);
+        Expression expression = EXPRESSION_CACHE.get(key);
+        if (expression == null) {
+            expression = EL_PARSER.parseExpression(spel);
+            if (EXPRESSION_CACHE.size() < MAX_CACHED_EXPRESSIONS) {
+                EXPRESSION_CACHE.putIfAbsent(key, expression);
+            }
+        }
+        return expression;
+    }
+
+    private static MethodParameters parameters(Method method) {
+        return PARAMETER_CACHE.computeIfAbsent(method, MethodParameters::new);
+    }
 
     /**
      * 计算SpEL表达式的值
@@ -115,9 +174,60 @@ public class SpelUtil {
             }
         }
         try {
-            return EL_PARSER.parseExpression(expression).getValue(evaluationContext, clazz);
+            return expression(null, expression).getValue(evaluationContext, clazz);
         } catch (ParseException e) {
             return null;
         }
     }
+
+    /**
+     * 方法的参数名，names 为 null 时无法获取参数名
+     */
+    private static final class MethodParameters {
+
+        private final String[] names;
+        private final String[] indexNames;
+        private final String[] aliasNames;
+
+        MethodParameters(Method method) {
+            this.names = U.getParameterNames(method);
+            int count = method.getParameterCount();
+            this.indexNames = new String[count];
+            this.aliasNames = new String[count];
+            for (int i = 0; i < count; i++) {
+                indexNames[i] = "p" + i;
+                aliasNames[i] = "a" + i;
+            }
+        }
+    }
+
+    private static final class ExpressionKey {
+
+        private final Method method;
+        private final String spel;
+        private final int hash;
+
+        ExpressionKey(Method method, String spel) {
+            this.method = method;
+            this.spel = spel;
+            this.hash = Objects.hashCode(method) * 31 + spel.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ExpressionKey)) {
+                return false;
+            }
+            ExpressionKey that = (ExpressionKey) o;
+            return Objects.equals(method, that.method) && spel.equals(that.spel);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
 }
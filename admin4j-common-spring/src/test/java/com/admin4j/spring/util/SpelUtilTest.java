@@ -31,6 +31,19 @@ public class SpelUtilTest extends TestCase {
         System.out.println("parse = " + parse);
     }
 
+    public void testParseCached() throws NoSuchMethodException {
+
+        Method tMethod = SpelUtilTest.class.getDeclaredMethod("tMethod", String.class);
+        // 多次计算，MIXED 模式下编译后结果不变
+        for (int i = 0; i < 200; i++) {
+            assertEquals("order:" + i, SpelUtil.parse(this, "'order:'+#id", tMethod, new Object[]{String.valueOf(i)}));
+            assertEquals("order:" + i, SpelUtil.parse(this, "'order:'+#p0", tMethod, new Object[]{String.valueOf(i)}));
+            assertEquals("order:" + i, SpelUtil.parse(this, "'order:'+#a0", tMethod, new Object[]{String.valueOf(i)}));
+        }
+        assertEquals("order:null", SpelUtil.parse(this, "'order:'+#id", tMethod, new Object[]{null}));
+        assertEquals("p0-12", SpelUtil.parse(this, "#root.tMethod(#id)", tMethod, new Object[]{"1"}));
+    }
+
     public String tMethod(String id) {
 
         return "p0-12";
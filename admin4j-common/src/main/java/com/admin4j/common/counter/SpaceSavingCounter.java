@@ -0,0 +1,149 @@
+package com.admin4j.common.counter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Space-Saving 热点统计。
+ * 只保存 capacity 个计数器，满了之后新 key 替换计数最小的 key 并继承其计数，
+ * 真实次数在 [count - error, count] 之间。
+ * 计数器按 key 的 hash 分段，已统计的 key 计数无锁，新 key 只锁所在的分段并在分段内替换，
+ * 出现次数超过 分段总数/分段容量 的 key 一定会被统计到
+ *
+ * @author andanyang
+ * @since 2024/3/8 9:30
+ */
+public class SpaceSavingCounter {
+
+    /**
+     * 每个分段至少保存的计数器数量，分段太小时替换过于频繁，误差变大
+     */
+    private static final int MIN_STRIPE_CAPACITY = 16;
+    private static final int MAX_STRIPES = 16;
+
+    private final Stripe[] stripes;
+
+    public SpaceSavingCounter(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, capacity / MIN_STRIPE_CAPACITY)));
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            // 容量平均分配到各分段，余数分给前面的分段
+            stripes[i] = new Stripe(capacity / stripeCount + (i < capacity % stripeCount ? 1 : 0));
+        }
+    }
+
+    public void add(String key) {
+        add(key, 1);
+    }
+
+    public void add(String key, long count) {
+
+        int hash = key.hashCode();
+        stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)].add(key, count);
+    }
+
+    /**
+     * 计数最大的 n 个 key，按计数倒序
+     */
+    public List<Entry> top(int n) {
+
+        List<Entry> entries = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            for (Entry entry : stripe.counters.values()) {
+                entries.add(new Entry(entry.key, entry.getCount(), entry.error));
+            }
+        }
+        entries.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+        return entries.size() > n ? new ArrayList<>(entries.subList(0, n)) : entries;
+    }
+
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.counters.clear();
+            }
+        }
+    }
+
+    private static final class Stripe {
+
+        private final int capacity;
+        private final ConcurrentHashMap<String, Entry> counters;
+
+        Stripe(int capacity) {
+            this.capacity = capacity;
+            this.counters = new ConcurrentHashMap<>(capacity * 2);
+        }
+
+        void add(String key, long count) {
+
+            Entry entry = counters.get(key);
+            if (entry != null) {
+                // 与替换并发时这次计数可能丢失，统计本身是近似值
+                entry.count.add(count);
+                return;
+            }
+            synchronized (this) {
+                entry = counters.get(key);
+                if (entry != null) {
+                    entry.count.add(count);
+                    return;
+                }
+                if (counters.size() < capacity) {
+                    counters.put(key, new Entry(key, count, 0));
+                    return;
+                }
+
+                Entry min = null;
+                long minCount = Long.MAX_VALUE;
+                for (Entry value : counters.values()) {
+                    long valueCount = value.getCount();
+                    if (valueCount < minCount) {
+                        min = value;
+                        minCount = valueCount;
+                    }
+                }
+                counters.remove(min.key);
+                counters.put(key, new Entry(key, minCount + count, minCount));
+            }
+        }
+    }
+
+    public static class Entry {
+
+        private final String key;
+        private final LongAdder count = new LongAdder();
+        /**
+         * 最大高估的次数
+         */
+        private final long error;
+
+        Entry(String key, long count, long error) {
+            this.key = key;
+            this.count.add(count);
+            this.error = error;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getCount() + "(±" + error + ")";
+        }
+    }
+}
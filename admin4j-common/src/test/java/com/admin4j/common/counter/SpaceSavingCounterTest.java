@@ -0,0 +1,70 @@
+package com.admin4j.common.counter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author andanyang
+ * @since 2024/3/8 11:20
+ */
+public class SpaceSavingCounterTest {
+
+    @Test
+    public void testTop() {
+
+        SpaceSavingCounter counter = new SpaceSavingCounter(10);
+        for (int i = 0; i < 10000; i++) {
+            counter.add("key:" + i);
+            if (i % 2 == 0) {
+                counter.add("hot");
+            }
+            if (i % 5 == 0) {
+                counter.add("warm");
+            }
+        }
+
+        List<SpaceSavingCounter.Entry> top = counter.top(2);
+        Assert.assertEquals(2, top.size());
+        Assert.assertEquals("hot", top.get(0).getKey());
+        Assert.assertEquals("warm", top.get(1).getKey());
+        Assert.assertTrue(top.get(0).getCount() - top.get(0).getError() <= 5000);
+        Assert.assertTrue(top.get(0).getCount() >= 5000);
+    }
+
+    /**
+     * 多线程计数，分段后热点 key 仍能统计到
+     */
+    @Test
+    public void testConcurrentAdd() throws Exception {
+
+        SpaceSavingCounter counter = new SpaceSavingCounter(100);
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    counter.add("key:" + thread + ":" + i);
+                    counter.add("hot");
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        SpaceSavingCounter.Entry top = counter.top(1).get(0);
+        Assert.assertEquals("hot", top.getKey());
+        Assert.assertTrue(top.getCount() >= 40000);
+        Assert.assertTrue(top.getCount() - top.getError() <= 40000);
+        Assert.assertEquals(100, counter.top(1000).size());
+    }
+}
@@ -0,0 +1,35 @@
+package com.admin4j.limiter.core;
+
+/**
+ * 支持突发容量的限速器
+ *
+ * @author andanyang
+ * @since 2024/3/5 10:05
+ */
+public interface BurstRateLimiterService extends RateLimiterService {
+
+    /**
+     * 判断请求是否允许通过
+     *
+     * @param maxAttempts 统计时间间隔内的请求数，即平均速率
+     * @param interval    统计时间间隔
+     * @param burst       允许连续通过的最大请求数
+     * @return 是否限速
+     */
+    boolean tryAcquireWithBurst(String key, int maxAttempts, long interval, int burst);
+
+    /**
+     * 判断请求是否允许通过，本次请求消耗 permits 次。
+     * 默认实现只支持 permits 为 1，支持请求成本的实现类需要覆盖
+     *
+     * @param burst   允许连续通过的最大请求数
+     * @param permits 本次请求消耗的次数
+     * @return 是否限速
+     */
+    default boolean tryAcquireWithBurst(String key, int maxAttempts, long interval, int burst, int permits) {
+        if (permits == 1) {
+            return tryAcquireWithBurst(key, maxAttempts, interval, burst);
+        }
+        throw new UnsupportedOperationException(getClass().getName() + " does not support permits " + permits);
+    }
+}
@@ -0,0 +1,64 @@
+package com.admin4j.limiter.core;
+
+import com.admin4j.limiter.core.constant.LimiterType;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按路径配置的限速规则，不需要修改 {@link com.admin4j.limiter.core.anno.RateLimiter} 注解，可以动态刷新。
+ * 匹配到的规则优先于 handler 上的注解
+ *
+ * @author andanyang
+ * @since 2024/3/14 9:30
+ */
+@Data
+public class PathLimiterRule {
+
+    /**
+     * 路径模式，{@link org.springframework.web.util.pattern.PathPattern} 语法，如 /api/order/**
+     */
+    private String pattern;
+    /**
+     * 请求方法，为空时匹配所有方法
+     */
+    private List<String> methods = new ArrayList<>();
+    /**
+     * 限速类型
+     */
+    private LimiterType limiterType = LimiterType.SLIDING_WINDOW;
+    /**
+     * qps，容量，最大的请求次数
+     */
+    private int maxAttempts = 2;
+    /**
+     * 统计时间范围
+     */
+    private long interval = 2;
+    /**
+     * 统计时间范围,单位
+     */
+    private TimeUnit timeUnit = TimeUnit.SECONDS;
+    /**
+     * key 生成器，为空时匹配该模式的所有请求共用一个限速 key
+     */
+    private Class<? extends RateLimiterKeyGenerate> keyGenerate;
+    /**
+     * 是否拼上ip
+     */
+    private boolean ip;
+    /**
+     * 允许的突发请求数，仅 GCRA 支持
+     */
+    private int burst;
+    /**
+     * 本次请求消耗的次数
+     */
+    private int permits = 1;
+    /**
+     * 整形模式的最长等待时间，毫秒，仅 LEAKY_BUCKET 支持
+     */
+    private long maxWait;
+}
@@ -9,4 +9,14 @@ import com.admin4j.limiter.core.constant.LimiterType;
 public interface RateLimiterProvider extends RateLimiterService {
 
     LimiterType support();
+
+    /**
+     * 限速器实现方，如 redis、local。
+     * 同一个 LimiterType 有多个实现时，按配置 admin4j.limiter.provider 选择
+     *
+     * @return 实现方名称
+     */
+    default String provider() {
+        return "default";
+    }
 }
@@ -0,0 +1,42 @@
+package com.admin4j.limiter.core;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 限速规则，{@link RateLimiterService#tryAcquireAll} 的参数
+ *
+ * @author andanyang
+ * @since 2024/3/6 9:50
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class RateLimiterRule {
+
+    /**
+     * 限速key
+     */
+    private final String key;
+    /**
+     * qps、最大的容量
+     */
+    private final int maxAttempts;
+    /**
+     * 统计时间间隔，秒
+     */
+    private final long interval;
+    /**
+     * 允许的突发请求数，仅 GCRA 支持，小于等于 0 时等于 maxAttempts
+     */
+    private final int burst;
+    /**
+     * 本次请求消耗的次数
+     */
+    private final int permits;
+
+    public RateLimiterRule(String key, int maxAttempts, long interval) {
+        this(key, maxAttempts, interval, 0, 1);
+    }
+}
@@ -1,5 +1,9 @@
 package com.admin4j.limiter.core;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * @author andanyang
  * @since 2023/5/11 9:42
@@ -14,4 +18,64 @@ public interface RateLimiterService {
      * @return 是否限速
      */
     boolean tryAcquire(String key, int maxAttempts, long interval);
+
+    /**
+     * 判断请求是否允许通过，本次请求消耗 permits 次。
+     * 默认实现只支持 permits 为 1，支持请求成本的实现类需要覆盖
+     *
+     * @param maxAttempts qps、最大的容量
+     * @param interval    统计时间间隔
+     * @param permits     本次请求消耗的次数，即请求的成本
+     * @return 是否限速
+     */
+    default boolean tryAcquire(String key, int maxAttempts, long interval, int permits) {
+        if (permits == 1) {
+            return tryAcquire(key, maxAttempts, interval);
+        }
+        throw new UnsupportedOperationException(getClass().getName() + " does not support permits " + permits);
+    }
+
+    /**
+     * 异步判断请求是否允许通过，不阻塞调用线程。
+     * 默认实现同步判断后返回已完成的结果，适用于本地限速器
+     *
+     * @param maxAttempts qps、最大的容量
+     * @param interval    统计时间间隔
+     * @return 是否允许通过
+     */
+    default CompletionStage<Boolean> tryAcquireAsync(String key, int maxAttempts, long interval) {
+        return tryAcquireAsync(key, maxAttempts, interval, 1);
+    }
+
+    /**
+     * tryAcquireAsync 是否真正异步执行、不阻塞调用线程。默认实现同步判断，返回 false
+     */
+    default boolean isAsyncSupported() {
+        return false;
+    }
+
+    /**
+     * 异步判断请求是否允许通过，本次请求消耗 permits 次
+     */
+    default CompletionStage<Boolean> tryAcquireAsync(String key, int maxAttempts, long interval, int permits) {
+        return CompletableFuture.completedFuture(tryAcquire(key, maxAttempts, interval, permits));
+    }
+
+    /**
+     * 同时判断多个规则，全部通过才放行。
+     * 默认实现逐个判断，前面的规则通过后即已计数，不保证原子性；实现类可以覆盖为原子操作
+     *
+     * @param rules 限速规则
+     * @return 拒绝请求的规则下标，全部通过返回 -1
+     */
+    default int tryAcquireAll(List<RateLimiterRule> rules) {
+
+        for (int i = 0; i < rules.size(); i++) {
+            RateLimiterRule rule = rules.get(i);
+            if (!tryAcquire(rule.getKey(), rule.getMaxAttempts(), rule.getInterval(), rule.getPermits())) {
+                return i;
+            }
+        }
+        return -1;
+    }
 }
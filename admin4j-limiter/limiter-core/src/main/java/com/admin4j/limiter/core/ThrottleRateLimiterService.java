@@ -0,0 +1,22 @@
+package com.admin4j.limiter.core;
+
+/**
+ * 支持整形(延迟)的限速器。
+ * 超出速率的请求不直接拒绝，而是按速率排队，计算出请求可以执行的时间点
+ *
+ * @author andanyang
+ * @since 2024/3/12 9:40
+ */
+public interface ThrottleRateLimiterService extends RateLimiterService {
+
+    /**
+     * 为请求预约执行时间
+     *
+     * @param maxAttempts 统计时间间隔内的请求数，即平均速率
+     * @param interval    统计时间间隔，秒
+     * @param permits     本次请求消耗的次数
+     * @param maxWait     最长等待时间，毫秒
+     * @return 需要等待的毫秒数，0 表示立即执行；等待时间超过 maxWait 时返回 -1，不占用次数
+     */
+    long tryAcquireWithDelay(String key, int maxAttempts, long interval, int permits, long maxWait);
+}
@@ -0,0 +1,49 @@
+package com.admin4j.limiter.core.anno;
+
+import com.admin4j.limiter.core.RateLimiterKeyGenerate;
+import com.admin4j.limiter.core.key.DefaultRateLimiterKeyGenerate;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限速规则，用于 {@link RateLimiter#rules()} 同时限制多个维度
+ *
+ * @author andanyang
+ * @since 2024/3/6 9:40
+ */
+@Target({})
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LimiterRule {
+
+    Class<? extends RateLimiterKeyGenerate> keyGenerate() default DefaultRateLimiterKeyGenerate.class;
+
+    /**
+     * qps，容量，最大的请求次数
+     */
+    int maxAttempts() default 2;
+
+    /**
+     * 统计时间范围
+     */
+    int interval() default 2;
+
+    /**
+     * 统计时间范围,单位
+     */
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * 是否拼上ip
+     */
+    boolean ip() default false;
+
+    /**
+     * 允许的突发请求数，仅 GCRA 支持，小于等于 0 时等于 maxAttempts
+     */
+    int burst() default 0;
+}
@@ -45,4 +45,34 @@ public @interface RateLimiter {
      * @return
      */
     boolean ip() default false;
-}
\ No newline at end of file
+
+    /**
+     * 允许的突发请求数，仅 {@link LimiterType#GCRA} 支持，小于等于 0 时等于 maxAttempts
+     */
+    int burst() default 0;
+
+    /**
+     * 多维度限速规则，例如同时按接口、用户、租户限速。
+     * 不为空时忽略 keyGenerate、maxAttempts、interval、timeUnit、ip、burst，所有规则使用 limiterType 指定的算法，
+     * 全部通过才放行，redis 的 FIX_WINDOW、SLIDING_WINDOW、GCRA 在一次脚本调用中原子判断
+     */
+    LimiterRule[] rules() default {};
+
+    /**
+     * 本次请求消耗的次数，即请求的成本。导出、批量查询等开销大的接口可以设置更大的值
+     */
+    int permits() default 1;
+
+    /**
+     * 请求成本的 SpEL 表达式，变量 #request 为当前请求，例如 "#request.getParameter('pageSize')"。
+     * 不为空时优先于 permits，表达式结果为空、不是数字或者小于 1 时使用 permits
+     */
+    String permitsExpression() default "";
+
+    /**
+     * 整形模式的最长等待时间，毫秒。
+     * 大于 0 时超出速率的请求不拒绝，而是通过 servlet 异步延迟到可执行的时间点，等待超过该时间才拒绝。
+     * 仅 {@link LimiterType#LEAKY_BUCKET} 支持，多规则时不生效
+     */
+    long maxWait() default 0;
+}
@@ -0,0 +1,19 @@
+package com.admin4j.limiter.core.concurrency;
+
+/**
+ * 并发限制
+ *
+ * @author andanyang
+ * @since 2024/3/11 10:05
+ */
+public interface ConcurrencyLimiterService {
+
+    /**
+     * 获取并发许可
+     *
+     * @param maxConcurrency 并发上限的最大值
+     * @param leaseTime      许可最长的持有时间，秒
+     * @return 许可，并发已满时返回 null
+     */
+    ConcurrencyPermit tryAcquireConcurrency(String key, int maxConcurrency, long leaseTime);
+}
@@ -0,0 +1,25 @@
+package com.admin4j.limiter.core.concurrency;
+
+/**
+ * 并发许可，请求结束后必须调用其中一个方法释放
+ *
+ * @author andanyang
+ * @since 2024/3/11 10:10
+ */
+public interface ConcurrencyPermit {
+
+    /**
+     * 请求成功，释放许可并记录耗时
+     */
+    void onSuccess();
+
+    /**
+     * 请求失败或者超时，释放许可并视为过载，降低并发上限
+     */
+    void onDropped();
+
+    /**
+     * 请求没有执行，只释放许可
+     */
+    void onIgnore();
+}
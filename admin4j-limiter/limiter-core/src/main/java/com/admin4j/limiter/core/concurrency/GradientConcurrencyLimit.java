@@ -0,0 +1,137 @@
+package com.admin4j.limiter.core.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于耗时梯度的自适应并发上限。
+ * 长期平均耗时与当前耗时的比值作为梯度：耗时上升时按比例降低上限，耗时平稳时以 sqrt(limit) 的速度增加上限；
+ * 请求失败时按比例快速降低上限(AIMD)
+ *
+ * @author andanyang
+ * @since 2024/3/11 10:20
+ */
+public class GradientConcurrencyLimit {
+
+    /**
+     * 新上限的平滑系数
+     */
+    private static final double SMOOTHING = 0.2;
+    /**
+     * 请求失败时上限的降低比例
+     */
+    private static final double BACKOFF_RATIO = 0.9;
+    /**
+     * 允许耗时超过长期平均耗时的倍数
+     */
+    private static final double TOLERANCE = 1.5;
+    /**
+     * 长期平均耗时的衰减系数
+     */
+    private static final double LONG_RTT_ALPHA = 0.05;
+
+    private final int minLimit;
+    private volatile int maxLimit;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile double limit;
+    private double longRtt;
+
+    public GradientConcurrencyLimit(int maxLimit) {
+        this.minLimit = 1;
+        this.maxLimit = Math.max(1, maxLimit);
+        this.limit = Math.max(minLimit, this.maxLimit / 2);
+    }
+
+    /**
+     * 并发未满时占用一个许可
+     */
+    public boolean tryAcquire() {
+        for (; ; ) {
+            int current = inflight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放许可，不记录耗时
+     */
+    public void release() {
+        inflight.decrementAndGet();
+    }
+
+    /**
+     * 释放许可并根据耗时调整上限
+     *
+     * @param rttNanos 请求耗时
+     * @param dropped  请求是否失败
+     */
+    public void release(long rttNanos, boolean dropped) {
+        int current = inflight.getAndDecrement();
+        onSample(rttNanos, current, dropped);
+    }
+
+    private synchronized void onSample(long rttNanos, int inflight, boolean dropped) {
+
+        if (dropped) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            return;
+        }
+
+        double rtt = Math.max(1, rttNanos);
+        if (longRtt == 0) {
+            longRtt = rtt;
+        } else {
+            longRtt = longRtt * (1 - LONG_RTT_ALPHA) + rtt * LONG_RTT_ALPHA;
+        }
+        // 负载降低后长期耗时偏高，加快衰减
+        if (longRtt > rtt * 2) {
+            longRtt *= 0.95;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / rtt));
+        // 并发远未达到上限时，耗时不能说明上限是否合适，不增加上限
+        if (gradient >= 1.0 && inflight < limit / 2) {
+            return;
+        }
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    /**
+     * 当前并发上限
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * 调整并发上限的最大值，处理中的许可保留，释放时仍然计入
+     */
+    public void setMaxLimit(int maxLimit) {
+
+        maxLimit = Math.max(1, maxLimit);
+        if (maxLimit == this.maxLimit) {
+            return;
+        }
+        synchronized (this) {
+            this.maxLimit = maxLimit;
+            this.limit = Math.max(minLimit, Math.min(limit, maxLimit));
+        }
+    }
+
+    /**
+     * 当前处理中的请求数
+     */
+    public int getInflight() {
+        return inflight.get();
+    }
+}
@@ -27,5 +27,24 @@ public enum LimiterType {
     /**
      * 令牌桶算法
      */
-    TOKEN_BUCKET
+    TOKEN_BUCKET,
+
+    /**
+     * 租约令牌桶算法。
+     * 每个节点一次从 redis 令牌桶中预取一批令牌到本地，用完或者过期后再次预取，减少 redis 访问
+     */
+    LEASED_TOKEN_BUCKET,
+
+    /**
+     * 通用信元速率算法(GCRA)。
+     * 每个 key 只保存一个理论到达时间，支持亚秒级的请求间隔和突发容量
+     */
+    GCRA,
+
+    /**
+     * 自适应并发限制。
+     * 限制同时处理中的请求数，并根据请求耗时自动调整并发上限：maxAttempts 为并发上限的最大值，
+     * interval 为单个请求最长的持有时间，超过后自动释放
+     */
+    ADAPTIVE_CONCURRENCY
 }
@@ -0,0 +1,137 @@
+package com.admin4j.limiter.core.interceptor;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 路径模式索引。
+ * 按模式中不含通配符的前缀路径段建立前缀树，匹配时沿请求路径逐段查找，只校验前缀相同的模式，
+ * 匹配耗时与路径长度相关，不随模式数量增长。构建后只读，刷新时整体替换
+ *
+ * @author andanyang
+ * @since 2024/3/14 10:00
+ */
+public class PathPatternIndex<T> {
+
+    private final Node<T> root = new Node<>();
+    private int size;
+
+    /**
+     * @param pattern 路径模式
+     * @param methods 请求方法，为空时匹配所有方法
+     */
+    public void add(String pattern, Collection<String> methods, T value) {
+
+        PathPattern pathPattern = PathPatternParser.defaultInstance.parse(pattern);
+        Set<String> methodSet = new HashSet<>();
+        if (methods != null) {
+            for (String method : methods) {
+                methodSet.add(method.toUpperCase(Locale.ROOT));
+            }
+        }
+
+        Node<T> node = root;
+        for (String segment : pattern.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (isWildcard(segment)) {
+                break;
+            }
+            node = node.children.computeIfAbsent(segment, k -> new Node<>());
+        }
+        node.entries.add(new Entry<>(pathPattern, methodSet, value));
+        size++;
+    }
+
+    private static boolean isWildcard(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c == '*' || c == '?' || c == '{') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 查找匹配的值，有多个模式匹配时取最具体的模式
+     *
+     * @param path   应用内的请求路径，不含 contextPath
+     * @param method 请求方法
+     * @return 没有匹配时返回 null
+     */
+    public T match(String path, String method) {
+
+        if (size == 0) {
+            return null;
+        }
+        PathContainer pathContainer = null;
+        Entry<T> best = null;
+        Node<T> node = root;
+        int start = 0;
+        int length = path.length();
+        while (node != null) {
+            for (Entry<T> entry : node.entries) {
+                if (!entry.methods.isEmpty() && !entry.methods.contains(method)) {
+                    continue;
+                }
+                if (best != null && PathPattern.SPECIFICITY_COMPARATOR.compare(entry.pattern, best.pattern) >= 0) {
+                    continue;
+                }
+                if (pathContainer == null) {
+                    pathContainer = PathContainer.parsePath(path);
+                }
+                if (entry.pattern.matches(pathContainer)) {
+                    best = entry;
+                }
+            }
+
+            while (start < length && path.charAt(start) == '/') {
+                start++;
+            }
+            if (start >= length) {
+                break;
+            }
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            node = node.children.get(path.substring(start, end));
+            start = end;
+        }
+        return best == null ? null : best.value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static final class Node<T> {
+        private final Map<String, Node<T>> children = new HashMap<>();
+        private final List<Entry<T>> entries = new ArrayList<>(1);
+    }
+
+    private static final class Entry<T> {
+
+        private final PathPattern pattern;
+        private final Set<String> methods;
+        private final T value;
+
+        Entry(PathPattern pattern, Set<String> methods, T value) {
+            this.pattern = pattern;
+            this.methods = methods;
+            this.value = value;
+        }
+    }
+}
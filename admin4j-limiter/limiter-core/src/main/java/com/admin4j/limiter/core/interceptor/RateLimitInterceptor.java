@@ -1,18 +1,45 @@
 package com.admin4j.limiter.core.interceptor;
 
+import com.admin4j.limiter.core.BurstRateLimiterService;
+import com.admin4j.limiter.core.PathLimiterRule;
 import com.admin4j.limiter.core.RateLimiterContext;
 import com.admin4j.limiter.core.RateLimiterKeyGenerate;
+import com.admin4j.limiter.core.RateLimiterRule;
 import com.admin4j.limiter.core.RateLimiterService;
+import com.admin4j.limiter.core.ThrottleRateLimiterService;
+import com.admin4j.limiter.core.anno.LimiterRule;
 import com.admin4j.limiter.core.anno.RateLimiter;
+import com.admin4j.limiter.core.concurrency.ConcurrencyLimiterService;
+import com.admin4j.limiter.core.concurrency.ConcurrencyPermit;
+import com.admin4j.limiter.core.constant.LimiterType;
 import com.admin4j.limiter.core.exception.RateLimiterException;
+import com.admin4j.limiter.core.metrics.LimiterMetrics;
+import com.admin4j.limiter.core.store.RejectionCache;
+import com.admin4j.limiter.core.util.ThrottleScheduler;
 import com.admin4j.spring.util.IpUtils;
+import lombok.Setter;
 import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
+import org.springframework.core.MethodClassKey;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.SimpleEvaluationContext;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -21,9 +48,42 @@ import java.util.concurrent.TimeUnit;
  */
 public class RateLimitInterceptor implements HandlerInterceptor, ApplicationContextAware {
 
+    /**
+     * 复用的 key 构建器，超过该容量后丢弃，避免长 key 长期占用内存
+     */
+    private static final int MAX_KEY_BUILDER_CAPACITY = 1024;
+    private static final ThreadLocal<StringBuilder> KEY_BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+    private static final ExpressionParser EXPRESSION_PARSER = new SpelExpressionParser();
+    /**
+     * 当前请求占用的并发许可，请求结束后释放
+     */
+    private static final String PERMITS_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".PERMITS";
+    /**
+     * 整形延迟的请求在到点之前不应超时，异步超时在等待时间的基础上留出余量
+     */
+    private static final long THROTTLE_TIMEOUT_MARGIN = 10_000;
 
+    /**
+     * handler 的限速配置缓存，没有限速注解的 handler 缓存为 {@link Descriptor#NONE}。
+     * 按方法和 bean 类型缓存，数量不超过 handler 方法数；HandlerMethod 包含 bean 实例，作用域 bean 每次请求都不同
+     */
+    private final Map<MethodClassKey, Descriptor> descriptorCache = new ConcurrentHashMap<>(64);
     private final RateLimiterContext rateLimiterContext;
     private ApplicationContext applicationContext;
+    /**
+     * 拒绝缓存，为 null 时不启用
+     */
+    @Setter
+    private RejectionCache rejectionCache;
+    /**
+     * 按路径配置的限速规则，优先于注解
+     */
+    private volatile PathPatternIndex<Descriptor> pathRuleIndex;
+    /**
+     * 通过、拒绝次数统计，按限速类型和规则名称区分
+     */
+    @Setter
+    private LimiterMetrics limiterMetrics = LimiterMetrics.NOOP;
 
     public RateLimitInterceptor(RateLimiterContext rateLimiterContext) {
         this.rateLimiterContext = rateLimiterContext;
@@ -35,47 +95,399 @@ public class RateLimitInterceptor implements HandlerInterceptor, ApplicationCont
     }
 
     @Override
-    public boolean preHandle(javax.servlet.http.HttpServletRequest request, javax.servlet.http.HttpServletResponse response, Object handler) throws Exception {
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
         if (!(handler instanceof HandlerMethod)) {
             return true;
         }
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            // 异步请求的再次分派，第一次分派时已经限速
+            return true;
+        }
         HandlerMethod handlerMethod = (HandlerMethod) handler;
 
-        RateLimiter rateLimiter = handlerMethod.getMethodAnnotation(RateLimiter.class);
+        Descriptor descriptor = matchPathRule(request);
+        if (descriptor == null) {
+            MethodClassKey cacheKey = new MethodClassKey(handlerMethod.getMethod(), handlerMethod.getBeanType());
+            descriptor = descriptorCache.get(cacheKey);
+            if (descriptor == null) {
+                descriptor = descriptorCache.computeIfAbsent(cacheKey, key -> compile(handlerMethod));
+            }
+        }
+        if (descriptor == Descriptor.NONE) {
+            return true;
+        }
 
-        if (rateLimiter == null) {
-            Class<?> beanType = handlerMethod.getBeanType();
-            RateLimiter annotation = beanType.getAnnotation(RateLimiter.class);
-            if (annotation == null) {
-                return true;
+        if (descriptor.rateLimiterService instanceof ConcurrencyLimiterService) {
+            acquireConcurrency(request, response, handlerMethod, descriptor);
+            return true;
+        }
+
+        Rule[] rules = descriptor.rules;
+        int permits = permits(descriptor, request);
+        if (rules.length == 1) {
+            Rule rule = rules[0];
+            String rateLimiterKey = generateKey(request, response, handlerMethod, rule, -1);
+            if (isRejected(rateLimiterKey)) {
+                throw rejected(descriptor, rule, rateLimiterKey);
+            }
+            if (descriptor.maxWait > 0) {
+                return throttle(request, response, descriptor, rule, rateLimiterKey, permits);
+            }
+            if (!tryAcquire(descriptor.rateLimiterService, rule, rateLimiterKey, permits)) {
+
+                reject(descriptor, rule, rateLimiterKey, permits);
+                throw rejected(descriptor, rule, rateLimiterKey);
             }
-            rateLimiter = annotation;
+            acquired(descriptor);
+            return true;
         }
 
+        List<RateLimiterRule> limiterRules = new ArrayList<>(rules.length);
+        for (int i = 0; i < rules.length; i++) {
+            Rule rule = rules[i];
+            // 不同规则的 key 可能相同，拼上规则下标区分
+            String rateLimiterKey = generateKey(request, response, handlerMethod, rule, i);
+            if (isRejected(rateLimiterKey)) {
+                throw rejected(descriptor, rule, rateLimiterKey);
+            }
+            limiterRules.add(new RateLimiterRule(rateLimiterKey, rule.maxAttempts, rule.interval, rule.burst, permits));
+        }
+        int rejected = descriptor.rateLimiterService.tryAcquireAll(limiterRules);
+        if (rejected >= 0) {
+            String rateLimiterKey = limiterRules.get(rejected).getKey();
+            reject(descriptor, rules[rejected], rateLimiterKey, permits);
+            throw rejected(descriptor, rules[rejected], rateLimiterKey);
+        }
+        acquired(descriptor);
+        return true;
+    }
 
-        RateLimiterKeyGenerate rateLimiterKeyGenerate = applicationContext.getBean(rateLimiter.keyGenerate());
-        Assert.notNull(rateLimiterKeyGenerate, "keyGenerate not null");
-        StringBuilder keyBuilder = new StringBuilder();
-        rateLimiterKeyGenerate.generateKey(request, response, handlerMethod, keyBuilder);
-        if (rateLimiter.ip()) {
-            keyBuilder.append(":IP").append(IpUtils.getIpAddr(request));
+    private void acquired(Descriptor descriptor) {
+        for (Rule rule : descriptor.rules) {
+            limiterMetrics.onAcquired(descriptor.limiterType, rule.name);
         }
+    }
 
-        RateLimiterService rateLimiterService = rateLimiterService(rateLimiter);
-        long interval = rateLimiter.interval();
-        if (!rateLimiter.timeUnit().equals(TimeUnit.SECONDS)) {
-            interval = rateLimiter.timeUnit().toSeconds(interval);
+    private RateLimiterException rejected(Descriptor descriptor, Rule rule, String rateLimiterKey) {
+        limiterMetrics.onRejected(descriptor.limiterType, rule.name);
+        return new RateLimiterException(rateLimiterKey);
+    }
+
+    /**
+     * 整形限速，需要等待时开启 servlet 异步，到点后重新分派请求，不占用请求线程
+     *
+     * @return 是否立即执行
+     */
+    private boolean throttle(HttpServletRequest request, HttpServletResponse response, Descriptor descriptor,
+                             Rule rule, String rateLimiterKey, int permits) throws InterruptedException {
+
+        long wait = ((ThrottleRateLimiterService) descriptor.rateLimiterService)
+                .tryAcquireWithDelay(rateLimiterKey, rule.maxAttempts, rule.interval, permits, descriptor.maxWait);
+        if (wait < 0) {
+            if (rejectionCache != null) {
+                rejectionCache.reject(rateLimiterKey, 0);
+            }
+            throw rejected(descriptor, rule, rateLimiterKey);
+        }
+        acquired(descriptor);
+        if (wait == 0) {
+            return true;
+        }
+        if (!request.isAsyncSupported()) {
+            // 不支持异步时只能阻塞等待，等待时间不超过 maxWait
+            Thread.sleep(wait);
+            return true;
+        }
+
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(wait + THROTTLE_TIMEOUT_MARGIN);
+        // 再次分派时 DispatcherType 为 ASYNC，不会重复限速
+        ThrottleScheduler.schedule(asyncContext::dispatch, wait);
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+
+        ConcurrencyPermit[] permits = (ConcurrencyPermit[]) request.getAttribute(PERMITS_ATTRIBUTE);
+        if (permits == null) {
+            return;
+        }
+        request.removeAttribute(PERMITS_ATTRIBUTE);
+        boolean dropped = ex != null || response.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        for (ConcurrencyPermit permit : permits) {
+            if (dropped) {
+                permit.onDropped();
+            } else {
+                permit.onSuccess();
+            }
+        }
+    }
+
+    /**
+     * 按规则依次获取并发许可，任一规则被拒绝时释放已获取的许可
+     */
+    private void acquireConcurrency(HttpServletRequest request, HttpServletResponse response, HandlerMethod handlerMethod,
+                                    Descriptor descriptor) {
+
+        ConcurrencyLimiterService concurrencyLimiterService = (ConcurrencyLimiterService) descriptor.rateLimiterService;
+        Rule[] rules = descriptor.rules;
+        ConcurrencyPermit[] permits = new ConcurrencyPermit[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            Rule rule = rules[i];
+            String rateLimiterKey = generateKey(request, response, handlerMethod, rule, rules.length == 1 ? -1 : i);
+            ConcurrencyPermit permit = concurrencyLimiterService.tryAcquireConcurrency(rateLimiterKey, rule.maxAttempts, rule.interval);
+            if (permit == null) {
+                for (int j = 0; j < i; j++) {
+                    permits[j].onIgnore();
+                }
+                if (rejectionCache != null) {
+                    // 并发很快会被释放，不缓存拒绝，只做热点统计
+                    rejectionCache.reject(rateLimiterKey, 0);
+                }
+                throw rejected(descriptor, rule, rateLimiterKey);
+            }
+            permits[i] = permit;
+        }
+        acquired(descriptor);
+        request.setAttribute(PERMITS_ATTRIBUTE, permits);
+    }
+
+    private boolean isRejected(String rateLimiterKey) {
+        return rejectionCache != null && rejectionCache.isRejected(rateLimiterKey);
+    }
+
+    private void reject(Descriptor descriptor, Rule rule, String rateLimiterKey, int permits) {
+        if (rejectionCache == null) {
+            return;
+        }
+        if (permits > 1) {
+            // 成本较高的请求被拒绝时，成本低的请求仍可能通过，只做热点统计
+            rejectionCache.reject(rateLimiterKey, 0);
+        } else {
+            rejectionCache.reject(rateLimiterKey, descriptor.limiterType, rule.maxAttempts, rule.interval);
+        }
+    }
+
+    /**
+     * 计算本次请求的成本，表达式的结果小于 1 时使用配置的 permits
+     */
+    private int permits(Descriptor descriptor, HttpServletRequest request) {
+
+        if (descriptor.permitsExpression == null) {
+            return descriptor.permits;
+        }
+        EvaluationContext context = SimpleEvaluationContext.forReadOnlyDataBinding().withInstanceMethods().build();
+        context.setVariable("request", request);
+        Object value = descriptor.permitsExpression.getValue(context);
+        int permits = 0;
+        if (value instanceof Number) {
+            permits = ((Number) value).intValue();
+        } else if (value instanceof String && !((String) value).isEmpty()) {
+            try {
+                permits = Integer.parseInt(((String) value).trim());
+            } catch (NumberFormatException e) {
+                return descriptor.permits;
+            }
+        }
+        return permits >= 1 ? permits : descriptor.permits;
+    }
+
+    private String generateKey(HttpServletRequest request, HttpServletResponse response, HandlerMethod handlerMethod, Rule rule, int index) {
+
+        StringBuilder keyBuilder = KEY_BUILDER.get();
+        keyBuilder.setLength(0);
+        rule.keyGenerate.generateKey(request, response, handlerMethod, keyBuilder);
+        if (rule.ip) {
+            keyBuilder.append(":IP").append(IpUtils.getIpAddr(request));
+        }
+        if (index >= 0) {
+            keyBuilder.append(":R").append(index);
         }
         String rateLimiterKey = keyBuilder.toString();
-        if (!rateLimiterService.tryAcquire(rateLimiterKey, rateLimiter.maxAttempts(), interval)) {
+        if (keyBuilder.capacity() > MAX_KEY_BUILDER_CAPACITY) {
+            KEY_BUILDER.remove();
+        }
+        return rateLimiterKey;
+    }
+
+    private boolean tryAcquire(RateLimiterService rateLimiterService, Rule rule, String rateLimiterKey, int permits) {
 
-            throw new RateLimiterException(rateLimiterKey);
+        if (rule.burst > 0 && rateLimiterService instanceof BurstRateLimiterService) {
+            return ((BurstRateLimiterService) rateLimiterService)
+                    .tryAcquireWithBurst(rateLimiterKey, rule.maxAttempts, rule.interval, rule.burst, permits);
         }
-        return true;
+        return rateLimiterService.tryAcquire(rateLimiterKey, rule.maxAttempts, rule.interval, permits);
+    }
+
+    private Descriptor matchPathRule(HttpServletRequest request) {
+
+        PathPatternIndex<Descriptor> index = this.pathRuleIndex;
+        if (index == null) {
+            return null;
+        }
+        String path = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        if (!contextPath.isEmpty() && path.startsWith(contextPath)) {
+            path = path.substring(contextPath.length());
+        }
+        return index.match(path, request.getMethod());
+    }
+
+    /**
+     * 替换按路径配置的限速规则，规则全部解析成功后才生效
+     */
+    public void setPathRules(List<PathLimiterRule> pathRules) {
+
+        if (pathRules == null || pathRules.isEmpty()) {
+            this.pathRuleIndex = null;
+            return;
+        }
+        PathPatternIndex<Descriptor> index = new PathPatternIndex<>();
+        for (PathLimiterRule pathRule : pathRules) {
+            Assert.hasText(pathRule.getPattern(), "path rule pattern not empty");
+            index.add(pathRule.getPattern(), pathRule.getMethods(), compile(pathRule));
+        }
+        this.pathRuleIndex = index;
     }
 
+    /**
+     * 解析按路径配置的限速规则。未指定 keyGenerate 时，匹配该模式的请求共用一个 key
+     */
+    protected Descriptor compile(PathLimiterRule pathRule) {
+
+        RateLimiterService rateLimiterService = rateLimiterContext.getByLimiterType(pathRule.getLimiterType());
+        Assert.notNull(rateLimiterService, "no RateLimiterService for " + pathRule.getLimiterType());
+        Assert.isTrue(pathRule.getMaxWait() <= 0 || rateLimiterService instanceof ThrottleRateLimiterService,
+                "maxWait is not supported by " + pathRule.getLimiterType());
+        Assert.isTrue(pathRule.getPermits() >= 1, "permits must be >= 1: " + pathRule.getPattern());
+
+        String keyPrefix = "P:" + pathRule.getPattern();
+        RateLimiterKeyGenerate delegate = pathRule.getKeyGenerate() == null ? null : applicationContext.getBean(pathRule.getKeyGenerate());
+        RateLimiterKeyGenerate keyGenerate = (request, response, handlerMethod, keyBuilder) -> {
+            keyBuilder.append(keyPrefix);
+            if (delegate != null) {
+                keyBuilder.append(':');
+                delegate.generateKey(request, response, handlerMethod, keyBuilder);
+            }
+        };
+        long interval = pathRule.getTimeUnit().toSeconds(pathRule.getInterval());
+        Rule rule = new Rule(keyPrefix, keyGenerate, pathRule.getMaxAttempts(), interval, pathRule.isIp(), pathRule.getBurst());
+        return new Descriptor(pathRule.getLimiterType(), rateLimiterService, new Rule[]{rule},
+                pathRule.getPermits(), null, pathRule.getMaxWait());
+    }
+
+    /**
+     * 解析 handler 上的限速配置，只在第一次请求时执行
+     */
+    protected Descriptor compile(HandlerMethod handlerMethod) {
+
+        RateLimiter rateLimiter = handlerMethod.getMethodAnnotation(RateLimiter.class);
+        if (rateLimiter == null) {
+            rateLimiter = handlerMethod.getBeanType().getAnnotation(RateLimiter.class);
+            if (rateLimiter == null) {
+                return Descriptor.NONE;
+            }
+        }
+
+        RateLimiterService rateLimiterService = rateLimiterService(rateLimiter);
+        Assert.notNull(rateLimiterService, "no RateLimiterService for " + rateLimiter.limiterType());
+
+        String name = handlerMethod.getBeanType().getSimpleName() + "#" + handlerMethod.getMethod().getName();
+        Rule[] rules;
+        if (rateLimiter.rules().length == 0) {
+            rules = new Rule[]{compileRule(name, rateLimiter.keyGenerate(), rateLimiter.maxAttempts(), rateLimiter.interval(),
+                    rateLimiter.timeUnit(), rateLimiter.ip(), rateLimiter.burst())};
+        } else {
+            rules = new Rule[rateLimiter.rules().length];
+            for (int i = 0; i < rules.length; i++) {
+                LimiterRule limiterRule = rateLimiter.rules()[i];
+                rules[i] = compileRule(name + ":R" + i, limiterRule.keyGenerate(), limiterRule.maxAttempts(), limiterRule.interval(),
+                        limiterRule.timeUnit(), limiterRule.ip(), limiterRule.burst());
+            }
+        }
+        Expression permitsExpression = StringUtils.hasText(rateLimiter.permitsExpression())
+                ? EXPRESSION_PARSER.parseExpression(rateLimiter.permitsExpression()) : null;
+        long maxWait = rules.length == 1 ? rateLimiter.maxWait() : 0;
+        Assert.isTrue(maxWait <= 0 || rateLimiterService instanceof ThrottleRateLimiterService,
+                "maxWait is not supported by " + rateLimiter.limiterType());
+        Assert.isTrue(rateLimiter.permits() >= 1, "permits must be >= 1: " + name);
+        return new Descriptor(rateLimiter.limiterType(), rateLimiterService, rules, rateLimiter.permits(),
+                permitsExpression, maxWait);
+    }
+
+    private Rule compileRule(String name, Class<? extends RateLimiterKeyGenerate> keyGenerate, int maxAttempts, long interval,
+                             TimeUnit timeUnit, boolean ip, int burst) {
+
+        RateLimiterKeyGenerate rateLimiterKeyGenerate = applicationContext.getBean(keyGenerate);
+        Assert.notNull(rateLimiterKeyGenerate, "keyGenerate not null");
+
+        if (!timeUnit.equals(TimeUnit.SECONDS)) {
+            interval = timeUnit.toSeconds(interval);
+        }
+        return new Rule(name, rateLimiterKeyGenerate, maxAttempts, interval, ip, burst);
+    }
 
     protected RateLimiterService rateLimiterService(RateLimiter rateLimiter) {
         return rateLimiterContext.getByLimiterType(rateLimiter.limiterType());
     }
+
+    /**
+     * 预先解析好的 handler 限速配置
+     */
+    protected static class Descriptor {
+
+        static final Descriptor NONE = new Descriptor(null, null, null, 1, null, 0);
+
+        final LimiterType limiterType;
+        final RateLimiterService rateLimiterService;
+        final Rule[] rules;
+        final int permits;
+        /**
+         * 请求成本表达式，为 null 时使用 permits
+         */
+        final Expression permitsExpression;
+        /**
+         * 整形模式的最长等待时间，毫秒，小于等于 0 时不启用
+         */
+        final long maxWait;
+
+        protected Descriptor(LimiterType limiterType, RateLimiterService rateLimiterService, Rule[] rules,
+                             int permits, Expression permitsExpression, long maxWait) {
+            this.limiterType = limiterType;
+            this.rateLimiterService = rateLimiterService;
+            this.rules = rules;
+            this.permits = permits;
+            this.permitsExpression = permitsExpression;
+            this.maxWait = maxWait;
+        }
+    }
+
+    /**
+     * 预先解析好的限速规则
+     */
+    protected static class Rule {
+
+        /**
+         * 规则名称，用于统计，不含请求相关的信息
+         */
+        final String name;
+        final RateLimiterKeyGenerate keyGenerate;
+        final int maxAttempts;
+        /**
+         * 统计时间间隔，秒
+         */
+        final long interval;
+        final boolean ip;
+        final int burst;
+
+        protected Rule(String name, RateLimiterKeyGenerate keyGenerate, int maxAttempts, long interval, boolean ip, int burst) {
+            this.name = name;
+            this.keyGenerate = keyGenerate;
+            this.maxAttempts = maxAttempts;
+            this.interval = interval;
+            this.ip = ip;
+            this.burst = burst;
+        }
+    }
 }
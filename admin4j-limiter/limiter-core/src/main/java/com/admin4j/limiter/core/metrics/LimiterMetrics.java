@@ -0,0 +1,40 @@
+package com.admin4j.limiter.core.metrics;
+
+import com.admin4j.limiter.core.constant.LimiterType;
+
+/**
+ * 限速指标。
+ * 规则名称为 handler 方法名或者路径模式，不使用限速 key，避免指标数量失控
+ *
+ * @author andanyang
+ * @since 2024/3/15 9:30
+ */
+public interface LimiterMetrics {
+
+    LimiterMetrics NOOP = new LimiterMetrics() {
+    };
+
+    /**
+     * 请求通过
+     *
+     * @param rule 规则名称
+     */
+    default void onAcquired(LimiterType limiterType, String rule) {
+    }
+
+    /**
+     * 请求被拒绝
+     *
+     * @param rule 规则名称
+     */
+    default void onRejected(LimiterType limiterType, String rule) {
+    }
+
+    /**
+     * 记录 redis 脚本的执行耗时
+     *
+     * @param success 是否执行成功
+     */
+    default void recordScript(LimiterType limiterType, long elapsedNanos, boolean success) {
+    }
+}
@@ -0,0 +1,189 @@
+package com.admin4j.limiter.core.store;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 本地限速状态存储。
+ * 按访问时间过期，用于保存每个限速 key 的状态。
+ * 只清理过期的 key，未过期的状态不会被淘汰，避免限速状态被重置后放行超额请求；
+ * key 数量超过 maxSize 时在最早的过期时间到达后再次清理，不会每次新增 key 都遍历。
+ * 仍在使用的状态(如有处理中的请求)即使空闲超时也不会过期。
+ * 所有时间参数均为调用方提供的单调时钟(纳秒)
+ *
+ * @author andanyang
+ * @since 2024/3/1 10:12
+ */
+public class LimiterKeyStore<V> {
+
+    /**
+     * 两次过期清理的最小间隔
+     */
+    private static final long SWEEP_INTERVAL_NANOS = 1_000_000_000L;
+
+    /**
+     * 超过容量时两次过期清理的最小间隔
+     */
+    private static final long OVERFLOW_SWEEP_INTERVAL_NANOS = 100_000_000L;
+
+    /**
+     * System.nanoTime() 可能为负数，统一减去该值，保证时间从 0 开始递增
+     */
+    private static final long ORIGIN = System.nanoTime();
+
+    private final ConcurrentHashMap<String, Node<V>> map;
+    private final int maxSize;
+    private final Predicate<? super V> inUse;
+    private final AtomicLong nextSweep;
+
+    /**
+     * 上次清理后是否仍然超过容量
+     */
+    private volatile boolean overflow;
+
+    /**
+     * 存储使用的时钟，从 0 开始单调递增的纳秒时间
+     */
+    public static long nanoTime() {
+        return System.nanoTime() - ORIGIN;
+    }
+
+    /**
+     * @param maxSize 超过该数量后提前清理过期 key
+     */
+    public LimiterKeyStore(int maxSize) {
+        this(maxSize, value -> false);
+    }
+
+    /**
+     * @param maxSize 超过该数量后提前清理过期 key
+     * @param inUse   状态是否仍在使用，使用中的状态不会过期
+     */
+    public LimiterKeyStore(int maxSize, Predicate<? super V> inUse) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.inUse = inUse;
+        this.map = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+        this.nextSweep = new AtomicLong();
+    }
+
+    /**
+     * 获取未过期的状态，并刷新过期时间
+     *
+     * @param key      限速key
+     * @param ttlNanos 空闲多久后过期
+     * @param now      当前时间(纳秒)，由调用方提供，需单调递增且非负
+     * @return 状态，不存在或者已经过期返回 null
+     */
+    public V get(String key, long ttlNanos, long now) {
+        Node<V> node = map.get(key);
+        if (node == null) {
+            return null;
+        }
+        if (isExpired(node, now)) {
+            return null;
+        }
+        // 过期时间只在过了一半 ttl 后才刷新，减少热点 key 上的写
+        if (node.expireAt - now < (ttlNanos >> 1)) {
+            node.expireAt = now + ttlNanos;
+        }
+        return node.value;
+    }
+
+    /**
+     * 放入新的状态。已存在未过期的状态时，返回已存在的状态
+     *
+     * @return 最终生效的状态
+     */
+    public V putIfAbsent(String key, V value, long ttlNanos, long now) {
+        checkTtl(ttlNanos);
+        Node<V> node = new Node<>(value, now + ttlNanos);
+        for (; ; ) {
+            Node<V> exist = map.putIfAbsent(key, node);
+            if (exist == null) {
+                evictIfNecessary(now);
+                return value;
+            }
+            if (!isExpired(exist, now)) {
+                return exist.value;
+            }
+            // 过期的状态直接替换
+            if (map.replace(key, exist, node)) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * 放入状态，覆盖已存在的状态
+     */
+    public void put(String key, V value, long ttlNanos, long now) {
+        checkTtl(ttlNanos);
+        if (map.put(key, new Node<>(value, now + ttlNanos)) == null) {
+            evictIfNecessary(now);
+        }
+    }
+
+    public void remove(String key) {
+        map.remove(key);
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    private boolean isExpired(Node<V> node, long now) {
+        return node.expireAt - now < 0 && !inUse.test(node.value);
+    }
+
+    private static void checkTtl(long ttlNanos) {
+        if (ttlNanos <= 0) {
+            throw new IllegalArgumentException("ttl must be positive: " + ttlNanos);
+        }
+    }
+
+    /**
+     * 新增 key 时触发，到了清理时间或者刚超过容量时清理过期 key。
+     * 清理后仍然超过容量时，下次清理提前到剩余 key 中最早的过期时间
+     */
+    private void evictIfNecessary(long now) {
+
+        long next = nextSweep.get();
+        boolean due = now - next >= 0 || !overflow && map.size() > maxSize;
+        if (!due || !nextSweep.compareAndSet(next, now + SWEEP_INTERVAL_NANOS)) {
+            return;
+        }
+
+        long earliest = now + SWEEP_INTERVAL_NANOS;
+        Iterator<Map.Entry<String, Node<V>>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Node<V>> entry = iterator.next();
+            long expireAt = entry.getValue().expireAt;
+            if (isExpired(entry.getValue(), now)) {
+                map.remove(entry.getKey(), entry.getValue());
+            } else if (expireAt - earliest < 0) {
+                earliest = expireAt;
+            }
+        }
+
+        overflow = map.size() > maxSize;
+        if (overflow) {
+            nextSweep.compareAndSet(now + SWEEP_INTERVAL_NANOS, Math.max(earliest, now + OVERFLOW_SWEEP_INTERVAL_NANOS));
+        }
+    }
+
+    private static final class Node<V> {
+        private final V value;
+        private volatile long expireAt;
+
+        Node(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
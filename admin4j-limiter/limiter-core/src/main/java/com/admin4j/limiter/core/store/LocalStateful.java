@@ -0,0 +1,15 @@
+package com.admin4j.limiter.core.store;
+
+/**
+ * 在本地内存中保存 key 状态的组件，用于统计本地缓存大小
+ *
+ * @author andanyang
+ * @since 2024/3/15 9:40
+ */
+public interface LocalStateful {
+
+    /**
+     * 当前保存的 key 数量
+     */
+    int size();
+}
@@ -0,0 +1,106 @@
+package com.admin4j.limiter.core.store;
+
+import com.admin4j.common.counter.SpaceSavingCounter;
+import com.admin4j.limiter.core.constant.LimiterType;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限速拒绝缓存。
+ * key 被拒绝后，在预计的下次可通过时间之前直接在本地拒绝，不再访问限速器；
+ * 同时统计被拒绝次数最多的 key
+ *
+ * @author andanyang
+ * @since 2024/3/8 10:00
+ */
+public class RejectionCache implements LocalStateful {
+
+    public static final int DEFAULT_MAX_KEYS = 10_000;
+    public static final int DEFAULT_TOP_KEYS = 100;
+
+    private final LimiterKeyStore<Boolean> rejectedKeys;
+    private final SpaceSavingCounter hotKeys;
+
+    public RejectionCache() {
+        this(DEFAULT_MAX_KEYS, DEFAULT_TOP_KEYS);
+    }
+
+    /**
+     * @param maxKeys 最多缓存的被拒绝 key 数量
+     * @param topKeys 热点 key 统计的数量
+     */
+    public RejectionCache(int maxKeys, int topKeys) {
+        this.rejectedKeys = new LimiterKeyStore<>(maxKeys);
+        this.hotKeys = new SpaceSavingCounter(topKeys);
+    }
+
+    /**
+     * key 是否还处于拒绝期内，拒绝期内的请求也计入热点统计
+     */
+    public boolean isRejected(String key) {
+
+        if (rejectedKeys.get(key, 0, LimiterKeyStore.nanoTime()) == null) {
+            return false;
+        }
+        hotKeys.add(key);
+        return true;
+    }
+
+    /**
+     * 记录被拒绝的 key
+     *
+     * @param blockNanos 拒绝期，纳秒
+     */
+    public void reject(String key, long blockNanos) {
+        reject(key, blockNanos, LimiterKeyStore.nanoTime());
+    }
+
+    private void reject(String key, long blockNanos, long now) {
+
+        hotKeys.add(key);
+        if (blockNanos > 0) {
+            rejectedKeys.put(key, Boolean.TRUE, blockNanos, now);
+        }
+    }
+
+    /**
+     * 记录被拒绝的 key，按限速算法计算拒绝期：
+     * 固定窗口拒绝到窗口结束，其他算法拒绝一个请求间隔(interval/maxAttempts)
+     *
+     * @param interval 统计时间间隔，秒
+     */
+    public void reject(String key, LimiterType limiterType, int maxAttempts, long interval) {
+
+        long now = LimiterKeyStore.nanoTime();
+        reject(key, blockNanos(limiterType, maxAttempts, interval, now), now);
+    }
+
+    /**
+     * 被拒绝次数最多的 n 个 key
+     */
+    public List<SpaceSavingCounter.Entry> topRejected(int n) {
+        return hotKeys.top(n);
+    }
+
+    @Override
+    public int size() {
+        return rejectedKeys.size();
+    }
+
+    /**
+     * @param now {@link LimiterKeyStore#nanoTime()}
+     */
+    static long blockNanos(LimiterType limiterType, int maxAttempts, long interval, long now) {
+
+        if (interval <= 0 || maxAttempts <= 0) {
+            return 0;
+        }
+        long intervalNanos = TimeUnit.SECONDS.toNanos(interval);
+        if (limiterType == LimiterType.FIX_WINDOW) {
+            // 与本地固定窗口限速器使用同一个时钟，窗口为 now / intervalNanos
+            return intervalNanos - now % intervalNanos;
+        }
+        return intervalNanos / maxAttempts;
+    }
+}
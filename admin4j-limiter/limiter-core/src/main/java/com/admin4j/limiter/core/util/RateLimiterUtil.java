@@ -1,10 +1,15 @@
 package com.admin4j.limiter.core.util;
 
 import com.admin4j.limiter.core.RateLimiterContext;
+import com.admin4j.limiter.core.RateLimiterRule;
 import com.admin4j.limiter.core.RateLimiterService;
+import com.admin4j.limiter.core.ThrottleRateLimiterService;
 import com.admin4j.limiter.core.constant.LimiterType;
 import lombok.Setter;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Supplier;
 
 /**
@@ -31,6 +36,16 @@ public class RateLimiterUtil {
         return limiterService.tryAcquire(key, capacity, interval);
     }
 
+    /**
+     * 带成本的限速，本次请求消耗 permits 次
+     *
+     * @param permits 本次请求消耗的次数
+     */
+    public static boolean rateLimiter(LimiterType limiterType, String key, int capacity, int interval, int permits) {
+        RateLimiterService limiterService = rateLimiterContext.getByLimiterType(limiterType);
+        return limiterService.tryAcquire(key, capacity, interval, permits);
+    }
+
     public static void rateLimiter(LimiterType limiterType, String key, int maxAttempts, int interval, Runnable runnable) {
         RateLimiterService limiterService = rateLimiterContext.getByLimiterType(limiterType);
         if (limiterService.tryAcquire(key, maxAttempts, interval)) {
@@ -46,4 +61,91 @@ public class RateLimiterUtil {
 
         return null;
     }
+
+    /**
+     * 多规则限速，全部通过才放行
+     *
+     * @param rules 限速规则
+     * @return 拒绝请求的规则下标，全部通过返回 -1
+     */
+    public static int rateLimiterAll(LimiterType limiterType, List<RateLimiterRule> rules) {
+        RateLimiterService limiterService = rateLimiterContext.getByLimiterType(limiterType);
+        return limiterService.tryAcquireAll(rules);
+    }
+
+    /**
+     * 异步限速，不阻塞调用线程
+     *
+     * @return 是否允许通过
+     */
+    public static CompletionStage<Boolean> rateLimiterAsync(LimiterType limiterType, String key, int maxAttempts, int interval) {
+        RateLimiterService limiterService = rateLimiterContext.getByLimiterType(limiterType);
+        return limiterService.tryAcquireAsync(key, maxAttempts, interval);
+    }
+
+    /**
+     * 带成本的异步限速，本次请求消耗 permits 次
+     */
+    public static CompletionStage<Boolean> rateLimiterAsync(LimiterType limiterType, String key, int maxAttempts, int interval, int permits) {
+        RateLimiterService limiterService = rateLimiterContext.getByLimiterType(limiterType);
+        return limiterService.tryAcquireAsync(key, maxAttempts, interval, permits);
+    }
+
+    /**
+     * 异步限速，允许通过时执行 supplier，被限速时返回 null
+     */
+    public static <T> CompletionStage<T> rateLimiterAsync(LimiterType limiterType, String key, int maxAttempts, int interval,
+                                                         Supplier<? extends CompletionStage<T>> supplier) {
+        RateLimiterService limiterService = rateLimiterContext.getByLimiterType(limiterType);
+        return limiterService.tryAcquireAsync(key, maxAttempts, interval)
+                .thenCompose(allowed -> allowed ? supplier.get() : CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * 整形限速，为请求预约执行时间。
+     * 限速器不支持整形时退化为普通限速，通过返回 0，拒绝返回 -1
+     *
+     * @param maxWait 最长等待时间，毫秒
+     * @return 需要等待的毫秒数，0 表示立即执行，-1 表示等待时间超过 maxWait 被拒绝
+     */
+    public static long rateLimiterDelay(LimiterType limiterType, String key, int maxAttempts, int interval, long maxWait) {
+        return rateLimiterDelay(limiterType, key, maxAttempts, interval, 1, maxWait);
+    }
+
+    /**
+     * 带成本的整形限速，本次请求消耗 permits 次
+     *
+     * @param permits 本次请求消耗的次数
+     * @param maxWait 最长等待时间，毫秒
+     * @return 需要等待的毫秒数，0 表示立即执行，-1 表示等待时间超过 maxWait 被拒绝
+     */
+    public static long rateLimiterDelay(LimiterType limiterType, String key, int maxAttempts, int interval, int permits, long maxWait) {
+        RateLimiterService limiterService = rateLimiterContext.getByLimiterType(limiterType);
+        if (limiterService instanceof ThrottleRateLimiterService) {
+            return ((ThrottleRateLimiterService) limiterService).tryAcquireWithDelay(key, maxAttempts, interval, permits, maxWait);
+        }
+        return limiterService.tryAcquire(key, maxAttempts, interval, permits) ? 0 : -1;
+    }
+
+    /**
+     * 整形限速，超出速率的请求延迟到预约的时间点执行 supplier，不阻塞调用线程。
+     * 延迟执行的 supplier 在 {@link CompletableFuture} 默认线程池中运行
+     *
+     * @param maxWait 最长等待时间，毫秒
+     * @return supplier 的结果，等待时间超过 maxWait 被拒绝时返回 null
+     */
+    public static <T> CompletionStage<T> rateLimiterDelay(LimiterType limiterType, String key, int maxAttempts, int interval,
+                                                         long maxWait, Supplier<T> supplier) {
+
+        long wait = rateLimiterDelay(limiterType, key, maxAttempts, interval, maxWait);
+        if (wait < 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (wait == 0) {
+            return CompletableFuture.completedFuture(supplier.get());
+        }
+        CompletableFuture<Void> resume = new CompletableFuture<>();
+        ThrottleScheduler.schedule(() -> resume.complete(null), wait);
+        return resume.thenApplyAsync(v -> supplier.get());
+    }
 }
@@ -0,0 +1,41 @@
+package com.admin4j.limiter.core.util;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 整形限速的延迟调度，只负责到点唤醒，任务本身需要足够轻量
+ *
+ * @author andanyang
+ * @since 2024/3/12 10:10
+ */
+public final class ThrottleScheduler {
+
+    private static volatile ScheduledExecutorService scheduler;
+
+    private ThrottleScheduler() {
+    }
+
+    public static void schedule(Runnable task, long delayMillis) {
+        getScheduler().schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static ScheduledExecutorService getScheduler() {
+
+        if (scheduler == null) {
+            synchronized (ThrottleScheduler.class) {
+                if (scheduler == null) {
+                    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                        Thread thread = new Thread(r, "rate-limiter-throttle");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor.setRemoveOnCancelPolicy(true);
+                    scheduler = executor;
+                }
+            }
+        }
+        return scheduler;
+    }
+}
@@ -0,0 +1,33 @@
+package com.admin4j.limiter.core.interceptor;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+/**
+ * @author andanyang
+ * @since 2024/3/14 14:00
+ */
+public class PathPatternIndexTest {
+
+    @Test
+    public void testMatch() {
+
+        PathPatternIndex<String> index = new PathPatternIndex<>();
+        index.add("/api/**", null, "api");
+        index.add("/api/order/**", null, "order");
+        index.add("/api/order/{id}", Collections.singletonList("post"), "orderPost");
+        index.add("/api/order/export", null, "export");
+        index.add("/static/*.json", null, "json");
+
+        Assert.assertEquals("api", index.match("/api/user/1", "GET"));
+        Assert.assertEquals("order", index.match("/api/order/1", "GET"));
+        Assert.assertEquals("orderPost", index.match("/api/order/1", "POST"));
+        Assert.assertEquals("export", index.match("/api/order/export", "POST"));
+        Assert.assertEquals("json", index.match("/static/a.json", "GET"));
+        Assert.assertNull(index.match("/static/a.js", "GET"));
+        Assert.assertNull(index.match("/", "GET"));
+        Assert.assertEquals(5, index.size());
+    }
+}
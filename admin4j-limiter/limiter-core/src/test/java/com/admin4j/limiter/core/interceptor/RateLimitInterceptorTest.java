@@ -0,0 +1,58 @@
+package com.admin4j.limiter.core.interceptor;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.web.method.HandlerMethod;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author andanyang
+ * @since 2024/3/28 17:00
+ */
+public class RateLimitInterceptorTest {
+
+    public static class OrderController {
+        public void list() {
+        }
+    }
+
+    public static class AdminOrderController extends OrderController {
+    }
+
+    private static HttpServletRequest request() {
+
+        return (HttpServletRequest) Proxy.newProxyInstance(RateLimitInterceptorTest.class.getClassLoader(),
+                new Class[]{HttpServletRequest.class},
+                (proxy, method, args) -> "getDispatcherType".equals(method.getName()) ? DispatcherType.REQUEST : null);
+    }
+
+    /**
+     * 每次请求的 HandlerMethod(如作用域 bean)不同时共用同一个缓存，继承的方法按 bean 类型区分
+     */
+    @Test
+    public void testDescriptorCache() throws Exception {
+
+        AtomicInteger compiled = new AtomicInteger();
+        RateLimitInterceptor interceptor = new RateLimitInterceptor(limiterType -> null) {
+            @Override
+            protected Descriptor compile(HandlerMethod handlerMethod) {
+                compiled.incrementAndGet();
+                return super.compile(handlerMethod);
+            }
+        };
+
+        Method list = OrderController.class.getMethod("list");
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(interceptor.preHandle(request(), null, new HandlerMethod(new OrderController(), list)));
+        }
+        Assert.assertEquals(1, compiled.get());
+
+        Assert.assertTrue(interceptor.preHandle(request(), null, new HandlerMethod(new AdminOrderController(), list)));
+        Assert.assertEquals(2, compiled.get());
+    }
+}
@@ -0,0 +1,78 @@
+package com.admin4j.limiter.core.store;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author andanyang
+ * @since 2024/3/28 14:00
+ */
+public class LimiterKeyStoreTest {
+
+    private static final long TTL = TimeUnit.SECONDS.toNanos(10);
+
+    @Test
+    public void testEvictExpiredOnly() {
+
+        LimiterKeyStore<Integer> store = new LimiterKeyStore<>(10);
+        long now = TimeUnit.SECONDS.toNanos(1);
+        for (int i = 0; i < 100; i++) {
+            store.putIfAbsent("key:" + i, i, TTL, now);
+        }
+        // 超过容量时不淘汰未过期的 key
+        Assert.assertEquals(100, store.size());
+        Assert.assertEquals(Integer.valueOf(0), store.get("key:0", TTL, now));
+
+        // 到期后新增 key 时清理
+        now += TTL + 1;
+        store.putIfAbsent("new", -1, TTL, now);
+        Assert.assertEquals(1, store.size());
+        Assert.assertNull(store.get("key:0", TTL, now));
+    }
+
+    @Test
+    public void testOverflowSweep() {
+
+        LimiterKeyStore<Integer> store = new LimiterKeyStore<>(10);
+        long now = TimeUnit.SECONDS.toNanos(1);
+        long shortTtl = TimeUnit.MILLISECONDS.toNanos(100);
+        for (int i = 0; i < 20; i++) {
+            store.putIfAbsent("short:" + i, i, shortTtl, now);
+        }
+        store.putIfAbsent("long", -1, TTL, now);
+
+        // 超过容量时在最早的过期时间之后清理，不等待完整的清理周期
+        now += shortTtl + 1;
+        store.putIfAbsent("new", -1, TTL, now);
+        Assert.assertEquals(2, store.size());
+    }
+
+    @Test
+    public void testInUseNotExpired() {
+
+        LimiterKeyStore<AtomicInteger> store = new LimiterKeyStore<>(10, value -> value.get() > 0);
+        long now = TimeUnit.SECONDS.toNanos(1);
+        AtomicInteger inflight = store.putIfAbsent("inflight", new AtomicInteger(1), TTL, now);
+        store.putIfAbsent("idle", new AtomicInteger(), TTL, now);
+
+        // 使用中的状态空闲超时后仍然保留
+        now += TTL + 1;
+        store.putIfAbsent("new", new AtomicInteger(), TTL, now);
+        Assert.assertEquals(2, store.size());
+        Assert.assertSame(inflight, store.get("inflight", TTL, now));
+        Assert.assertSame(inflight, store.putIfAbsent("inflight", new AtomicInteger(), TTL, now));
+
+        // 不再使用后按刷新后的过期时间过期
+        inflight.set(0);
+        now += TTL + 1;
+        Assert.assertNull(store.get("inflight", TTL, now));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroTtl() {
+        new LimiterKeyStore<Integer>(10).put("key", 1, 0, 0);
+    }
+}
@@ -0,0 +1,41 @@
+package com.admin4j.limiter.core.store;
+
+import com.admin4j.limiter.core.constant.LimiterType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author andanyang
+ * @since 2024/3/8 11:40
+ */
+public class RejectionCacheTest {
+
+    @Test
+    public void testReject() throws InterruptedException {
+
+        RejectionCache rejectionCache = new RejectionCache();
+        Assert.assertFalse(rejectionCache.isRejected("key"));
+
+        rejectionCache.reject("key", TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertTrue(rejectionCache.isRejected("key"));
+        Assert.assertFalse(rejectionCache.isRejected("other"));
+
+        Thread.sleep(60);
+        Assert.assertFalse(rejectionCache.isRejected("key"));
+        Assert.assertEquals("key", rejectionCache.topRejected(1).get(0).getKey());
+        Assert.assertEquals(2, rejectionCache.topRejected(1).get(0).getCount());
+    }
+
+    @Test
+    public void testBlockNanos() {
+
+        long interval = TimeUnit.SECONDS.toNanos(60);
+        // 窗口 now / interval 结束时解除拒绝
+        Assert.assertEquals(interval, RejectionCache.blockNanos(LimiterType.FIX_WINDOW, 10, 60, 2 * interval));
+        Assert.assertEquals(TimeUnit.SECONDS.toNanos(15),
+                RejectionCache.blockNanos(LimiterType.FIX_WINDOW, 10, 60, 2 * interval + TimeUnit.SECONDS.toNanos(45)));
+        Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(100), RejectionCache.blockNanos(LimiterType.GCRA, 10, 1, 0));
+    }
+}
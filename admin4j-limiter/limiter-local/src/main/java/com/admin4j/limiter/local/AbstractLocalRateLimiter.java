@@ -0,0 +1,115 @@
+package com.admin4j.limiter.local;
+
+import com.admin4j.limiter.core.RateLimiterProvider;
+import com.admin4j.limiter.core.store.LimiterKeyStore;
+import com.admin4j.limiter.core.store.LocalStateful;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地内存限速器。
+ * 每个 key 的状态保存在按访问时间过期的 {@link LimiterKeyStore} 中，状态本身使用 CAS 更新，无锁
+ *
+ * @author andanyang
+ * @since 2024/3/1 10:40
+ */
+public abstract class AbstractLocalRateLimiter<S> implements RateLimiterProvider, LocalStateful {
+
+    public static final String PROVIDER = "local";
+
+    /**
+     * 默认最多保存的 key 数量
+     */
+    public static final int DEFAULT_MAX_KEYS = 100_000;
+
+    private final LimiterKeyStore<S> keyStore;
+
+    protected AbstractLocalRateLimiter() {
+        this(DEFAULT_MAX_KEYS);
+    }
+
+    protected AbstractLocalRateLimiter(int maxKeys) {
+        this.keyStore = new LimiterKeyStore<>(maxKeys, this::isInUse);
+    }
+
+    protected static long nanoTime() {
+        return LimiterKeyStore.nanoTime();
+    }
+
+    @Override
+    public String provider() {
+        return PROVIDER;
+    }
+
+    @Override
+    public boolean tryAcquire(String key, int maxAttempts, long interval) {
+        return tryAcquire(key, maxAttempts, interval, 1);
+    }
+
+    /**
+     * 判断请求是否允许通过
+     *
+     * @param maxAttempts qps、最大的容量
+     * @param interval    统计时间间隔
+     * @param permits     本次请求消耗的次数
+     * @return 是否限速
+     */
+    @Override
+    public boolean tryAcquire(String key, int maxAttempts, long interval, int permits) {
+
+        long now = nanoTime();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(interval);
+        return tryAcquire(state(key, maxAttempts, intervalNanos, now), maxAttempts, intervalNanos, permits, now);
+    }
+
+    /**
+     * 获取 key 的状态，不存在时新建
+     */
+    protected S state(String key, int maxAttempts, long intervalNanos, long now) {
+
+        if (intervalNanos <= 0 || maxAttempts <= 0) {
+            throw new IllegalArgumentException("interval and maxAttempts must be positive: " + key);
+        }
+        // 空闲超过两个周期的状态与新建的状态等价，可以安全过期
+        long ttlNanos = intervalNanos << 1;
+
+        S state = keyStore.get(key, ttlNanos, now);
+        if (state == null) {
+            state = keyStore.putIfAbsent(key, newState(maxAttempts, intervalNanos, now), ttlNanos, now);
+        } else if (!isCompatible(state, maxAttempts)) {
+            // 限速参数变更，重建状态
+            state = newState(maxAttempts, intervalNanos, now);
+            keyStore.put(key, state, ttlNanos, now);
+        }
+        return state;
+    }
+
+    /**
+     * 创建新的 key 状态
+     */
+    protected abstract S newState(int maxAttempts, long intervalNanos, long now);
+
+    /**
+     * 状态是否可以继续用于当前的限速参数
+     */
+    protected boolean isCompatible(S state, int maxAttempts) {
+        return true;
+    }
+
+    /**
+     * 状态是否仍在使用，使用中的状态不会过期
+     */
+    protected boolean isInUse(S state) {
+        return false;
+    }
+
+    /**
+     * 基于状态判断请求是否允许通过
+     */
+    protected abstract boolean tryAcquire(S state, int maxAttempts, long intervalNanos, int permits, long now);
+
+    @Override
+    public int size() {
+        return keyStore.size();
+    }
+}
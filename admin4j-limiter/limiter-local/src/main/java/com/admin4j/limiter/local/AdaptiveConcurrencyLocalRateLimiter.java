@@ -0,0 +1,97 @@
+package com.admin4j.limiter.local;
+
+import com.admin4j.limiter.core.concurrency.ConcurrencyLimiterService;
+import com.admin4j.limiter.core.concurrency.ConcurrencyPermit;
+import com.admin4j.limiter.core.concurrency.GradientConcurrencyLimit;
+import com.admin4j.limiter.core.constant.LimiterType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 自适应并发限制，本地。
+ * 限制每个 key 同时处理中的请求数，并发上限在 [1, maxAttempts] 之间按请求耗时自动调整，
+ * 请求结束后需要释放许可。有处理中的请求时状态不会过期，maxAttempts 变更时保留处理中的许可
+ *
+ * @author andanyang
+ * @since 2024/3/11 11:00
+ */
+public class AdaptiveConcurrencyLocalRateLimiter extends AbstractLocalRateLimiter<GradientConcurrencyLimit>
+        implements ConcurrencyLimiterService {
+
+    public AdaptiveConcurrencyLocalRateLimiter() {
+    }
+
+    public AdaptiveConcurrencyLocalRateLimiter(int maxKeys) {
+        super(maxKeys);
+    }
+
+    @Override
+    public LimiterType support() {
+        return LimiterType.ADAPTIVE_CONCURRENCY;
+    }
+
+    @Override
+    public ConcurrencyPermit tryAcquireConcurrency(String key, int maxConcurrency, long leaseTime) {
+
+        long now = nanoTime();
+        GradientConcurrencyLimit limit = state(key, maxConcurrency, TimeUnit.SECONDS.toNanos(leaseTime), now);
+        limit.setMaxLimit(maxConcurrency);
+        if (!limit.tryAcquire()) {
+            return null;
+        }
+        return new LocalPermit(limit, now);
+    }
+
+    @Override
+    protected GradientConcurrencyLimit newState(int maxAttempts, long intervalNanos, long now) {
+        return new GradientConcurrencyLimit(maxAttempts);
+    }
+
+    @Override
+    protected boolean isInUse(GradientConcurrencyLimit state) {
+        return state.getInflight() > 0;
+    }
+
+    /**
+     * 只判断当前并发是否已满，不占用许可
+     */
+    @Override
+    protected boolean tryAcquire(GradientConcurrencyLimit state, int maxAttempts, long intervalNanos, int permits, long now) {
+        state.setMaxLimit(maxAttempts);
+        return state.getInflight() + permits <= state.getLimit();
+    }
+
+    private static final class LocalPermit implements ConcurrencyPermit {
+
+        private final GradientConcurrencyLimit limit;
+        private final long acquiredAt;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        LocalPermit(GradientConcurrencyLimit limit, long acquiredAt) {
+            this.limit = limit;
+            this.acquiredAt = acquiredAt;
+        }
+
+        @Override
+        public void onSuccess() {
+            if (released.compareAndSet(false, true)) {
+                limit.release(nanoTime() - acquiredAt, false);
+            }
+        }
+
+        @Override
+        public void onDropped() {
+            if (released.compareAndSet(false, true)) {
+                limit.release(nanoTime() - acquiredAt, true);
+            }
+        }
+
+        @Override
+        public void onIgnore() {
+            if (released.compareAndSet(false, true)) {
+                limit.release();
+            }
+        }
+    }
+}
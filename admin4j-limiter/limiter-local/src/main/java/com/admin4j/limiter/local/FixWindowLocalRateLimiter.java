@@ -0,0 +1,48 @@
+package com.admin4j.limiter.local;
+
+import com.admin4j.limiter.core.constant.LimiterType;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 固定窗口，本地限流
+ * 状态为一个 long：高 32 位为窗口序号，低 32 位为窗口内请求数
+ *
+ * @author andanyang
+ * @since 2024/3/1 11:02
+ */
+public class FixWindowLocalRateLimiter extends AbstractLocalRateLimiter<AtomicLong> {
+
+    public FixWindowLocalRateLimiter() {
+    }
+
+    public FixWindowLocalRateLimiter(int maxKeys) {
+        super(maxKeys);
+    }
+
+    @Override
+    public LimiterType support() {
+        return LimiterType.FIX_WINDOW;
+    }
+
+    @Override
+    protected AtomicLong newState(int maxAttempts, long intervalNanos, long now) {
+        return new AtomicLong();
+    }
+
+    @Override
+    protected boolean tryAcquire(AtomicLong state, int maxAttempts, long intervalNanos, int permits, long now) {
+
+        long window = now / intervalNanos;
+        for (; ; ) {
+            long current = state.get();
+            long count = (current >>> 32) == window ? current & 0xFFFFFFFFL : 0;
+            if (count + permits > maxAttempts) {
+                return false;
+            }
+            if (state.compareAndSet(current, (window << 32) | (count + permits))) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.admin4j.limiter.local;
+
+import com.admin4j.limiter.core.BurstRateLimiterService;
+import com.admin4j.limiter.core.RateLimiterRule;
+import com.admin4j.limiter.core.constant.LimiterType;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GCRA，本地限流。
+ * 状态为理论到达时间(TAT)，请求间隔 = interval/maxAttempts，
+ * 新的 TAT 超过当前时间 burst 个请求间隔时拒绝
+ *
+ * @author andanyang
+ * @since 2024/3/5 11:00
+ */
+public class GcraLocalRateLimiter extends AbstractLocalRateLimiter<AtomicLong> implements BurstRateLimiterService {
+
+    public GcraLocalRateLimiter() {
+    }
+
+    public GcraLocalRateLimiter(int maxKeys) {
+        super(maxKeys);
+    }
+
+    @Override
+    public LimiterType support() {
+        return LimiterType.GCRA;
+    }
+
+    @Override
+    protected AtomicLong newState(int maxAttempts, long intervalNanos, long now) {
+        return new AtomicLong(now);
+    }
+
+    @Override
+    protected boolean tryAcquire(AtomicLong state, int maxAttempts, long intervalNanos, int permits, long now) {
+        return tryAcquire(state, intervalNanos / maxAttempts, maxAttempts, permits, now);
+    }
+
+    @Override
+    public boolean tryAcquireWithBurst(String key, int maxAttempts, long interval, int burst) {
+        return tryAcquireWithBurst(key, maxAttempts, interval, burst, 1);
+    }
+
+    @Override
+    public boolean tryAcquireWithBurst(String key, int maxAttempts, long interval, int burst, int permits) {
+
+        long now = nanoTime();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(interval);
+        AtomicLong state = state(key, maxAttempts, intervalNanos, now);
+        return tryAcquire(state, intervalNanos / maxAttempts, burst, permits, now);
+    }
+
+    /**
+     * 逐个规则判断，被拒绝时回退前面已经通过的规则
+     */
+    @Override
+    public int tryAcquireAll(List<RateLimiterRule> rules) {
+
+        long now = nanoTime();
+        AtomicLong[] states = new AtomicLong[rules.size()];
+        long[] emissions = new long[rules.size()];
+        for (int i = 0; i < rules.size(); i++) {
+            RateLimiterRule rule = rules.get(i);
+            long intervalNanos = TimeUnit.SECONDS.toNanos(rule.getInterval());
+            int burst = rule.getBurst() > 0 ? rule.getBurst() : rule.getMaxAttempts();
+            states[i] = state(rule.getKey(), rule.getMaxAttempts(), intervalNanos, now);
+            emissions[i] = intervalNanos / rule.getMaxAttempts();
+            if (!tryAcquire(states[i], emissions[i], burst, rule.getPermits(), now)) {
+                for (int j = 0; j < i; j++) {
+                    states[j].addAndGet(-emissions[j] * rules.get(j).getPermits());
+                }
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean tryAcquire(AtomicLong state, long emissionNanos, int burst, int permits, long now) {
+
+        long tolerance = emissionNanos * burst;
+        for (; ; ) {
+            long tat = state.get();
+            long newTat = Math.max(tat, now) + emissionNanos * permits;
+            if (newTat - now > tolerance) {
+                return false;
+            }
+            if (state.compareAndSet(tat, newTat)) {
+                return true;
+            }
+        }
+    }
+}
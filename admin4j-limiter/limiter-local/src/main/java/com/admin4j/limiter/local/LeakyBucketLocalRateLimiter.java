@@ -0,0 +1,76 @@
+package com.admin4j.limiter.local;
+
+import com.admin4j.limiter.core.ThrottleRateLimiterService;
+import com.admin4j.limiter.core.constant.LimiterType;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 漏桶算法，本地限流
+ * 桶容量为 maxAttempts，每 interval/maxAttempts 漏出一个请求。
+ * 状态为桶漏空的时间点，水位 = 漏空时间 - 当前时间。
+ * 整形模式下每个请求按速率依次排队，等待到漏空时间再执行
+ *
+ * @author andanyang
+ * @since 2024/3/1 11:40
+ */
+public class LeakyBucketLocalRateLimiter extends AbstractLocalRateLimiter<AtomicLong> implements ThrottleRateLimiterService {
+
+    public LeakyBucketLocalRateLimiter() {
+    }
+
+    public LeakyBucketLocalRateLimiter(int maxKeys) {
+        super(maxKeys);
+    }
+
+    @Override
+    public LimiterType support() {
+        return LimiterType.LEAKY_BUCKET;
+    }
+
+    @Override
+    protected AtomicLong newState(int maxAttempts, long intervalNanos, long now) {
+        return new AtomicLong(now);
+    }
+
+    @Override
+    protected boolean tryAcquire(AtomicLong state, int maxAttempts, long intervalNanos, int permits, long now) {
+
+        long leakNanos = intervalNanos / maxAttempts;
+        for (; ; ) {
+            long emptyAt = state.get();
+            long next = Math.max(emptyAt, now) + leakNanos * permits;
+            // 水位超过桶容量
+            if (next - now > intervalNanos) {
+                return false;
+            }
+            if (state.compareAndSet(emptyAt, next)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public long tryAcquireWithDelay(String key, int maxAttempts, long interval, int permits, long maxWait) {
+
+        long now = nanoTime();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(interval);
+        long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWait);
+        // 排队的时间可能超过统计时间间隔，状态至少保留到最后一个请求执行
+        AtomicLong state = state(key, maxAttempts, Math.max(intervalNanos, maxWaitNanos), now);
+
+        long leakNanos = intervalNanos / maxAttempts;
+        for (; ; ) {
+            long emptyAt = state.get();
+            long slot = Math.max(emptyAt, now);
+            long waitNanos = slot - now;
+            if (waitNanos > maxWaitNanos) {
+                return -1;
+            }
+            if (state.compareAndSet(emptyAt, slot + leakNanos * permits)) {
+                return (waitNanos + 999_999) / 1_000_000;
+            }
+        }
+    }
+}
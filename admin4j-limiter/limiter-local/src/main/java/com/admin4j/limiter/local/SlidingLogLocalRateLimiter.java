@@ -0,0 +1,76 @@
+package com.admin4j.limiter.local;
+
+import com.admin4j.limiter.core.constant.LimiterType;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 滑动日志，本地限流
+ * 使用长度为 maxAttempts 的环形数组记录最近通过的请求时间，
+ * 最老的一条记录滑出窗口后才允许新的请求通过
+ *
+ * @author andanyang
+ * @since 2024/3/1 11:25
+ */
+public class SlidingLogLocalRateLimiter extends AbstractLocalRateLimiter<SlidingLogLocalRateLimiter.LogState> {
+
+    public SlidingLogLocalRateLimiter() {
+    }
+
+    public SlidingLogLocalRateLimiter(int maxKeys) {
+        super(maxKeys);
+    }
+
+    @Override
+    public LimiterType support() {
+        return LimiterType.SLIDING_LOG;
+    }
+
+    @Override
+    protected LogState newState(int maxAttempts, long intervalNanos, long now) {
+        return new LogState(maxAttempts);
+    }
+
+    @Override
+    protected boolean isCompatible(LogState state, int maxAttempts) {
+        return state.logs.length() == maxAttempts;
+    }
+
+    @Override
+    protected boolean tryAcquire(LogState state, int maxAttempts, long intervalNanos, int permits, long now) {
+
+        if (permits > maxAttempts) {
+            return false;
+        }
+        long windowStart = now - intervalNanos;
+        for (; ; ) {
+            long head = state.head.get();
+            // 需要 permits 条记录，其中最新的一条滑出窗口即可
+            if (state.logs.get((int) ((head + permits - 1) % maxAttempts)) > windowStart) {
+                return false;
+            }
+            if (state.head.compareAndSet(head, head + permits)) {
+                for (long i = head; i < head + permits; i++) {
+                    state.logs.set((int) (i % maxAttempts), now);
+                }
+                return true;
+            }
+        }
+    }
+
+    static final class LogState {
+        /**
+         * 下一个写入位置，同时指向最老的一条记录
+         */
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLongArray logs;
+
+        LogState(int maxAttempts) {
+            logs = new AtomicLongArray(maxAttempts);
+            for (int i = 0; i < maxAttempts; i++) {
+                logs.set(i, Long.MIN_VALUE);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.admin4j.limiter.local;
+
+import com.admin4j.limiter.core.constant.LimiterType;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 滑动窗口，本地限流
+ * 使用上一个窗口的计数按剩余比例加权估算滑动窗口内的请求数。
+ * 状态为一个 long：高 24 位为窗口序号，中间 20 位为上一个窗口计数，低 20 位为当前窗口计数，
+ * 所以单个窗口最多支持 {@link #MAX_COUNT} 个请求
+ *
+ * @author andanyang
+ * @since 2024/3/1 11:10
+ */
+public class SlidingWindowLocalRateLimiter extends AbstractLocalRateLimiter<AtomicLong> {
+
+    public static final int MAX_COUNT = (1 << 20) - 1;
+
+    private static final long WINDOW_MASK = (1L << 24) - 1;
+
+    public SlidingWindowLocalRateLimiter() {
+    }
+
+    public SlidingWindowLocalRateLimiter(int maxKeys) {
+        super(maxKeys);
+    }
+
+    @Override
+    public LimiterType support() {
+        return LimiterType.SLIDING_WINDOW;
+    }
+
+    @Override
+    protected AtomicLong newState(int maxAttempts, long intervalNanos, long now) {
+        return new AtomicLong();
+    }
+
+    @Override
+    protected boolean tryAcquire(AtomicLong state, int maxAttempts, long intervalNanos, int permits, long now) {
+
+        long windowIndex = now / intervalNanos;
+        long window = windowIndex & WINDOW_MASK;
+        // 上一个窗口在滑动窗口中的占比
+        double weight = (double) ((windowIndex + 1) * intervalNanos - now) / intervalNanos;
+        int limit = Math.min(maxAttempts, MAX_COUNT);
+
+        for (; ; ) {
+            long current = state.get();
+            long previous = (current >>> 20) & MAX_COUNT;
+            long count = current & MAX_COUNT;
+
+            long diff = (window - (current >>> 40)) & WINDOW_MASK;
+            if (diff == 1) {
+                previous = count;
+                count = 0;
+            } else if (diff != 0) {
+                previous = 0;
+                count = 0;
+            }
+
+            if (previous * weight + count + permits > limit) {
+                return false;
+            }
+            long next = (window << 40) | (previous << 20) | (count + permits);
+            if (state.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.admin4j.limiter.local;
+
+import com.admin4j.limiter.core.constant.LimiterType;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 令牌桶算法，本地限流
+ * 桶容量为 maxAttempts，每 interval/maxAttempts 生成一个令牌。
+ * 状态为令牌数为 0 的时间点，令牌数 = (当前时间 - 该时间点) / 令牌生成间隔
+ *
+ * @author andanyang
+ * @since 2024/3/1 11:52
+ */
+public class TokenBucketLocalRateLimiter extends AbstractLocalRateLimiter<AtomicLong> {
+
+    public TokenBucketLocalRateLimiter() {
+    }
+
+    public TokenBucketLocalRateLimiter(int maxKeys) {
+        super(maxKeys);
+    }
+
+    @Override
+    public LimiterType support() {
+        return LimiterType.TOKEN_BUCKET;
+    }
+
+    @Override
+    protected AtomicLong newState(int maxAttempts, long intervalNanos, long now) {
+        // 新建的桶是满的
+        return new AtomicLong(now - intervalNanos);
+    }
+
+    @Override
+    protected boolean tryAcquire(AtomicLong state, int maxAttempts, long intervalNanos, int permits, long now) {
+
+        long tokenNanos = intervalNanos / maxAttempts;
+        long capacityNanos = tokenNanos * maxAttempts;
+        long requiredNanos = tokenNanos * permits;
+        for (; ; ) {
+            long emptyAt = state.get();
+            // 令牌数不超过桶容量
+            long base = Math.max(emptyAt, now - capacityNanos);
+            if (now - base < requiredNanos) {
+                return false;
+            }
+            if (state.compareAndSet(emptyAt, base + requiredNanos)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.admin4j.limiter.local.configuration;
+
+import com.admin4j.limiter.local.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * 本地限速器。
+ * 同时存在 redis 限速器时，通过 admin4j.limiter.provider=local 使用本地限速器
+ *
+ * @author andanyang
+ * @since 2024/3/1 14:05
+ */
+public class LocalRateLimiterAutoConfiguration {
+
+    /**
+     * 每种限速器最多保存的 key 数量
+     */
+    @Value("${admin4j.limiter.local.max-keys:" + AbstractLocalRateLimiter.DEFAULT_MAX_KEYS + "}")
+    private int maxKeys;
+
+    @Bean
+    public FixWindowLocalRateLimiter fixWindowLocalRateLimiter() {
+        return new FixWindowLocalRateLimiter(maxKeys);
+    }
+
+    @Bean
+    public SlidingWindowLocalRateLimiter slidingWindowLocalRateLimiter() {
+        return new SlidingWindowLocalRateLimiter(maxKeys);
+    }
+
+    @Bean
+    public SlidingLogLocalRateLimiter slidingLogLocalRateLimiter() {
+        return new SlidingLogLocalRateLimiter(maxKeys);
+    }
+
+    @Bean
+    public LeakyBucketLocalRateLimiter leakyBucketLocalRateLimiter() {
+        return new LeakyBucketLocalRateLimiter(maxKeys);
+    }
+
+    @Bean
+    public TokenBucketLocalRateLimiter tokenBucketLocalRateLimiter() {
+        return new TokenBucketLocalRateLimiter(maxKeys);
+    }
+
+    @Bean
+    public GcraLocalRateLimiter gcraLocalRateLimiter() {
+        return new GcraLocalRateLimiter(maxKeys);
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLocalRateLimiter adaptiveConcurrencyLocalRateLimiter() {
+        return new AdaptiveConcurrencyLocalRateLimiter(maxKeys);
+    }
+}
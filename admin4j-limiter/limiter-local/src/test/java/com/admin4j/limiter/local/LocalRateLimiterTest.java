@@ -0,0 +1,211 @@
+package com.admin4j.limiter.local;
+
+import com.admin4j.limiter.core.RateLimiterProvider;
+import com.admin4j.limiter.core.RateLimiterRule;
+import com.admin4j.limiter.core.concurrency.ConcurrencyPermit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author andanyang
+ * @since 2024/3/1 15:20
+ */
+public class LocalRateLimiterTest {
+
+    List<RateLimiterProvider> limiters = Arrays.asList(
+            new FixWindowLocalRateLimiter(),
+            new SlidingWindowLocalRateLimiter(),
+            new SlidingLogLocalRateLimiter(),
+            new LeakyBucketLocalRateLimiter(),
+            new TokenBucketLocalRateLimiter(),
+            new GcraLocalRateLimiter()
+    );
+
+    @Test
+    public void testMaxAttempts() {
+
+        for (RateLimiterProvider limiter : limiters) {
+            int passed = 0;
+            for (int i = 0; i < 20; i++) {
+                if (limiter.tryAcquire("key", 5, 60)) {
+                    passed++;
+                }
+            }
+            Assert.assertEquals(limiter.support().name(), 5, passed);
+            Assert.assertTrue(limiter.tryAcquire("other", 5, 60));
+        }
+    }
+
+    @Test
+    public void testConcurrent() throws InterruptedException {
+
+        for (RateLimiterProvider limiter : limiters) {
+            AtomicInteger passed = new AtomicInteger();
+            CountDownLatch countDownLatch = new CountDownLatch(8);
+            for (int i = 0; i < 8; i++) {
+                new Thread(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        if (limiter.tryAcquire("concurrent", 100, 60)) {
+                            passed.incrementAndGet();
+                        }
+                    }
+                    countDownLatch.countDown();
+                }).start();
+            }
+            countDownLatch.await();
+            Assert.assertEquals(limiter.support().name(), 100, passed.get());
+        }
+    }
+
+    @Test
+    public void testFixWindowReset() throws InterruptedException {
+
+        FixWindowLocalRateLimiter limiter = new FixWindowLocalRateLimiter();
+        while (limiter.tryAcquire("reset", 2, 1)) {
+            // 用完当前窗口
+        }
+        Thread.sleep(1100);
+        Assert.assertTrue(limiter.tryAcquire("reset", 2, 1));
+    }
+
+    @Test
+    public void testMaxKeys() {
+
+        TokenBucketLocalRateLimiter limiter = new TokenBucketLocalRateLimiter(100);
+        while (limiter.tryAcquire("key:0", 5, 60)) {
+            // 用完 key:0 的令牌
+        }
+        for (int i = 1; i < 1000; i++) {
+            limiter.tryAcquire("key:" + i, 5, 60);
+        }
+        // 超过 maxKeys 时不淘汰未过期的状态
+        Assert.assertEquals(1000, limiter.size());
+        Assert.assertFalse(limiter.tryAcquire("key:0", 5, 60));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroInterval() {
+        new FixWindowLocalRateLimiter().tryAcquire("key", 5, 0);
+    }
+
+    @Test
+    public void testGcraBurst() throws InterruptedException {
+
+        GcraLocalRateLimiter limiter = new GcraLocalRateLimiter();
+        int passed = 0;
+        for (int i = 0; i < 20; i++) {
+            if (limiter.tryAcquireWithBurst("burst", 10, 1, 3)) {
+                passed++;
+            }
+        }
+        Assert.assertEquals(3, passed);
+        // 请求间隔 100ms
+        Thread.sleep(150);
+        Assert.assertTrue(limiter.tryAcquireWithBurst("burst", 10, 1, 3));
+        Assert.assertFalse(limiter.tryAcquireWithBurst("burst", 10, 1, 3));
+    }
+
+    @Test
+    public void testTryAcquireAll() {
+
+        GcraLocalRateLimiter limiter = new GcraLocalRateLimiter();
+        List<RateLimiterRule> rules = Arrays.asList(
+                new RateLimiterRule("uri", 10, 60),
+                new RateLimiterRule("user", 2, 60)
+        );
+        Assert.assertEquals(-1, limiter.tryAcquireAll(rules));
+        Assert.assertEquals(-1, limiter.tryAcquireAll(rules));
+        Assert.assertEquals(1, limiter.tryAcquireAll(rules));
+        // 被拒绝的请求不占用 uri 规则的次数
+        int passed = 0;
+        while (limiter.tryAcquire("uri", 10, 60)) {
+            passed++;
+        }
+        Assert.assertEquals(8, passed);
+    }
+
+    @Test
+    public void testPermits() {
+
+        for (RateLimiterProvider limiter : limiters) {
+            String name = limiter.support().name();
+            Assert.assertTrue(name, limiter.tryAcquire("permits", 10, 60, 6));
+            Assert.assertFalse(name, limiter.tryAcquire("permits", 10, 60, 6));
+            Assert.assertTrue(name, limiter.tryAcquire("permits", 10, 60, 4));
+            Assert.assertFalse(name, limiter.tryAcquire("permits", 10, 60));
+            Assert.assertFalse(name, limiter.tryAcquire("too-many", 10, 60, 11));
+        }
+    }
+
+    @Test
+    public void testAdaptiveConcurrency() {
+
+        AdaptiveConcurrencyLocalRateLimiter limiter = new AdaptiveConcurrencyLocalRateLimiter();
+        // 初始上限为 maxAttempts 的一半
+        ConcurrencyPermit[] permits = new ConcurrencyPermit[5];
+        for (int i = 0; i < permits.length; i++) {
+            permits[i] = limiter.tryAcquireConcurrency("concurrency", 10, 60);
+            Assert.assertNotNull(permits[i]);
+        }
+        Assert.assertNull(limiter.tryAcquireConcurrency("concurrency", 10, 60));
+
+        permits[0].onSuccess();
+        // 重复释放无效
+        permits[0].onSuccess();
+        ConcurrencyPermit permit = limiter.tryAcquireConcurrency("concurrency", 10, 60);
+        Assert.assertNotNull(permit);
+        Assert.assertNull(limiter.tryAcquireConcurrency("concurrency", 10, 60));
+
+        // 请求失败降低并发上限
+        for (int i = 1; i < permits.length; i++) {
+            permits[i].onDropped();
+        }
+        permit.onDropped();
+        int passed = 0;
+        while (limiter.tryAcquireConcurrency("concurrency", 10, 60) != null) {
+            passed++;
+        }
+        Assert.assertTrue(String.valueOf(passed), passed >= 1 && passed < 5);
+    }
+
+    @Test
+    public void testAdaptiveConcurrencyMaxChanged() {
+
+        AdaptiveConcurrencyLocalRateLimiter limiter = new AdaptiveConcurrencyLocalRateLimiter();
+        ConcurrencyPermit[] permits = new ConcurrencyPermit[5];
+        for (int i = 0; i < permits.length; i++) {
+            permits[i] = limiter.tryAcquireConcurrency("changed", 10, 60);
+        }
+
+        // maxAttempts 变更后处理中的请求仍然计入
+        Assert.assertNull(limiter.tryAcquireConcurrency("changed", 4, 60));
+        for (ConcurrencyPermit permit : permits) {
+            permit.onIgnore();
+        }
+        int passed = 0;
+        while (limiter.tryAcquireConcurrency("changed", 4, 60) != null) {
+            passed++;
+        }
+        Assert.assertEquals(4, passed);
+    }
+
+    @Test
+    public void testThrottle() {
+
+        LeakyBucketLocalRateLimiter limiter = new LeakyBucketLocalRateLimiter();
+        // 请求间隔 100ms，依次排队
+        Assert.assertEquals(0, limiter.tryAcquireWithDelay("throttle", 10, 1, 1, 250));
+        long wait = limiter.tryAcquireWithDelay("throttle", 10, 1, 1, 250);
+        Assert.assertTrue(String.valueOf(wait), wait > 50 && wait <= 100);
+        wait = limiter.tryAcquireWithDelay("throttle", 10, 1, 1, 250);
+        Assert.assertTrue(String.valueOf(wait), wait > 150 && wait <= 200);
+        // 超过最长等待时间，拒绝且不占用次数
+        Assert.assertEquals(-1, limiter.tryAcquireWithDelay("throttle", 10, 1, 1, 250));
+        Assert.assertEquals(-1, limiter.tryAcquireWithDelay("throttle", 10, 1, 1, 250));
+    }
+}
@@ -1,14 +1,28 @@
 package com.admin4j.limiter.redis;
 
 import com.admin4j.limiter.core.RateLimiterProvider;
+import com.admin4j.limiter.core.RateLimiterRule;
+import com.admin4j.limiter.core.metrics.LimiterMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.scripting.support.ResourceScriptSource;
 
 import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 
 /**
  * @author andanyang
@@ -16,12 +30,35 @@ import java.util.Collections;
  */
 public abstract class AbstractRedisRateLimiter implements RateLimiterProvider {
 
+    public static final String PROVIDER = "redis";
+
     private static final String RATE_LIMIT_KEY_PREFIX = "RL:";
 
+    /**
+     * 探测 redis 是否可用时读取的 key，只读不写
+     */
+    private static final String PROBE_KEY = "__failover_probe__";
+    private static final RedisScript<Long> PROBE_SCRIPT = RedisScript.of("return redis.call('exists', KEYS[1])", Long.class);
+
     private RedisScript<Long> rateLimitScript;
+    private RedisScript<Long> multiRateLimitScript;
 
     private StringRedisTemplate stringRedisTemplate;
 
+    /**
+     * 异步执行脚本，连接不支持 reactive 时为 null
+     */
+    private ReactiveScriptExecutor reactiveScriptExecutor;
+
+    private LimiterMetrics limiterMetrics = LimiterMetrics.NOOP;
+
+    private RedisKeyTemplate keyTemplate = RedisKeyTemplate.NONE;
+
+    /**
+     * 是否 redis cluster，多规则脚本按 key 的 slot 分组执行
+     */
+    private boolean cluster;
+
     //@Autowired
     //public void setStringRedisTemplate(StringRedisTemplate stringRedisTemplate) {
     //    this.stringRedisTemplate = stringRedisTemplate;
@@ -31,35 +68,234 @@ public abstract class AbstractRedisRateLimiter implements RateLimiterProvider {
         this.stringRedisTemplate = stringRedisTemplate;
     }
 
+    @Autowired(required = false)
+    public void setLimiterMetrics(LimiterMetrics limiterMetrics) {
+        this.limiterMetrics = limiterMetrics;
+    }
+
+    @Autowired(required = false)
+    public void setKeyTemplate(RedisKeyTemplate keyTemplate) {
+        this.keyTemplate = keyTemplate;
+    }
+
     @PostConstruct
     public void init() {
 
+        this.rateLimitScript = loadScript(getScriptName());
+        if (getMultiScriptName() != null) {
+            this.multiRateLimitScript = loadScript(getMultiScriptName());
+        }
+        RedisConnectionFactory connectionFactory = stringRedisTemplate.getConnectionFactory();
+        this.reactiveScriptExecutor = ReactiveScriptExecutor.create(connectionFactory);
+        this.cluster = connectionFactory instanceof LettuceConnectionFactory && ((LettuceConnectionFactory) connectionFactory).isClusterAware();
+    }
+
+    protected RedisScript<Long> loadScript(String scriptName) {
+
         DefaultRedisScript<Long> script = new DefaultRedisScript<>();
-        ClassPathResource resource = new ClassPathResource(getScriptName());
+        ClassPathResource resource = new ClassPathResource(scriptName);
         script.setScriptSource(new ResourceScriptSource(resource));
         script.setResultType(Long.class);
-        this.rateLimitScript = script;
+        return script;
     }
 
     protected abstract String getScriptName();
 
+    /**
+     * 多规则脚本，一次调用原子判断多个 key，返回拒绝的规则下标，全部通过返回 -1。
+     * 脚本参数为每个规则的 maxAttempts、interval、burst、permits
+     *
+     * @return 不支持时返回 null，{@link #tryAcquireAll} 逐个规则判断
+     */
+    protected String getMultiScriptName() {
+        return null;
+    }
+
+    @Override
+    public String provider() {
+        return PROVIDER;
+    }
+
+    protected StringRedisTemplate getStringRedisTemplate() {
+        return stringRedisTemplate;
+    }
+
     protected String getKeyPrefix() {
         return RATE_LIMIT_KEY_PREFIX;
     }
 
+    /**
+     * 限速 key 对应的 redis key，按 {@link RedisKeyTemplate} 生成
+     */
+    protected String redisKey(String key) {
+        return keyTemplate.apply(getKeyPrefix(), key);
+    }
+
+    @Override
+    public boolean tryAcquire(String key, int maxAttempts, long interval) {
+        return tryAcquire(key, maxAttempts, interval, 1);
+    }
+
     /**
      * 判断请求是否允许通过
      *
      * @param maxAttempts qps、最大的容量
      * @param interval    统计时间间隔
+     * @param permits     本次请求消耗的次数
      * @return 是否限速
      */
     @Override
-    public boolean tryAcquire(String key, int maxAttempts, long interval) {
+    public boolean tryAcquire(String key, int maxAttempts, long interval, int permits) {
+
+        Long result = execute(key, Integer.toString(maxAttempts), Long.toString(interval), Integer.toString(permits));
+        return result != null && result == 1L;
+    }
+
+    /**
+     * 异步判断请求是否允许通过。
+     * 使用 lettuce 时通过 reactive 连接执行脚本，不阻塞调用线程；否则同步执行
+     */
+    @Override
+    public CompletionStage<Boolean> tryAcquireAsync(String key, int maxAttempts, long interval, int permits) {
+
+        return executeAsync(key, Integer.toString(maxAttempts), Long.toString(interval), Integer.toString(permits))
+                .thenApply(result -> result != null && result == 1L);
+    }
+
+    /**
+     * 连接支持 reactive 时异步执行脚本
+     */
+    @Override
+    public boolean isAsyncSupported() {
+        return reactiveScriptExecutor != null;
+    }
+
+    /**
+     * 探测 redis 是否可用，只读取专用的探测 key，不占用任何限速 key 的次数。
+     * 子类在本地判断的限速请求不影响探测，探测总是访问 redis
+     *
+     * @return 探测 key 是否存在，redis 不可用时异常完成
+     */
+    public CompletionStage<Long> ping() {
+
+        List<String> keys = Collections.singletonList(getKeyPrefix() + PROBE_KEY);
+        if (reactiveScriptExecutor == null) {
+            return CompletableFuture.completedFuture(stringRedisTemplate.execute(PROBE_SCRIPT, keys));
+        }
+        return reactiveScriptExecutor.execute(PROBE_SCRIPT, keys, Collections.emptyList());
+    }
+
+    @Override
+    public int tryAcquireAll(List<RateLimiterRule> rules) {
+
+        if (multiRateLimitScript == null || rules.size() == 1) {
+            return RateLimiterProvider.super.tryAcquireAll(rules);
+        }
+
+        List<String> keys = new ArrayList<>(rules.size());
+        for (RateLimiterRule rule : rules) {
+            keys.add(redisKey(rule.getKey()));
+        }
+        if (!cluster) {
+            return executeMulti(rules, keys);
+        }
+
+        // 按 slot 分组，每组一次脚本调用，组内原子判断；按规则顺序逐组执行，遇到拒绝即停止
+        for (List<Integer> indexes : groupBySlot(keys).values()) {
+            if (indexes.size() == keys.size()) {
+                return executeMulti(rules, keys);
+            }
+            List<RateLimiterRule> groupRules = new ArrayList<>(indexes.size());
+            List<String> groupKeys = new ArrayList<>(indexes.size());
+            for (Integer index : indexes) {
+                groupRules.add(rules.get(index));
+                groupKeys.add(keys.get(index));
+            }
+            int rejected = executeMulti(groupRules, groupKeys);
+            if (rejected >= 0) {
+                return indexes.get(rejected);
+            }
+        }
+        return -1;
+    }
+
+    private int executeMulti(List<RateLimiterRule> rules, List<String> keys) {
+
+        List<String> args = multiArgs(rules);
+        Long result = timed(() -> stringRedisTemplate.execute(multiRateLimitScript, keys, args.toArray()));
+        return result == null ? 0 : result.intValue();
+    }
+
+    /**
+     * 按 cluster slot 对 key 分组，组的顺序为组内第一个规则的顺序。
+     * 跨 slot 的规则分开执行，前面的组通过后即已计数，与 {@link RateLimiterProvider#tryAcquireAll} 的默认实现一致；
+     * 通过 admin4j.limiter.redis.key-template 和 hash-tag-pattern 让同一请求的 key 落在同一个 slot 即可整体原子判断
+     */
+    static Map<Integer, List<Integer>> groupBySlot(List<String> keys) {
+
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            groups.computeIfAbsent(ClusterSlotHashUtil.calculateSlot(keys.get(i)), slot -> new ArrayList<>()).add(i);
+        }
+        return groups;
+    }
+
+    /**
+     * 多规则脚本参数，每个规则依次为 maxAttempts、interval、burst、permits
+     */
+    private static List<String> multiArgs(List<RateLimiterRule> rules) {
+
+        List<String> args = new ArrayList<>(rules.size() * 4);
+        for (RateLimiterRule rule : rules) {
+            args.add(Integer.toString(rule.getMaxAttempts()));
+            args.add(Long.toString(rule.getInterval()));
+            args.add(Integer.toString(rule.getBurst() > 0 ? rule.getBurst() : rule.getMaxAttempts()));
+            args.add(Integer.toString(rule.getPermits()));
+        }
+        return args;
+    }
+
+    /**
+     * 执行限速脚本
+     *
+     * @param key  限速key，不含前缀
+     * @param args 脚本参数
+     * @return 脚本返回值
+     */
+    protected Long execute(String key, String... args) {
+        return timed(() -> stringRedisTemplate.execute(rateLimitScript, Collections.singletonList(redisKey(key)), (Object[]) args));
+    }
+
+    /**
+     * 执行 redis 调用并记录耗时
+     */
+    protected <T> T timed(Supplier<T> call) {
+
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.get();
+            success = true;
+            return result;
+        } finally {
+            limiterMetrics.recordScript(support(), System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * 异步执行限速脚本
+     *
+     * @param key  限速key，不含前缀
+     * @param args 脚本参数
+     * @return 脚本返回值
+     */
+    protected CompletionStage<Long> executeAsync(String key, String... args) {
 
-        Object result = stringRedisTemplate.execute(rateLimitScript, Collections.singletonList(getKeyPrefix() + key),
-                Integer.toString(maxAttempts),
-                Long.toString(interval));
-        return (Long) result == 1L;
+        if (reactiveScriptExecutor == null) {
+            return CompletableFuture.completedFuture(execute(key, args));
+        }
+        long start = System.nanoTime();
+        return reactiveScriptExecutor.execute(rateLimitScript, Collections.singletonList(redisKey(key)), Arrays.asList(args))
+                .whenComplete((result, e) -> limiterMetrics.recordScript(support(), System.nanoTime() - start, e == null));
     }
 }
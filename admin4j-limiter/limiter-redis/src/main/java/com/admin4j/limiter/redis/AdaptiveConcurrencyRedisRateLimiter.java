@@ -0,0 +1,175 @@
+package com.admin4j.limiter.redis;
+
+import com.admin4j.limiter.core.concurrency.ConcurrencyLimiterService;
+import com.admin4j.limiter.core.concurrency.ConcurrencyPermit;
+import com.admin4j.limiter.core.concurrency.GradientConcurrencyLimit;
+import com.admin4j.limiter.core.constant.LimiterType;
+import com.admin4j.limiter.core.store.LimiterKeyStore;
+import com.admin4j.limiter.core.store.LocalStateful;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 自适应并发限制，分布式。
+ * 每个节点的并发上限按本地观察到的请求耗时调整，在 [1, maxAttempts] 之间，只与本节点处理中的请求数比较；
+ * redis 有序集合保存所有节点处理中的请求，所有节点的总数不超过 maxAttempts，许可带有过期时间，节点宕机后自动释放。
+ * 有处理中的请求时本地状态不会过期，maxAttempts 变更时保留处理中的许可
+ *
+ * @author andanyang
+ * @since 2024/3/11 11:30
+ */
+public class AdaptiveConcurrencyRedisRateLimiter extends AbstractRedisRateLimiter implements ConcurrencyLimiterService, LocalStateful {
+
+    /**
+     * 默认最多保存的 key 数量
+     */
+    public static final int DEFAULT_MAX_KEYS = 100_000;
+
+    /**
+     * 节点标识，保证不同节点的许可 id 不重复
+     */
+    private static final String NODE_ID = UUID.randomUUID().toString().substring(0, 8);
+
+    private final AtomicLong permitSequence = new AtomicLong();
+    private final LimiterKeyStore<GradientConcurrencyLimit> limitStore;
+
+    @Autowired
+    public AdaptiveConcurrencyRedisRateLimiter(StringRedisTemplate stringRedisTemplate) {
+        this(stringRedisTemplate, DEFAULT_MAX_KEYS);
+    }
+
+    public AdaptiveConcurrencyRedisRateLimiter(StringRedisTemplate stringRedisTemplate, int maxKeys) {
+        super(stringRedisTemplate);
+        this.limitStore = new LimiterKeyStore<>(maxKeys, limit -> limit.getInflight() > 0);
+    }
+
+    @Override
+    public LimiterType support() {
+        return LimiterType.ADAPTIVE_CONCURRENCY;
+    }
+
+    @Override
+    protected String getScriptName() {
+        return "rateLimiter/AdaptiveConcurrency.lua";
+    }
+
+    /**
+     * 只判断当前并发是否已满，不占用许可
+     */
+    @Override
+    public boolean tryAcquire(String key, int maxAttempts, long interval, int permits) {
+
+        GradientConcurrencyLimit limit = getLimit(key, maxAttempts, interval);
+        if (limit.getInflight() + permits > limit.getLimit()) {
+            return false;
+        }
+        Long result = execute(key, Integer.toString(maxAttempts), Long.toString(interval), "", Integer.toString(permits));
+        return result != null && result == 1L;
+    }
+
+    @Override
+    public CompletionStage<Boolean> tryAcquireAsync(String key, int maxAttempts, long interval, int permits) {
+
+        GradientConcurrencyLimit limit = getLimit(key, maxAttempts, interval);
+        if (limit.getInflight() + permits > limit.getLimit()) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return executeAsync(key, Integer.toString(maxAttempts), Long.toString(interval), "", Integer.toString(permits))
+                .thenApply(result -> result != null && result == 1L);
+    }
+
+    @Override
+    public ConcurrencyPermit tryAcquireConcurrency(String key, int maxConcurrency, long leaseTime) {
+
+        GradientConcurrencyLimit limit = getLimit(key, maxConcurrency, leaseTime);
+        // 先占用本节点的许可，再检查所有节点的总并发
+        if (!limit.tryAcquire()) {
+            return null;
+        }
+        String permitId = NODE_ID + ":" + permitSequence.incrementAndGet();
+        boolean acquired = false;
+        try {
+            Long result = execute(key, Integer.toString(maxConcurrency), Long.toString(leaseTime), permitId, "1");
+            acquired = result != null && result == 1L;
+        } finally {
+            if (!acquired) {
+                limit.release();
+            }
+        }
+        if (!acquired) {
+            return null;
+        }
+        return new RedisPermit(key, permitId, limit, LimiterKeyStore.nanoTime());
+    }
+
+    private GradientConcurrencyLimit getLimit(String key, int maxConcurrency, long leaseTime) {
+
+        long now = LimiterKeyStore.nanoTime();
+        long ttlNanos = TimeUnit.SECONDS.toNanos(leaseTime) << 1;
+        GradientConcurrencyLimit limit = limitStore.get(key, ttlNanos, now);
+        if (limit == null) {
+            limit = limitStore.putIfAbsent(key, new GradientConcurrencyLimit(maxConcurrency), ttlNanos, now);
+        }
+        limit.setMaxLimit(maxConcurrency);
+        return limit;
+    }
+
+    /**
+     * 从 redis 中删除许可
+     */
+    protected void release(String key, String permitId) {
+        getStringRedisTemplate().opsForZSet().remove(redisKey(key), permitId);
+    }
+
+    @Override
+    public int size() {
+        return limitStore.size();
+    }
+
+    private final class RedisPermit implements ConcurrencyPermit {
+
+        private final String key;
+        private final String permitId;
+        private final GradientConcurrencyLimit limit;
+        private final long acquiredAt;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        RedisPermit(String key, String permitId, GradientConcurrencyLimit limit, long acquiredAt) {
+            this.key = key;
+            this.permitId = permitId;
+            this.limit = limit;
+            this.acquiredAt = acquiredAt;
+        }
+
+        @Override
+        public void onSuccess() {
+            if (released.compareAndSet(false, true)) {
+                release(key, permitId);
+                limit.release(LimiterKeyStore.nanoTime() - acquiredAt, false);
+            }
+        }
+
+        @Override
+        public void onDropped() {
+            if (released.compareAndSet(false, true)) {
+                release(key, permitId);
+                limit.release(LimiterKeyStore.nanoTime() - acquiredAt, true);
+            }
+        }
+
+        @Override
+        public void onIgnore() {
+            if (released.compareAndSet(false, true)) {
+                release(key, permitId);
+                limit.release();
+            }
+        }
+    }
+}
@@ -27,4 +27,9 @@ public class FixWindowRedisRateLimiter extends AbstractRedisRateLimiter {
     protected String getScriptName() {
         return "rateLimiter/FixWindow.lua";
     }
+
+    @Override
+    protected String getMultiScriptName() {
+        return "rateLimiter/FixWindowMulti.lua";
+    }
 }
@@ -0,0 +1,46 @@
+package com.admin4j.limiter.redis;
+
+import com.admin4j.limiter.core.BurstRateLimiterService;
+import com.admin4j.limiter.core.constant.LimiterType;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * GCRA，限流。
+ * 每个 key 只保存一个理论到达时间，内存占用与 maxAttempts 无关
+ *
+ * @author andanyang
+ * @since 2024/3/5 10:30
+ */
+public class GcraRedisRateLimiter extends AbstractRedisRateLimiter implements BurstRateLimiterService {
+
+    public GcraRedisRateLimiter(StringRedisTemplate stringRedisTemplate) {
+        super(stringRedisTemplate);
+    }
+
+    @Override
+    public LimiterType support() {
+        return LimiterType.GCRA;
+    }
+
+    @Override
+    protected String getScriptName() {
+        return "rateLimiter/Gcra.lua";
+    }
+
+    @Override
+    protected String getMultiScriptName() {
+        return "rateLimiter/GcraMulti.lua";
+    }
+
+    @Override
+    public boolean tryAcquireWithBurst(String key, int maxAttempts, long interval, int burst) {
+        return tryAcquireWithBurst(key, maxAttempts, interval, burst, 1);
+    }
+
+    @Override
+    public boolean tryAcquireWithBurst(String key, int maxAttempts, long interval, int burst, int permits) {
+
+        Long result = execute(key, Integer.toString(maxAttempts), Long.toString(interval), Integer.toString(permits), Integer.toString(burst));
+        return result != null && result == 1L;
+    }
+}
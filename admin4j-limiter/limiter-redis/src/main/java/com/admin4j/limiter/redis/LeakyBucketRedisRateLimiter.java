@@ -1,21 +1,38 @@
 package com.admin4j.limiter.redis;
 
+import com.admin4j.limiter.core.ThrottleRateLimiterService;
 import com.admin4j.limiter.core.constant.LimiterType;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.Collections;
 
 /**
- * 固定窗口，限流
+ * 漏桶，限流。
+ * 整形模式下请求按速率排队，脚本返回需要等待的时间，而不是直接拒绝
  *
  * @author andanyang
  * @since 2023/5/11 13:39
  */
-public class LeakyBucketRedisRateLimiter extends AbstractRedisRateLimiter {
+public class LeakyBucketRedisRateLimiter extends AbstractRedisRateLimiter implements ThrottleRateLimiterService {
+
+    /**
+     * 整形模式的 key 后缀，与限流模式的数据结构不同，需要区分
+     */
+    private static final String THROTTLE_KEY_SUFFIX = ":T";
 
+    private RedisScript<Long> throttleScript;
 
     public LeakyBucketRedisRateLimiter(StringRedisTemplate stringRedisTemplate) {
         super(stringRedisTemplate);
     }
 
+    @Override
+    public void init() {
+        super.init();
+        this.throttleScript = loadScript("rateLimiter/LeakyBucketThrottle.lua");
+    }
+
     @Override
     public LimiterType support() {
         return LimiterType.LEAKY_BUCKET;
@@ -25,4 +42,13 @@ public class LeakyBucketRedisRateLimiter extends AbstractRedisRateLimiter {
     protected String getScriptName() {
         return "rateLimiter/LeakyBucket.lua";
     }
+
+    @Override
+    public long tryAcquireWithDelay(String key, int maxAttempts, long interval, int permits, long maxWait) {
+
+        Long wait = timed(() -> getStringRedisTemplate().execute(throttleScript,
+                Collections.singletonList(redisKey(key + THROTTLE_KEY_SUFFIX)),
+                Integer.toString(maxAttempts), Long.toString(interval), Integer.toString(permits), Long.toString(maxWait)));
+        return wait == null ? -1 : wait;
+    }
 }
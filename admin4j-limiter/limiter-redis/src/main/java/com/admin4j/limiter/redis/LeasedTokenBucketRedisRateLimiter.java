@@ -0,0 +1,274 @@
+package com.admin4j.limiter.redis;
+
+import com.admin4j.limiter.core.constant.LimiterType;
+import com.admin4j.limiter.core.store.LimiterKeyStore;
+import com.admin4j.limiter.core.store.LocalStateful;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 租约令牌桶，限流。
+ * 每个节点通过一次脚本调用从 redis 令牌桶中预取一批令牌(租约)，之后在本地原子扣减，
+ * 租约用完或者过期后再次预取，未用完的令牌在预取时归还。租约大小按本地的消费速率自适应，全局限速近似准确，redis 访问次数大幅减少
+ *
+ * @author andanyang
+ * @since 2024/3/4 10:20
+ */
+public class LeasedTokenBucketRedisRateLimiter extends AbstractRedisRateLimiter implements LocalStateful {
+
+    /**
+     * 默认最多保存的 key 数量
+     */
+    public static final int DEFAULT_MAX_KEYS = 100_000;
+    /**
+     * 默认租约时长，租约大小按该时长内的预估请求数计算
+     */
+    public static final Duration DEFAULT_LEASE_TIME = Duration.ofMillis(100);
+    /**
+     * 单个租约最多占用令牌桶容量的比例，避免单个节点占满令牌桶
+     */
+    private static final int MAX_LEASE_DIVISOR = 10;
+
+    private final LimiterKeyStore<Lease> leaseStore;
+    private final long leaseNanos;
+
+    @Autowired
+    public LeasedTokenBucketRedisRateLimiter(StringRedisTemplate stringRedisTemplate) {
+        this(stringRedisTemplate, DEFAULT_MAX_KEYS, DEFAULT_LEASE_TIME);
+    }
+
+    public LeasedTokenBucketRedisRateLimiter(StringRedisTemplate stringRedisTemplate, int maxKeys, Duration leaseTime) {
+        super(stringRedisTemplate);
+        this.leaseStore = new LimiterKeyStore<>(maxKeys);
+        this.leaseNanos = leaseTime.toNanos();
+    }
+
+    private static long nanoTime() {
+        return LimiterKeyStore.nanoTime();
+    }
+
+    @Override
+    public LimiterType support() {
+        return LimiterType.LEASED_TOKEN_BUCKET;
+    }
+
+    @Override
+    protected String getScriptName() {
+        return "rateLimiter/LeasedTokenBucket.lua";
+    }
+
+    /**
+     * 判断请求是否允许通过
+     *
+     * @param maxAttempts 令牌桶容量
+     * @param interval    令牌桶填满需要的时间
+     * @param permits     本次请求消耗的令牌数
+     * @return 是否限速
+     */
+    @Override
+    public boolean tryAcquire(String key, int maxAttempts, long interval, int permits) {
+
+        if (permits > maxAttempts) {
+            return false;
+        }
+        long now = nanoTime();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(interval);
+        Lease lease = getLease(key, intervalNanos, now);
+
+        if (lease.tryTake(now, permits)) {
+            return true;
+        }
+        if (now - lease.deniedUntil < 0) {
+            return false;
+        }
+
+        // 同一个 key 只有一个线程预取，其他线程等待预取结果
+        synchronized (lease) {
+            now = nanoTime();
+            if (lease.tryTake(now, permits)) {
+                return true;
+            }
+            if (now - lease.deniedUntil < 0) {
+                return false;
+            }
+            long leftover = lease.remaining.getAndSet(0);
+            long size = nextLeaseSize(lease, leftover, maxAttempts, permits, now);
+            Long granted = lease(key, maxAttempts, interval, size, leftover);
+            return applyRenew(lease, granted, maxAttempts, intervalNanos, permits);
+        }
+    }
+
+    /**
+     * 异步判断请求是否允许通过。
+     * 租约内的令牌直接在本地扣减，需要预取时同一个 key 只发起一次异步预取，其他请求等待预取结果
+     */
+    @Override
+    public CompletionStage<Boolean> tryAcquireAsync(String key, int maxAttempts, long interval, int permits) {
+
+        if (permits > maxAttempts) {
+            return CompletableFuture.completedFuture(false);
+        }
+        long now = nanoTime();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(interval);
+        Lease lease = getLease(key, intervalNanos, now);
+
+        if (lease.tryTake(now, permits)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        if (now - lease.deniedUntil < 0) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        CompletableFuture<Void> renewing;
+        boolean renew = false;
+        long size = 0;
+        long leftover = 0;
+        synchronized (lease) {
+            renewing = lease.renewing;
+            if (renewing == null) {
+                renewing = new CompletableFuture<>();
+                lease.renewing = renewing;
+                leftover = lease.remaining.getAndSet(0);
+                size = nextLeaseSize(lease, leftover, maxAttempts, permits, nanoTime());
+                renew = true;
+            }
+        }
+
+        if (renew) {
+            CompletableFuture<Void> future = renewing;
+            leaseAsync(key, maxAttempts, interval, size, leftover).whenComplete((granted, e) -> {
+                synchronized (lease) {
+                    if (e == null) {
+                        applyRenew(lease, granted, maxAttempts, intervalNanos, 0);
+                    }
+                    lease.renewing = null;
+                }
+                if (e == null) {
+                    future.complete(null);
+                } else {
+                    future.completeExceptionally(e);
+                }
+            });
+        }
+        // 预取完成后重新从租约中获取
+        return renewing.thenApply(v -> lease.tryTake(nanoTime(), permits));
+    }
+
+    private Lease getLease(String key, long intervalNanos, long now) {
+
+        long ttlNanos = intervalNanos << 1;
+        Lease lease = leaseStore.get(key, ttlNanos, now);
+        if (lease == null) {
+            lease = leaseStore.putIfAbsent(key, new Lease(), ttlNanos, now);
+        }
+        return lease;
+    }
+
+    /**
+     * 使用预取到的令牌更新租约。调用时需持有 lease 锁
+     *
+     * @param take 当前请求占用的令牌数，0 表示不占用
+     * @return 是否为当前请求占用到令牌
+     */
+    private boolean applyRenew(Lease lease, Long granted, int maxAttempts, long intervalNanos, int take) {
+
+        long now = nanoTime();
+        if (granted == null || granted <= 0) {
+            // 令牌桶已空，在生成下一个令牌之前直接拒绝
+            lease.granted = 0;
+            lease.deniedUntil = now + intervalNanos / maxAttempts;
+            return false;
+        }
+
+        lease.granted = granted;
+        lease.issuedAt = now;
+        lease.expireAt = now + Math.min(leaseNanos, intervalNanos);
+        if (granted < take) {
+            // 预取到的令牌不够当前请求使用，留给后续的请求
+            lease.remaining.set(granted);
+            return false;
+        }
+        lease.remaining.set(granted - take);
+        return true;
+    }
+
+    /**
+     * 按上一个租约期间的消费速率，预估一个租约时长内的请求数，至少为当前请求的令牌数。调用时需持有 lease 锁
+     *
+     * @param leftover 上一个租约未用完的令牌，随预取一起归还给 redis
+     */
+    private long nextLeaseSize(Lease lease, long leftover, int maxAttempts, int permits, long now) {
+
+        long maxLease = Math.max(1, maxAttempts / MAX_LEASE_DIVISOR);
+        long elapsed = now - lease.issuedAt;
+        if (lease.granted <= 0 || elapsed <= 0) {
+            return permits;
+        }
+        long consumed = lease.granted - leftover;
+        long size = consumed * leaseNanos / elapsed;
+        return Math.max(permits, Math.min(size, maxLease));
+    }
+
+    /**
+     * 归还上一个租约剩余的令牌，并从 redis 令牌桶中预取令牌
+     *
+     * @param size     预取的令牌个数
+     * @param returned 归还的令牌个数
+     * @return 实际预取到的令牌个数
+     */
+    protected Long lease(String key, int maxAttempts, long interval, long size, long returned) {
+        return execute(key, Integer.toString(maxAttempts), Long.toString(interval), Long.toString(size), Long.toString(returned));
+    }
+
+    /**
+     * 异步归还剩余令牌并预取令牌
+     */
+    protected CompletionStage<Long> leaseAsync(String key, int maxAttempts, long interval, long size, long returned) {
+        return executeAsync(key, Integer.toString(maxAttempts), Long.toString(interval), Long.toString(size),
+                Long.toString(returned));
+    }
+
+    @Override
+    public int size() {
+        return leaseStore.size();
+    }
+
+    private static final class Lease {
+        /**
+         * 租约剩余令牌
+         */
+        private final AtomicLong remaining = new AtomicLong();
+        private volatile long expireAt;
+        private volatile long deniedUntil;
+        /**
+         * 以下字段只在持有锁时读写
+         */
+        private long granted;
+        private long issuedAt;
+        /**
+         * 进行中的异步预取
+         */
+        private CompletableFuture<Void> renewing;
+
+        boolean tryTake(long now, int permits) {
+            if (now - expireAt >= 0) {
+                return false;
+            }
+            for (; ; ) {
+                long current = remaining.get();
+                if (current < permits) {
+                    return false;
+                }
+                if (remaining.compareAndSet(current, current - permits)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.admin4j.limiter.redis;
+
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.util.ClassUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 非阻塞执行限速脚本，基于 lettuce 的 reactive 连接。
+ * 单独成类，没有 reactor 时不会加载 reactive 相关的类
+ *
+ * @author andanyang
+ * @since 2024/3/7 10:10
+ */
+class ReactiveScriptExecutor {
+
+    private static final boolean REACTOR_PRESENT = ClassUtils.isPresent("reactor.core.publisher.Mono",
+            ReactiveScriptExecutor.class.getClassLoader());
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+
+    private ReactiveScriptExecutor(ReactiveRedisConnectionFactory connectionFactory) {
+        this.reactiveStringRedisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    /**
+     * @return 连接不支持 reactive 时返回 null
+     */
+    static ReactiveScriptExecutor create(RedisConnectionFactory connectionFactory) {
+        if (REACTOR_PRESENT && connectionFactory instanceof ReactiveRedisConnectionFactory) {
+            return new ReactiveScriptExecutor((ReactiveRedisConnectionFactory) connectionFactory);
+        }
+        return null;
+    }
+
+    CompletableFuture<Long> execute(RedisScript<Long> script, List<String> keys, List<String> args) {
+        return reactiveStringRedisTemplate.execute(script, keys, args).next().toFuture();
+    }
+}
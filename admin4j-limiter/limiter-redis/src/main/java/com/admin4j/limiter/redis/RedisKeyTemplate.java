@@ -0,0 +1,99 @@
+package com.admin4j.limiter.redis;
+
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * redis 限速 key 模板，支持 redis cluster 的 hash tag。
+ * 从限速 key 中按正则提取 tag(第一个分组，没有分组时取整个匹配)，代入模板，如模板 RL:{${tag}}:${key}、
+ * 正则 :T([^:]+) 使同一租户的限速 key 落在同一个 slot；key 中没有匹配的 tag 时使用默认前缀
+ *
+ * @author andanyang
+ * @since 2024/3/16 9:30
+ */
+public class RedisKeyTemplate {
+
+    public static final String KEY_PLACEHOLDER = "${key}";
+    public static final String TAG_PLACEHOLDER = "${tag}";
+
+    /**
+     * 不使用 hash tag，key 为 前缀 + 限速 key
+     */
+    public static final RedisKeyTemplate NONE = new RedisKeyTemplate(null, null);
+
+    /**
+     * 模板拆分后的片段，占位符直接使用常量对象
+     */
+    private final List<String> parts = new ArrayList<>();
+    private final Pattern tagPattern;
+
+    /**
+     * @param template   key 模板，包含 ${key}，可以包含 ${tag}
+     * @param tagPattern 提取 tag 的正则，与 template 同时为空时不使用模板
+     */
+    public RedisKeyTemplate(String template, String tagPattern) {
+
+        if (!StringUtils.hasText(template) && !StringUtils.hasText(tagPattern)) {
+            this.tagPattern = null;
+            return;
+        }
+        if (!StringUtils.hasText(template) || !StringUtils.hasText(tagPattern)) {
+            throw new IllegalArgumentException("key template and tag pattern must be configured together: " + template + ", " + tagPattern);
+        }
+        if (!template.contains(KEY_PLACEHOLDER)) {
+            throw new IllegalArgumentException("key template must contain " + KEY_PLACEHOLDER + ": " + template);
+        }
+        this.tagPattern = Pattern.compile(tagPattern);
+
+        int start = 0;
+        while (start < template.length()) {
+            int key = template.indexOf(KEY_PLACEHOLDER, start);
+            int tag = template.indexOf(TAG_PLACEHOLDER, start);
+            int next = key < 0 ? tag : tag < 0 ? key : Math.min(key, tag);
+            if (next < 0) {
+                parts.add(template.substring(start));
+                break;
+            }
+            if (next > start) {
+                parts.add(template.substring(start, next));
+            }
+            parts.add(next == key ? KEY_PLACEHOLDER : TAG_PLACEHOLDER);
+            start = next + (next == key ? KEY_PLACEHOLDER.length() : TAG_PLACEHOLDER.length());
+        }
+    }
+
+    /**
+     * 生成 redis key
+     *
+     * @param prefix 没有 tag 时使用的前缀
+     * @param key    限速 key
+     */
+    public String apply(String prefix, String key) {
+
+        if (tagPattern == null) {
+            return prefix + key;
+        }
+        Matcher matcher = tagPattern.matcher(key);
+        if (!matcher.find()) {
+            return prefix + key;
+        }
+        String tag = matcher.groupCount() > 0 && matcher.group(1) != null ? matcher.group(1) : matcher.group();
+
+        StringBuilder builder = new StringBuilder(key.length() + tag.length() + 16);
+        for (String part : parts) {
+            // 占位符使用常量对象，按引用比较
+            if (part == KEY_PLACEHOLDER) {
+                builder.append(key);
+            } else if (part == TAG_PLACEHOLDER) {
+                builder.append(tag);
+            } else {
+                builder.append(part);
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -25,4 +25,9 @@ public class SlidingWindowRedisRateLimiter extends AbstractRedisRateLimiter {
     protected String getScriptName() {
         return "rateLimiter/SlidingWindow.lua";
     }
+
+    @Override
+    protected String getMultiScriptName() {
+        return "rateLimiter/SlidingWindowMulti.lua";
+    }
 }
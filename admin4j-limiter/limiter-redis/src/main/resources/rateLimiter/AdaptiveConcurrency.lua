@@ -0,0 +1,28 @@
+-- 并发限制，有序集合保存处理中的请求，分值为许可的过期时间（毫秒）
+-- KEYS[1]：Redis 中的 key 值
+-- ARGV[1]：所有节点的并发上限，每个节点的自适应上限在本地判断
+-- ARGV[2]：许可最长的持有时间（秒）
+-- ARGV[3]：许可 id，为空时只判断并发是否已满，不占用许可
+-- ARGV[4]：本次请求占用的并发数，默认 1
+local key = KEYS[1]
+
+local limit = tonumber(ARGV[1])
+local lease = tonumber(ARGV[2]) * 1000
+local member = ARGV[3]
+local permits = tonumber(ARGV[4] or 1)
+
+local time = redis.call('time')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+-- 清理超时未释放的许可，如节点宕机
+redis.call('zremrangebyscore', key, '-inf', now)
+if redis.call('zcard', key) + permits > limit then
+    return 0
+end
+if member == '' then
+    return 1
+end
+
+redis.call('zadd', key, now + lease, member)
+redis.call('pexpire', key, lease)
+return 1
@@ -1,11 +1,15 @@
--- KEYS[1]：Redis 中的 key 值，用于存储请求时间戳与请求数量的映射
+-- KEYS[1]：Redis 中的 key 值，保存当前窗口的请求数量，在窗口结束时过期
 -- ARGV[1]：最大请求次数
 -- ARGV[2]：窗口大小（秒）
-local bucket_key = KEYS[1] .. ':' .. math.floor(tonumber(ARGV[2]) * math.floor(redis.call("TIME")[1] / tonumber(ARGV[2])))
-local num_requests = tonumber(redis.call("get", bucket_key) or "0")
-if num_requests >= tonumber(ARGV[1]) then
+-- ARGV[3]：本次请求消耗的次数，默认 1
+local now = tonumber(redis.call("TIME")[1])
+local window_size = tonumber(ARGV[2])
+local permits = tonumber(ARGV[3] or 1)
+local num_requests = tonumber(redis.call("get", KEYS[1]) or "0")
+if num_requests + permits > tonumber(ARGV[1]) then
     return 0
 end
-redis.call("incr", bucket_key)
-redis.call("expire", bucket_key, tonumber(ARGV[2]) + 1)
-return 1
\ No newline at end of file
+if redis.call("incrby", KEYS[1], permits) == permits then
+    redis.call("expireat", KEYS[1], window_size * math.floor(now / window_size) + window_size)
+end
+return 1
@@ -0,0 +1,23 @@
+-- 固定窗口，多规则原子判断，全部通过才计数
+-- KEYS[i]：第 i 个规则的 key，保存当前窗口的请求数量，在窗口结束时过期
+-- ARGV[i * 4 - 3]：第 i 个规则的最大请求次数
+-- ARGV[i * 4 - 2]：第 i 个规则的窗口大小（秒）
+-- ARGV[i * 4]：本次请求消耗的次数
+-- 返回拒绝的规则下标(从 0 开始)，全部通过返回 -1
+local now = tonumber(redis.call("TIME")[1])
+
+for i = 1, #KEYS do
+    local num_requests = tonumber(redis.call("get", KEYS[i]) or "0")
+    if num_requests + tonumber(ARGV[i * 4]) > tonumber(ARGV[i * 4 - 3]) then
+        return i - 1
+    end
+end
+
+for i = 1, #KEYS do
+    local permits = tonumber(ARGV[i * 4])
+    if redis.call("incrby", KEYS[i], permits) == permits then
+        local window_size = tonumber(ARGV[i * 4 - 2])
+        redis.call("expireat", KEYS[i], window_size * math.floor(now / window_size) + window_size)
+    end
+end
+return -1
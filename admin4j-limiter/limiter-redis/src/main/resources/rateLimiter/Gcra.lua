@@ -0,0 +1,30 @@
+-- GCRA(通用信元速率算法)，每个 key 只保存一个理论到达时间(TAT)
+-- KEYS[1]：Redis 中的 key 值，保存理论到达时间（微秒）
+-- ARGV[1]：统计时间间隔内的请求数
+-- ARGV[2]：统计时间间隔（秒）
+-- ARGV[3]：本次请求消耗的次数，默认 1
+-- ARGV[4]：允许连续通过的最大请求数，默认等于 ARGV[1]
+local key = KEYS[1]
+
+local max_requests = tonumber(ARGV[1])
+local interval = tonumber(ARGV[2]) * 1000000
+local permits = tonumber(ARGV[3] or 1)
+local burst = tonumber(ARGV[4] or ARGV[1])
+
+-- 请求间隔，可以小于 1 秒
+local emission_interval = interval / max_requests
+local tolerance = emission_interval * burst
+
+local time = redis.call('time')
+local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+
+local tat = tonumber(redis.call('get', key) or now)
+local new_tat = math.max(tat, now) + emission_interval * permits
+if new_tat - now > tolerance then
+    return 0
+end
+
+-- 理论到达时间之后 key 与不存在等价，可以过期
+local ttl = math.ceil((new_tat - now) / 1000)
+redis.call('set', key, string.format('%d', new_tat), 'px', ttl)
+return 1
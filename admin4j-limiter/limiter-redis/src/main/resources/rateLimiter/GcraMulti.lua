@@ -0,0 +1,30 @@
+-- GCRA，多规则原子判断，全部通过才更新理论到达时间
+-- KEYS[i]：第 i 个规则的 key
+-- ARGV[i * 4 - 3]：第 i 个规则统计时间间隔内的请求数
+-- ARGV[i * 4 - 2]：第 i 个规则的统计时间间隔（秒）
+-- ARGV[i * 4 - 1]：第 i 个规则允许连续通过的最大请求数
+-- ARGV[i * 4]：本次请求消耗的次数
+-- 返回拒绝的规则下标(从 0 开始)，全部通过返回 -1
+local time = redis.call('time')
+local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+
+local new_tats = {}
+for i = 1, #KEYS do
+    local max_requests = tonumber(ARGV[i * 4 - 3])
+    local interval = tonumber(ARGV[i * 4 - 2]) * 1000000
+    local burst = tonumber(ARGV[i * 4 - 1])
+
+    local emission_interval = interval / max_requests
+    local tat = tonumber(redis.call('get', KEYS[i]) or now)
+    local new_tat = math.max(tat, now) + emission_interval * tonumber(ARGV[i * 4])
+    if new_tat - now > emission_interval * burst then
+        return i - 1
+    end
+    new_tats[i] = new_tat
+end
+
+for i = 1, #KEYS do
+    local ttl = math.ceil((new_tats[i] - now) / 1000)
+    redis.call('set', KEYS[i], string.format('%d', new_tats[i]), 'px', ttl)
+end
+return -1
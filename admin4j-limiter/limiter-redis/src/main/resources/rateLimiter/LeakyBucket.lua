@@ -1,10 +1,16 @@
 -- KEYS[1]：Redis 中的 key 值，用于存储漏桶
 -- ARGV[1]：漏桶容量
 -- ARGV[2]：时间间隔（秒）
+-- ARGV[3]：本次请求消耗的次数，默认 1
+local capacity = tonumber(ARGV[1])
+local permits = tonumber(ARGV[3] or 1)
+if permits > capacity then
+    return 0
+end
 local current_time = tonumber(redis.call('time')[1])
 local num_requests = tonumber(redis.call('llen', KEYS[1]) or 0)
 local limit_timestamp = current_time - tonumber(ARGV[2])
-if num_requests >= tonumber(ARGV[1]) then
+while num_requests + permits > capacity do
     local oldest_request = redis.call('lrange', KEYS[1], 0, 0)
     if tonumber(oldest_request[1]) < limit_timestamp then
         redis.call('lpop', KEYS[1])
@@ -13,6 +19,8 @@ if num_requests >= tonumber(ARGV[1]) then
         return 0
     end
 end
-redis.call('rpush', KEYS[1], current_time)
+for i = 1, permits do
+    redis.call('rpush', KEYS[1], current_time)
+end
 redis.call('expire', KEYS[1], tonumber(ARGV[2]) + 1)
 return 1
\ No newline at end of file
@@ -0,0 +1,30 @@
+-- 漏桶整形，请求按速率依次排队，返回需要等待的时间
+-- KEYS[1]：Redis 中的 key 值，保存最后一个请求的执行时间点（微秒）
+-- ARGV[1]：统计时间间隔内的请求数
+-- ARGV[2]：统计时间间隔（秒）
+-- ARGV[3]：本次请求消耗的次数，默认 1
+-- ARGV[4]：最长等待时间（毫秒）
+-- 返回需要等待的毫秒数，等待时间超过 ARGV[4] 时返回 -1
+local key = KEYS[1]
+
+local max_requests = tonumber(ARGV[1])
+local interval = tonumber(ARGV[2]) * 1000000
+local permits = tonumber(ARGV[3] or 1)
+local max_wait = tonumber(ARGV[4]) * 1000
+
+local emission_interval = interval / max_requests
+
+local time = redis.call('time')
+local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+
+local slot = math.max(tonumber(redis.call('get', key) or now), now)
+local wait = slot - now
+if wait > max_wait then
+    return -1
+end
+
+local next_slot = slot + emission_interval * permits
+-- 排队的请求全部执行之后 key 与不存在等价，可以过期
+local ttl = math.ceil((next_slot - now) / 1000)
+redis.call('set', key, string.format('%d', next_slot), 'px', ttl)
+return math.ceil(wait / 1000)
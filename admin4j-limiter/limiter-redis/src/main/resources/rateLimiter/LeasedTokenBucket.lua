@@ -0,0 +1,29 @@
+-- KEYS[1]：Redis 中的 key 值，用于存储令牌桶
+-- ARGV[1]：令牌桶容量
+-- ARGV[2]：令牌桶填满需要的时间（秒）
+-- ARGV[3]：本次预取的令牌个数
+-- ARGV[4]：归还的上一个租约未用完的令牌个数
+-- 返回实际预取到的令牌个数，不足时返回剩余的全部令牌
+local key = KEYS[1]
+
+local capacity = tonumber(ARGV[1])
+local interval = tonumber(ARGV[2]) * 1000
+local requested = tonumber(ARGV[3])
+local returned = tonumber(ARGV[4] or 0)
+
+-- 毫秒，微秒会超出 lua 数字转字符串的精度
+local time = redis.call('time')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local last = redis.call('hmget', key, 'tokens', 'timestamp')
+local last_tokens = tonumber(last[1] or capacity)
+local last_refreshed = tonumber(last[2] or now)
+
+local delta = math.max(0, now - last_refreshed)
+local filled_tokens = math.min(capacity, last_tokens + returned + delta * capacity / interval)
+local granted = math.min(math.floor(filled_tokens), requested)
+
+redis.call('hmset', key, 'tokens', filled_tokens - granted, 'timestamp', now)
+redis.call('pexpire', key, interval * 2)
+
+return granted
@@ -1,5 +1,6 @@
 local limit = tonumber(ARGV[1])         -- 在时间窗口内允许的最大请求数
 local window_size = tonumber(ARGV[2])   -- 时间窗口大小，单位秒
+local permits = tonumber(ARGV[3] or 1)  -- 本次请求消耗的次数
 
 local current_time = tonumber(redis.call('TIME')[1])
 local window_start = current_time - window_size
@@ -24,10 +25,12 @@ if start > 0 then
     redis.call('LTRIM', KEYS[1], start, -1)
 end
 
-if count >= limit then
+if count + permits > limit then
     return 0
 else
-    redis.call('RPUSH', KEYS[1], current_time)
+    for i = 1, permits do
+        redis.call('RPUSH', KEYS[1], current_time)
+    end
     redis.call("expire", KEYS[1], tonumber(window_size) * 2)
     return 1
 end
\ No newline at end of file
@@ -0,0 +1,36 @@
+-- 滑动窗口，多规则原子判断，全部通过才计数
+-- KEYS[i]：第 i 个规则的 key
+-- ARGV[i * 4 - 3]：第 i 个规则的最大请求次数
+-- ARGV[i * 4 - 2]：第 i 个规则的窗口大小（秒）
+-- ARGV[i * 4]：本次请求消耗的次数
+-- 返回拒绝的规则下标(从 0 开始)，全部通过返回 -1
+local now = tonumber(redis.call("TIME")[1])
+
+local sub_buckets = {}
+for i = 1, #KEYS do
+    local key = KEYS[i]
+    local max_requests = tonumber(ARGV[i * 4 - 3])
+    local window_size = tonumber(ARGV[i * 4 - 2])
+    local sub_window_size = window_size / 2
+    local bucket = math.floor(window_size * math.floor(now / window_size))
+    sub_buckets[i] = math.floor(sub_window_size * math.floor(now / sub_window_size))
+
+    local count = 0
+    local hAll = redis.call("HGETALL", key)
+    for j = 1, #hAll, 2 do
+        if tonumber(hAll[j]) < bucket then
+            redis.call("HDEL", key, hAll[j])
+        else
+            count = count + tonumber(hAll[j + 1])
+        end
+    end
+    if count + tonumber(ARGV[i * 4]) > max_requests then
+        return i - 1
+    end
+end
+
+for i = 1, #KEYS do
+    redis.call("HINCRBY", KEYS[i], sub_buckets[i], tonumber(ARGV[i * 4]))
+    redis.call("EXPIRE", KEYS[i], tonumber(ARGV[i * 4 - 2]) * 10)
+end
+return -1
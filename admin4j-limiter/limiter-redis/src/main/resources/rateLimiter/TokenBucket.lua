@@ -1,19 +1,22 @@
--- KEYS[1]：Redis 中的 key 值，用于存储令牌桶
+-- KEYS[1]：Redis 中的 key 值，hash 保存令牌数(tokens)和上次填充时间(timestamp)
 -- ARGV[1]： 令牌生成速率（个/秒）
 -- ARGV[2]：令牌桶容量
--- requested: 请求令牌个数，默认是1个
-local tokens_key = KEYS[1]
-local timestamp_key = tokens_key .. ":timestamp"
+-- ARGV[3]：请求令牌个数，默认是1个
+local key = KEYS[1]
 
 local rate = tonumber(ARGV[2])
 local capacity = tonumber(ARGV[1])
 local now = tonumber(redis.call('time')[1])
-local requested = 1
+local requested = tonumber(ARGV[3] or 1)
 
 local fill_time = capacity / rate
-local ttl = math.floor(fill_time * 2)
+local ttl = math.max(1, math.floor(fill_time * 2))
 
-local last_tokens_and_refreshed = redis.call('mget', tokens_key, timestamp_key)
+-- 旧版本以字符串保存令牌数，时间戳保存在另一个 key
+if redis.call('type', key)['ok'] == 'string' then
+    redis.call('del', key)
+end
+local last_tokens_and_refreshed = redis.call('hmget', key, 'tokens', 'timestamp')
 
 local last_tokens = tonumber(last_tokens_and_refreshed[1] or capacity)
 local last_refreshed = tonumber(last_tokens_and_refreshed[2] or 0)
@@ -28,7 +31,7 @@ if allowed then
     allowed_num = 1
 end
 
-redis.call("setex", tokens_key, ttl, new_tokens)
-redis.call("setex", timestamp_key, ttl, now)
+redis.call("hmset", key, 'tokens', new_tokens, 'timestamp', now)
+redis.call("expire", key, ttl)
 
-return allowed_num
\ No newline at end of file
+return allowed_num
@@ -0,0 +1,77 @@
+package com.admin4j.limiter.redis;
+
+import com.admin4j.limiter.core.concurrency.ConcurrencyPermit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author andanyang
+ * @since 2024/3/28 15:00
+ */
+public class AdaptiveConcurrencyRedisRateLimiterTest {
+
+    /**
+     * 用内存中的列表代替 redis 有序集合，多个节点共用
+     */
+    private static AdaptiveConcurrencyRedisRateLimiter node(List<String> permits) {
+
+        return new AdaptiveConcurrencyRedisRateLimiter(null) {
+            @Override
+            protected Long execute(String key, String... args) {
+                synchronized (permits) {
+                    if (permits.size() + Integer.parseInt(args[3]) > Integer.parseInt(args[0])) {
+                        return 0L;
+                    }
+                    if (!args[2].isEmpty()) {
+                        permits.add(args[2]);
+                    }
+                    return 1L;
+                }
+            }
+
+            @Override
+            protected void release(String key, String permitId) {
+                synchronized (permits) {
+                    permits.remove(permitId);
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testNodeLimit() {
+
+        List<String> permits = new ArrayList<>();
+        AdaptiveConcurrencyRedisRateLimiter node1 = node(permits);
+        AdaptiveConcurrencyRedisRateLimiter node2 = node(permits);
+
+        // 每个节点的初始上限为 maxAttempts 的一半，只与本节点处理中的请求比较
+        List<ConcurrencyPermit> acquired = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            acquired.add(node1.tryAcquireConcurrency("key", 10, 60));
+            acquired.add(node2.tryAcquireConcurrency("key", 10, 60));
+        }
+        Assert.assertFalse(acquired.contains(null));
+        Assert.assertNull(node1.tryAcquireConcurrency("key", 10, 60));
+        Assert.assertFalse(node1.tryAcquire("key", 10, 60));
+        Assert.assertEquals(10, permits.size());
+
+        // 所有节点的总数不超过 maxAttempts，被拒绝时不占用本节点的许可
+        AdaptiveConcurrencyRedisRateLimiter node3 = node(permits);
+        Assert.assertNull(node3.tryAcquireConcurrency("key", 10, 60));
+        Assert.assertFalse(node3.tryAcquire("key", 10, 60));
+
+        acquired.get(0).onSuccess();
+        Assert.assertEquals(9, permits.size());
+        ConcurrencyPermit permit = node3.tryAcquireConcurrency("key", 10, 60);
+        Assert.assertNotNull(permit);
+        permit.onIgnore();
+        for (ConcurrencyPermit p : acquired) {
+            p.onIgnore();
+        }
+        Assert.assertTrue(permits.isEmpty());
+    }
+}
@@ -0,0 +1,193 @@
+package com.admin4j.limiter.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author andanyang
+ * @since 2024/3/4 15:10
+ */
+public class LeasedTokenBucketRedisRateLimiterTest {
+
+    @Test
+    public void testLease() throws InterruptedException {
+
+        // 用内存中的令牌代替 redis 令牌桶，时间窗口内不补充令牌
+        AtomicLong tokens = new AtomicLong(1000);
+        AtomicInteger calls = new AtomicInteger();
+        LeasedTokenBucketRedisRateLimiter limiter = new LeasedTokenBucketRedisRateLimiter(null) {
+            @Override
+            protected Long lease(String key, int maxAttempts, long interval, long size, long returned) {
+                calls.incrementAndGet();
+                synchronized (tokens) {
+                    long granted = Math.min(tokens.get() + returned, size);
+                    tokens.addAndGet(returned - granted);
+                    return granted;
+                }
+            }
+        };
+
+        AtomicInteger passed = new AtomicInteger();
+        CountDownLatch countDownLatch = new CountDownLatch(8);
+        for (int i = 0; i < 8; i++) {
+            new Thread(() -> {
+                for (int j = 0; j < 1000; j++) {
+                    if (limiter.tryAcquire("key", 1000, 60)) {
+                        passed.incrementAndGet();
+                    }
+                }
+                countDownLatch.countDown();
+            }).start();
+        }
+        countDownLatch.await();
+
+        Assert.assertTrue(passed.get() <= 1000);
+        Assert.assertTrue(passed.get() >= 900);
+        // 逐个请求访问 redis 需要 8000 次
+        Assert.assertTrue("calls: " + calls.get(), calls.get() < 200);
+    }
+
+    @Test
+    public void testLeaseAsync() {
+
+        AtomicLong tokens = new AtomicLong(1000);
+        AtomicInteger calls = new AtomicInteger();
+        LeasedTokenBucketRedisRateLimiter limiter = new LeasedTokenBucketRedisRateLimiter(null) {
+            @Override
+            protected CompletionStage<Long> leaseAsync(String key, int maxAttempts, long interval, long size, long returned) {
+                calls.incrementAndGet();
+                return CompletableFuture.supplyAsync(() -> {
+                    synchronized (tokens) {
+                        long granted = Math.min(tokens.get() + returned, size);
+                        tokens.addAndGet(returned - granted);
+                        return granted;
+                    }
+                });
+            }
+        };
+
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            results.add(limiter.tryAcquireAsync("key", 1000, 60).toCompletableFuture());
+        }
+        long passed = results.stream().filter(CompletableFuture::join).count();
+
+        Assert.assertTrue(passed <= 1000);
+        Assert.assertTrue("calls: " + calls.get(), calls.get() < 500);
+    }
+
+    /**
+     * 租约用完、续期的完整过程：令牌桶按时间补充，
+     * 通过的请求数不超过 容量 + 速率 * 时间，且不低于其 80%
+     */
+    @Test
+    public void testRenewRate() throws InterruptedException {
+
+        int capacity = 200;
+        long interval = 1;
+        MemoryTokenBucket bucket = new MemoryTokenBucket(capacity, TimeUnit.SECONDS.toNanos(interval));
+        LeasedTokenBucketRedisRateLimiter limiter = new LeasedTokenBucketRedisRateLimiter(null) {
+            @Override
+            protected Long lease(String key, int maxAttempts, long interval, long size, long returned) {
+                return bucket.lease(size, returned);
+            }
+        };
+
+        AtomicInteger passed = new AtomicInteger();
+        long start = System.nanoTime();
+        long duration = TimeUnit.MILLISECONDS.toNanos(1500);
+        CountDownLatch countDownLatch = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++) {
+            new Thread(() -> {
+                while (System.nanoTime() - start < duration) {
+                    if (limiter.tryAcquire("key", capacity, interval)) {
+                        passed.incrementAndGet();
+                    }
+                    // 请求速率高于令牌补充速率
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(500));
+                }
+                countDownLatch.countDown();
+            }).start();
+        }
+        countDownLatch.await();
+        double elapsed = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+
+        double allowed = capacity + capacity * elapsed / interval;
+        Assert.assertTrue("passed: " + passed.get() + ", allowed: " + allowed, passed.get() <= allowed);
+        Assert.assertTrue("passed: " + passed.get() + ", allowed: " + allowed, passed.get() >= allowed * 0.8);
+    }
+
+    /**
+     * 过期租约的剩余令牌在下次预取时归还
+     */
+    @Test
+    public void testReturnLeftover() throws InterruptedException {
+
+        MemoryTokenBucket bucket = new MemoryTokenBucket(100, TimeUnit.SECONDS.toNanos(3600));
+        LeasedTokenBucketRedisRateLimiter limiter = new LeasedTokenBucketRedisRateLimiter(null, 100, Duration.ofMillis(50)) {
+            @Override
+            protected Long lease(String key, int maxAttempts, long interval, long size, long returned) {
+                return bucket.lease(size, returned);
+            }
+        };
+
+        // 消费速率高，租约逐渐变大
+        int passed = 0;
+        for (int i = 0; i < 30; i++) {
+            if (limiter.tryAcquire("key", 100, 3600)) {
+                passed++;
+            }
+        }
+        Thread.sleep(60);
+        Assert.assertTrue(limiter.tryAcquire("key", 100, 3600));
+        passed++;
+        Assert.assertTrue(bucket.returned.get() > 0);
+
+        // 令牌桶中的令牌 + 租约中的令牌 + 已通过的请求 = 容量
+        long leased = 0;
+        while (limiter.tryAcquire("key", 100, 3600)) {
+            leased++;
+        }
+        Assert.assertEquals(100, passed + leased);
+    }
+
+    /**
+     * 与 LeasedTokenBucket.lua 相同的令牌桶
+     */
+    private static class MemoryTokenBucket {
+
+        private final int capacity;
+        private final long intervalNanos;
+        private final AtomicLong returned = new AtomicLong();
+        private double tokens;
+        private long refreshed = System.nanoTime();
+
+        MemoryTokenBucket(int capacity, long intervalNanos) {
+            this.capacity = capacity;
+            this.intervalNanos = intervalNanos;
+            this.tokens = capacity;
+        }
+
+        synchronized long lease(long size, long returned) {
+
+            this.returned.addAndGet(returned);
+            long now = System.nanoTime();
+            double filled = Math.min(capacity, tokens + returned + (double) (now - refreshed) * capacity / intervalNanos);
+            long granted = Math.min((long) filled, size);
+            tokens = filled - granted;
+            refreshed = now;
+            return granted;
+        }
+    }
+}
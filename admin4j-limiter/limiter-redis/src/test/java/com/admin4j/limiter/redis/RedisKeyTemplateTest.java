@@ -0,0 +1,61 @@
+package com.admin4j.limiter.redis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author andanyang
+ * @since 2024/3/16 10:20
+ */
+public class RedisKeyTemplateTest {
+
+    @Test
+    public void testApply() {
+
+        RedisKeyTemplate template = new RedisKeyTemplate("RL:{${tag}}:${key}", ":T([^:]+)");
+
+        String user = template.apply("RL:", "/order:T100:U1");
+        String tenant = template.apply("RL:", "/order:T100");
+        Assert.assertEquals("RL:{100}:/order:T100:U1", user);
+        Assert.assertEquals(ClusterSlotHashUtil.calculateSlot(user), ClusterSlotHashUtil.calculateSlot(tenant));
+
+        // 没有 tag 时使用默认前缀
+        Assert.assertEquals("RL:/order", template.apply("RL:", "/order"));
+        Assert.assertEquals("RL:/order", RedisKeyTemplate.NONE.apply("RL:", "/order"));
+    }
+
+    @Test
+    public void testGroupBySlot() {
+
+        RedisKeyTemplate template = new RedisKeyTemplate("RL:{${tag}}:${key}", ":T([^:]+)");
+        List<String> keys = Arrays.asList(template.apply("RL:", "/order:T100:U1"), template.apply("RL:", "/order"),
+                template.apply("RL:", "/order:T100"));
+
+        Map<Integer, List<Integer>> groups = AbstractRedisRateLimiter.groupBySlot(keys);
+        Assert.assertEquals(2, groups.size());
+        // 组的顺序为组内第一个规则的顺序
+        Assert.assertEquals(Arrays.asList(Arrays.asList(0, 2), Collections.singletonList(1)), new ArrayList<>(groups.values()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTemplateWithoutKey() {
+        new RedisKeyTemplate("RL:{${tag}}", ":T([^:]+)");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTemplateWithoutTagPattern() {
+        new RedisKeyTemplate("RL:{${tag}}:${key}", null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTagPatternWithoutTemplate() {
+        new RedisKeyTemplate("", ":T([^:]+)");
+    }
+}
@@ -3,15 +3,25 @@ package com.admin4j.limiter;
 import com.admin4j.limiter.core.RateLimiterContext;
 import com.admin4j.limiter.core.RateLimiterProvider;
 import com.admin4j.limiter.core.RateLimiterService;
+import com.admin4j.limiter.core.concurrency.ConcurrencyLimiterService;
 import com.admin4j.limiter.core.constant.LimiterType;
 import com.admin4j.limiter.core.util.RateLimiterUtil;
+import com.admin4j.limiter.failover.FailoverRateLimiter;
+import com.admin4j.limiter.failover.FallbackMode;
+import com.admin4j.limiter.failover.LimiterCircuitBreaker;
+import com.admin4j.limiter.properties.LimiterProperties;
+import com.admin4j.limiter.redis.AbstractRedisRateLimiter;
+import lombok.Setter;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author andanyang
@@ -23,19 +33,75 @@ public class DefaultRateLimiterContext implements ApplicationContextAware, Initi
 
     private final Map<String, RateLimiterService> limiterServiceMap = new HashMap<>();
 
+    /**
+     * 优先使用的限速器实现方
+     */
+    @Setter
+    private String provider;
+
+    /**
+     * redis 故障降级配置，为 null 时不降级
+     */
+    @Setter
+    private LimiterProperties.Failover failover;
+    @Setter
+    private LimiterCircuitBreaker circuitBreaker;
+
     @Override
     public void afterPropertiesSet() throws Exception {
 
-        applicationContext.getBeansOfType(RateLimiterProvider.class).values().forEach(i -> {
+        Collection<RateLimiterProvider> providers = applicationContext.getBeansOfType(RateLimiterProvider.class).values();
+        providers.forEach(i -> {
 
-            limiterServiceMap.put(i.support().name(), i);
+            String limiterType = i.support().name();
+            // 同一个限速类型有多个实现时，使用指定的实现方
+            if (!limiterServiceMap.containsKey(limiterType) || i.provider().equals(provider)) {
+                limiterServiceMap.put(limiterType, i);
+            }
         });
 
+        if (failover != null && circuitBreaker != null) {
+            wrapFailover(providers);
+        }
 
         RateLimiterUtil.setRateLimiterContext(this);
     }
 
 
+    /**
+     * 为 redis 限速器包装故障降级，并发限制的许可需要在同一个实现释放，不包装
+     */
+    private void wrapFailover(Collection<RateLimiterProvider> providers) {
+
+        long timeoutMillis = failover.getTimeout().toMillis();
+        boolean local = failover.getMode() == FallbackMode.LOCAL || failover.getTypes().containsValue(FallbackMode.LOCAL);
+        if (local && failover.getNodeCount() < 1) {
+            throw new IllegalStateException("admin4j.limiter.failover.node-count must be set when fallback mode is LOCAL");
+        }
+        for (Map.Entry<String, RateLimiterService> entry : limiterServiceMap.entrySet()) {
+
+            RateLimiterProvider primary = (RateLimiterProvider) entry.getValue();
+            if (!AbstractRedisRateLimiter.PROVIDER.equals(primary.provider()) || primary instanceof ConcurrencyLimiterService) {
+                continue;
+            }
+            LimiterType limiterType = primary.support();
+            RateLimiterProvider fallback = providers.stream()
+                    .filter(i -> i.support() == limiterType && !AbstractRedisRateLimiter.PROVIDER.equals(i.provider()))
+                    .findFirst().orElse(null);
+            FallbackMode mode = failover.getTypes().getOrDefault(limiterType, failover.getMode());
+            FailoverRateLimiter failoverRateLimiter = FailoverRateLimiter.wrap(primary, fallback, mode, circuitBreaker,
+                    timeoutMillis, failover.getNodeCount());
+            entry.setValue(failoverRateLimiter);
+        }
+
+        // 所有 redis 限速器共用一个熔断器，读取探测 key 检查 redis，不占用限速次数
+        providers.stream()
+                .filter(AbstractRedisRateLimiter.class::isInstance)
+                .map(AbstractRedisRateLimiter.class::cast)
+                .min(Comparator.comparing(RateLimiterProvider::support))
+                .ifPresent(redis -> circuitBreaker.setProbe(() -> redis.ping().toCompletableFuture().get(timeoutMillis, TimeUnit.MILLISECONDS)));
+    }
+
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
         this.applicationContext = applicationContext;
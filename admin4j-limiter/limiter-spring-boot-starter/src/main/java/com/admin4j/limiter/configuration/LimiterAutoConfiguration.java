@@ -9,18 +9,31 @@ import com.admin4j.limiter.core.RateLimiterContext;
 import com.admin4j.limiter.core.RateLimiterKeyGenerate;
 import com.admin4j.limiter.core.interceptor.RateLimitInterceptor;
 import com.admin4j.limiter.core.key.DefaultRateLimiterKeyGenerate;
+import com.admin4j.limiter.core.metrics.LimiterMetrics;
+import com.admin4j.limiter.core.store.LocalStateful;
+import com.admin4j.limiter.core.store.RejectionCache;
+import com.admin4j.limiter.failover.LimiterCircuitBreaker;
+import com.admin4j.limiter.failover.LimiterFailoverMetrics;
 import com.admin4j.limiter.key.TenantRateLimiterKeyGenerate;
 import com.admin4j.limiter.key.UserRateLimiterKeyGenerate;
+import com.admin4j.limiter.listener.EnvironmentChangeListener;
+import com.admin4j.limiter.metrics.MicrometerLimiterMetrics;
+import com.admin4j.limiter.properties.LimiterProperties;
+import com.admin4j.limiter.redis.RedisKeyTemplate;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfigureOrder;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
 
 /**
  * @author andanyang
@@ -29,18 +42,62 @@ import org.springframework.core.annotation.Order;
 @Configuration
 @ConditionalOnClass(name = {"org.springframework.web.servlet.HandlerInterceptor"})
 @AutoConfigureOrder(WebConstant.IUserContextHolderOrder + 7)
+@EnableConfigurationProperties(LimiterProperties.class)
 public class LimiterAutoConfiguration implements ApplicationContextAware {
 
     private static ApplicationContext applicationContext;
 
     @Bean
-    public RateLimitInterceptor rateLimitInterceptor(RateLimiterContext rateLimiterContext) {
-        return new RateLimitInterceptor(rateLimiterContext);
+    public RateLimitInterceptor rateLimitInterceptor(RateLimiterContext rateLimiterContext, ObjectProvider<RejectionCache> rejectionCache,
+                                                     ObjectProvider<LimiterMetrics> limiterMetrics) {
+        RateLimitInterceptor rateLimitInterceptor = new RateLimitInterceptor(rateLimiterContext);
+        rateLimitInterceptor.setRejectionCache(rejectionCache.getIfAvailable());
+        rateLimitInterceptor.setLimiterMetrics(limiterMetrics.getIfAvailable(() -> LimiterMetrics.NOOP));
+        return rateLimitInterceptor;
     }
 
     @Bean
-    public RateLimiterContext rateLimiterContext() {
-        return new DefaultRateLimiterContext();
+    public PathRuleLoader pathRuleLoader(Environment environment, RateLimitInterceptor rateLimitInterceptor) {
+        return new PathRuleLoader(environment, rateLimitInterceptor);
+    }
+
+    @Bean
+    @ConditionalOnClass(name = {"org.springframework.cloud.context.environment.EnvironmentChangeEvent"})
+    public EnvironmentChangeListener limiterEnvironmentChangeListener(PathRuleLoader pathRuleLoader) {
+        return new EnvironmentChangeListener(pathRuleLoader);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "admin4j.limiter.reject-cache", name = "enabled", havingValue = "true")
+    public RejectionCache rejectionCache(LimiterProperties limiterProperties) {
+        LimiterProperties.RejectCache rejectCache = limiterProperties.getRejectCache();
+        return new RejectionCache(rejectCache.getMaxKeys(), rejectCache.getTopKeys());
+    }
+
+    @Bean
+    public RateLimiterContext rateLimiterContext(LimiterProperties limiterProperties, ObjectProvider<LimiterCircuitBreaker> circuitBreaker) {
+        DefaultRateLimiterContext rateLimiterContext = new DefaultRateLimiterContext();
+        rateLimiterContext.setProvider(limiterProperties.getProvider());
+        rateLimiterContext.setFailover(limiterProperties.getFailover());
+        rateLimiterContext.setCircuitBreaker(circuitBreaker.getIfAvailable());
+        return rateLimiterContext;
+    }
+
+    /**
+     * 未配置模板时等同于 RedisKeyTemplate.NONE，只配置其中一项时启动失败
+     */
+    @Bean
+    public RedisKeyTemplate redisKeyTemplate(LimiterProperties limiterProperties) {
+        LimiterProperties.Redis redis = limiterProperties.getRedis();
+        return new RedisKeyTemplate(redis.getKeyTemplate(), redis.getHashTagPattern());
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "admin4j.limiter.failover", name = "enabled", havingValue = "true")
+    public LimiterCircuitBreaker limiterCircuitBreaker(LimiterProperties limiterProperties) {
+        LimiterProperties.Failover failover = limiterProperties.getFailover();
+        return new LimiterCircuitBreaker(failover.getFailureThreshold(), failover.getTimeout().toMillis(),
+                failover.getProbeInterval().toMillis());
     }
 
     @Bean
@@ -73,6 +130,22 @@ public class LimiterAutoConfiguration implements ApplicationContextAware {
         return new TenantRateLimiterKeyGenerate(tenantInfoService);
     }
 
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    static class LimiterMetricsConfiguration {
+
+        @Bean
+        public MicrometerLimiterMetrics micrometerLimiterMetrics(ObjectProvider<LocalStateful> localStates) {
+            return new MicrometerLimiterMetrics(localStates);
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "admin4j.limiter.failover", name = "enabled", havingValue = "true")
+        public LimiterFailoverMetrics limiterFailoverMetrics(LimiterCircuitBreaker circuitBreaker, RateLimiterContext rateLimiterContext) {
+            return new LimiterFailoverMetrics(circuitBreaker, rateLimiterContext);
+        }
+    }
+
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
         LimiterAutoConfiguration.applicationContext = applicationContext;
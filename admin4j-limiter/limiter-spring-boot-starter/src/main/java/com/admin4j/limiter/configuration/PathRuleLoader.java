@@ -0,0 +1,52 @@
+package com.admin4j.limiter.configuration;
+
+import com.admin4j.limiter.core.interceptor.RateLimitInterceptor;
+import com.admin4j.limiter.properties.LimiterProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+/**
+ * 加载按路径配置的限速规则。
+ * 刷新时直接从 Environment 重新绑定，不依赖配置类的刷新顺序；新规则解析失败时保留旧规则
+ *
+ * @author andanyang
+ * @since 2024/3/14 11:00
+ */
+@Slf4j
+public class PathRuleLoader implements SmartInitializingSingleton {
+
+    public static final String PREFIX = "admin4j.limiter";
+
+    private final Environment environment;
+    private final RateLimitInterceptor rateLimitInterceptor;
+
+    public PathRuleLoader(Environment environment, RateLimitInterceptor rateLimitInterceptor) {
+        this.environment = environment;
+        this.rateLimitInterceptor = rateLimitInterceptor;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rateLimitInterceptor.setPathRules(bind().getPathRules());
+    }
+
+    /**
+     * 刷新配置
+     */
+    public void refresh() {
+
+        LimiterProperties limiterProperties = bind();
+        try {
+            rateLimitInterceptor.setPathRules(limiterProperties.getPathRules());
+            log.info("rate limiter path rules refreshed, {} rules", limiterProperties.getPathRules().size());
+        } catch (RuntimeException e) {
+            log.error("refresh rate limiter path rules failed, keep the previous rules", e);
+        }
+    }
+
+    private LimiterProperties bind() {
+        return Binder.get(environment).bind(PREFIX, LimiterProperties.class).orElseGet(LimiterProperties::new);
+    }
+}
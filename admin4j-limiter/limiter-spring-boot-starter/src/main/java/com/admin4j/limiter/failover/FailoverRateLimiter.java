@@ -0,0 +1,276 @@
+package com.admin4j.limiter.failover;
+
+import com.admin4j.limiter.core.BurstRateLimiterService;
+import com.admin4j.limiter.core.RateLimiterProvider;
+import com.admin4j.limiter.core.RateLimiterRule;
+import com.admin4j.limiter.core.RateLimiterService;
+import com.admin4j.limiter.core.ThrottleRateLimiterService;
+import com.admin4j.limiter.core.constant.LimiterType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * redis 限速器的故障降级包装。
+ * 调用异常、超时或者过慢时计入熔断器，熔断器打开后按 {@link FallbackMode} 降级，
+ * 不再等待 redis，避免 redis 故障拖慢所有限速接口
+ *
+ * @author andanyang
+ * @since 2024/3/13 10:00
+ */
+public class FailoverRateLimiter implements RateLimiterProvider {
+
+    /**
+     * 执行没有异步接口的 redis 调用，调用线程最多等待 timeout。
+     * 线程数有上限，redis 卡住导致线程耗尽时直接计为失败
+     */
+    private static final ExecutorService CALL_EXECUTOR = new ThreadPoolExecutor(0,
+            Math.max(8, Runtime.getRuntime().availableProcessors() * 2), 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+        Thread thread = new Thread(r, "rate-limiter-failover");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    protected final RateLimiterProvider primary;
+    /**
+     * 本地限速器，mode 为 LOCAL 时使用
+     */
+    protected final RateLimiterService fallback;
+    protected final FallbackMode mode;
+    protected final LimiterCircuitBreaker circuitBreaker;
+    private final long timeoutMillis;
+    private final int nodeCount;
+    private final LongAdder fallbackCount = new LongAdder();
+
+    protected FailoverRateLimiter(RateLimiterProvider primary, RateLimiterService fallback, FallbackMode mode,
+                                  LimiterCircuitBreaker circuitBreaker, long timeoutMillis, int nodeCount) {
+        this.primary = primary;
+        this.fallback = fallback;
+        // 没有本地限速器时放行
+        this.mode = mode == FallbackMode.LOCAL && fallback == null ? FallbackMode.ALLOW : mode;
+        this.circuitBreaker = circuitBreaker;
+        this.timeoutMillis = timeoutMillis;
+        this.nodeCount = Math.max(1, nodeCount);
+    }
+
+    /**
+     * 包装限速器，保留其支持的突发容量、整形接口
+     *
+     * @param timeoutMillis 单次调用的超时时间
+     * @param nodeCount     集群节点数，本地降级时次数按节点数缩放
+     */
+    public static FailoverRateLimiter wrap(RateLimiterProvider primary, RateLimiterService fallback, FallbackMode mode,
+                                           LimiterCircuitBreaker circuitBreaker, long timeoutMillis, int nodeCount) {
+        if (primary instanceof BurstRateLimiterService) {
+            return new BurstFailoverRateLimiter(primary, fallback, mode, circuitBreaker, timeoutMillis, nodeCount);
+        }
+        if (primary instanceof ThrottleRateLimiterService) {
+            return new ThrottleFailoverRateLimiter(primary, fallback, mode, circuitBreaker, timeoutMillis, nodeCount);
+        }
+        return new FailoverRateLimiter(primary, fallback, mode, circuitBreaker, timeoutMillis, nodeCount);
+    }
+
+    @Override
+    public LimiterType support() {
+        return primary.support();
+    }
+
+    @Override
+    public String provider() {
+        return primary.provider();
+    }
+
+    public RateLimiterProvider getPrimary() {
+        return primary;
+    }
+
+    /**
+     * 降级处理的请求数
+     */
+    public long getFallbackCount() {
+        return fallbackCount.sum();
+    }
+
+    @Override
+    public boolean tryAcquire(String key, int maxAttempts, long interval) {
+        return tryAcquire(key, maxAttempts, interval, 1);
+    }
+
+    /**
+     * 通过异步接口调用 redis，等待不超过 timeout。
+     * 没有真正的异步接口时(如非 lettuce 连接)异步调用会同步执行，改为在 CALL_EXECUTOR 中调用
+     */
+    @Override
+    public boolean tryAcquire(String key, int maxAttempts, long interval, int permits) {
+
+        if (!primary.isAsyncSupported()) {
+            return call(() -> primary.tryAcquire(key, maxAttempts, interval, permits),
+                    () -> fallback.tryAcquire(key, scale(maxAttempts), interval, permits), true, false);
+        }
+        if (!circuitBreaker.isOpen()) {
+            long start = System.nanoTime();
+            try {
+                Boolean allowed = primary.tryAcquireAsync(key, maxAttempts, interval, permits)
+                        .toCompletableFuture().get(timeoutMillis, TimeUnit.MILLISECONDS);
+                circuitBreaker.onSuccess(System.nanoTime() - start);
+                return Boolean.TRUE.equals(allowed);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                circuitBreaker.onFailure();
+            } catch (ExecutionException | TimeoutException | RuntimeException e) {
+                rethrowIllegalArgument(e);
+                circuitBreaker.onFailure();
+            }
+        }
+        return fallback(() -> fallback.tryAcquire(key, scale(maxAttempts), interval, permits), true, false);
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return primary.isAsyncSupported();
+    }
+
+    @Override
+    public CompletionStage<Boolean> tryAcquireAsync(String key, int maxAttempts, long interval, int permits) {
+
+        if (circuitBreaker.isOpen()) {
+            return CompletableFuture.completedFuture(
+                    fallback(() -> fallback.tryAcquire(key, scale(maxAttempts), interval, permits), true, false));
+        }
+        long start = System.nanoTime();
+        CompletionStage<Boolean> result;
+        try {
+            result = primary.tryAcquireAsync(key, maxAttempts, interval, permits);
+        } catch (RuntimeException e) {
+            rethrowIllegalArgument(e);
+            circuitBreaker.onFailure();
+            return CompletableFuture.completedFuture(
+                    fallback(() -> fallback.tryAcquire(key, scale(maxAttempts), interval, permits), true, false));
+        }
+        return result.handle((allowed, e) -> {
+            if (e == null) {
+                circuitBreaker.onSuccess(System.nanoTime() - start);
+                return Boolean.TRUE.equals(allowed);
+            }
+            rethrowIllegalArgument(e);
+            circuitBreaker.onFailure();
+            return fallback(() -> fallback.tryAcquire(key, scale(maxAttempts), interval, permits), true, false);
+        });
+    }
+
+    @Override
+    public int tryAcquireAll(List<RateLimiterRule> rules) {
+        return call(() -> primary.tryAcquireAll(rules), () -> fallback.tryAcquireAll(scale(rules)), -1, 0);
+    }
+
+    /**
+     * 在 CALL_EXECUTOR 中调用 redis，最多等待 timeout，超时、异常都计为失败。
+     * 超时的调用无法中断，结果被丢弃
+     */
+    protected <T> T call(Supplier<T> primaryCall, Supplier<T> localCall, T allowValue, T rejectValue) {
+
+        if (!circuitBreaker.isOpen()) {
+            long start = System.nanoTime();
+            try {
+                T result = CompletableFuture.supplyAsync(primaryCall, CALL_EXECUTOR).get(timeoutMillis, TimeUnit.MILLISECONDS);
+                circuitBreaker.onSuccess(System.nanoTime() - start);
+                return result;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                circuitBreaker.onFailure();
+            } catch (ExecutionException | TimeoutException | RuntimeException e) {
+                rethrowIllegalArgument(e);
+                circuitBreaker.onFailure();
+            }
+        }
+        return fallback(localCall, allowValue, rejectValue);
+    }
+
+    /**
+     * 参数、配置错误不是 redis 故障，直接抛给调用方，不计入熔断器也不降级
+     */
+    private static void rethrowIllegalArgument(Throwable e) {
+
+        Throwable cause = e instanceof ExecutionException || e instanceof CompletionException ? e.getCause() : e;
+        if (cause instanceof IllegalArgumentException) {
+            throw (IllegalArgumentException) cause;
+        }
+    }
+
+        protected <T> T fallback(Supplier<T> localCall, T allowValue, T rejectValue) {
+
+        fallbackCount.increment();
+        switch (mode) {
+            case LOCAL:
+                return localCall.get();
+            case REJECT:
+                return rejectValue;
+            default:
+                return allowValue;
+        }
+    }
+
+    protected int scale(int maxAttempts) {
+        return Math.max(1, maxAttempts / nodeCount);
+    }
+
+    private List<RateLimiterRule> scale(List<RateLimiterRule> rules) {
+
+        List<RateLimiterRule> scaled = new ArrayList<>(rules.size());
+        for (RateLimiterRule rule : rules) {
+            int burst = rule.getBurst() > 0 ? scale(rule.getBurst()) : 0;
+            scaled.add(new RateLimiterRule(rule.getKey(), scale(rule.getMaxAttempts()), rule.getInterval(), burst, rule.getPermits()));
+        }
+        return scaled;
+    }
+
+    static class BurstFailoverRateLimiter extends FailoverRateLimiter implements BurstRateLimiterService {
+
+        BurstFailoverRateLimiter(RateLimiterProvider primary, RateLimiterService fallback, FallbackMode mode,
+                                 LimiterCircuitBreaker circuitBreaker, long timeoutMillis, int nodeCount) {
+            super(primary, fallback, mode, circuitBreaker, timeoutMillis, nodeCount);
+        }
+
+        @Override
+        public boolean tryAcquireWithBurst(String key, int maxAttempts, long interval, int burst) {
+            return tryAcquireWithBurst(key, maxAttempts, interval, burst, 1);
+        }
+
+        @Override
+        public boolean tryAcquireWithBurst(String key, int maxAttempts, long interval, int burst, int permits) {
+            return call(() -> ((BurstRateLimiterService) primary).tryAcquireWithBurst(key, maxAttempts, interval, burst, permits),
+                    () -> fallback instanceof BurstRateLimiterService
+                            ? ((BurstRateLimiterService) fallback).tryAcquireWithBurst(key, scale(maxAttempts), interval, scale(burst), permits)
+                            : fallback.tryAcquire(key, scale(maxAttempts), interval, permits),
+                    true, false);
+        }
+    }
+
+    static class ThrottleFailoverRateLimiter extends FailoverRateLimiter implements ThrottleRateLimiterService {
+
+        ThrottleFailoverRateLimiter(RateLimiterProvider primary, RateLimiterService fallback, FallbackMode mode,
+                                    LimiterCircuitBreaker circuitBreaker, long timeoutMillis, int nodeCount) {
+            super(primary, fallback, mode, circuitBreaker, timeoutMillis, nodeCount);
+        }
+
+        @Override
+        public long tryAcquireWithDelay(String key, int maxAttempts, long interval, int permits, long maxWait) {
+            return call(() -> ((ThrottleRateLimiterService) primary).tryAcquireWithDelay(key, maxAttempts, interval, permits, maxWait),
+                    () -> fallback instanceof ThrottleRateLimiterService
+                            ? ((ThrottleRateLimiterService) fallback).tryAcquireWithDelay(key, scale(maxAttempts), interval, permits, maxWait)
+                            : fallback.tryAcquire(key, scale(maxAttempts), interval, permits) ? 0L : -1L,
+                    0L, -1L);
+        }
+    }
+}
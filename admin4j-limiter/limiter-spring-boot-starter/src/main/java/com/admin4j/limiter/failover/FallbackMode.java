@@ -0,0 +1,25 @@
+package com.admin4j.limiter.failover;
+
+/**
+ * redis 限速器故障时的降级方式
+ *
+ * @author andanyang
+ * @since 2024/3/13 9:30
+ */
+public enum FallbackMode {
+
+    /**
+     * 使用本地限速器，次数按 maxAttempts / nodeCount 缩放
+     */
+    LOCAL,
+
+    /**
+     * 全部放行
+     */
+    ALLOW,
+
+    /**
+     * 全部拒绝
+     */
+    REJECT
+}
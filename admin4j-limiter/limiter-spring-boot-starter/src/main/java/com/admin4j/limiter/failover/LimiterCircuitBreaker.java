@@ -0,0 +1,132 @@
+package com.admin4j.limiter.failover;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * redis 限速器熔断器。
+ * 连续失败(异常、超时、慢调用)达到阈值后打开，后台定时探测 redis，探测成功后关闭
+ *
+ * @author andanyang
+ * @since 2024/3/13 9:40
+ */
+@Slf4j
+public class LimiterCircuitBreaker {
+
+    private final int failureThreshold;
+    private final long slowCallNanos;
+    private final long probeIntervalMillis;
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicLong openCount = new AtomicLong();
+    private volatile boolean open;
+    /**
+     * 探测 redis 是否恢复，返回值不为 null 表示正常
+     */
+    private volatile Callable<?> probe;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> probing;
+
+    /**
+     * @param failureThreshold    连续失败多少次后打开
+     * @param slowCallMillis      超过该耗时的调用计为失败
+     * @param probeIntervalMillis 打开期间探测的间隔
+     */
+    public LimiterCircuitBreaker(int failureThreshold, long slowCallMillis, long probeIntervalMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMillis);
+        this.probeIntervalMillis = Math.max(1, probeIntervalMillis);
+    }
+
+    public void setProbe(Callable<?> probe) {
+        this.probe = probe;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * 熔断器打开的次数
+     */
+    public long getOpenCount() {
+        return openCount.get();
+    }
+
+    /**
+     * 记录一次调用成功，耗时超过慢调用阈值时计为失败
+     */
+    public void onSuccess(long elapsedNanos) {
+        if (elapsedNanos > slowCallNanos) {
+            onFailure();
+        } else if (failures.get() != 0) {
+            failures.set(0);
+        }
+    }
+
+    public void onFailure() {
+        if (failures.incrementAndGet() >= failureThreshold && !open) {
+            open();
+        }
+    }
+
+    private synchronized void open() {
+
+        if (open) {
+            return;
+        }
+        open = true;
+        openCount.incrementAndGet();
+        log.warn("redis rate limiter failed {} times in a row, switch to fallback", failureThreshold);
+        if (probe == null) {
+            return;
+        }
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+                Thread thread = new Thread(r, "rate-limiter-probe");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        probing = scheduler.scheduleWithFixedDelay(this::probe, probeIntervalMillis, probeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void probe() {
+
+        long start = System.nanoTime();
+        try {
+            if (probe.call() != null && System.nanoTime() - start <= slowCallNanos) {
+                close();
+            }
+        } catch (Exception e) {
+            log.debug("redis rate limiter probe failed: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void close() {
+
+        if (!open) {
+            return;
+        }
+        failures.set(0);
+        open = false;
+        if (probing != null) {
+            probing.cancel(false);
+            probing = null;
+        }
+        log.info("redis rate limiter recovered");
+    }
+
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
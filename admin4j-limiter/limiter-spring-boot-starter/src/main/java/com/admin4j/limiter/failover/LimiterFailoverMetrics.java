@@ -0,0 +1,48 @@
+package com.admin4j.limiter.failover;
+
+import com.admin4j.limiter.core.RateLimiterContext;
+import com.admin4j.limiter.core.RateLimiterService;
+import com.admin4j.limiter.core.constant.LimiterType;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * redis 故障降级指标：熔断器状态、打开次数、各限速类型降级处理的请求数
+ *
+ * @author andanyang
+ * @since 2024/3/13 11:00
+ */
+public class LimiterFailoverMetrics implements MeterBinder {
+
+    private final LimiterCircuitBreaker circuitBreaker;
+    private final RateLimiterContext rateLimiterContext;
+
+    public LimiterFailoverMetrics(LimiterCircuitBreaker circuitBreaker, RateLimiterContext rateLimiterContext) {
+        this.circuitBreaker = circuitBreaker;
+        this.rateLimiterContext = rateLimiterContext;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        Gauge.builder("admin4j.limiter.failover.open", circuitBreaker, i -> i.isOpen() ? 1 : 0)
+                .description("whether the redis rate limiter is failed over to the fallback")
+                .register(registry);
+        FunctionCounter.builder("admin4j.limiter.failover.open.count", circuitBreaker, LimiterCircuitBreaker::getOpenCount)
+                .description("times the redis rate limiter circuit breaker opened")
+                .register(registry);
+
+        for (LimiterType limiterType : LimiterType.values()) {
+            RateLimiterService rateLimiterService = rateLimiterContext.getByLimiterType(limiterType);
+            if (rateLimiterService instanceof FailoverRateLimiter) {
+                FunctionCounter.builder("admin4j.limiter.failover.fallback", (FailoverRateLimiter) rateLimiterService,
+                                FailoverRateLimiter::getFallbackCount)
+                        .description("requests handled by the fallback while redis is unavailable")
+                        .tag("type", limiterType.name())
+                        .register(registry);
+            }
+        }
+    }
+}
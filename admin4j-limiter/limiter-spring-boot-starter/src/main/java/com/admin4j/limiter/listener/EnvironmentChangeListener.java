@@ -0,0 +1,33 @@
+package com.admin4j.limiter.listener;
+
+import com.admin4j.limiter.configuration.PathRuleLoader;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
+
+/**
+ * 配置中心修改限速规则后刷新
+ *
+ * @author andanyang
+ * @since 2024/3/14 11:20
+ */
+public class EnvironmentChangeListener {
+
+    private static final String PATH_RULES_PREFIX = PathRuleLoader.PREFIX + ".path-rules";
+
+    private final PathRuleLoader pathRuleLoader;
+
+    public EnvironmentChangeListener(PathRuleLoader pathRuleLoader) {
+        this.pathRuleLoader = pathRuleLoader;
+    }
+
+    @EventListener(EnvironmentChangeEvent.class)
+    public void environmentChangeEvent(EnvironmentChangeEvent event) {
+
+        for (String key : event.getKeys()) {
+            if (key.startsWith(PATH_RULES_PREFIX) || key.startsWith("admin4j.limiter.pathRules")) {
+                pathRuleLoader.refresh();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.admin4j.limiter.metrics;
+
+import com.admin4j.limiter.core.constant.LimiterType;
+import com.admin4j.limiter.core.metrics.LimiterMetrics;
+import com.admin4j.limiter.core.store.LocalStateful;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 micrometer 的限速指标，引入 prometheus-spring-boot-starter 后通过 /actuator/prometheus 暴露：
+ * <ul>
+ *     <li>admin4j.limiter.requests：通过、拒绝的请求数，标签 type、rule、result</li>
+ *     <li>admin4j.limiter.redis.script：redis 脚本耗时直方图，标签 type、result</li>
+ *     <li>admin4j.limiter.local.keys：本地缓存的 key 数量，标签 name</li>
+ * </ul>
+ *
+ * @author andanyang
+ * @since 2024/3/15 10:30
+ */
+public class MicrometerLimiterMetrics implements LimiterMetrics, MeterBinder {
+
+    private final ObjectProvider<LocalStateful> localStates;
+    private final Map<LimiterType, Map<String, Counter>> acquiredCounters = new EnumMap<>(LimiterType.class);
+    private final Map<LimiterType, Map<String, Counter>> rejectedCounters = new EnumMap<>(LimiterType.class);
+    private final Map<LimiterType, Timer> successTimers = new ConcurrentHashMap<>();
+    private final Map<LimiterType, Timer> errorTimers = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    public MicrometerLimiterMetrics(ObjectProvider<LocalStateful> localStates) {
+        this.localStates = localStates;
+        for (LimiterType limiterType : LimiterType.values()) {
+            acquiredCounters.put(limiterType, new ConcurrentHashMap<>());
+            rejectedCounters.put(limiterType, new ConcurrentHashMap<>());
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+
+        this.registry = registry;
+        localStates.orderedStream().forEach(localState ->
+                Gauge.builder("admin4j.limiter.local.keys", localState, LocalStateful::size)
+                        .description("keys kept in local memory by the rate limiter")
+                        .tag("name", localState.getClass().getSimpleName())
+                        .register(registry));
+    }
+
+    @Override
+    public void onAcquired(LimiterType limiterType, String rule) {
+        increment(acquiredCounters, limiterType, rule, "acquired");
+    }
+
+    @Override
+    public void onRejected(LimiterType limiterType, String rule) {
+        increment(rejectedCounters, limiterType, rule, "rejected");
+    }
+
+    private void increment(Map<LimiterType, Map<String, Counter>> counters, LimiterType limiterType, String rule, String result) {
+
+        MeterRegistry meterRegistry = this.registry;
+        if (meterRegistry == null || limiterType == null) {
+            return;
+        }
+        counters.get(limiterType).computeIfAbsent(rule, k -> Counter.builder("admin4j.limiter.requests")
+                .description("requests checked by the rate limiter")
+                .tag("type", limiterType.name())
+                .tag("rule", k)
+                .tag("result", result)
+                .register(meterRegistry)).increment();
+    }
+
+    @Override
+    public void recordScript(LimiterType limiterType, long elapsedNanos, boolean success) {
+
+        MeterRegistry meterRegistry = this.registry;
+        if (meterRegistry == null) {
+            return;
+        }
+        Map<LimiterType, Timer> timers = success ? successTimers : errorTimers;
+        timers.computeIfAbsent(limiterType, k -> Timer.builder("admin4j.limiter.redis.script")
+                .description("redis rate limiter script latency")
+                .tag("type", k.name())
+                .tag("result", success ? "success" : "error")
+                .publishPercentileHistogram()
+                .register(meterRegistry)).record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,113 @@
+package com.admin4j.limiter.properties;
+
+import com.admin4j.limiter.core.PathLimiterRule;
+import com.admin4j.limiter.core.constant.LimiterType;
+import com.admin4j.limiter.core.store.RejectionCache;
+import com.admin4j.limiter.failover.FallbackMode;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author andanyang
+ * @since 2024/3/1 14:20
+ */
+@Data
+@ConfigurationProperties(prefix = "admin4j.limiter")
+public class LimiterProperties {
+
+    /**
+     * 限速器实现方：redis(分布式限速)、local(单机本地限速)。
+     * 指定的实现方不支持某个限速类型时，使用其他实现方
+     */
+    private String provider = "redis";
+
+    /**
+     * 拒绝缓存：key 被拒绝后在本地直接拒绝，直到预计的下次可通过时间
+     */
+    private RejectCache rejectCache = new RejectCache();
+
+    /**
+     * redis 故障降级：redis 变慢或者不可用时切换到本地限速，恢复后切回
+     */
+    private Failover failover = new Failover();
+
+    /**
+     * 按路径配置的限速规则，优先于注解。配置中心修改后自动刷新
+     */
+    private List<PathLimiterRule> pathRules = new ArrayList<>();
+
+    /**
+     * redis 限速 key 配置
+     */
+    private Redis redis = new Redis();
+
+    @Data
+    public static class RejectCache {
+
+        /**
+         * 是否开启，默认关闭
+         */
+        private boolean enabled;
+        /**
+         * 最多缓存的被拒绝 key 数量
+         */
+        private int maxKeys = RejectionCache.DEFAULT_MAX_KEYS;
+        /**
+         * 统计被拒绝次数最多的 key 数量
+         */
+        private int topKeys = RejectionCache.DEFAULT_TOP_KEYS;
+    }
+
+    @Data
+    public static class Redis {
+
+        /**
+         * key 模板，包含 ${key}，可以包含 ${tag}，如 RL:{${tag}}:${key}，需要与 hashTagPattern 同时配置
+         */
+        private String keyTemplate;
+        /**
+         * 从限速 key 中提取 hash tag 的正则，取第一个分组，如 :T([^:]+) 按租户分组。
+         * 同一个 tag 的 key 在 redis cluster 中落在同一个 slot。redis cluster 中多规则限速的 key 必须在同一个 slot
+         */
+        private String hashTagPattern;
+    }
+
+    @Data
+    public static class Failover {
+
+        /**
+         * 是否开启
+         */
+        private boolean enabled = false;
+        /**
+         * 单次限速调用的超时时间，超时、异常都计为失败
+         */
+        private Duration timeout = Duration.ofMillis(50);
+        /**
+         * 连续失败多少次后降级
+         */
+        private int failureThreshold = 5;
+        /**
+         * 降级期间探测 redis 是否恢复的间隔
+         */
+        private Duration probeInterval = Duration.ofSeconds(1);
+        /**
+         * 集群节点数，本地降级时每个节点的次数为 maxAttempts / nodeCount，使用 LOCAL 降级时必须配置
+         */
+        private int nodeCount;
+        /**
+         * 默认的降级方式
+         */
+        private FallbackMode mode = FallbackMode.LOCAL;
+        /**
+         * 按限速类型指定降级方式，如 admin4j.limiter.failover.types.GCRA=REJECT
+         */
+        private Map<LimiterType, FallbackMode> types = new EnumMap<>(LimiterType.class);
+    }
+}
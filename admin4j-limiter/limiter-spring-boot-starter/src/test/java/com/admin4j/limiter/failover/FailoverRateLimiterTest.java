@@ -0,0 +1,209 @@
+package com.admin4j.limiter.failover;
+
+import com.admin4j.limiter.core.RateLimiterProvider;
+import com.admin4j.limiter.core.RateLimiterRule;
+import com.admin4j.limiter.core.constant.LimiterType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author andanyang
+ * @since 2024/3/13 14:00
+ */
+public class FailoverRateLimiterTest {
+
+    @Test
+    public void testFailover() throws InterruptedException {
+
+        AtomicBoolean down = new AtomicBoolean(true);
+        AtomicInteger primaryCalls = new AtomicInteger();
+        RateLimiterProvider primary = new FakeLimiter() {
+            @Override
+            public boolean isAsyncSupported() {
+                return true;
+            }
+
+            @Override
+            public CompletionStage<Boolean> tryAcquireAsync(String key, int maxAttempts, long interval, int permits) {
+                primaryCalls.incrementAndGet();
+                if (down.get()) {
+                    // 模拟 redis 卡住
+                    return new CompletableFuture<>();
+                }
+                return CompletableFuture.completedFuture(true);
+            }
+        };
+        AtomicInteger fallbackMax = new AtomicInteger();
+        RateLimiterProvider fallback = new FakeLimiter() {
+            @Override
+            public boolean tryAcquire(String key, int maxAttempts, long interval, int permits) {
+                fallbackMax.set(maxAttempts);
+                return false;
+            }
+        };
+
+        LimiterCircuitBreaker circuitBreaker = new LimiterCircuitBreaker(2, 20, 10);
+        circuitBreaker.setProbe(() -> down.get() ? null : Boolean.TRUE);
+        FailoverRateLimiter limiter = FailoverRateLimiter.wrap(primary, fallback, FallbackMode.LOCAL, circuitBreaker, 20, 4);
+
+        // 超时的调用降级到本地限速，次数按节点数缩放
+        Assert.assertFalse(limiter.tryAcquire("key", 100, 1));
+        Assert.assertEquals(25, fallbackMax.get());
+        Assert.assertFalse(limiter.tryAcquire("key", 100, 1));
+        Assert.assertTrue(circuitBreaker.isOpen());
+
+        // 熔断期间不再访问 redis
+        Assert.assertFalse(limiter.tryAcquire("key", 100, 1));
+        Assert.assertEquals(2, primaryCalls.get());
+        Assert.assertEquals(3, limiter.getFallbackCount());
+
+        // 探测成功后切回 redis
+        down.set(false);
+        for (int i = 0; i < 100 && circuitBreaker.isOpen(); i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertFalse(circuitBreaker.isOpen());
+        Assert.assertTrue(limiter.tryAcquire("key", 100, 1));
+        circuitBreaker.shutdown();
+    }
+
+    @Test
+    public void testFallbackMode() {
+
+        RateLimiterProvider primary = new FakeLimiter() {
+            @Override
+            public boolean isAsyncSupported() {
+                return true;
+            }
+
+            @Override
+            public CompletionStage<Boolean> tryAcquireAsync(String key, int maxAttempts, long interval, int permits) {
+                throw new IllegalStateException("redis down");
+            }
+        };
+        LimiterCircuitBreaker circuitBreaker = new LimiterCircuitBreaker(1, 20, 1000);
+        Assert.assertTrue(FailoverRateLimiter.wrap(primary, null, FallbackMode.ALLOW, circuitBreaker, 20, 1).tryAcquire("key", 1, 1));
+        Assert.assertFalse(FailoverRateLimiter.wrap(primary, null, FallbackMode.REJECT, circuitBreaker, 20, 1).tryAcquire("key", 1, 1));
+        // 没有本地限速器时放行
+        Assert.assertTrue(FailoverRateLimiter.wrap(primary, null, FallbackMode.LOCAL, circuitBreaker, 20, 1).tryAcquire("key", 1, 1));
+    }
+
+    /**
+     * 参数错误直接抛出，不计入熔断器
+     */
+    @Test
+    public void testIllegalArgument() {
+
+        RateLimiterProvider primary = new FakeLimiter() {
+            @Override
+            public int tryAcquireAll(List<RateLimiterRule> rules) {
+                throw new IllegalArgumentException("interval must be positive");
+            }
+        };
+        LimiterCircuitBreaker circuitBreaker = new LimiterCircuitBreaker(1, 20, 1000);
+        FailoverRateLimiter limiter = FailoverRateLimiter.wrap(primary, null, FallbackMode.ALLOW, circuitBreaker, 20, 1);
+
+        List<RateLimiterRule> rules = Arrays.asList(new RateLimiterRule("a", 10, 0), new RateLimiterRule("b", 10, 0));
+        try {
+            limiter.tryAcquireAll(rules);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertEquals("interval must be positive", e.getMessage());
+        }
+        Assert.assertFalse(circuitBreaker.isOpen());
+        Assert.assertEquals(0, limiter.getFallbackCount());
+        circuitBreaker.shutdown();
+    }
+
+    /**
+     * 没有异步接口的调用同样最多等待 timeout
+     */
+    @Test
+    public void testCallTimeout() {
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        RateLimiterProvider primary = new FakeLimiter() {
+            @Override
+            public int tryAcquireAll(List<RateLimiterRule> rules) {
+                try {
+                    // 模拟 redis 卡住
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return -1;
+            }
+        };
+        LimiterCircuitBreaker circuitBreaker = new LimiterCircuitBreaker(2, 20, 1000);
+        FailoverRateLimiter limiter = FailoverRateLimiter.wrap(primary, null, FallbackMode.REJECT, circuitBreaker, 20, 1);
+
+        List<RateLimiterRule> rules = Arrays.asList(new RateLimiterRule("a", 10, 1), new RateLimiterRule("b", 10, 1));
+        long start = System.nanoTime();
+        Assert.assertEquals(0, limiter.tryAcquireAll(rules));
+        Assert.assertEquals(0, limiter.tryAcquireAll(rules));
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        Assert.assertTrue(circuitBreaker.isOpen());
+        Assert.assertEquals(2, limiter.getFallbackCount());
+        blocked.countDown();
+        circuitBreaker.shutdown();
+    }
+
+    /**
+     * 异步接口同步执行时，单个判断同样最多等待 timeout
+     */
+    @Test
+    public void testSyncPrimaryTimeout() {
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        RateLimiterProvider primary = new FakeLimiter() {
+            @Override
+            public boolean tryAcquire(String key, int maxAttempts, long interval, int permits) {
+                try {
+                    // 模拟 redis 卡住
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        };
+        LimiterCircuitBreaker circuitBreaker = new LimiterCircuitBreaker(2, 20, 1000);
+        FailoverRateLimiter limiter = FailoverRateLimiter.wrap(primary, null, FallbackMode.REJECT, circuitBreaker, 20, 1);
+
+        long start = System.nanoTime();
+        Assert.assertFalse(limiter.tryAcquire("key", 10, 1));
+        Assert.assertFalse(limiter.tryAcquire("key", 10, 1));
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        Assert.assertTrue(circuitBreaker.isOpen());
+        Assert.assertEquals(2, limiter.getFallbackCount());
+        blocked.countDown();
+        circuitBreaker.shutdown();
+    }
+
+    private static class FakeLimiter implements RateLimiterProvider {
+
+        @Override
+        public LimiterType support() {
+            return LimiterType.FIX_WINDOW;
+        }
+
+        @Override
+        public boolean tryAcquire(String key, int maxAttempts, long interval) {
+            return tryAcquire(key, maxAttempts, interval, 1);
+        }
+
+        @Override
+        public boolean tryAcquire(String key, int maxAttempts, long interval, int permits) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.admin4j.limiter.metrics;
+
+import com.admin4j.limiter.core.constant.LimiterType;
+import com.admin4j.limiter.core.store.LocalStateful;
+import com.admin4j.limiter.core.store.RejectionCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+/**
+ * @author andanyang
+ * @since 2024/3/15 14:00
+ */
+public class MicrometerLimiterMetricsTest {
+
+    @Test
+    public void testMetrics() {
+
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        RejectionCache rejectionCache = new RejectionCache();
+        rejectionCache.reject("key", 1_000_000_000L);
+        beanFactory.addBean("rejectionCache", rejectionCache);
+
+        MicrometerLimiterMetrics metrics = new MicrometerLimiterMetrics(beanFactory.getBeanProvider(LocalStateful.class));
+        // 绑定之前不记录
+        metrics.onAcquired(LimiterType.GCRA, "OrderController#create");
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        metrics.bindTo(registry);
+        metrics.onAcquired(LimiterType.GCRA, "OrderController#create");
+        metrics.onAcquired(LimiterType.GCRA, "OrderController#create");
+        metrics.onRejected(LimiterType.GCRA, "OrderController#create");
+        metrics.recordScript(LimiterType.GCRA, 1_000_000, true);
+
+        Assert.assertEquals(2, registry.get("admin4j.limiter.requests").tag("result", "acquired").counter().count(), 0);
+        Assert.assertEquals(1, registry.get("admin4j.limiter.requests").tag("result", "rejected")
+                .tag("rule", "OrderController#create").counter().count(), 0);
+        Assert.assertEquals(1, registry.get("admin4j.limiter.redis.script").tag("type", "GCRA").timer().count());
+        Assert.assertEquals(1, registry.get("admin4j.limiter.local.keys").tag("name", "RejectionCache").gauge().value(), 0);
+    }
+}
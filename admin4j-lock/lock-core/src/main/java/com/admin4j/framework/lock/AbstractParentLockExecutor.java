@@ -5,6 +5,9 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 /**
+ * 先获取 parent(本地)锁再获取自身的锁。
+ * 同时锁定多个 key 时不使用 parent 锁，由自身按顺序一次加锁
+ *
  * @author andanyang
  * @since 2024/1/16 17:04
  */
@@ -18,7 +21,7 @@ public abstract class AbstractParentLockExecutor<T> implements LockExecutor<T> {
     @Override
     public void initSetLockInstance(LockInfo lockInfo) {
 
-        if (parent != null) {
+        if (parent != null && !lockInfo.isMultiKey()) {
             parent.initSetLockInstance(lockInfo);
             lockInfo.setParentLockInstance(lockInfo.getLockInstance());
             lockInfo.setLockInstance(null);
@@ -35,7 +38,7 @@ public abstract class AbstractParentLockExecutor<T> implements LockExecutor<T> {
     @Override
     public void lock(LockInfo lockInfo) {
 
-        if (parent != null) {
+        if (parent != null && !lockInfo.isMultiKey()) {
 
             Object lockInstance = lockInfo.getLockInstance();
             lockInfo.setLockInstance(lockInfo.getParentLockInstance());
@@ -56,7 +59,7 @@ public abstract class AbstractParentLockExecutor<T> implements LockExecutor<T> {
     @Override
     public boolean tryLock(LockInfo lockInfo) {
 
-        if (parent != null) {
+        if (parent != null && !lockInfo.isMultiKey()) {
             // 先获取本地锁
             Object lockInstance = lockInfo.getLockInstance();
             lockInfo.setLockInstance(lockInfo.getParentLockInstance());
@@ -69,7 +72,7 @@ public abstract class AbstractParentLockExecutor<T> implements LockExecutor<T> {
         }
 
         boolean lockSelf = tryLockSelf(lockInfo);
-        if (!lockSelf) {
+        if (!lockSelf && parent != null && !lockInfo.isMultiKey()) {
             // 获取锁失败，先释放 parent 锁
             Object lockInstance = lockInfo.getLockInstance();
             lockInfo.setLockInstance(lockInfo.getParentLockInstance());
@@ -84,7 +87,7 @@ public abstract class AbstractParentLockExecutor<T> implements LockExecutor<T> {
     @Override
     public void unlock(LockInfo lockInfo) {
 
-        if (parent != null) {
+        if (parent != null && !lockInfo.isMultiKey()) {
 
             Object lockInstance = lockInfo.getLockInstance();
             try {
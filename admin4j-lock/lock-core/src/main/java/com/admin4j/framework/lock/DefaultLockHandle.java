@@ -0,0 +1,67 @@
+package com.admin4j.framework.lock;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 只解锁一次的 LockHandle
+ *
+ * @author andanyang
+ * @since 2024/3/20 9:30
+ */
+public class DefaultLockHandle implements LockHandle {
+
+    private final String lockKey;
+    private final long fencingToken;
+    private final Supplier<? extends CompletionStage<Void>> unlocker;
+    private final AtomicBoolean unlocked = new AtomicBoolean();
+
+    /**
+     * @param unlocker 执行解锁
+     */
+    public DefaultLockHandle(String lockKey, long fencingToken, Supplier<? extends CompletionStage<Void>> unlocker) {
+        this.lockKey = lockKey;
+        this.fencingToken = fencingToken;
+        this.unlocker = unlocker;
+    }
+
+    /**
+     * 以异常完成的 CompletionStage
+     */
+    public static <T> CompletableFuture<T> failed(Throwable e) {
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    @Override
+    public String getLockKey() {
+        return lockKey;
+    }
+
+    @Override
+    public long getFencingToken() {
+        return fencingToken;
+    }
+
+    @Override
+    public CompletionStage<Void> unlockAsync() {
+
+        if (!unlocked.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return unlocker.get();
+        } catch (Exception e) {
+            return failed(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LockHandle{" + lockKey + ", fencingToken=" + fencingToken + '}';
+    }
+}
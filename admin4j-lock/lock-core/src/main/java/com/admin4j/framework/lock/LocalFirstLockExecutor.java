@@ -0,0 +1,339 @@
+package com.admin4j.framework.lock;
+
+import com.admin4j.framework.lock.constant.LockModel;
+import com.admin4j.framework.lock.exception.DistributedLockException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 本地优先的分布式锁。
+ * 同一节点的线程先在本地公平锁上排队，只有队首线程向远程执行器获取锁；
+ * 解锁时本地还有等待者则把远程锁直接移交给下一个线程，不释放、不重新获取，
+ * 连续移交 maxHandoffs 次后释放远程锁，让其他节点有机会获取。远程锁的请求次数与节点数相关，与线程数无关。
+ * <p>
+ * 远程锁通过 lockAsync 获取，不属于任何线程，远程执行器必须支持异步加锁。
+ * 设置了 leaseTime 的锁不移交，避免移交后租期过期。带 fencing token 的锁移交后，后续持有者沿用同一个 token，
+ * 远程锁期间一直由本节点持有，本地锁保证持有者互斥，token 在节点之间仍然递增，同一节点内不减；
+ * 需要每个持有者拿到各自递增的 token 时 maxHandoffs 设置为 0。READ、WRITE 和多个 key 直接使用远程执行器
+ *
+ * @author andanyang
+ * @since 2024/3/23 9:30
+ */
+@Slf4j
+public class LocalFirstLockExecutor implements LockExecutor<Object> {
+
+    /**
+     * 默认最多连续移交次数
+     */
+    public static final int DEFAULT_MAX_HANDOFFS = 16;
+
+    private final LockExecutor<?> delegate;
+    private final int maxHandoffs;
+    private final ConcurrentHashMap<String, KeyState> states = new ConcurrentHashMap<>();
+
+    public LocalFirstLockExecutor(LockExecutor<?> delegate) {
+        this(delegate, DEFAULT_MAX_HANDOFFS);
+    }
+
+    /**
+     * @param delegate    远程执行器，需要支持 lockAsync
+     * @param maxHandoffs 获取一次远程锁后最多连续移交的次数，0 不移交
+     */
+    public LocalFirstLockExecutor(LockExecutor<?> delegate, int maxHandoffs) {
+        if (!delegate.isAsyncSupported()) {
+            throw new IllegalArgumentException("LocalFirstLockExecutor requires a delegate supporting lockAsync: "
+                    + delegate.getClass().getName());
+        }
+        this.delegate = delegate;
+        this.maxHandoffs = maxHandoffs;
+    }
+
+    public LockExecutor<?> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void initSetLockInstance(LockInfo lockInfo) {
+
+        if (lockInfo.getLockInstance() != null) {
+            return;
+        }
+        if (!localFirst(lockInfo)) {
+            delegate.initSetLockInstance(lockInfo);
+            return;
+        }
+        lockInfo.setLockInstance(retain(lockInfo.getLockKey()));
+    }
+
+    @Override
+    public void lock(LockInfo lockInfo) {
+
+        if (!(lockInfo.getLockInstance() instanceof KeyState)) {
+            delegate.lock(lockInfo);
+            return;
+        }
+        if (!acquire(lockInfo, lockInfo.getWaitTimeOutSeconds() < 0 ? -1 : lockInfo.getWaitTimeOutSeconds())) {
+            throw new DistributedLockException("failed to acquire lock");
+        }
+    }
+
+    @Override
+    public boolean tryLock(LockInfo lockInfo) {
+
+        if (!(lockInfo.getLockInstance() instanceof KeyState)) {
+            return delegate.tryLock(lockInfo);
+        }
+        return acquire(lockInfo, Math.max(0, lockInfo.getWaitTimeOutSeconds()));
+    }
+
+    @Override
+    public void unlock(LockInfo lockInfo) {
+
+        Object lockInstance = lockInfo.getLockInstance();
+        if (lockInstance == null) {
+            // 加锁失败时已经释放
+            return;
+        }
+        if (!(lockInstance instanceof KeyState)) {
+            delegate.unlock(lockInfo);
+            return;
+        }
+        KeyState state = (KeyState) lockInstance;
+        if (state.local.getHoldCount() > 1) {
+            state.local.unlock();
+            release(lockInfo);
+            return;
+        }
+
+        boolean handoff = state.lease != null && state.transferable && state.handoffs < maxHandoffs
+                && state.local.hasQueuedThreads();
+        try {
+            if (handoff) {
+                state.handoffs++;
+                log.debug("local-first handoff {} {}", lockInfo.getLockKey(), state.handoffs);
+            } else {
+                releaseLease(state);
+            }
+        } finally {
+            state.local.unlock();
+        }
+        if (handoff) {
+            // 等待者可能已经超时离开
+            reclaim(state);
+        }
+        release(lockInfo);
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return true;
+    }
+
+    /**
+     * 异步加锁不经过本地队列，直接使用远程执行器
+     */
+    @Override
+    public CompletionStage<LockHandle> lockAsync(LockInfo lockInfo) {
+        return delegate.lockAsync(lockInfo);
+    }
+
+    @Override
+    public CompletionStage<LockHandle> tryLockAsync(LockInfo lockInfo) {
+        return delegate.tryLockAsync(lockInfo);
+    }
+
+    /**
+     * 当前有本地状态的 key 数量
+     */
+    public int size() {
+        return states.size();
+    }
+
+    private boolean localFirst(LockInfo lockInfo) {
+
+        LockModel lockModel = lockInfo.getLockModel();
+        return !lockInfo.isMultiKey() && (lockModel == LockModel.REENTRANT || lockModel == LockModel.FAIR);
+    }
+
+    /**
+     * @param waitSeconds 最长等待时间，-1 一直等待
+     */
+    private boolean acquire(LockInfo lockInfo, int waitSeconds) {
+
+        KeyState state = (KeyState) lockInfo.getLockInstance();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(waitSeconds);
+        try {
+            if (waitSeconds < 0) {
+                state.local.lock();
+            } else if (!state.local.tryLock(waitSeconds, TimeUnit.SECONDS)) {
+                reclaim(state);
+                release(lockInfo);
+                return false;
+            }
+        } catch (InterruptedException e) {
+            reclaim(state);
+            release(lockInfo);
+            Thread.currentThread().interrupt();
+            throw new DistributedLockException(e);
+        }
+
+        if (state.local.getHoldCount() > 1 || state.lease != null) {
+            // 重入或者远程锁由上一个线程移交，沿用获取远程锁时的 fencing token
+            lockInfo.setFencingToken(state.lease.getFencingToken());
+            return true;
+        }
+
+        LockHandle lease;
+        try {
+            lease = acquireLease(lockInfo, waitSeconds < 0 ? -1 : Math.max(0, deadline - System.nanoTime()));
+        } catch (RuntimeException e) {
+            state.local.unlock();
+            reclaim(state);
+            release(lockInfo);
+            throw e;
+        }
+        if (lease == null) {
+            state.local.unlock();
+            reclaim(state);
+            release(lockInfo);
+            return false;
+        }
+        state.lease = lease;
+        state.transferable = lockInfo.getLeaseTime() <= 0;
+        state.handoffs = 0;
+        lockInfo.setFencingToken(lease.getFencingToken());
+        return true;
+    }
+
+    /**
+     * 本地队首线程获取远程锁
+     *
+     * @param waitNanos 最长等待时间，-1 一直等待
+     * @return 获取失败返回 null
+     */
+    private LockHandle acquireLease(LockInfo lockInfo, long waitNanos) {
+
+        LockInfo remote = new LockInfo();
+        remote.setLockKey(lockInfo.getLockKey());
+        remote.setLockModel(lockInfo.getLockModel());
+        remote.setLeaseTime(lockInfo.getLeaseTime());
+        remote.setName(lockInfo.getName());
+        try {
+            if (waitNanos < 0) {
+                return delegate.lockAsync(remote).toCompletableFuture().join();
+            }
+            // 远程执行器按秒等待，不足 1 秒时不等待
+            remote.setWaitTimeOutSeconds((int) TimeUnit.NANOSECONDS.toSeconds(waitNanos));
+            return delegate.tryLockAsync(remote).toCompletableFuture().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DistributedLockException(e);
+        }
+    }
+
+    /**
+     * 本地没有持有者和等待者时释放移交中的远程锁
+     */
+    private void reclaim(KeyState state) {
+
+        if (state.lease == null || !state.local.tryLock()) {
+            return;
+        }
+        try {
+            if (!state.local.hasQueuedThreads()) {
+                releaseLease(state);
+            }
+        } finally {
+            state.local.unlock();
+        }
+    }
+
+    /**
+     * 释放远程锁，调用时持有本地锁
+     */
+    private void releaseLease(KeyState state) {
+
+        LockHandle lease = state.lease;
+        if (lease == null) {
+            return;
+        }
+        state.lease = null;
+        state.handoffs = 0;
+        try {
+            lease.unlock();
+        } catch (RuntimeException e) {
+            log.error("local-first unlock {} failed: {}", lease.getLockKey(), e.getMessage(), e);
+        }
+    }
+
+    private KeyState retain(String key) {
+
+        for (; ; ) {
+            KeyState state = states.get(key);
+            if (state == null) {
+                state = new KeyState();
+                KeyState exist = states.putIfAbsent(key, state);
+                if (exist == null) {
+                    return state;
+                }
+                state = exist;
+            }
+            if (state.retain()) {
+                return state;
+            }
+            // 引用已经归零，等待回收后重建
+            states.remove(key, state);
+        }
+    }
+
+    private void release(LockInfo lockInfo) {
+
+        KeyState state = (KeyState) lockInfo.getLockInstance();
+        lockInfo.setLockInstance(null);
+        if (state.refs.decrementAndGet() == 0) {
+            states.remove(lockInfo.getLockKey(), state);
+        }
+    }
+
+    /**
+     * key 的本地状态，引用归零后不能再被占用。
+     * 引用归零时本地没有持有者和等待者，远程锁已经释放
+     */
+    private static final class KeyState {
+
+        private final ReentrantLock local = new ReentrantLock(true);
+        private final AtomicInteger refs = new AtomicInteger(1);
+        /**
+         * 当前节点持有的远程锁，由本地锁保护，volatile 供 reclaim 预先判断
+         */
+        private volatile LockHandle lease;
+        /**
+         * 获取远程锁后已经移交的次数，由本地锁保护
+         */
+        private int handoffs;
+        /**
+         * 远程锁是否可以移交：自动续期
+         */
+        private boolean transferable;
+
+        boolean retain() {
+            for (; ; ) {
+                int current = refs.get();
+                if (current <= 0) {
+                    return false;
+                }
+                if (refs.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package com.admin4j.framework.lock;
 
+import com.admin4j.framework.lock.exception.UnSupportException;
+
+import java.util.concurrent.CompletionStage;
+
 /**
  * 分布式锁核心处理器
  *
@@ -44,4 +48,33 @@ public interface LockExecutor<T> {
      * 解锁
      */
     void unlock(LockInfo lockInfo);
+
+    /**
+     * 是否支持 lockAsync、tryLockAsync
+     */
+    default boolean isAsyncSupported() {
+        return false;
+    }
+
+    /**
+     * 异步加锁，等待锁时不占用调用线程。
+     * 异步获取的锁不属于任何线程、不可重入，也不使用 parent 锁，通过 LockHandle 在任意线程解锁。
+     * waitTimeOutSeconds 大于 0 时等待超时以 DistributedLockException 异常完成
+     *
+     * @param lockInfo 锁信息，不需要 initSetLockInstance
+     * @return 获取到锁后完成
+     */
+    default CompletionStage<LockHandle> lockAsync(LockInfo lockInfo) {
+        return DefaultLockHandle.failed(new UnSupportException(getClass().getSimpleName() + " Not supported lockAsync"));
+    }
+
+    /**
+     * 异步尝试加锁，最多等待 waitTimeOutSeconds，小于等于 0 时不等待
+     *
+     * @param lockInfo 锁信息，不需要 initSetLockInstance
+     * @return 获取到锁后完成，获取失败时为 null
+     */
+    default CompletionStage<LockHandle> tryLockAsync(LockInfo lockInfo) {
+        return DefaultLockHandle.failed(new UnSupportException(getClass().getSimpleName() + " Not supported tryLockAsync"));
+    }
 }
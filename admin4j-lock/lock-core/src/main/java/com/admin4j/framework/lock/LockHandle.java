@@ -0,0 +1,36 @@
+package com.admin4j.framework.lock;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 异步获取的锁。锁不属于加锁线程，可以在任意线程解锁，重复解锁时忽略
+ *
+ * @author andanyang
+ * @since 2024/3/20 9:30
+ */
+public interface LockHandle {
+
+    /**
+     * 锁资源的key
+     */
+    String getLockKey();
+
+    /**
+     * fencing token，不支持时为 0
+     */
+    long getFencingToken();
+
+    /**
+     * 异步解锁
+     *
+     * @return 解锁完成
+     */
+    CompletionStage<Void> unlockAsync();
+
+    /**
+     * 解锁，等待解锁完成
+     */
+    default void unlock() {
+        unlockAsync().toCompletableFuture().join();
+    }
+}
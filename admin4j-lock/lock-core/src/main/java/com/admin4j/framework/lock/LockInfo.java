@@ -3,6 +3,11 @@ package com.admin4j.framework.lock;
 import com.admin4j.framework.lock.constant.LockModel;
 import lombok.Data;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
 /**
  * 锁信息
  *
@@ -16,6 +21,10 @@ public class LockInfo {
      * 锁资源的key
      */
     private String lockKey;
+    /**
+     * 同时锁定的多个 key，按字典序排序去重。不为空时 lockKey 为逗号拼接后的 key
+     */
+    private List<String> lockKeys;
     /**
      * 锁模式
      */
@@ -38,9 +47,36 @@ public class LockInfo {
      */
     private Object parentLockInstance;
 
+    /**
+     * fencing token，支持的执行器加锁成功后设置，每次获取远程锁单调递增，本地优先移交时沿用同一个 token。
+     * 存储层可以拒绝 token 小于已写入 token 的请求，避免锁过期后的旧持有者写入
+     */
+    private long fencingToken;
+
+    /**
+     * 指标名称，注解的 prefix
+     */
+    private String name;
+
     /**
      * 指定的执行器
      */
     private Class<? extends LockExecutor> executor;
 
+    /**
+     * 设置同时锁定的多个 key。所有节点按相同的顺序加锁，避免死锁
+     */
+    public void setLockKeys(Collection<String> lockKeys) {
+
+        this.lockKeys = new ArrayList<>(new TreeSet<>(lockKeys));
+        this.lockKey = String.join(",", this.lockKeys);
+    }
+
+    /**
+     * 是否同时锁定多个 key
+     */
+    public boolean isMultiKey() {
+        return lockKeys != null && lockKeys.size() > 1;
+    }
+
 }
@@ -44,6 +44,12 @@ public @interface DistributedLock {
     String key() default "";
 
 
+    /**
+     * 同时锁定的多个锁名称，el 表达式，结果为集合或数组。与 key 互斥
+     * 如 #skuIds 或 {'sku:' + #from, 'sku:' + #to}
+     */
+    String keys() default "";
+
     /**
      * The bean name of the custom  {@link DLockKeyGenerator } to use.
      * Mutually exclusive with the key attribute.
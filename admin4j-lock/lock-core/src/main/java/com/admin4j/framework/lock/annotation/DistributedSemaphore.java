@@ -0,0 +1,67 @@
+package com.admin4j.framework.lock.annotation;
+
+import com.admin4j.framework.lock.semaphore.SemaphoreExecutor;
+import com.admin4j.framework.lock.util.DistributedSemaphoreUtil;
+
+import java.lang.annotation.*;
+
+/**
+ * 分布式信号量注解，限制集群内同时执行方法的数量
+ *
+ * @author andanyang
+ * @since 2024/3/26 9:30
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface DistributedSemaphore {
+
+    /**
+     * @return 信号量名称的前缀
+     */
+    String prefix() default DistributedSemaphoreUtil.DISTRIBUTED_SEMAPHORE_PRE;
+
+    /**
+     * 信号量名称
+     *
+     * @return String
+     */
+    String value();
+
+    /**
+     * 许可总数，即最多同时执行的数量
+     *
+     * @return int
+     */
+    int permits();
+
+    /**
+     * 每次执行获取的许可数量
+     *
+     * @return int
+     */
+    int acquire() default 1;
+
+    /**
+     * 最多等待x秒
+     * If waitSeconds <0 , no wait TimeOut
+     * waitSeconds = 0  获取不到许可就失败
+     */
+    int waitTimeOutSeconds() default -1;
+
+    /**
+     * 许可自动释放的时间，-1 执行完成后释放。
+     * -1 时 redisson 的许可按 lockWatchdogTimeout 续期，节点宕机后仍会过期回收
+     *
+     * @return int
+     */
+    int leaseTime() default -1;
+
+    /**
+     * 指定信号量执行器。
+     *
+     * @return 默认spring注入的执行器
+     */
+    Class<? extends SemaphoreExecutor> executor() default SemaphoreExecutor.class;
+}
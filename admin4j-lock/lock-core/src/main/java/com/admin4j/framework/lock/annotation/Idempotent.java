@@ -94,4 +94,19 @@ public @interface Idempotent {
      */
     @AliasFor(annotation = DistributedLock.class, attribute = "executor")
     Class<? extends LockExecutor> executor() default LockExecutor.class;
+
+    /**
+     * 是否保存第一次成功调用的返回值，ttl 内的重复提交不加锁，直接返回保存的结果。
+     * 需要 IdempotentResultStore，引入 lock-redis-spring-boot-starter 时默认提供
+     *
+     * @return boolean
+     */
+    boolean storeResult() default false;
+
+    /**
+     * storeResult 时返回值的保存时间，单位秒
+     *
+     * @return int
+     */
+    int ttl() default 60;
 }
@@ -9,6 +9,7 @@ import com.admin4j.framework.lock.annotation.DistributedLock;
 import com.admin4j.framework.lock.exception.DistributedLockException;
 import com.admin4j.framework.lock.key.DLockKeyGenerator;
 import com.admin4j.framework.lock.key.SimpleKeyGenerator;
+import com.admin4j.framework.lock.metrics.LockMetrics;
 import com.admin4j.framework.lock.util.DistributedLockUtil;
 import com.admin4j.spring.util.SpelUtil;
 import com.admin4j.spring.util.SpringUtils;
@@ -17,8 +18,14 @@ import org.apache.commons.lang3.StringUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * 分布式锁解析器
@@ -40,26 +47,53 @@ public abstract class AbstractDLockHandler {
      * @return Object
      */
     public Object around(ProceedingJoinPoint joinPoint, LockInfo lockInfo) throws Throwable {
+        return around(lockInfo, joinPoint::proceed);
+    }
+
+    /**
+     * 加锁后执行 invocation
+     *
+     * @param lockInfo   锁信息
+     * @param invocation 获取到锁后执行
+     * @return invocation 的返回值
+     */
+    protected Object around(LockInfo lockInfo, Invocation invocation) throws Throwable {
 
         LockExecutor lockExecutor = DistributedLockUtil.getLockExecutor(lockInfo);
         lockExecutor.initSetLockInstance(lockInfo);
 
+        LockMetrics lockMetrics = DistributedLockUtil.getLockMetrics();
+        long start = System.nanoTime();
         boolean tryLock = true;
+        long acquired = 0;
         try {
 
             // 获取超时时间并获取锁
-            if (!lockInfo.isTryLock()) {
-                lockExecutor.lock(lockInfo);
-            } else {
-                tryLock = lockExecutor.tryLock(lockInfo);
-                if (!tryLock) {
-                    lockFailure();
+            try {
+                if (!lockInfo.isTryLock()) {
+                    lockExecutor.lock(lockInfo);
+                } else {
+                    tryLock = lockExecutor.tryLock(lockInfo);
                 }
+            } catch (RuntimeException e) {
+                lockMetrics.onFailed(lockExecutor, lockInfo, System.nanoTime() - start);
+                throw e;
+            }
+            if (!tryLock) {
+                lockMetrics.onFailed(lockExecutor, lockInfo, System.nanoTime() - start);
+                lockFailure();
             }
+            acquired = System.nanoTime();
+            lockMetrics.onAcquired(lockExecutor, lockInfo, acquired - start);
 
-            return joinPoint.proceed();
+            return invocation.proceed();
         } finally {
-            if (tryLock) lockExecutor.unlock(lockInfo);
+            if (tryLock) {
+                lockExecutor.unlock(lockInfo);
+                if (acquired != 0) {
+                    lockMetrics.onReleased(lockExecutor, lockInfo, System.nanoTime() - acquired);
+                }
+            }
             // log.debug("释放Redis分布式锁[成功]，解锁完成，结束业务逻辑...");
         }
     }
@@ -106,11 +140,20 @@ public abstract class AbstractDLockHandler {
             distributedLockKey.append(parseElKey);
         }
 
+        return distributedLockKey.append(getKeySuffix(distributedLock)).toString();
+    }
+
+    /**
+     * 用户、租户模式的 key 后缀
+     */
+    private String getKeySuffix(DistributedLock distributedLock) {
+
+        StringBuilder suffix = new StringBuilder();
         // 开启用户模式
         if (distributedLock.user()) {
             ILoginUserInfoService loginUserService = SpringUtils.getBean(ILoginUserInfoService.class);
             Assert.notNull(loginUserService, "ILoginUserInfoService must implement");
-            distributedLockKey.append(":U").append(loginUserService.getUserId());
+            suffix.append(":U").append(loginUserService.getUserId());
         }
 
         // 开启租户
@@ -118,10 +161,39 @@ public abstract class AbstractDLockHandler {
             ILoginTenantInfoService loginTenantInfoService = SpringUtils.getBean(ILoginTenantInfoService.class);
             Assert.notNull(loginTenantInfoService, "ILoginTenantInfoService must implement");
             Assert.notNull(loginTenantInfoService.getTenantId(), "Tenant not null");
-            distributedLockKey.append(":T").append(loginTenantInfoService.getTenantId());
+            suffix.append(":T").append(loginTenantInfoService.getTenantId());
+        }
+        return suffix.toString();
+    }
+
+    /**
+     * 多个锁的 key，每个 key 都拼接前缀、用户、租户
+     */
+    protected List<String> getDistributedLockKeys(ProceedingJoinPoint joinPoint, DistributedLock distributedLock) {
+
+        Object[] args = joinPoint.getArgs();
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Object value = SpelUtil.parseValue(joinPoint.getThis(), distributedLock.keys(), method, args);
+
+        Collection<?> keys;
+        if (value instanceof Collection) {
+            keys = (Collection<?>) value;
+        } else if (value != null && value.getClass().isArray()) {
+            keys = Arrays.asList(ObjectUtils.toObjectArray(value));
+        } else {
+            keys = value == null ? Collections.emptyList() : Collections.singletonList(value);
+        }
+        if (keys.isEmpty()) {
+            log.error("DistributedLockKeys is empty Signature: {}", joinPoint.getSignature());
+            throw new DistributedLockException("DistributedLockKeys is empty");
         }
 
-        return distributedLockKey.toString();
+        String suffix = getKeySuffix(distributedLock);
+        List<String> lockKeys = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            lockKeys.add(distributedLock.prefix() + key + suffix);
+        }
+        return lockKeys;
     }
 
     protected DLockKeyGenerator defaultDLockKeyGenerator() {
@@ -131,4 +203,13 @@ public abstract class AbstractDLockHandler {
         }
         return LOCK_KEY_GENERATOR;
     }
+
+    /**
+     * 获取到锁后执行的调用
+     */
+    @FunctionalInterface
+    protected interface Invocation {
+
+        Object proceed() throws Throwable;
+    }
 }
@@ -29,13 +29,18 @@ public class DistributedLockAspect extends AbstractDLockHandler {
         // 获取锁信息
         LockInfo lockInfo = new LockInfo();
         lockInfo.setLockModel(distributedLock.lockModel());
-        lockInfo.setLockKey(getDistributedLockKey(joinPoint, distributedLock));
+        if (distributedLock.keys().isEmpty()) {
+            lockInfo.setLockKey(getDistributedLockKey(joinPoint, distributedLock));
+        } else {
+            lockInfo.setLockKeys(getDistributedLockKeys(joinPoint, distributedLock));
+        }
         lockInfo.setTryLock(distributedLock.tryLock());
         lockInfo.setLeaseTime(distributedLock.leaseTime());
         lockInfo.setWaitTimeOutSeconds(distributedLock.waitTimeOutSeconds());
         lockInfo.setTenant(distributedLock.tenant());
         lockInfo.setUser(distributedLock.user());
         lockInfo.setExecutor(distributedLock.executor());
+        lockInfo.setName(distributedLock.prefix());
 
         return super.around(joinPoint, lockInfo);
     }
@@ -0,0 +1,45 @@
+package com.admin4j.framework.lock.aspect;
+
+import com.admin4j.framework.lock.annotation.DistributedSemaphore;
+import com.admin4j.framework.lock.exception.DistributedLockException;
+import com.admin4j.framework.lock.semaphore.SemaphoreExecutor;
+import com.admin4j.framework.lock.semaphore.SemaphorePermit;
+import com.admin4j.framework.lock.util.DistributedSemaphoreUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式信号量解析器
+ *
+ * @author andanyang
+ * @since 2024/3/26 9:30
+ */
+@Slf4j
+@Aspect
+public class DistributedSemaphoreAspect {
+
+    @Around("@annotation(distributedSemaphore)")
+    public Object around(ProceedingJoinPoint joinPoint, DistributedSemaphore distributedSemaphore) throws Throwable {
+
+        SemaphoreExecutor semaphoreExecutor = DistributedSemaphoreUtil.getSemaphoreExecutor(distributedSemaphore.executor());
+        String name = distributedSemaphore.prefix() + distributedSemaphore.value();
+        long waitMillis = distributedSemaphore.waitTimeOutSeconds() < 0 ? -1 : TimeUnit.SECONDS.toMillis(distributedSemaphore.waitTimeOutSeconds());
+        long leaseMillis = distributedSemaphore.leaseTime() <= 0 ? -1 : TimeUnit.SECONDS.toMillis(distributedSemaphore.leaseTime());
+
+        SemaphorePermit permit = semaphoreExecutor.tryAcquire(name, distributedSemaphore.permits(), distributedSemaphore.acquire(),
+                waitMillis, leaseMillis);
+        if (permit == null) {
+            log.debug("DistributedSemaphore acquire fail {}", name);
+            throw new DistributedLockException("failed to acquire semaphore");
+        }
+        try {
+            return joinPoint.proceed();
+        } finally {
+            permit.release();
+        }
+    }
+}
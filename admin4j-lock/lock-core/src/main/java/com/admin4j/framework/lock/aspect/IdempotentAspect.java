@@ -6,8 +6,11 @@ import com.admin4j.framework.lock.LockInfo;
 import com.admin4j.framework.lock.annotation.Idempotent;
 import com.admin4j.framework.lock.exception.DistributedLockException;
 import com.admin4j.framework.lock.exception.IdempotentException;
+import com.admin4j.framework.lock.idempotent.IdempotentResultStore;
 import com.admin4j.spring.util.SpelUtil;
 import com.admin4j.spring.util.SpringUtils;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -17,6 +20,7 @@ import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.util.Assert;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 分布式锁解析器
@@ -29,6 +33,13 @@ import java.lang.reflect.Method;
 @Aspect
 public class IdempotentAspect extends AbstractDLockHandler {
 
+    /**
+     * storeResult 时保存返回值，为 null 时不保存
+     */
+    @Getter
+    @Setter
+    private IdempotentResultStore resultStore;
+
     /**
      * 切面环绕通知
      *
@@ -53,8 +64,46 @@ public class IdempotentAspect extends AbstractDLockHandler {
         lockInfo.setTenant(false);
         lockInfo.setUser(true);
         lockInfo.setExecutor(idempotent.executor());
+        lockInfo.setName(idempotent.prefix());
 
-        return super.around(joinPoint, lockInfo);
+        IdempotentResultStore store = resultStore;
+        if (!idempotent.storeResult() || store == null) {
+            return super.around(joinPoint, lockInfo);
+        }
+
+        // 重复提交直接返回第一次的结果，不加锁
+        String lockKey = lockInfo.getLockKey();
+        IdempotentResultStore.Stored stored = getStored(store, lockKey);
+        if (stored != null) {
+            return stored.getValue();
+        }
+        long ttlMillis = TimeUnit.SECONDS.toMillis(idempotent.ttl());
+        return super.around(lockInfo, () -> {
+            // 等待锁期间第一次调用已经完成
+            IdempotentResultStore.Stored completed = getStored(store, lockKey);
+            if (completed != null) {
+                return completed.getValue();
+            }
+            Object result = joinPoint.proceed();
+            try {
+                store.put(lockKey, result, ttlMillis);
+            } catch (RuntimeException e) {
+                log.error("Idempotent store result {} failed: {}", lockKey, e.getMessage(), e);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 读取保存的返回值，读取失败按未命中处理，与保存失败一样不影响业务调用
+     */
+    private IdempotentResultStore.Stored getStored(IdempotentResultStore store, String lockKey) {
+        try {
+            return store.get(lockKey);
+        } catch (RuntimeException e) {
+            log.error("Idempotent get result {} failed: {}", lockKey, e.getMessage(), e);
+            return null;
+        }
     }
 
     @Override
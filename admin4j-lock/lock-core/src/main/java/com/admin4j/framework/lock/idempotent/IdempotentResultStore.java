@@ -0,0 +1,43 @@
+package com.admin4j.framework.lock.idempotent;
+
+/**
+ * 保存 @Idempotent(storeResult = true) 第一次成功调用的返回值，有效期内的重复提交直接返回
+ *
+ * @author andanyang
+ * @since 2024/3/25 9:30
+ */
+public interface IdempotentResultStore {
+
+    /**
+     * 读取保存的返回值
+     *
+     * @param key 幂等 key
+     * @return 没有保存或者已过期时返回 null
+     */
+    Stored get(String key);
+
+    /**
+     * 保存返回值
+     *
+     * @param key       幂等 key
+     * @param value     返回值，可以为 null
+     * @param ttlMillis 保存时间
+     */
+    void put(String key, Object value, long ttlMillis);
+
+    /**
+     * 保存的返回值
+     */
+    final class Stored {
+
+        private final Object value;
+
+        public Stored(Object value) {
+            this.value = value;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+    }
+}
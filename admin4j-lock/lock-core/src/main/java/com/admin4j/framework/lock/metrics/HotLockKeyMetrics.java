@@ -0,0 +1,53 @@
+package com.admin4j.framework.lock.metrics;
+
+import com.admin4j.common.counter.SpaceSavingCounter;
+import com.admin4j.framework.lock.LockExecutor;
+import com.admin4j.framework.lock.LockInfo;
+
+import java.util.List;
+
+/**
+ * 统计竞争最多的锁 key。
+ * 获取锁失败或者等待超过阈值时计为一次竞争，只保存固定数量的 key；没有竞争的加锁不进入统计，不增加开销
+ *
+ * @author andanyang
+ * @since 2024/3/21 9:30
+ */
+public class HotLockKeyMetrics implements LockMetrics {
+
+    private final SpaceSavingCounter contended;
+    private final long contendedNanos;
+
+    /**
+     * @param topKeys        最多统计的 key 数量
+     * @param contendedNanos 等待超过该时间计为竞争
+     */
+    public HotLockKeyMetrics(int topKeys, long contendedNanos) {
+        this.contended = new SpaceSavingCounter(topKeys);
+        this.contendedNanos = contendedNanos;
+    }
+
+    @Override
+    public void onAcquired(LockExecutor<?> lockExecutor, LockInfo lockInfo, long waitNanos) {
+
+        if (waitNanos >= contendedNanos) {
+            contended.add(lockInfo.getLockKey());
+        }
+    }
+
+    @Override
+    public void onFailed(LockExecutor<?> lockExecutor, LockInfo lockInfo, long waitNanos) {
+        contended.add(lockInfo.getLockKey());
+    }
+
+    /**
+     * 竞争次数最多的 n 个 key，按次数倒序
+     */
+    public List<SpaceSavingCounter.Entry> hotKeys(int n) {
+        return contended.top(n);
+    }
+
+    public void clear() {
+        contended.clear();
+    }
+}
@@ -0,0 +1,41 @@
+package com.admin4j.framework.lock.metrics;
+
+import com.admin4j.framework.lock.LockExecutor;
+import com.admin4j.framework.lock.LockInfo;
+
+/**
+ * 锁指标。
+ * 标签使用执行器类型和 lockInfo 的 name(注解的 prefix)，不使用锁 key，避免指标数量失控
+ *
+ * @author andanyang
+ * @since 2024/3/21 9:30
+ */
+public interface LockMetrics {
+
+    LockMetrics NOOP = new LockMetrics() {
+    };
+
+    /**
+     * 获取到锁
+     *
+     * @param waitNanos 等待锁的耗时
+     */
+    default void onAcquired(LockExecutor<?> lockExecutor, LockInfo lockInfo, long waitNanos) {
+    }
+
+    /**
+     * 获取锁失败，tryLock 失败或者等待超时
+     *
+     * @param waitNanos 等待锁的耗时
+     */
+    default void onFailed(LockExecutor<?> lockExecutor, LockInfo lockInfo, long waitNanos) {
+    }
+
+    /**
+     * 解锁
+     *
+     * @param holdNanos 持有锁的耗时
+     */
+    default void onReleased(LockExecutor<?> lockExecutor, LockInfo lockInfo, long holdNanos) {
+    }
+}
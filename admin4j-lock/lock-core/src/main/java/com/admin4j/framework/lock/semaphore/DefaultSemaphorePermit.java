@@ -0,0 +1,56 @@
+package com.admin4j.framework.lock.semaphore;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 只释放一次的 SemaphorePermit
+ *
+ * @author andanyang
+ * @since 2024/3/26 9:30
+ */
+public class DefaultSemaphorePermit implements SemaphorePermit {
+
+    private final String name;
+    private final int permits;
+    private final Runnable releaser;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /**
+     * @param releaser 执行释放
+     */
+    public DefaultSemaphorePermit(String name, int permits, Runnable releaser) {
+        this.name = name;
+        this.permits = permits;
+        this.releaser = releaser;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getPermits() {
+        return permits;
+    }
+
+    @Override
+    public void release() {
+
+        if (released.compareAndSet(false, true)) {
+            releaser.run();
+        }
+    }
+
+    /**
+     * 是否已经释放
+     */
+    public boolean isReleased() {
+        return released.get();
+    }
+
+    @Override
+    public String toString() {
+        return "SemaphorePermit{" + name + ", permits=" + permits + '}';
+    }
+}
@@ -0,0 +1,22 @@
+package com.admin4j.framework.lock.semaphore;
+
+/**
+ * 分布式信号量执行器，限制集群内同时执行的数量
+ *
+ * @author andanyang
+ * @since 2024/3/26 9:30
+ */
+public interface SemaphoreExecutor {
+
+    /**
+     * 获取许可
+     *
+     * @param name        信号量名称
+     * @param maxPermits  许可总数，第一次使用该信号量时设置
+     * @param permits     获取的许可数量
+     * @param waitMillis  最长等待时间，小于 0 一直等待，0 不等待
+     * @param leaseMillis 许可自动释放的时间，小于等于 0 时不自动释放
+     * @return 获取到的许可，等待超时返回 null
+     */
+    SemaphorePermit tryAcquire(String name, int maxPermits, int permits, long waitMillis, long leaseMillis);
+}
@@ -0,0 +1,25 @@
+package com.admin4j.framework.lock.semaphore;
+
+/**
+ * 获取到的信号量许可，可以在任意线程释放，重复释放时忽略
+ *
+ * @author andanyang
+ * @since 2024/3/26 9:30
+ */
+public interface SemaphorePermit {
+
+    /**
+     * 信号量名称
+     */
+    String getName();
+
+    /**
+     * 许可数量
+     */
+    int getPermits();
+
+    /**
+     * 释放许可
+     */
+    void release();
+}
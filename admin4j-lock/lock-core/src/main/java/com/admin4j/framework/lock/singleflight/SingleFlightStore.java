@@ -0,0 +1,57 @@
+package com.admin4j.framework.lock.singleflight;
+
+/**
+ * 跨节点共享 single-flight 的计算结果。
+ * 每次发布结果版本号加 1，等待锁的节点获取到锁后读取版本号大于等待前版本号的结果，不再重复计算
+ *
+ * @author andanyang
+ * @since 2024/3/22 9:30
+ */
+public interface SingleFlightStore {
+
+    /**
+     * 当前发布的版本号，没有发布过时为 0
+     *
+     * @param key 锁 key
+     */
+    long version(String key);
+
+    /**
+     * 读取发布的结果
+     *
+     * @param key 锁 key
+     * @return 结果已过期或者没有发布过时返回 null
+     */
+    Published get(String key);
+
+    /**
+     * 发布结果，版本号加 1
+     *
+     * @param key       锁 key
+     * @param value     计算结果，可以为 null
+     * @param ttlMillis 结果保存时间
+     */
+    void publish(String key, Object value, long ttlMillis);
+
+    /**
+     * 发布的结果
+     */
+    final class Published {
+
+        private final long version;
+        private final Object value;
+
+        public Published(long version, Object value) {
+            this.version = version;
+            this.value = value;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+    }
+}
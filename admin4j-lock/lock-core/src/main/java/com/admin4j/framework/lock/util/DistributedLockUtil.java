@@ -1,12 +1,23 @@
 package com.admin4j.framework.lock.util;
 
 
+import com.admin4j.framework.lock.DefaultLockHandle;
 import com.admin4j.framework.lock.LockExecutor;
+import com.admin4j.framework.lock.LockHandle;
 import com.admin4j.framework.lock.LockInfo;
 import com.admin4j.framework.lock.exception.DistributedLockException;
+import com.admin4j.framework.lock.metrics.LockMetrics;
+import com.admin4j.framework.lock.singleflight.SingleFlightStore;
 import com.admin4j.spring.util.SpringUtils;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 /**
@@ -20,8 +31,28 @@ public class DistributedLockUtil {
      * redis key 前缀
      */
     public static final String DISTRIBUTED_LOCK_PRE = "DL:";
+    /**
+     * single-flight 的 key 前缀
+     */
+    public static final String SINGLE_FLIGHT_PRE = "SF:";
+    /**
+     * single-flight 结果默认保存时间
+     */
+    public static final long DEFAULT_SINGLE_FLIGHT_TTL_MILLIS = 10_000;
+
+    /**
+     * 本节点正在计算的 single-flight
+     */
+    private static final ConcurrentHashMap<String, CompletableFuture<Object>> IN_FLIGHT = new ConcurrentHashMap<>();
 
     private static LockExecutor<?> DEFAULT_LOCK_EXECUTOR;
+    private static LockMetrics LOCK_METRICS = LockMetrics.NOOP;
+    private static SingleFlightStore SINGLE_FLIGHT_STORE;
+
+    /**
+     * tryLock 获取锁失败
+     */
+    private static final Object NOT_LOCKED = new Object();
 
     /**
      * 设置默认执行器
@@ -32,6 +63,24 @@ public class DistributedLockUtil {
         DistributedLockUtil.DEFAULT_LOCK_EXECUTOR = lockExecutor;
     }
 
+    /**
+     * 设置锁指标
+     */
+    public static void setLockMetrics(LockMetrics lockMetrics) {
+        DistributedLockUtil.LOCK_METRICS = lockMetrics == null ? LockMetrics.NOOP : lockMetrics;
+    }
+
+    public static LockMetrics getLockMetrics() {
+        return LOCK_METRICS;
+    }
+
+    /**
+     * 设置 single-flight 跨节点共享结果的存储，为 null 时每个节点各计算一次
+     */
+    public static void setSingleFlightStore(SingleFlightStore singleFlightStore) {
+        DistributedLockUtil.SINGLE_FLIGHT_STORE = singleFlightStore;
+    }
+
     /**
      * 更新 lockInfo 获取锁执行器
      *
@@ -56,10 +105,7 @@ public class DistributedLockUtil {
      * @return 返回值
      */
     public static <T> T lock(String lockKey, Supplier<T> supplier) {
-
-        LockInfo lockInfo = new LockInfo();
-        lockInfo.setLockKey(DISTRIBUTED_LOCK_PRE + lockKey);
-        return lock(lockInfo, supplier);
+        return lock(lockInfo(lockKey), supplier);
     }
 
 
@@ -71,40 +117,270 @@ public class DistributedLockUtil {
      * @param <T>      supplier 返回类型
      * @return supplier 返回值
      */
+    @SuppressWarnings("unchecked")
     public static <T> T lock(LockInfo lockInfo, Supplier<T> supplier) {
+        return (T) execute(lockInfo, false, supplier);
+    }
 
-        LockExecutor<?> lockExecutor = getLockExecutor(lockInfo);
-        lockExecutor.initSetLockInstance(lockInfo);
+    /**
+     * 同时锁定多个 key，block直到全部获取。
+     * key 按字典序加锁，redis 中一次脚本调用完成，redisson、zookeeper 使用联锁
+     *
+     * @param lockKeys lockKey 集合
+     * @param supplier 运行方法
+     * @param <T>      supplier 返回类型
+     * @return supplier 返回值
+     */
+    public static <T> T lockAll(Collection<String> lockKeys, Supplier<T> supplier) {
+        return lock(multiKeyLockInfo(lockKeys), supplier);
+    }
+
+    /**
+     * 合并相同 key 的并发计算，结果保存 DEFAULT_SINGLE_FLIGHT_TTL_MILLIS
+     *
+     * @see #singleFlight(String, long, Supplier)
+     */
+    public static <T> T singleFlight(String key, Supplier<T> supplier) {
+        return singleFlight(key, DEFAULT_SINGLE_FLIGHT_TTL_MILLIS, supplier);
+    }
+
+    /**
+     * 合并相同 key 的并发计算，如缓存重建。
+     * 同一节点的并发调用共享一次计算；跨节点时获取到锁的节点计算并发布结果，
+     * 等待锁的节点获取到锁后直接使用等待期间发布的结果。supplier 抛出的异常同样抛给本节点的等待者
+     *
+     * @param key             key
+     * @param resultTtlMillis 发布的结果保存时间，应大于等待锁的时间
+     * @param supplier        计算
+     * @param <T>             返回类型，跨节点共享时需要可以序列化
+     * @return 计算结果
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T singleFlight(String key, long resultTtlMillis, Supplier<T> supplier) {
+
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = IN_FLIGHT.putIfAbsent(key, flight);
+        if (existing != null) {
+            try {
+                return (T) existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
 
         try {
-            lockExecutor.lock(lockInfo);
-            return supplier.get();
+            Object value = flight(key, resultTtlMillis, supplier);
+            flight.complete(value);
+            return (T) value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
         } finally {
-            lockExecutor.unlock(lockInfo);
+            IN_FLIGHT.remove(key, flight);
         }
     }
 
+    private static Object flight(String key, long resultTtlMillis, Supplier<?> supplier) {
+
+        LockInfo lockInfo = lockInfo(SINGLE_FLIGHT_PRE + key);
+        SingleFlightStore store = SINGLE_FLIGHT_STORE;
+        if (store == null) {
+            return lock(lockInfo, supplier);
+        }
+
+        String lockKey = lockInfo.getLockKey();
+        long version = 0;
+        try {
+            version = store.version(lockKey);
+        } catch (RuntimeException e) {
+            log.warn("single-flight read version {} failed: {}", lockKey, e.getMessage());
+            store = null;
+        }
+        SingleFlightStore publishStore = store;
+        long waitVersion = version;
+        return lock(lockInfo, () -> {
+            if (publishStore == null) {
+                return supplier.get();
+            }
+            try {
+                SingleFlightStore.Published published = publishStore.get(lockKey);
+                if (published != null && published.getVersion() > waitVersion) {
+                    // 等待期间其他节点已经计算
+                    return published.getValue();
+                }
+            } catch (RuntimeException e) {
+                log.warn("single-flight read {} failed: {}", lockKey, e.getMessage());
+            }
+
+            Object value = supplier.get();
+            try {
+                publishStore.publish(lockKey, value, resultTtlMillis);
+            } catch (RuntimeException e) {
+                log.warn("single-flight publish {} failed: {}", lockKey, e.getMessage());
+            }
+            return value;
+        });
+    }
+
     /**
-     * 加锁，block直到解锁。无返回值
+     * 尝试同时锁定多个 key。不会block，任一 key 获取失败时不占用任何 key
+     *
+     * @param lockKeys lockKey 集合
+     * @param supplier supplier
+     * @return supplier 返回值，获取锁失败返回 null
+     */
+    public static <T> T tryLockAll(Collection<String> lockKeys, Supplier<T> supplier) {
+
+        LockInfo lockInfo = multiKeyLockInfo(lockKeys);
+        lockInfo.setTryLock(true);
+        return tryExecute(lockInfo, supplier);
+    }
+
+    /**
+     * 异步加锁，等待锁时不占用当前线程。使用完后调用 LockHandle 解锁
+     *
+     * @param lockKey lockKey
+     * @return 获取到锁后完成
+     */
+    public static CompletionStage<LockHandle> lockAsync(String lockKey) {
+
+        LockInfo lockInfo = lockInfo(lockKey);
+        return getLockExecutor(lockInfo).lockAsync(lockInfo);
+    }
+
+    /**
+     * 异步加锁，获取到锁后执行 supplier，supplier 返回的 CompletionStage 完成后解锁
      *
      * @param lockKey  lockKey
-     * @param runnable 运行
+     * @param supplier 异步任务
+     * @param <T>      返回类型
+     * @return 异步任务的结果
      */
-    public static void lock(String lockKey, Runnable runnable) {
+    public static <T> CompletionStage<T> lockAsync(String lockKey, Supplier<? extends CompletionStage<T>> supplier) {
+
+        return lockAsync(lockKey).thenCompose(handle -> {
+            CompletionStage<T> stage;
+            try {
+                stage = supplier.get();
+            } catch (RuntimeException e) {
+                handle.unlockAsync();
+                return DefaultLockHandle.failed(e);
+            }
+            return stage.whenComplete((t, e) -> handle.unlockAsync());
+        });
+    }
+
+    /**
+     * 异步尝试加锁，最多等待 waitTimeOutSeconds
+     *
+     * @param lockKey            lockKey
+     * @param waitTimeOutSeconds 最长等待时间，小于等于 0 时不等待
+     * @return 获取到锁后完成，获取锁失败为 null
+     */
+    public static CompletionStage<LockHandle> tryLockAsync(String lockKey, int waitTimeOutSeconds) {
+
+        LockInfo lockInfo = lockInfo(lockKey);
+        lockInfo.setTryLock(true);
+        lockInfo.setWaitTimeOutSeconds(waitTimeOutSeconds);
+        return getLockExecutor(lockInfo).tryLockAsync(lockInfo);
+    }
+
+    private static LockInfo multiKeyLockInfo(Collection<String> lockKeys) {
+
+        List<String> keys = new ArrayList<>(lockKeys.size());
+        for (String lockKey : lockKeys) {
+            keys.add(DISTRIBUTED_LOCK_PRE + lockKey);
+        }
+        LockInfo lockInfo = new LockInfo();
+        lockInfo.setLockKeys(keys);
+        lockInfo.setName(DISTRIBUTED_LOCK_PRE);
+        return lockInfo;
+    }
+
+    private static LockInfo lockInfo(String lockKey) {
 
         LockInfo lockInfo = new LockInfo();
         lockInfo.setLockKey(DISTRIBUTED_LOCK_PRE + lockKey);
+        lockInfo.setName(DISTRIBUTED_LOCK_PRE);
+        return lockInfo;
+    }
+
+    /**
+     * 尝试获取锁后执行
+     *
+     * @return supplier 返回值，获取锁失败返回 null
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T tryExecute(LockInfo lockInfo, Supplier<T> supplier) {
 
-        DEFAULT_LOCK_EXECUTOR.initSetLockInstance(lockInfo);
+        Object result = execute(lockInfo, true, supplier);
+        return result == NOT_LOCKED ? null : (T) result;
+    }
+
+    /**
+     * 获取锁后执行，记录等待锁、持有锁的耗时
+     *
+     * @param tryLock 是否 tryLock，否则 block 直到获取锁
+     * @return supplier 返回值，tryLock 获取锁失败返回 NOT_LOCKED
+     */
+    private static Object execute(LockInfo lockInfo, boolean tryLock, Supplier<?> supplier) {
+
+        LockExecutor<?> lockExecutor = getLockExecutor(lockInfo);
+        lockExecutor.initSetLockInstance(lockInfo);
 
+        LockMetrics lockMetrics = LOCK_METRICS;
+        long start = System.nanoTime();
+        boolean locked = true;
+        long acquired = 0;
         try {
-            DEFAULT_LOCK_EXECUTOR.lock(lockInfo);
-            runnable.run();
+            try {
+                if (tryLock) {
+                    locked = lockExecutor.tryLock(lockInfo);
+                } else {
+                    lockExecutor.lock(lockInfo);
+                }
+            } catch (RuntimeException e) {
+                lockMetrics.onFailed(lockExecutor, lockInfo, System.nanoTime() - start);
+                throw e;
+            }
+            acquired = System.nanoTime();
+            if (!locked) {
+                lockMetrics.onFailed(lockExecutor, lockInfo, acquired - start);
+                log.debug("DistributedLockUtil tryLock fail {}", lockInfo.getLockKey());
+                return NOT_LOCKED;
+            }
+            lockMetrics.onAcquired(lockExecutor, lockInfo, acquired - start);
+            return supplier.get();
         } finally {
-            DEFAULT_LOCK_EXECUTOR.unlock(lockInfo);
+            if (locked) {
+                lockExecutor.unlock(lockInfo);
+                if (acquired != 0) {
+                    lockMetrics.onReleased(lockExecutor, lockInfo, System.nanoTime() - acquired);
+                }
+            }
         }
     }
 
+    /**
+     * 加锁，block直到解锁。无返回值
+     *
+     * @param lockKey  lockKey
+     * @param runnable 运行
+     */
+    public static void lock(String lockKey, Runnable runnable) {
+
+        execute(lockInfo(lockKey), false, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
     /**
      * 尝试获取锁。不会block
      *
@@ -114,26 +390,12 @@ public class DistributedLockUtil {
      */
     public static boolean tryLock(String lockKey, Runnable runnable) {
 
-        LockInfo lockInfo = new LockInfo();
-        lockInfo.setLockKey(DISTRIBUTED_LOCK_PRE + lockKey);
+        LockInfo lockInfo = lockInfo(lockKey);
         lockInfo.setTryLock(true);
-
-        DEFAULT_LOCK_EXECUTOR.initSetLockInstance(lockInfo);
-
-        boolean tryLock = true;
-        try {
-            tryLock = DEFAULT_LOCK_EXECUTOR.tryLock(lockInfo);
-            if (!tryLock) {
-                log.debug("DistributedLockUtil tryLock fail {}", lockKey);
-                return false;
-            } else {
-                runnable.run();
-            }
-        } finally {
-            if (tryLock) DEFAULT_LOCK_EXECUTOR.unlock(lockInfo);
-        }
-
-        return true;
+        return execute(lockInfo, true, () -> {
+            runnable.run();
+            return null;
+        }) != NOT_LOCKED;
     }
 
 
@@ -147,23 +409,9 @@ public class DistributedLockUtil {
      */
     public static <T> T tryLock(String lockKey, Supplier<T> supplier) {
 
-        LockInfo lockInfo = new LockInfo();
-        lockInfo.setLockKey(DISTRIBUTED_LOCK_PRE + lockKey);
+        LockInfo lockInfo = lockInfo(lockKey);
         lockInfo.setTryLock(true);
-        DEFAULT_LOCK_EXECUTOR.initSetLockInstance(lockInfo);
-
-        boolean tryLock = true;
-        try {
-            tryLock = DEFAULT_LOCK_EXECUTOR.tryLock(lockInfo);
-            if (!tryLock) {
-                log.debug("DistributedLockUtil tryLock fail");
-                return null;
-            } else {
-                return supplier.get();
-            }
-        } finally {
-            if (tryLock) DEFAULT_LOCK_EXECUTOR.unlock(lockInfo);
-        }
+        return tryExecute(lockInfo, supplier);
     }
 
     /**
@@ -0,0 +1,92 @@
+package com.admin4j.framework.lock.util;
+
+import com.admin4j.framework.lock.exception.DistributedLockException;
+import com.admin4j.framework.lock.semaphore.SemaphoreExecutor;
+import com.admin4j.framework.lock.semaphore.SemaphorePermit;
+import com.admin4j.spring.util.SpringUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * @author andanyang
+ * @since 2024/3/26 9:30
+ */
+public class DistributedSemaphoreUtil {
+
+    /**
+     * 信号量名称前缀
+     */
+    public static final String DISTRIBUTED_SEMAPHORE_PRE = "DS:";
+
+    private static SemaphoreExecutor DEFAULT_SEMAPHORE_EXECUTOR;
+
+    /**
+     * 设置默认执行器
+     *
+     * @param semaphoreExecutor 默认执行器
+     */
+    public static void setDefaultSemaphoreExecutor(SemaphoreExecutor semaphoreExecutor) {
+        DistributedSemaphoreUtil.DEFAULT_SEMAPHORE_EXECUTOR = semaphoreExecutor;
+    }
+
+    /**
+     * 获取执行器
+     *
+     * @param executor 执行器类型，为 null 或者 SemaphoreExecutor 时使用默认执行器
+     * @return 信号量执行器
+     */
+    public static SemaphoreExecutor getSemaphoreExecutor(Class<? extends SemaphoreExecutor> executor) {
+
+        if (executor == null || executor == SemaphoreExecutor.class) {
+            return DEFAULT_SEMAPHORE_EXECUTOR;
+        }
+        return SpringUtils.getBean(executor);
+    }
+
+    /**
+     * 获取许可
+     *
+     * @param name       信号量名称
+     * @param maxPermits 许可总数
+     * @param permits    获取的许可数量
+     * @param timeout    最长等待时间，小于 0 一直等待
+     * @param unit       时间单位
+     * @return 获取到的许可，等待超时返回 null
+     */
+    public static SemaphorePermit acquire(String name, int maxPermits, int permits, long timeout, TimeUnit unit) {
+        return DEFAULT_SEMAPHORE_EXECUTOR.tryAcquire(DISTRIBUTED_SEMAPHORE_PRE + name, maxPermits, permits,
+                timeout < 0 ? -1 : unit.toMillis(timeout), -1);
+    }
+
+    /**
+     * 获取一个许可后执行 supplier，block直到获取到许可
+     *
+     * @param name       信号量名称
+     * @param maxPermits 许可总数，即最多同时执行的数量
+     * @param supplier   执行 supplier
+     * @param <T>        返回类型
+     * @return 返回值
+     */
+    public static <T> T execute(String name, int maxPermits, Supplier<T> supplier) {
+        return execute(name, maxPermits, -1, supplier);
+    }
+
+    /**
+     * 获取一个许可后执行 supplier，超时抛出 DistributedLockException
+     *
+     * @param waitSeconds 最长等待时间，小于 0 一直等待
+     */
+    public static <T> T execute(String name, int maxPermits, int waitSeconds, Supplier<T> supplier) {
+
+        SemaphorePermit permit = acquire(name, maxPermits, 1, waitSeconds, TimeUnit.SECONDS);
+        if (permit == null) {
+            throw new DistributedLockException("failed to acquire semaphore");
+        }
+        try {
+            return supplier.get();
+        } finally {
+            permit.release();
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package com.admin4j.framework.lock;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 支持异步等待的可重入互斥锁。
+ * 持有者可以是任意对象：同步加锁时为当前线程，异步加锁时由调用方指定，可以在任意线程解锁。
+ * 异步等待者不占用线程，轮到时直接移交锁并完成 future；公平模式下线程等待者同样按顺序移交，
+ * 非公平模式下唤醒的线程与新来的线程竞争。
+ * Condition 只能由同步加锁的线程使用，await 时完全释放重入次数，被唤醒后重新排队加锁并恢复
+ *
+ * @author andanyang
+ * @since 2024/3/20 10:00
+ */
+final class AsyncReentrantLock implements Lock {
+
+    private final boolean fair;
+
+    /**
+     * 以下字段由 monitor 保护
+     */
+    private Object owner;
+    private int holds;
+    private ArrayDeque<Waiter> waiters;
+
+    AsyncReentrantLock(boolean fair) {
+        this.fair = fair;
+    }
+
+    @Override
+    public void lock() {
+
+        Thread thread = Thread.currentThread();
+        Waiter waiter;
+        synchronized (this) {
+            if (acquire(thread)) {
+                return;
+            }
+            waiter = enqueue(thread, null);
+        }
+        boolean interrupted = false;
+        while (!await(waiter, Long.MAX_VALUE, false)) {
+            interrupted = true;
+        }
+        if (interrupted) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        tryLock(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public boolean tryLock() {
+
+        synchronized (this) {
+            return acquire(Thread.currentThread());
+        }
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        Thread thread = Thread.currentThread();
+        Waiter waiter;
+        synchronized (this) {
+            if (acquire(thread)) {
+                return true;
+            }
+            if (time <= 0) {
+                return false;
+            }
+            waiter = enqueue(thread, null);
+        }
+        if (await(waiter, unit.toNanos(time), true)) {
+            return true;
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        return false;
+    }
+
+    @Override
+    public void unlock() {
+        release(Thread.currentThread());
+    }
+
+    @Override
+    public Condition newCondition() {
+        return new ConditionObject();
+    }
+
+    /**
+     * 异步加锁，异步持有者不可重入
+     *
+     * @param owner 持有者，解锁时使用
+     * @param wait  锁被占用时是否排队等待
+     * @return 获取到锁时为 true，不等待或者等待被取消时为 false
+     */
+    CompletableFuture<Boolean> acquireAsync(Object owner, boolean wait) {
+
+        synchronized (this) {
+            if (this.owner == null) {
+                this.owner = owner;
+                this.holds = 1;
+                return CompletableFuture.completedFuture(true);
+            }
+            if (!wait) {
+                return CompletableFuture.completedFuture(false);
+            }
+            return enqueue(owner, new CompletableFuture<>()).future;
+        }
+    }
+
+    /**
+     * 取消尚未获取到锁的异步等待，future 以 false 完成
+     *
+     * @return 是否取消成功，已经获取到锁时返回 false
+     */
+    boolean cancel(CompletableFuture<Boolean> future) {
+
+        Waiter removed = null;
+        synchronized (this) {
+            if (waiters != null) {
+                for (Iterator<Waiter> iterator = waiters.iterator(); iterator.hasNext(); ) {
+                    Waiter waiter = iterator.next();
+                    if (waiter.future == future) {
+                        iterator.remove();
+                        removed = waiter;
+                        break;
+                    }
+                }
+            }
+        }
+        if (removed == null) {
+            return false;
+        }
+        future.complete(false);
+        return true;
+    }
+
+    /**
+     * 解锁
+     *
+     * @param owner 加锁时的持有者
+     */
+    void release(Object owner) {
+
+        Waiter next;
+        synchronized (this) {
+            if (this.owner != owner) {
+                throw new IllegalMonitorStateException();
+            }
+            if (--holds > 0) {
+                return;
+            }
+            this.owner = null;
+            next = next();
+        }
+        if (next != null) {
+            next.signal();
+        }
+    }
+
+    /**
+     * 是否被持有
+     */
+    synchronized boolean isLocked() {
+        return owner != null;
+    }
+
+    private boolean acquire(Object owner) {
+
+        if (this.owner == null) {
+            this.owner = owner;
+            this.holds = 1;
+            return true;
+        }
+        if (this.owner == owner) {
+            holds++;
+            return true;
+        }
+        return false;
+    }
+
+    private Waiter enqueue(Object owner, CompletableFuture<Boolean> future) {
+
+        if (waiters == null) {
+            waiters = new ArrayDeque<>();
+        }
+        Waiter waiter = new Waiter(owner, future);
+        waiters.add(waiter);
+        return waiter;
+    }
+
+    /**
+     * 锁空闲时选出下一个等待者，调用时持有 monitor。
+     * 异步等待者和公平模式直接移交锁；非公平模式只唤醒队首线程，由它重新竞争
+     *
+     * @return 需要在 monitor 之外通知的等待者
+     */
+    private Waiter next() {
+
+        Waiter next = waiters == null ? null : waiters.peek();
+        if (next == null) {
+            return null;
+        }
+        if (fair || next.future != null) {
+            waiters.poll();
+            owner = next.owner;
+            holds = 1;
+            next.granted = true;
+        }
+        return next;
+    }
+
+    /**
+     * 线程等待者等待获取锁，超时或者中断时退出队列
+     *
+     * @param nanos         最长等待时间
+     * @param interruptible 中断时是否退出，退出时保留中断状态
+     * @return 是否获取到锁
+     */
+    private boolean await(Waiter waiter, long nanos, boolean interruptible) {
+
+        long start = System.nanoTime();
+        for (; ; ) {
+            long remaining;
+            synchronized (this) {
+                if (waiter.granted) {
+                    return true;
+                }
+                if (owner == null) {
+                    waiters.remove(waiter);
+                    owner = waiter.owner;
+                    holds = 1;
+                    return true;
+                }
+                remaining = nanos - (System.nanoTime() - start);
+                boolean interrupted = Thread.currentThread().isInterrupted();
+                if (interrupted && !interruptible) {
+                    // 清除中断状态后继续排队，由调用方恢复
+                    Thread.interrupted();
+                    return false;
+                }
+                if (remaining <= 0 || interrupted) {
+                    // 锁被其他持有者占用，解锁时会通知下一个等待者
+                    waiters.remove(waiter);
+                    return false;
+                }
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    /**
+     * 条件队列，由锁的 monitor 保护
+     */
+    private final class ConditionObject implements Condition {
+
+        private final ArrayDeque<ConditionWaiter> waiters = new ArrayDeque<>();
+
+        @Override
+        public void await() throws InterruptedException {
+            await(Long.MAX_VALUE, true);
+        }
+
+        @Override
+        public void awaitUninterruptibly() {
+            try {
+                await(Long.MAX_VALUE, false);
+            } catch (InterruptedException e) {
+                // 不可中断等待不会抛出
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            return await(nanosTimeout, true);
+        }
+
+        @Override
+        public boolean await(long time, TimeUnit unit) throws InterruptedException {
+            return await(unit.toNanos(time), true) > 0;
+        }
+
+        @Override
+        public boolean awaitUntil(Date deadline) throws InterruptedException {
+            return await(TimeUnit.MILLISECONDS.toNanos(deadline.getTime() - System.currentTimeMillis()), true) > 0;
+        }
+
+        @Override
+        public void signal() {
+
+            synchronized (AsyncReentrantLock.this) {
+                checkOwner();
+                ConditionWaiter waiter = waiters.poll();
+                if (waiter != null) {
+                    waiter.signalled = true;
+                    LockSupport.unpark(waiter.thread);
+                }
+            }
+        }
+
+        @Override
+        public void signalAll() {
+
+            synchronized (AsyncReentrantLock.this) {
+                checkOwner();
+                for (ConditionWaiter waiter; (waiter = waiters.poll()) != null; ) {
+                    waiter.signalled = true;
+                    LockSupport.unpark(waiter.thread);
+                }
+            }
+        }
+
+        private void checkOwner() {
+            if (owner != Thread.currentThread()) {
+                throw new IllegalMonitorStateException();
+            }
+        }
+
+        /**
+         * 释放锁后等待唤醒，返回前重新获取锁并恢复重入次数
+         *
+         * @param nanos         最长等待时间
+         * @param interruptible 是否响应中断
+         * @return 剩余等待时间，小于等于 0 表示超时
+         */
+        private long await(long nanos, boolean interruptible) throws InterruptedException {
+
+            if (interruptible && Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            Thread thread = Thread.currentThread();
+            ConditionWaiter waiter = new ConditionWaiter(thread);
+            int savedHolds;
+            Waiter next;
+            synchronized (AsyncReentrantLock.this) {
+                checkOwner();
+                waiters.add(waiter);
+                savedHolds = holds;
+                owner = null;
+                holds = 0;
+                next = next();
+            }
+            if (next != null) {
+                next.signal();
+            }
+
+            long start = System.nanoTime();
+            long remaining = nanos;
+            boolean interrupted = false;
+            for (; ; ) {
+                synchronized (AsyncReentrantLock.this) {
+                    if (waiter.signalled) {
+                        break;
+                    }
+                    remaining = nanos - (System.nanoTime() - start);
+                    if (interruptible && thread.isInterrupted()) {
+                        waiters.remove(waiter);
+                        interrupted = true;
+                        break;
+                    }
+                    if (remaining <= 0) {
+                        waiters.remove(waiter);
+                        break;
+                    }
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+
+            // 重新加锁时不响应中断，中断状态由 lock 恢复
+            lock();
+            synchronized (AsyncReentrantLock.this) {
+                holds = savedHolds;
+            }
+            if (interrupted && Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            return nanos - (System.nanoTime() - start);
+        }
+    }
+
+    private static final class ConditionWaiter {
+
+        private final Thread thread;
+        private boolean signalled;
+
+        ConditionWaiter(Thread thread) {
+            this.thread = thread;
+        }
+    }
+
+    private static final class Waiter {
+
+        private final Object owner;
+        /**
+         * 异步等待者的 future，线程等待者为 null
+         */
+        private final CompletableFuture<Boolean> future;
+        private volatile boolean granted;
+
+        Waiter(Object owner, CompletableFuture<Boolean> future) {
+            this.owner = owner;
+            this.future = future;
+        }
+
+        void signal() {
+            if (future == null) {
+                LockSupport.unpark((Thread) owner);
+            } else {
+                future.complete(true);
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.admin4j.framework.lock;
 
 import com.admin4j.framework.lock.constant.LockModel;
 import com.admin4j.framework.lock.exception.DistributedLockException;
+import com.admin4j.framework.lock.exception.UnSupportException;
 import com.admin4j.framework.lock.pool.PooledLockFactory;
 import com.admin4j.framework.lock.pool.WrapperLockObject;
 import com.admin4j.framework.lock.pool.WrapperReadWriteLockObject;
@@ -139,6 +140,9 @@ public class LocalLockExecutor implements LockExecutor<WrapperLockObject> {
         if (lockInfo.getLockInstance() != null) {
             return;
         }
+        if (lockInfo.isMultiKey()) {
+            throw new UnSupportException("LocalLockExecutor Not supported multiple keys, use StripedLockExecutor");
+        }
 
         WrapperLockObject lock = getLockObject(lockInfo);
 
@@ -0,0 +1,78 @@
+package com.admin4j.framework.lock;
+
+import com.admin4j.framework.lock.exception.DistributedLockException;
+import com.admin4j.framework.lock.semaphore.DefaultSemaphorePermit;
+import com.admin4j.framework.lock.semaphore.SemaphoreExecutor;
+import com.admin4j.framework.lock.semaphore.SemaphorePermit;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 jdk Semaphore 的本地信号量，只限制当前节点。
+ * 公平模式，避免获取多个许可时一直拿不到；许可总数以第一次使用时为准
+ *
+ * @author andanyang
+ * @since 2024/3/26 10:00
+ */
+@Slf4j
+public class LocalSemaphoreExecutor implements SemaphoreExecutor {
+
+    private final ConcurrentHashMap<String, Semaphore> semaphores = new ConcurrentHashMap<>();
+
+    @Override
+    public SemaphorePermit tryAcquire(String name, int maxPermits, int permits, long waitMillis, long leaseMillis) {
+
+        Semaphore semaphore = semaphores.computeIfAbsent(name, key -> new Semaphore(maxPermits, true));
+        try {
+            if (waitMillis < 0) {
+                semaphore.acquire(permits);
+            } else if (!semaphore.tryAcquire(permits, waitMillis, TimeUnit.MILLISECONDS)) {
+                log.debug("local semaphore acquire failed {}", name);
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DistributedLockException(e);
+        }
+
+        if (leaseMillis <= 0) {
+            return new DefaultSemaphorePermit(name, permits, () -> semaphore.release(permits));
+        }
+        ScheduledFuture<?>[] expire = new ScheduledFuture<?>[1];
+        DefaultSemaphorePermit permit = new DefaultSemaphorePermit(name, permits, () -> {
+            if (expire[0] != null) {
+                expire[0].cancel(false);
+            }
+            semaphore.release(permits);
+        });
+        expire[0] = Lease.SCHEDULER.schedule(permit::release, leaseMillis, TimeUnit.MILLISECONDS);
+        return permit;
+    }
+
+    /**
+     * 当前可用的许可数量，没有使用过时返回 -1
+     */
+    public int availablePermits(String name) {
+
+        Semaphore semaphore = semaphores.get(name);
+        return semaphore == null ? -1 : semaphore.availablePermits();
+    }
+
+    /**
+     * 许可到期自动释放，第一次使用时创建
+     */
+    private static final class Lease {
+
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "local-semaphore-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,584 @@
+package com.admin4j.framework.lock;
+
+import com.admin4j.framework.lock.constant.LockModel;
+import com.admin4j.framework.lock.exception.DistributedLockException;
+import com.admin4j.framework.lock.exception.UnSupportException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * 分段本地锁。
+ * 默认按 key 的 hash 映射到固定数量(2 的幂)的锁上，加锁、解锁不分配对象；不同的 key 可能共用一把锁。
+ * 分段模式下同一线程持有读锁时不能再获取同一分段的写锁，嵌套加锁的场景使用精确模式：
+ * 每个 key 一把锁，按引用计数无锁回收。
+ * 同时锁定多个 key 时按分段下标(精确模式按 key)的顺序依次加锁，任一失败时释放已获取的锁。
+ * 互斥锁(REENTRANT、FAIR)支持异步加锁，异步等待者排在同一个队列中，不占用线程
+ *
+ * @author andanyang
+ * @since 2024/3/18 9:40
+ */
+@Slf4j
+public class StripedLockExecutor implements LockExecutor<Object> {
+
+    /**
+     * 默认分段数量
+     */
+    public static final int DEFAULT_STRIPES = 1024;
+
+    private final int mask;
+    private final AsyncReentrantLock[] locks;
+    private final AsyncReentrantLock[] fairLocks;
+    private final ReentrantReadWriteLock[] readWriteLocks;
+
+    /**
+     * 精确模式下 key 对应的锁，分段模式为 null
+     */
+    private final ConcurrentHashMap<String, KeyLock> keyLocks;
+
+    public StripedLockExecutor() {
+        this(DEFAULT_STRIPES, false);
+    }
+
+    /**
+     * @param stripes  分段数量，向上取 2 的幂
+     * @param exactKey 是否精确模式，每个 key 一把锁
+     */
+    public StripedLockExecutor(int stripes, boolean exactKey) {
+
+        if (exactKey) {
+            this.mask = 0;
+            this.locks = null;
+            this.fairLocks = null;
+            this.readWriteLocks = null;
+            this.keyLocks = new ConcurrentHashMap<>(64);
+            return;
+        }
+
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.mask = size - 1;
+        this.locks = new AsyncReentrantLock[size];
+        this.fairLocks = new AsyncReentrantLock[size];
+        this.readWriteLocks = new ReentrantReadWriteLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new AsyncReentrantLock(false);
+            fairLocks[i] = new AsyncReentrantLock(true);
+            readWriteLocks[i] = new ReentrantReadWriteLock();
+        }
+        this.keyLocks = null;
+    }
+
+    /**
+     * 根据锁信息获取锁。精确模式下占用 key 锁的一个引用，解锁或者加锁失败时释放
+     */
+    @Override
+    public void initSetLockInstance(LockInfo lockInfo) {
+
+        if (lockInfo.getLockInstance() != null) {
+            return;
+        }
+        if (lockInfo.isMultiKey()) {
+            lockInfo.setLockInstance(multiKeyLock(lockInfo.getLockKeys(), lockInfo.getLockModel()));
+        } else if (keyLocks == null) {
+            lockInfo.setLockInstance(stripe(stripeIndex(lockInfo.getLockKey()), lockInfo.getLockModel()));
+        } else {
+            lockInfo.setLockInstance(retain(lockInfo.getLockKey(), lockInfo.getLockModel()));
+        }
+    }
+
+    /**
+     * 加锁,获取到锁会block，直到解锁。等待超时抛出 DistributedLockException
+     *
+     * @param lockInfo 锁信息
+     */
+    @Override
+    public void lock(LockInfo lockInfo) {
+
+        Lock lock = getLock(lockInfo);
+        if (lockInfo.getWaitTimeOutSeconds() == -1) {
+            lock.lock();
+        } else if (!tryLock(lock, lockInfo.getWaitTimeOutSeconds(), lockInfo)) {
+            throw new DistributedLockException("failed to acquire lock");
+        }
+        log.debug("striped Lock success {}", lockInfo.getLockKey());
+    }
+
+    /**
+     * 尝试获取锁，waitTimeOutSeconds 小于等于 0 时不等待
+     *
+     * @return true 获取成功，false 获取锁失败
+     */
+    @Override
+    public boolean tryLock(LockInfo lockInfo) {
+
+        boolean tryLock = tryLock(getLock(lockInfo), lockInfo.getWaitTimeOutSeconds(), lockInfo);
+        log.debug("striped tryLock {} {}", tryLock ? "success" : "failed", lockInfo.getLockKey());
+        return tryLock;
+    }
+
+    private boolean tryLock(Lock lock, int waitTimeOutSeconds, LockInfo lockInfo) {
+
+        try {
+            if (waitTimeOutSeconds <= 0 ? lock.tryLock() : lock.tryLock(waitTimeOutSeconds, TimeUnit.SECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            release(lockInfo);
+            Thread.currentThread().interrupt();
+            throw new DistributedLockException(e);
+        }
+        release(lockInfo);
+        return false;
+    }
+
+    /**
+     * 解锁。加锁失败后再次解锁时忽略
+     */
+    @Override
+    public void unlock(LockInfo lockInfo) {
+
+        if (lockInfo.getLockInstance() == null) {
+            return;
+        }
+        getLock(lockInfo).unlock();
+        release(lockInfo);
+        log.debug("striped UnLock success {}", lockInfo.getLockKey());
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return true;
+    }
+
+    /**
+     * 异步加锁，waitTimeOutSeconds 大于 0 时等待超时以 DistributedLockException 异常完成
+     */
+    @Override
+    public CompletionStage<LockHandle> lockAsync(LockInfo lockInfo) {
+        return acquireAsync(lockInfo, lockInfo.getWaitTimeOutSeconds() > 0 ? lockInfo.getWaitTimeOutSeconds() : -1, true);
+    }
+
+    /**
+     * 异步尝试加锁，最多等待 waitTimeOutSeconds，获取失败时为 null
+     */
+    @Override
+    public CompletionStage<LockHandle> tryLockAsync(LockInfo lockInfo) {
+        return acquireAsync(lockInfo, Math.max(0, lockInfo.getWaitTimeOutSeconds()), false);
+    }
+
+    /**
+     * @param waitSeconds 最长等待时间，-1 一直等待
+     */
+    private CompletionStage<LockHandle> acquireAsync(LockInfo lockInfo, int waitSeconds, boolean failOnTimeout) {
+
+        LockModel lockModel = lockInfo.getLockModel();
+        if (lockInfo.isMultiKey() || lockModel == LockModel.READ || lockModel == LockModel.WRITE) {
+            return DefaultLockHandle.failed(new UnSupportException("striped lockAsync only supports single key REENTRANT and FAIR Lock"));
+        }
+
+        String lockKey = lockInfo.getLockKey();
+        KeyLock keyLock = keyLocks == null ? null : retain(lockKey, lockModel);
+        Lock stripe = keyLock == null ? stripe(stripeIndex(lockKey), lockModel) : keyLock.getLock(lockModel);
+        if (!(stripe instanceof AsyncReentrantLock)) {
+            // 同一个 key 正在以读写锁使用
+            release(lockKey, keyLock);
+            return DefaultLockHandle.failed(new UnSupportException("striped lockAsync not supported on READ/WRITE key " + lockKey));
+        }
+
+        AsyncReentrantLock lock = (AsyncReentrantLock) stripe;
+        Object owner = new Object();
+        CompletableFuture<Boolean> acquired = lock.acquireAsync(owner, waitSeconds != 0);
+        if (waitSeconds > 0 && !acquired.isDone()) {
+            ScheduledFuture<?> timeout = Timeout.SCHEDULER.schedule(() -> lock.cancel(acquired), waitSeconds, TimeUnit.SECONDS);
+            acquired.whenComplete((result, e) -> timeout.cancel(false));
+        }
+
+        LockHandle handle = new DefaultLockHandle(lockKey, 0, () -> {
+            lock.release(owner);
+            release(lockKey, keyLock);
+            log.debug("striped async UnLock success {}", lockKey);
+            return CompletableFuture.completedFuture(null);
+        });
+        Function<Boolean, LockHandle> complete = result -> {
+            if (result) {
+                log.debug("striped async Lock success {}", lockKey);
+                return handle;
+            }
+            release(lockKey, keyLock);
+            if (failOnTimeout) {
+                throw new DistributedLockException("failed to acquire lock");
+            }
+            return null;
+        };
+        // 排队后获取到的锁由解锁线程移交，后续操作转到公共线程池执行，不占用解锁线程
+        return acquired.isDone() ? acquired.thenApply(complete) : acquired.thenApplyAsync(complete);
+    }
+
+    /**
+     * 精确模式下当前持有引用的 key 数量，分段模式为分段数量
+     */
+    public int size() {
+        return keyLocks == null ? mask + 1 : keyLocks.size();
+    }
+
+    private Lock getLock(LockInfo lockInfo) {
+
+        Object lockInstance = lockInfo.getLockInstance();
+        if (lockInstance instanceof KeyLock) {
+            return ((KeyLock) lockInstance).getLock(lockInfo.getLockModel());
+        }
+        return (Lock) lockInstance;
+    }
+
+    /**
+     * 释放精确模式的引用，清空锁实例
+     */
+    private void release(LockInfo lockInfo) {
+
+        Object lockInstance = lockInfo.getLockInstance();
+        lockInfo.setLockInstance(null);
+        if (lockInstance instanceof KeyLock) {
+            release(lockInfo.getLockKey(), (KeyLock) lockInstance);
+        } else if (lockInstance instanceof MultiKeyLock) {
+            ((MultiKeyLock) lockInstance).release();
+        }
+    }
+
+    private void release(String key, KeyLock keyLock) {
+
+        if (keyLock != null && keyLock.release()) {
+            keyLocks.remove(key, keyLock);
+        }
+    }
+
+    private int stripeIndex(String key) {
+
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private Lock stripe(int index, LockModel lockModel) {
+
+        switch (lockModel) {
+            case FAIR:
+                return fairLocks[index];
+            case READ:
+                return readWriteLocks[index].readLock();
+            case WRITE:
+                return readWriteLocks[index].writeLock();
+            default:
+                return locks[index];
+        }
+    }
+
+    private KeyLock retain(String key, LockModel lockModel) {
+
+        for (; ; ) {
+            KeyLock keyLock = keyLocks.get(key);
+            if (keyLock == null) {
+                keyLock = new KeyLock(lockModel);
+                KeyLock exist = keyLocks.putIfAbsent(key, keyLock);
+                if (exist == null) {
+                    return keyLock;
+                }
+                keyLock = exist;
+            }
+            if (keyLock.retain()) {
+                return keyLock;
+            }
+            // 引用已经归零，等待回收后重建
+            keyLocks.remove(key, keyLock);
+        }
+    }
+
+    /**
+     * @param keys 按字典序排序的 key
+     */
+    private MultiKeyLock multiKeyLock(List<String> keys, LockModel lockModel) {
+
+        if (keyLocks == null) {
+            // 多个 key 映射到同一分段时只加一次锁
+            int[] indexes = keys.stream().mapToInt(this::stripeIndex).distinct().sorted().toArray();
+            Lock[] locks = new Lock[indexes.length];
+            for (int i = 0; i < indexes.length; i++) {
+                locks[i] = stripe(indexes[i], lockModel);
+            }
+            return new MultiKeyLock(locks, null, null);
+        }
+
+        Lock[] locks = new Lock[keys.size()];
+        KeyLock[] refs = new KeyLock[keys.size()];
+        for (int i = 0; i < refs.length; i++) {
+            refs[i] = retain(keys.get(i), lockModel);
+            locks[i] = refs[i].getLock(lockModel);
+        }
+        return new MultiKeyLock(locks, keys, refs);
+    }
+
+    /**
+     * 多个 key 的锁，依次加锁，任一失败时按相反顺序释放已获取的锁
+     */
+    private final class MultiKeyLock implements Lock {
+
+        private final Lock[] locks;
+        private final List<String> keys;
+        private final KeyLock[] refs;
+
+        MultiKeyLock(Lock[] locks, List<String> keys, KeyLock[] refs) {
+            this.locks = locks;
+            this.keys = keys;
+            this.refs = refs;
+        }
+
+        @Override
+        public void lock() {
+            for (Lock lock : locks) {
+                lock.lock();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            for (int i = 0; i < locks.length; i++) {
+                try {
+                    locks[i].lockInterruptibly();
+                } catch (InterruptedException e) {
+                    unlock(i);
+                    throw e;
+                }
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            for (int i = 0; i < locks.length; i++) {
+                if (!locks[i].tryLock()) {
+                    unlock(i);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+
+            long deadline = System.nanoTime() + unit.toNanos(time);
+            for (int i = 0; i < locks.length; i++) {
+                boolean locked = false;
+                try {
+                    locked = locks[i].tryLock(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } finally {
+                    if (!locked) {
+                        unlock(i);
+                    }
+                }
+                if (!locked) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            unlock(locks.length);
+        }
+
+        /**
+         * 释放前 n 个锁
+         */
+        private void unlock(int n) {
+            for (int i = n - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+
+        /**
+         * 条件队列挂在第一个锁上。等待时先按相反顺序释放其余的锁，再由第一个锁的条件释放并等待，
+         * 唤醒后按顺序重新获取其余的锁。唤醒方需要持有全部锁，等待方释放第一个锁之前无法唤醒，不会丢失信号
+         */
+        @Override
+        public Condition newCondition() {
+            Condition condition = locks[0].newCondition();
+            return locks.length == 1 ? condition : new MultiKeyCondition(this, condition);
+        }
+
+        /**
+         * 按相反顺序释放第一个锁以外的锁
+         */
+        void unlockRest() {
+            for (int i = locks.length - 1; i > 0; i--) {
+                locks[i].unlock();
+            }
+        }
+
+        /**
+         * 持有第一个锁时按顺序重新获取其余的锁，与加锁顺序一致
+         */
+        void lockRest() {
+            for (int i = 1; i < locks.length; i++) {
+                locks[i].lock();
+            }
+        }
+
+        void release() {
+            if (refs == null) {
+                return;
+            }
+            for (int i = 0; i < refs.length; i++) {
+                if (refs[i].release()) {
+                    keyLocks.remove(keys.get(i), refs[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * 多个 key 锁的条件，见 {@link MultiKeyLock#newCondition()}
+     */
+    private static final class MultiKeyCondition implements Condition {
+
+        private final MultiKeyLock lock;
+        private final Condition condition;
+
+        MultiKeyCondition(MultiKeyLock lock, Condition condition) {
+            this.lock = lock;
+            this.condition = condition;
+        }
+
+        @Override
+        public void await() throws InterruptedException {
+            lock.unlockRest();
+            try {
+                condition.await();
+            } finally {
+                lock.lockRest();
+            }
+        }
+
+        @Override
+        public void awaitUninterruptibly() {
+            lock.unlockRest();
+            try {
+                condition.awaitUninterruptibly();
+            } finally {
+                lock.lockRest();
+            }
+        }
+
+        @Override
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            lock.unlockRest();
+            try {
+                return condition.awaitNanos(nanosTimeout);
+            } finally {
+                lock.lockRest();
+            }
+        }
+
+        @Override
+        public boolean await(long time, TimeUnit unit) throws InterruptedException {
+            lock.unlockRest();
+            try {
+                return condition.await(time, unit);
+            } finally {
+                lock.lockRest();
+            }
+        }
+
+        @Override
+        public boolean awaitUntil(Date deadline) throws InterruptedException {
+            lock.unlockRest();
+            try {
+                return condition.awaitUntil(deadline);
+            } finally {
+                lock.lockRest();
+            }
+        }
+
+        @Override
+        public void signal() {
+            condition.signal();
+        }
+
+        @Override
+        public void signalAll() {
+            condition.signalAll();
+        }
+    }
+
+    /**
+     * 异步等待超时，第一次使用时创建
+     */
+    private static final class Timeout {
+
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "striped-lock-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 精确模式的 key 锁，引用归零后不能再被占用
+     */
+    private static final class KeyLock {
+
+        private final AtomicInteger refs = new AtomicInteger(1);
+        private final Lock lock;
+        private final ReentrantReadWriteLock readWriteLock;
+
+        KeyLock(LockModel lockModel) {
+            if (lockModel == LockModel.READ || lockModel == LockModel.WRITE) {
+                this.readWriteLock = new ReentrantReadWriteLock();
+                this.lock = readWriteLock.writeLock();
+            } else {
+                this.readWriteLock = null;
+                this.lock = new AsyncReentrantLock(lockModel == LockModel.FAIR);
+            }
+        }
+
+        /**
+         * 同一个 key 混用锁模式时退化为互斥锁
+         */
+        Lock getLock(LockModel lockModel) {
+            if (lockModel == LockModel.READ && readWriteLock != null) {
+                return readWriteLock.readLock();
+            }
+            return lock;
+        }
+
+        boolean retain() {
+            for (; ; ) {
+                int current = refs.get();
+                if (current <= 0) {
+                    return false;
+                }
+                if (refs.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * @return 引用是否归零
+         */
+        boolean release() {
+            return refs.decrementAndGet() == 0;
+        }
+    }
+}
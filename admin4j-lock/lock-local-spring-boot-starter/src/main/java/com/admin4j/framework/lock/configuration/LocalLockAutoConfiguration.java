@@ -2,9 +2,13 @@ package com.admin4j.framework.lock.configuration;
 
 import com.admin4j.framework.lock.LocalLockExecutor;
 import com.admin4j.framework.lock.LockExecutor;
+import com.admin4j.framework.lock.StripedLockExecutor;
 import com.admin4j.framework.lock.pool.WrapperLockObject;
+import com.admin4j.framework.lock.properties.LocalLockProperties;
 import org.springframework.boot.autoconfigure.AutoConfigureOrder;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 
 /**
@@ -12,11 +16,20 @@ import org.springframework.context.annotation.Bean;
  * @since 2023/4/18 11:10
  */
 @AutoConfigureOrder(700)
+@EnableConfigurationProperties(LocalLockProperties.class)
 public class LocalLockAutoConfiguration {
 
     @Bean("parentLockExecutor")
     @ConditionalOnMissingBean(value = LocalLockExecutor.class, name = "parentLockExecutor")
+    @ConditionalOnProperty(prefix = "admin4j.lock.local", name = "type", havingValue = "pool", matchIfMissing = true)
     public LockExecutor<WrapperLockObject> localLockExecutor() {
         return new LocalLockExecutor();
     }
+
+    @Bean("parentLockExecutor")
+    @ConditionalOnMissingBean(value = StripedLockExecutor.class, name = "parentLockExecutor")
+    @ConditionalOnProperty(prefix = "admin4j.lock.local", name = "type", havingValue = "striped")
+    public LockExecutor<Object> stripedLockExecutor(LocalLockProperties localLockProperties) {
+        return new StripedLockExecutor(localLockProperties.getStripes(), localLockProperties.isExactKey());
+    }
 }
@@ -0,0 +1,29 @@
+package com.admin4j.framework.lock.properties;
+
+import com.admin4j.framework.lock.StripedLockExecutor;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @author andanyang
+ * @since 2024/3/18 10:30
+ */
+@Data
+@ConfigurationProperties(prefix = "admin4j.lock.local")
+public class LocalLockProperties {
+
+    /**
+     * 本地锁实现：pool(默认，对象池)、striped(分段锁)
+     */
+    private String type = "pool";
+
+    /**
+     * 分段数量，向上取 2 的幂
+     */
+    private int stripes = StripedLockExecutor.DEFAULT_STRIPES;
+
+    /**
+     * striped 是否使用精确模式，每个 key 一把锁
+     */
+    private boolean exactKey = false;
+}
@@ -0,0 +1,213 @@
+package com.admin4j.framework.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 两个 LocalFirstLockExecutor 共用一个 StripedLockExecutor，模拟两个节点使用同一个远程锁
+ *
+ * @author andanyang
+ * @since 2024/3/23 9:30
+ */
+public class LocalFirstLockExecutorTest {
+
+    private static final int THREADS = 8;
+    private static final int OPS = 2_000;
+
+    @Test
+    public void testHandoff() throws InterruptedException {
+
+        StripedLockExecutor striped = new StripedLockExecutor(16, true);
+        AtomicInteger remoteLocks = new AtomicInteger();
+        LockExecutor<Object> remote = new LockExecutor<Object>() {
+
+            @Override
+            public void initSetLockInstance(LockInfo lockInfo) {
+                striped.initSetLockInstance(lockInfo);
+            }
+
+            @Override
+            public void lock(LockInfo lockInfo) {
+                striped.lock(lockInfo);
+            }
+
+            @Override
+            public boolean tryLock(LockInfo lockInfo) {
+                return striped.tryLock(lockInfo);
+            }
+
+            @Override
+            public void unlock(LockInfo lockInfo) {
+                striped.unlock(lockInfo);
+            }
+
+            @Override
+            public boolean isAsyncSupported() {
+                return true;
+            }
+
+            @Override
+            public CompletionStage<LockHandle> lockAsync(LockInfo lockInfo) {
+                remoteLocks.incrementAndGet();
+                return striped.lockAsync(lockInfo);
+            }
+        };
+
+        LocalFirstLockExecutor[] nodes = {new LocalFirstLockExecutor(remote, 4), new LocalFirstLockExecutor(remote, 4)};
+        int[] counter = new int[1];
+        CountDownLatch countDownLatch = new CountDownLatch(THREADS * nodes.length);
+        for (LocalFirstLockExecutor node : nodes) {
+            for (int t = 0; t < THREADS; t++) {
+                new Thread(() -> {
+                    for (int n = 0; n < OPS; n++) {
+                        LockInfo lockInfo = new LockInfo();
+                        lockInfo.setLockKey("key");
+                        node.initSetLockInstance(lockInfo);
+                        node.lock(lockInfo);
+                        try {
+                            counter[0]++;
+                        } finally {
+                            node.unlock(lockInfo);
+                        }
+                    }
+                    countDownLatch.countDown();
+                }).start();
+            }
+        }
+        countDownLatch.await();
+
+        int total = THREADS * nodes.length * OPS;
+        Assert.assertEquals(total, counter[0]);
+        // 每获取一次远程锁最多被 1 + maxHandoffs 个线程使用，有移交时远程加锁次数少于加锁次数
+        Assert.assertTrue("remote locks: " + remoteLocks.get(), remoteLocks.get() >= total / 5);
+        Assert.assertTrue("remote locks: " + remoteLocks.get(), remoteLocks.get() < total);
+
+        Assert.assertEquals(0, nodes[0].size());
+        Assert.assertEquals(0, nodes[1].size());
+        // 远程锁已经全部释放
+        Assert.assertEquals(0, striped.size());
+    }
+
+    @Test
+    public void testReentrantAndTryLock() {
+
+        StripedLockExecutor striped = new StripedLockExecutor(16, true);
+        LocalFirstLockExecutor executor = new LocalFirstLockExecutor(striped);
+
+        LockInfo outer = new LockInfo();
+        outer.setLockKey("key");
+        executor.initSetLockInstance(outer);
+        executor.lock(outer);
+
+        LockInfo inner = new LockInfo();
+        inner.setLockKey("key");
+        executor.initSetLockInstance(inner);
+        executor.lock(inner);
+        executor.unlock(inner);
+
+        // 远程锁仍被持有
+        LockInfo remote = new LockInfo();
+        remote.setLockKey("key");
+        remote.setWaitTimeOutSeconds(0);
+        Assert.assertNull(striped.tryLockAsync(remote).toCompletableFuture().join());
+
+        executor.unlock(outer);
+        Assert.assertEquals(0, executor.size());
+
+        LockInfo tryLockInfo = new LockInfo();
+        tryLockInfo.setLockKey("key");
+        tryLockInfo.setWaitTimeOutSeconds(0);
+        executor.initSetLockInstance(tryLockInfo);
+        Assert.assertTrue(executor.tryLock(tryLockInfo));
+        executor.unlock(tryLockInfo);
+        Assert.assertEquals(0, striped.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectSyncOnlyDelegate() {
+        new LocalFirstLockExecutor(new LocalLockExecutor());
+    }
+
+    /**
+     * 带 fencing token 的远程锁同样移交，移交后沿用同一个 token，token 不减
+     */
+    @Test
+    public void testFencingTokenHandedOff() throws InterruptedException {
+
+        StripedLockExecutor striped = new StripedLockExecutor(16, true);
+        AtomicLong fencing = new AtomicLong();
+        AtomicInteger remoteLocks = new AtomicInteger();
+        LockExecutor<Object> remote = new LockExecutor<Object>() {
+
+            @Override
+            public void initSetLockInstance(LockInfo lockInfo) {
+                striped.initSetLockInstance(lockInfo);
+            }
+
+            @Override
+            public void lock(LockInfo lockInfo) {
+                striped.lock(lockInfo);
+            }
+
+            @Override
+            public boolean tryLock(LockInfo lockInfo) {
+                return striped.tryLock(lockInfo);
+            }
+
+            @Override
+            public void unlock(LockInfo lockInfo) {
+                striped.unlock(lockInfo);
+            }
+
+            @Override
+            public boolean isAsyncSupported() {
+                return true;
+            }
+
+            @Override
+            public CompletionStage<LockHandle> lockAsync(LockInfo lockInfo) {
+                remoteLocks.incrementAndGet();
+                return striped.lockAsync(lockInfo).thenApply(handle ->
+                        new DefaultLockHandle(handle.getLockKey(), fencing.incrementAndGet(), handle::unlockAsync));
+            }
+        };
+
+        LocalFirstLockExecutor executor = new LocalFirstLockExecutor(remote, 4);
+        List<Long> tokens = new ArrayList<>();
+        CountDownLatch countDownLatch = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            new Thread(() -> {
+                for (int n = 0; n < 200; n++) {
+                    LockInfo lockInfo = new LockInfo();
+                    lockInfo.setLockKey("key");
+                    executor.initSetLockInstance(lockInfo);
+                    executor.lock(lockInfo);
+                    try {
+                        tokens.add(lockInfo.getFencingToken());
+                    } finally {
+                        executor.unlock(lockInfo);
+                    }
+                }
+                countDownLatch.countDown();
+            }).start();
+        }
+        countDownLatch.await();
+
+        Assert.assertEquals(THREADS * 200, tokens.size());
+        for (int i = 1; i < tokens.size(); i++) {
+            Assert.assertTrue(tokens.get(i) >= tokens.get(i - 1));
+        }
+        // 每个 token 对应一次远程加锁，最多被 5 个持有者使用
+        Assert.assertEquals(remoteLocks.get(), fencing.get());
+        Assert.assertTrue(remoteLocks.get() >= THREADS * 200 / 5);
+        Assert.assertTrue(remoteLocks.get() < THREADS * 200);
+        Assert.assertEquals(0, striped.size());
+    }
+}
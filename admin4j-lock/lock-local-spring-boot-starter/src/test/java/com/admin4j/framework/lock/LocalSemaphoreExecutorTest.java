@@ -0,0 +1,60 @@
+package com.admin4j.framework.lock;
+
+import com.admin4j.framework.lock.semaphore.SemaphorePermit;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author andanyang
+ * @since 2024/3/26 11:00
+ */
+public class LocalSemaphoreExecutorTest {
+
+    @Test
+    public void testMaxConcurrency() throws InterruptedException {
+
+        LocalSemaphoreExecutor executor = new LocalSemaphoreExecutor();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch countDownLatch = new CountDownLatch(8);
+        for (int t = 0; t < 8; t++) {
+            new Thread(() -> {
+                for (int n = 0; n < 50; n++) {
+                    SemaphorePermit permit = executor.tryAcquire("partner", 3, 1, -1, -1);
+                    try {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        Thread.yield();
+                        running.decrementAndGet();
+                    } finally {
+                        permit.release();
+                        // 重复释放时忽略
+                        permit.release();
+                    }
+                }
+                countDownLatch.countDown();
+            }).start();
+        }
+        countDownLatch.await();
+        Assert.assertTrue(maxRunning.get() <= 3);
+        Assert.assertEquals(3, executor.availablePermits("partner"));
+    }
+
+    @Test
+    public void testTimeoutAndLease() throws InterruptedException {
+
+        LocalSemaphoreExecutor executor = new LocalSemaphoreExecutor();
+        SemaphorePermit held = executor.tryAcquire("partner", 2, 2, 0, 200);
+        Assert.assertNotNull(held);
+        Assert.assertNull(executor.tryAcquire("partner", 2, 1, 50, -1));
+
+        // 到期后自动释放
+        SemaphorePermit permit = executor.tryAcquire("partner", 2, 1, 5_000, -1);
+        Assert.assertNotNull(permit);
+        permit.release();
+        held.release();
+        Assert.assertEquals(2, executor.availablePermits("partner"));
+    }
+}
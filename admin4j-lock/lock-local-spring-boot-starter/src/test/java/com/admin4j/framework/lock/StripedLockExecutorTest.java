@@ -0,0 +1,366 @@
+package com.admin4j.framework.lock;
+
+import com.admin4j.framework.lock.constant.LockModel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.function.IntFunction;
+
+/**
+ * @author andanyang
+ * @since 2024/3/18 11:00
+ */
+public class StripedLockExecutorTest {
+
+    private static LockInfo lockInfo(String lockKey, LockModel lockModel) {
+
+        LockInfo lockInfo = new LockInfo();
+        lockInfo.setLockKey(lockKey);
+        lockInfo.setLockModel(lockModel);
+        return lockInfo;
+    }
+
+    @Test
+    public void testMutualExclusion() throws InterruptedException {
+
+        for (StripedLockExecutor executor : new StripedLockExecutor[]{new StripedLockExecutor(), new StripedLockExecutor(16, true)}) {
+            int[] counter = new int[1];
+            run(executor, 4, 10_000, i -> "key", () -> counter[0]++);
+            Assert.assertEquals(40_000, counter[0]);
+            if (executor.size() != 1024) {
+                // 精确模式解锁后回收全部 key
+                Assert.assertEquals(0, executor.size());
+            }
+        }
+    }
+
+    @Test
+    public void testReadWrite() throws InterruptedException {
+
+        StripedLockExecutor executor = new StripedLockExecutor(16, true);
+        LockInfo read = lockInfo("rw", LockModel.READ);
+        executor.initSetLockInstance(read);
+        executor.lock(read);
+
+        // 读锁共享，写锁互斥
+        boolean[] result = new boolean[2];
+        Thread thread = new Thread(() -> {
+            LockInfo otherRead = lockInfo("rw", LockModel.READ);
+            executor.initSetLockInstance(otherRead);
+            result[0] = executor.tryLock(otherRead);
+            executor.unlock(otherRead);
+
+            LockInfo write = lockInfo("rw", LockModel.WRITE);
+            executor.initSetLockInstance(write);
+            result[1] = executor.tryLock(write);
+            // 获取失败后解锁被忽略
+            executor.unlock(write);
+        });
+        thread.start();
+        thread.join();
+        executor.unlock(read);
+
+        Assert.assertTrue(result[0]);
+        Assert.assertFalse(result[1]);
+        Assert.assertEquals(0, executor.size());
+    }
+
+    @Test
+    public void testMultiKey() throws InterruptedException {
+
+        for (StripedLockExecutor executor : new StripedLockExecutor[]{new StripedLockExecutor(), new StripedLockExecutor(16, true)}) {
+            LockInfo held = lockInfo("b", LockModel.REENTRANT);
+            executor.initSetLockInstance(held);
+            executor.lock(held);
+
+            boolean[] result = new boolean[2];
+            Thread thread = new Thread(() -> {
+                // b 被占用，全部失败，不占用 a
+                LockInfo all = lockInfo(null, LockModel.REENTRANT);
+                all.setLockKeys(Arrays.asList("b", "a", "b"));
+                executor.initSetLockInstance(all);
+                result[0] = executor.tryLock(all);
+
+                LockInfo a = lockInfo("a", LockModel.REENTRANT);
+                executor.initSetLockInstance(a);
+                result[1] = executor.tryLock(a);
+                executor.unlock(a);
+            });
+            thread.start();
+            thread.join();
+            executor.unlock(held);
+
+            Assert.assertFalse(result[0]);
+            Assert.assertTrue(result[1]);
+
+            int[] counter = new int[1];
+            run(executor, 4, 10_000, i -> null, () -> counter[0]++, Arrays.asList("a", "b", "c"));
+            Assert.assertEquals(40_000, counter[0]);
+        }
+    }
+
+    @Test
+    public void testLockAsync() throws InterruptedException, ExecutionException {
+
+        for (StripedLockExecutor executor : new StripedLockExecutor[]{new StripedLockExecutor(), new StripedLockExecutor(16, true)}) {
+            LockInfo held = lockInfo("async", LockModel.REENTRANT);
+            executor.initSetLockInstance(held);
+            executor.lock(held);
+
+            // 排队等待，不占用线程
+            CompletableFuture<LockHandle> future = executor.lockAsync(lockInfo("async", LockModel.REENTRANT)).toCompletableFuture();
+            Assert.assertFalse(future.isDone());
+            executor.unlock(held);
+            LockHandle handle = future.get();
+
+            // 异步持有期间同步加锁失败，在其他线程解锁
+            boolean[] result = new boolean[1];
+            Thread thread = new Thread(() -> {
+                LockInfo other = lockInfo("async", LockModel.REENTRANT);
+                executor.initSetLockInstance(other);
+                result[0] = executor.tryLock(other);
+                handle.unlock();
+            });
+            thread.start();
+            thread.join();
+            Assert.assertFalse(result[0]);
+
+            executor.initSetLockInstance(held);
+            executor.lock(held);
+            Assert.assertNull(executor.tryLockAsync(lockInfo("async", LockModel.REENTRANT)).toCompletableFuture().get());
+            CompletableFuture<LockHandle> timeout = executor.tryLockAsync(withWait(lockInfo("async", LockModel.REENTRANT), 1)).toCompletableFuture();
+            Assert.assertNull(timeout.get());
+            executor.unlock(held);
+
+            executor.tryLockAsync(lockInfo("async", LockModel.REENTRANT)).toCompletableFuture().get().unlock();
+            if (executor.size() != 1024) {
+                Assert.assertEquals(0, executor.size());
+            }
+        }
+    }
+
+    private static LockInfo withWait(LockInfo lockInfo, int waitTimeOutSeconds) {
+
+        lockInfo.setWaitTimeOutSeconds(waitTimeOutSeconds);
+        return lockInfo;
+    }
+
+    /**
+     * 多个 key 可中断加锁，中断时释放已获取的锁
+     */
+    @Test
+    public void testMultiKeyLockInterruptibly() throws InterruptedException {
+
+        for (StripedLockExecutor executor : new StripedLockExecutor[]{new StripedLockExecutor(), new StripedLockExecutor(16, true)}) {
+            LockInfo held = lockInfo("c", LockModel.REENTRANT);
+            executor.initSetLockInstance(held);
+            executor.lock(held);
+
+            boolean[] result = new boolean[2];
+            CountDownLatch waiting = new CountDownLatch(1);
+            Thread thread = new Thread(() -> {
+                LockInfo all = lockInfo(null, LockModel.REENTRANT);
+                all.setLockKeys(Arrays.asList("a", "b", "c"));
+                executor.initSetLockInstance(all);
+                waiting.countDown();
+                try {
+                    ((Lock) all.getLockInstance()).lockInterruptibly();
+                } catch (InterruptedException e) {
+                    result[0] = true;
+                }
+                // 中断后 a、b 已释放
+                LockInfo a = lockInfo("a", LockModel.REENTRANT);
+                executor.initSetLockInstance(a);
+                result[1] = executor.tryLock(a);
+                executor.unlock(a);
+            });
+            thread.start();
+            waiting.await();
+            Thread.sleep(100);
+            thread.interrupt();
+            thread.join();
+            executor.unlock(held);
+
+            Assert.assertTrue(result[0]);
+            Assert.assertTrue(result[1]);
+        }
+    }
+
+    @Test
+    public void testCondition() throws InterruptedException {
+
+        for (boolean fair : new boolean[]{false, true}) {
+            AsyncReentrantLock lock = new AsyncReentrantLock(fair);
+            Condition condition = lock.newCondition();
+            // 0: 已进入等待，1: 条件满足
+            boolean[] state = new boolean[2];
+            boolean[] result = new boolean[2];
+            Thread thread = new Thread(() -> {
+                lock.lock();
+                lock.lock();
+                try {
+                    state[0] = true;
+                    while (!state[1]) {
+                        condition.awaitUninterruptibly();
+                    }
+                    // 唤醒后恢复重入次数，解锁一次仍然持有
+                    lock.unlock();
+                    result[0] = lock.isLocked();
+                } finally {
+                    lock.unlock();
+                }
+            });
+            thread.start();
+
+            // 等待期间锁被释放，其他线程可以加锁并唤醒
+            for (boolean signalled = false; !signalled; Thread.sleep(10)) {
+                lock.lock();
+                try {
+                    if (state[0]) {
+                        state[1] = true;
+                        condition.signal();
+                        signalled = true;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            thread.join();
+            Assert.assertTrue(result[0]);
+            Assert.assertFalse(lock.isLocked());
+
+            lock.lock();
+            try {
+                result[1] = condition.await(50, TimeUnit.MILLISECONDS);
+                Assert.assertTrue(lock.tryLock());
+                lock.unlock();
+            } finally {
+                lock.unlock();
+            }
+            Assert.assertFalse(result[1]);
+            Assert.assertFalse(lock.isLocked());
+        }
+
+        AsyncReentrantLock lock = new AsyncReentrantLock(false);
+        try {
+            lock.newCondition().signal();
+            Assert.fail();
+        } catch (IllegalMonitorStateException ignored) {
+            // 未持有锁
+        }
+    }
+
+    /**
+     * 多个 key 锁的条件，等待时释放全部 key，唤醒后重新持有
+     */
+    @Test
+    public void testMultiKeyCondition() throws InterruptedException {
+
+        for (StripedLockExecutor executor : new StripedLockExecutor[]{new StripedLockExecutor(), new StripedLockExecutor(16, true)}) {
+            LockInfo all = lockInfo(null, LockModel.REENTRANT);
+            all.setLockKeys(Arrays.asList("a", "b", "c"));
+            executor.initSetLockInstance(all);
+            Lock lock = (Lock) all.getLockInstance();
+            Condition condition = lock.newCondition();
+
+            // 0: 已进入等待，1: 条件满足，2: 唤醒后仍持有 c
+            boolean[] state = new boolean[3];
+            Thread thread = new Thread(() -> {
+                lock.lock();
+                try {
+                    state[0] = true;
+                    while (!state[1]) {
+                        condition.awaitUninterruptibly();
+                    }
+                    state[2] = !tryLockInOtherThread(executor, "c");
+                } finally {
+                    lock.unlock();
+                }
+            });
+            thread.start();
+
+            // 进入等待后释放了全部 key，其他线程可以加锁
+            for (boolean waiting = false; !waiting; Thread.sleep(10)) {
+                lock.lock();
+                try {
+                    waiting = state[0];
+                } finally {
+                    lock.unlock();
+                }
+            }
+            Assert.assertTrue(tryLockInOtherThread(executor, "c"));
+
+            lock.lock();
+            try {
+                state[1] = true;
+                condition.signal();
+            } finally {
+                lock.unlock();
+            }
+            thread.join();
+            Assert.assertTrue(state[2]);
+
+            // 超时返回 false，仍然持有全部 key
+            executor.lock(all);
+            try {
+                Assert.assertFalse(condition.await(50, TimeUnit.MILLISECONDS));
+                Assert.assertFalse(tryLockInOtherThread(executor, "a"));
+            } finally {
+                executor.unlock(all);
+            }
+            Assert.assertTrue(tryLockInOtherThread(executor, "a"));
+        }
+    }
+
+    private static boolean tryLockInOtherThread(StripedLockExecutor executor, String key) {
+
+        CompletableFuture<Boolean> result = CompletableFuture.supplyAsync(() -> {
+            LockInfo lockInfo = lockInfo(key, LockModel.REENTRANT);
+            executor.initSetLockInstance(lockInfo);
+            boolean locked = executor.tryLock(lockInfo);
+            if (locked) {
+                executor.unlock(lockInfo);
+            }
+            return locked;
+        });
+        return result.join();
+    }
+
+    private static void run(LockExecutor<?> executor, int threads, int ops, IntFunction<String> key,
+                            Runnable runnable) throws InterruptedException {
+        run(executor, threads, ops, key, runnable, null);
+    }
+
+    private static void run(LockExecutor<?> executor, int threads, int ops, IntFunction<String> key,
+                            Runnable runnable, List<String> lockKeys) throws InterruptedException {
+
+        CountDownLatch countDownLatch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int n = 0; n < ops; n++) {
+                    LockInfo lockInfo = lockInfo(key.apply(n), LockModel.REENTRANT);
+                    if (lockKeys != null) {
+                        lockInfo.setLockKeys(lockKeys);
+                    }
+                    executor.initSetLockInstance(lockInfo);
+                    executor.lock(lockInfo);
+                    try {
+                        runnable.run();
+                    } finally {
+                        executor.unlock(lockInfo);
+                    }
+                }
+                countDownLatch.countDown();
+            }).start();
+        }
+        countDownLatch.await();
+    }
+}
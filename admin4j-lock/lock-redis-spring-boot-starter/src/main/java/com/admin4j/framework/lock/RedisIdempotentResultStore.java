@@ -0,0 +1,59 @@
+package com.admin4j.framework.lock;
+
+import com.admin4j.framework.lock.idempotent.IdempotentResultStore;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 基于 redis 的幂等返回值存储。返回值为 null 时保存空值，与未保存区分
+ *
+ * @author andanyang
+ * @since 2024/3/25 10:00
+ */
+public class RedisIdempotentResultStore implements IdempotentResultStore {
+
+    private static final String RESULT_SUFFIX = ":IR";
+    private static final byte[] EMPTY = new byte[0];
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisSerializer<Object> serializer;
+
+    public RedisIdempotentResultStore(StringRedisTemplate stringRedisTemplate) {
+        this(stringRedisTemplate, RedisSerializer.java());
+    }
+
+    public RedisIdempotentResultStore(StringRedisTemplate stringRedisTemplate, RedisSerializer<Object> serializer) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.serializer = serializer;
+    }
+
+    @Override
+    public Stored get(String key) {
+
+        byte[] resultKey = resultKey(key);
+        byte[] raw = stringRedisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(resultKey));
+        if (raw == null) {
+            return null;
+        }
+        return new Stored(raw.length == 0 ? null : serializer.deserialize(raw));
+    }
+
+    @Override
+    public void put(String key, Object value, long ttlMillis) {
+
+        byte[] resultKey = resultKey(key);
+        byte[] payload = value == null ? null : serializer.serialize(value);
+        byte[] raw = payload == null ? EMPTY : payload;
+        stringRedisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands()
+                .set(resultKey, raw, Expiration.milliseconds(ttlMillis), RedisStringCommands.SetOption.upsert()));
+    }
+
+    private static byte[] resultKey(String key) {
+        return (key + RESULT_SUFFIX).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,524 @@
+package com.admin4j.framework.lock;
+
+import com.admin4j.framework.lock.exception.DistributedLockException;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scripting.support.ResourceScriptSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于 StringRedisTemplate 的分布式锁，复用应用的 redis 连接，不需要 redisson。
+ * 加锁等价于 SET NX PX，同时生成单调递增的 fencing token；解锁、续期使用 lua 脚本校验持有者。
+ * 等待锁的线程通过 pub/sub 的解锁通知唤醒，不轮询；异步加锁的等待者收到通知后在调度线程中重试，不占用线程。
+ * 同一线程可重入；只支持互斥锁，FAIR、READ、WRITE 按互斥锁处理。
+ * 同时锁定多个 key 时在一次脚本调用中全部获取或者全部失败，redis cluster 中多个 key 需要使用相同的 hash tag
+ *
+ * @author andanyang
+ * @since 2024/3/19 9:00
+ */
+@Slf4j
+public class RedisLockExecutor extends AbstractParentLockExecutor<String> implements InitializingBean, DisposableBean {
+
+    /**
+     * 未指定 leaseTime 时的租期，持有期间每 1/3 租期续期一次
+     */
+    public static final long DEFAULT_LEASE_MILLIS = 30_000;
+    /**
+     * 解锁通知 channel，消息为锁 key
+     */
+    public static final String UNLOCK_CHANNEL = "DL:UNLOCK";
+    /**
+     * 丢失解锁通知时最长的等待时间
+     */
+    private static final long MAX_PARK_MILLIS = 5_000;
+    private static final String FENCING_SUFFIX = ":F";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    /**
+     * 未指定 leaseTime 时的租期，毫秒
+     */
+    @Setter
+    private long defaultLeaseMillis = DEFAULT_LEASE_MILLIS;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final AtomicLong asyncId = new AtomicLong();
+
+    /**
+     * 当前节点持有的锁
+     */
+    private final ConcurrentHashMap<String, Holder> holders = new ConcurrentHashMap<>();
+    /**
+     * 当前节点等待锁的线程和异步等待者
+     */
+    private final ConcurrentHashMap<String, List<Object>> waiters = new ConcurrentHashMap<>();
+
+    private RedisScript<Long> lockScript;
+    private RedisScript<Long> unlockScript;
+    private RedisScript<Long> renewScript;
+    private RedisMessageListenerContainer listenerContainer;
+    /**
+     * 续期和异步加锁的调度线程
+     */
+    private ScheduledExecutorService scheduler;
+
+    public RedisLockExecutor(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    /**
+     * fencing token 计数 key，与锁 key 在 redis cluster 的同一个 slot。
+     * 锁 key 包含 '}' 但没有 hash tag 时无法保证同一个 slot
+     */
+    static String fencingKey(String lockKey) {
+        return hashTagged(lockKey, FENCING_SUFFIX);
+    }
+
+    /**
+     * 与 key 在同一个 slot 的关联 key
+     */
+    static String hashTagged(String key, String suffix) {
+
+        if (key.indexOf('}') >= 0) {
+            return key + suffix;
+        }
+        return "{" + key + "}" + suffix;
+    }
+
+    private static RedisScript<Long> loadScript(String scriptName) {
+
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource(scriptName)));
+        script.setResultType(Long.class);
+        return script;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+
+        this.lockScript = loadScript("lock/Lock.lua");
+        this.unlockScript = loadScript("lock/Unlock.lua");
+        this.renewScript = loadScript("lock/Renew.lua");
+        this.scheduler = Executors.newScheduledThreadPool(2, r -> {
+            Thread thread = new Thread(r, "redis-lock-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(stringRedisTemplate.getRequiredConnectionFactory());
+            container.addMessageListener((message, pattern) -> wakeUp(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(UNLOCK_CHANNEL));
+            container.afterPropertiesSet();
+            container.start();
+            this.listenerContainer = container;
+        } catch (Exception e) {
+            // 没有解锁通知时按锁的剩余租期等待
+            log.warn("redis lock subscribe {} failed: {}", UNLOCK_CHANNEL, e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    protected String getLockInstanceSelf(LockInfo lockInfo) {
+        return lockInfo.getLockKey();
+    }
+
+    /**
+     * 加锁,获取到锁会block，直到解锁
+     *
+     * @param lockInfo 锁信息
+     */
+    @Override
+    protected void lockSelf(LockInfo lockInfo) {
+
+        acquire(lockInfo, -1);
+        log.debug("redis Lock success {}", lockInfo.getLockKey());
+    }
+
+    /**
+     * 尝试获取锁，最多等待 waitTimeOutSeconds
+     *
+     * @return true 获取成功，false 获取锁失败
+     */
+    @Override
+    protected boolean tryLockSelf(LockInfo lockInfo) {
+
+        long waitMillis = lockInfo.getWaitTimeOutSeconds() <= 0 ? 0 : TimeUnit.SECONDS.toMillis(lockInfo.getWaitTimeOutSeconds());
+        boolean tryLock = acquire(lockInfo, waitMillis);
+        if (tryLock) {
+            log.debug("redis tryLock success {}", lockInfo.getLockKey());
+        } else {
+            log.debug("redis tryLock failed {}", lockInfo.getLockKey());
+        }
+        return tryLock;
+    }
+
+    /**
+     * 解锁，当前线程未持有锁时忽略
+     */
+    @Override
+    protected void unlockSelf(LockInfo lockInfo) {
+
+        String key = (String) lockInfo.getLockInstance();
+        Holder holder = holders.get(key);
+        if (holder == null || holder.thread != Thread.currentThread()) {
+            return;
+        }
+        if (--holder.count > 0) {
+            return;
+        }
+        holders.remove(key, holder);
+        release(key, holder);
+        log.debug("redis UnLock success {}", lockInfo.getLockKey());
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return true;
+    }
+
+    /**
+     * 异步加锁，waitTimeOutSeconds 大于 0 时等待超时以 DistributedLockException 异常完成
+     */
+    @Override
+    public CompletionStage<LockHandle> lockAsync(LockInfo lockInfo) {
+
+        long waitMillis = lockInfo.getWaitTimeOutSeconds() > 0 ? TimeUnit.SECONDS.toMillis(lockInfo.getWaitTimeOutSeconds()) : -1;
+        return acquireAsync(lockInfo, waitMillis, true);
+    }
+
+    /**
+     * 异步尝试加锁，最多等待 waitTimeOutSeconds，获取失败时为 null
+     */
+    @Override
+    public CompletionStage<LockHandle> tryLockAsync(LockInfo lockInfo) {
+
+        long waitMillis = lockInfo.getWaitTimeOutSeconds() <= 0 ? 0 : TimeUnit.SECONDS.toMillis(lockInfo.getWaitTimeOutSeconds());
+        return acquireAsync(lockInfo, waitMillis, false);
+    }
+
+    /**
+     * 当前线程持有的锁的 fencing token，未持有时返回 0
+     */
+    public long currentFencingToken(String lockKey) {
+
+        Holder holder = holders.get(lockKey);
+        return holder != null && holder.thread == Thread.currentThread() ? holder.token : 0;
+    }
+
+    /**
+     * @param waitMillis 最长等待时间，-1 一直等待
+     */
+    private boolean acquire(LockInfo lockInfo, long waitMillis) {
+
+        String key = (String) lockInfo.getLockInstance();
+        Thread thread = Thread.currentThread();
+        Holder holder = holders.get(key);
+        if (holder != null && holder.thread == thread) {
+            // 重入
+            holder.count++;
+            lockInfo.setFencingToken(holder.token);
+            return true;
+        }
+
+        List<String> keys = lockInfo.isMultiKey() ? lockInfo.getLockKeys() : Collections.singletonList(key);
+        long leaseMillis = lockInfo.getLeaseTime() > 0 ? TimeUnit.SECONDS.toMillis(lockInfo.getLeaseTime()) : defaultLeaseMillis;
+        String owner = instanceId + ":" + thread.getId();
+        long result = tryAcquire(keys, owner, leaseMillis);
+        if (result <= 0 && waitMillis != 0) {
+            result = await(keys, owner, leaseMillis, result, waitMillis);
+        }
+        if (result <= 0) {
+            return false;
+        }
+
+        holder = holder(thread, keys, owner, result, leaseMillis, lockInfo.getLeaseTime() <= 0);
+        holders.put(key, holder);
+        lockInfo.setFencingToken(result);
+        return true;
+    }
+
+    /**
+     * 异步加锁，所有 redis 调用都在调度线程中执行
+     *
+     * @param waitMillis 最长等待时间，-1 一直等待
+     */
+    private CompletionStage<LockHandle> acquireAsync(LockInfo lockInfo, long waitMillis, boolean failOnTimeout) {
+
+        List<String> keys = lockInfo.isMultiKey() ? lockInfo.getLockKeys() : Collections.singletonList(lockInfo.getLockKey());
+        long leaseMillis = lockInfo.getLeaseTime() > 0 ? TimeUnit.SECONDS.toMillis(lockInfo.getLeaseTime()) : defaultLeaseMillis;
+        long deadline = waitMillis < 0 ? Long.MAX_VALUE : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        AsyncWaiter waiter = new AsyncWaiter(lockInfo.getLockKey(), keys, instanceId + ":a" + asyncId.incrementAndGet(),
+                leaseMillis, lockInfo.getLeaseTime() <= 0, deadline, failOnTimeout);
+        scheduler.execute(waiter);
+        return waiter.future;
+    }
+
+    private Holder holder(Thread thread, List<String> keys, String owner, long token, long leaseMillis, boolean renew) {
+
+        Holder holder = new Holder(thread, keys, token, owner + ":" + token);
+        if (renew) {
+            long period = leaseMillis / 3;
+            holder.renewal = scheduler.scheduleAtFixedRate(() -> renew(holder, leaseMillis), period, period, TimeUnit.MILLISECONDS);
+        }
+        return holder;
+    }
+
+    private void release(String key, Holder holder) {
+
+        if (holder.renewal != null) {
+            holder.renewal.cancel(false);
+        }
+        Long result = stringRedisTemplate.execute(unlockScript, holder.keys, holder.value, UNLOCK_CHANNEL);
+        if (result == null || result < holder.keys.size()) {
+            log.warn("redis lock {} expired before unlock, fencing token {}", key, holder.token);
+        }
+    }
+
+    /**
+     * 等待解锁通知后重试
+     *
+     * @param result 上一次加锁结果，锁剩余租期的负数
+     * @return 加锁结果
+     */
+    private long await(List<String> keys, String owner, long leaseMillis, long result, long waitMillis) {
+
+        Thread thread = Thread.currentThread();
+        long deadline = waitMillis < 0 ? Long.MAX_VALUE : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        register(keys, thread);
+        try {
+            for (; ; ) {
+                // 注册后再重试一次，避免错过注册之前的解锁通知
+                result = tryAcquire(keys, owner, leaseMillis);
+                if (result > 0) {
+                    return result;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return result;
+                }
+                long parkMillis = result < 0 ? Math.min(-result, MAX_PARK_MILLIS) : MAX_PARK_MILLIS;
+                LockSupport.parkNanos(this, Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(parkMillis)));
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new DistributedLockException(new InterruptedException("redis lock interrupted: " + keys));
+                }
+            }
+        } finally {
+            unregister(keys, thread);
+        }
+    }
+
+    private void register(List<String> keys, Object waiter) {
+
+        for (String key : keys) {
+            waiters.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(waiter);
+        }
+    }
+
+    private void unregister(List<String> keys, Object waiter) {
+
+        for (String key : keys) {
+            waiters.computeIfPresent(key, (k, list) -> {
+                list.remove(waiter);
+                return list.isEmpty() ? null : list;
+            });
+        }
+    }
+
+    private long tryAcquire(List<String> keys, String owner, long leaseMillis) {
+
+        List<String> scriptKeys = new ArrayList<>(keys.size() * 2);
+        scriptKeys.addAll(keys);
+        for (String key : keys) {
+            scriptKeys.add(fencingKey(key));
+        }
+        Long result = stringRedisTemplate.execute(lockScript, scriptKeys, owner, Long.toString(leaseMillis));
+        return result == null ? 0 : result;
+    }
+
+    private void renew(Holder holder, long leaseMillis) {
+
+        try {
+            Long result = stringRedisTemplate.execute(renewScript, holder.keys, holder.value, Long.toString(leaseMillis));
+            if (result == null || result < holder.keys.size()) {
+                log.warn("redis lock {} lost, fencing token {}", holder.keys, holder.token);
+                holder.renewal.cancel(false);
+            }
+        } catch (Exception e) {
+            // 下一个周期重试
+            log.warn("redis lock {} renew failed: {}", holder.keys, e.getMessage());
+        }
+    }
+
+    private void wakeUp(String key) {
+
+        List<Object> list = waiters.get(key);
+        if (list == null) {
+            return;
+        }
+        for (Object waiter : list) {
+            if (waiter instanceof Thread) {
+                LockSupport.unpark((Thread) waiter);
+            } else {
+                ((AsyncWaiter) waiter).wakeUp();
+            }
+        }
+    }
+
+    /**
+     * 异步等待者。加锁失败后按锁的剩余租期安排重试，收到解锁通知时提前重试；同一时刻只有一次重试在执行
+     */
+    private final class AsyncWaiter implements Runnable {
+
+        private final String lockKey;
+        private final List<String> keys;
+        private final String owner;
+        private final long leaseMillis;
+        private final boolean renew;
+        private final long deadline;
+        private final boolean failOnTimeout;
+        private final CompletableFuture<LockHandle> future = new CompletableFuture<>();
+        private boolean registered;
+        private volatile boolean notified;
+        private volatile ScheduledFuture<?> retry;
+
+        AsyncWaiter(String lockKey, List<String> keys, String owner, long leaseMillis, boolean renew, long deadline,
+                    boolean failOnTimeout) {
+            this.lockKey = lockKey;
+            this.keys = keys;
+            this.owner = owner;
+            this.leaseMillis = leaseMillis;
+            this.renew = renew;
+            this.deadline = deadline;
+            this.failOnTimeout = failOnTimeout;
+        }
+
+        @Override
+        public void run() {
+
+            notified = false;
+            long result;
+            try {
+                result = tryAcquire(keys, owner, leaseMillis);
+                if (result <= 0 && !registered && deadline - System.nanoTime() > 0) {
+                    // 注册后再重试一次，避免错过注册之前的解锁通知
+                    register(keys, this);
+                    registered = true;
+                    result = tryAcquire(keys, owner, leaseMillis);
+                }
+            } catch (Exception e) {
+                complete(null, e);
+                return;
+            }
+
+            if (result > 0) {
+                Holder holder = holder(null, keys, owner, result, leaseMillis, renew);
+                log.debug("redis async Lock success {}", lockKey);
+                complete(new DefaultLockHandle(lockKey, result, () -> CompletableFuture.runAsync(() -> {
+                    release(lockKey, holder);
+                    log.debug("redis async UnLock success {}", lockKey);
+                }, scheduler)), null);
+                return;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                log.debug("redis async tryLock failed {}", lockKey);
+                complete(null, failOnTimeout ? new DistributedLockException("failed to acquire lock") : null);
+                return;
+            }
+            long parkMillis = result < 0 ? Math.min(-result, MAX_PARK_MILLIS) : MAX_PARK_MILLIS;
+            ScheduledFuture<?> next = scheduler.schedule(this, Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(parkMillis)), TimeUnit.NANOSECONDS);
+            retry = next;
+            if (notified && next.cancel(false)) {
+                scheduler.execute(this);
+            }
+        }
+
+        /**
+         * 收到解锁通知，取消已安排的重试并立即重试
+         */
+        void wakeUp() {
+
+            notified = true;
+            ScheduledFuture<?> next = retry;
+            if (next != null && next.cancel(false)) {
+                scheduler.execute(this);
+            }
+        }
+
+        private void complete(LockHandle handle, Exception e) {
+
+            if (registered) {
+                unregister(keys, this);
+            }
+            if (e == null) {
+                future.complete(handle);
+            } else {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class Holder {
+
+        /**
+         * 持有线程，异步加锁为 null
+         */
+        private final Thread thread;
+        /**
+         * 锁定的 redis key
+         */
+        private final List<String> keys;
+        private final long token;
+        /**
+         * redis 中保存的值，持有者:fencing token
+         */
+        private final String value;
+        /**
+         * 重入次数，只由持有线程读写
+         */
+        private int count = 1;
+        private volatile ScheduledFuture<?> renewal;
+
+        Holder(Thread thread, List<String> keys, long token, String value) {
+            this.thread = thread;
+            this.keys = keys;
+            this.token = token;
+            this.value = value;
+        }
+    }
+}
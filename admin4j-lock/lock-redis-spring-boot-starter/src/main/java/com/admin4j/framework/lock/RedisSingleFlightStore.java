@@ -0,0 +1,82 @@
+package com.admin4j.framework.lock;
+
+import com.admin4j.framework.lock.singleflight.SingleFlightStore;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scripting.support.ResourceScriptSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 redis 的 single-flight 结果存储。
+ * 版本号和结果在同一个 slot，一次脚本调用发布；结果默认使用 jdk 序列化
+ *
+ * @author andanyang
+ * @since 2024/3/22 10:00
+ */
+public class RedisSingleFlightStore implements SingleFlightStore {
+
+    private static final String VERSION_SUFFIX = ":V";
+    private static final String RESULT_SUFFIX = ":R";
+    /**
+     * 版本号保存时间，过期后重新从 1 开始，等待中的节点会重新计算一次
+     */
+    private static final long VERSION_TTL_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisSerializer<Object> serializer;
+    private final DefaultRedisScript<Long> publishScript;
+
+    public RedisSingleFlightStore(StringRedisTemplate stringRedisTemplate) {
+        this(stringRedisTemplate, RedisSerializer.java());
+    }
+
+    public RedisSingleFlightStore(StringRedisTemplate stringRedisTemplate, RedisSerializer<Object> serializer) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.serializer = serializer;
+        this.publishScript = new DefaultRedisScript<>();
+        this.publishScript.setScriptSource(new ResourceScriptSource(new ClassPathResource("lock/SingleFlightPublish.lua")));
+        this.publishScript.setResultType(Long.class);
+    }
+
+    @Override
+    public long version(String key) {
+
+        String version = stringRedisTemplate.opsForValue().get(RedisLockExecutor.hashTagged(key, VERSION_SUFFIX));
+        return version == null ? 0 : Long.parseLong(version);
+    }
+
+    @Override
+    public Published get(String key) {
+
+        byte[] resultKey = RedisLockExecutor.hashTagged(key, RESULT_SUFFIX).getBytes(StandardCharsets.UTF_8);
+        byte[] raw = stringRedisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(resultKey));
+        if (raw == null) {
+            return null;
+        }
+        int separator = 0;
+        while (separator < raw.length && raw[separator] != ':') {
+            separator++;
+        }
+        long version = Long.parseLong(new String(raw, 0, separator, StandardCharsets.US_ASCII));
+        Object value = serializer.deserialize(Arrays.copyOfRange(raw, Math.min(separator + 1, raw.length), raw.length));
+        return new Published(version, value);
+    }
+
+    @Override
+    public void publish(String key, Object value, long ttlMillis) {
+
+        byte[] payload = serializer.serialize(value);
+        stringRedisTemplate.execute(publishScript, RedisSerializer.byteArray(), new GenericToStringSerializer<>(Long.class),
+                Arrays.asList(RedisLockExecutor.hashTagged(key, VERSION_SUFFIX), RedisLockExecutor.hashTagged(key, RESULT_SUFFIX)),
+                payload == null ? new byte[0] : payload,
+                Long.toString(ttlMillis).getBytes(StandardCharsets.US_ASCII),
+                Long.toString(VERSION_TTL_MILLIS).getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,88 @@
+package com.admin4j.framework.lock.configuration;
+
+import com.admin4j.framework.lock.LockExecutor;
+import com.admin4j.framework.lock.RedisIdempotentResultStore;
+import com.admin4j.framework.lock.RedisLockExecutor;
+import com.admin4j.framework.lock.RedisSingleFlightStore;
+import com.admin4j.framework.lock.idempotent.IdempotentResultStore;
+import com.admin4j.framework.lock.singleflight.SingleFlightStore;
+import com.admin4j.redis.RedisValueSerializer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureOrder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * 基于 StringRedisTemplate 的分布式锁、single-flight 结果共享和幂等返回值存储。
+ * 引入 redisson 时分布式锁由 redisson 提供，这里只注册 single-flight 和幂等存储
+ *
+ * @author andanyang
+ * @since 2024/3/19 9:30
+ */
+@Configuration(proxyBeanMethods = false)
+@AutoConfigureAfter(RedisAutoConfiguration.class)
+@AutoConfigureOrder(800)
+public class RedisLockAutoConfiguration {
+
+    @Bean
+    @Primary
+    @ConditionalOnBean(StringRedisTemplate.class)
+    @ConditionalOnMissingClass("org.redisson.api.RedissonClient")
+    @ConditionalOnMissingBean(RedisLockExecutor.class)
+    public RedisLockExecutor redisLockExecutor(StringRedisTemplate stringRedisTemplate, ApplicationContext applicationContext) {
+        RedisLockExecutor redisLockExecutor = new RedisLockExecutor(stringRedisTemplate);
+        if (applicationContext.containsBean("parentLockExecutor")) {
+            redisLockExecutor.setParent((LockExecutor<?>) applicationContext.getBean("parentLockExecutor"));
+        }
+        return redisLockExecutor;
+    }
+
+    /**
+     * single-flight 跨节点共享结果，使用 redisson 锁时同样生效
+     */
+    @Bean
+    @ConditionalOnBean(StringRedisTemplate.class)
+    @ConditionalOnMissingBean(SingleFlightStore.class)
+    public RedisSingleFlightStore redisSingleFlightStore(StringRedisTemplate stringRedisTemplate) {
+        return new RedisSingleFlightStore(stringRedisTemplate);
+    }
+
+    /**
+     * 幂等返回值存储，没有 RedisValueSerializer 时使用 jdk 序列化
+     */
+    @Bean
+    @ConditionalOnBean(StringRedisTemplate.class)
+    @ConditionalOnMissingBean(IdempotentResultStore.class)
+    public RedisIdempotentResultStore redisIdempotentResultStore(StringRedisTemplate stringRedisTemplate) {
+        return new RedisIdempotentResultStore(stringRedisTemplate);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "com.admin4j.redis.RedisValueSerializer")
+    static class RedisValueSerializerConfiguration {
+
+        /**
+         * 使用 order 最大的 RedisValueSerializer 序列化幂等返回值
+         */
+        @Bean
+        @ConditionalOnBean({StringRedisTemplate.class, RedisValueSerializer.class})
+        @ConditionalOnMissingBean(IdempotentResultStore.class)
+        @SuppressWarnings("unchecked")
+        public RedisIdempotentResultStore redisValueIdempotentResultStore(StringRedisTemplate stringRedisTemplate,
+                                                                          ObjectProvider<RedisValueSerializer<?>> redisValueSerializers) {
+
+            RedisValueSerializer<?> serializer = redisValueSerializers.stream().sorted().findFirst().orElse(null);
+            return new RedisIdempotentResultStore(stringRedisTemplate, (RedisSerializer<Object>) serializer);
+        }
+    }
+}
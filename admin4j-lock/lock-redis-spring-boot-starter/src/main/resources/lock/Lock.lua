@@ -0,0 +1,39 @@
+-- 加锁，等价于 SET NX PX，多个 key 全部获取或者全部失败，成功时生成 fencing token
+-- KEYS[1..n]：锁 key
+-- KEYS[n+1..2n]：对应的 fencing token 计数 key
+-- ARGV[1]：持有者
+-- ARGV[2]：租期（毫秒）
+-- 成功返回 fencing token；锁被占用时返回剩余租期的负数（毫秒），没有过期时间返回 0
+
+-- redis 5 之前脚本默认按脚本整体复制，调用 TIME 之后不能再写入；改为按命令复制，redis 5 起为默认行为
+if redis.replicate_commands then
+    redis.replicate_commands()
+end
+
+local n = #KEYS / 2
+for i = 1, n do
+    if redis.call('exists', KEYS[i]) == 1 then
+        local ttl = redis.call('pttl', KEYS[i])
+        if ttl < 0 then
+            ttl = 0
+        end
+        return -ttl
+    end
+end
+
+-- token 大于每个 key 已发出的 token，计数 key 过期后从当前时间（微秒）开始，保证单调递增
+local time = redis.call('time')
+local token = tonumber(time[1]) * 1000000 + tonumber(time[2])
+for i = n + 1, 2 * n do
+    local last = tonumber(redis.call('get', KEYS[i]) or 0)
+    if last >= token then
+        token = last + 1
+    end
+end
+
+local value = ARGV[1] .. ':' .. string.format('%d', token)
+for i = 1, n do
+    redis.call('set', KEYS[n + i], string.format('%d', token), 'PX', 86400000)
+    redis.call('set', KEYS[i], value, 'NX', 'PX', ARGV[2])
+end
+return token
@@ -0,0 +1,13 @@
+-- 续期，只续期自己持有的锁
+-- KEYS[1..n]：锁 key
+-- ARGV[1]：持有者:fencing token
+-- ARGV[2]：租期（毫秒）
+-- 返回续期的 key 数量，小于 n 时部分锁已经丢失
+local renewed = 0
+for i = 1, #KEYS do
+    if redis.call('get', KEYS[i]) == ARGV[1] then
+        redis.call('pexpire', KEYS[i], ARGV[2])
+        renewed = renewed + 1
+    end
+end
+return renewed
@@ -0,0 +1,11 @@
+-- 发布 single-flight 结果
+-- KEYS[1]：版本号 key
+-- KEYS[2]：结果 key
+-- ARGV[1]：序列化后的结果
+-- ARGV[2]：结果保存时间(毫秒)
+-- ARGV[3]：版本号保存时间(毫秒)
+-- 返回发布的版本号，结果保存为 版本号:结果
+local version = redis.call('incr', KEYS[1])
+redis.call('pexpire', KEYS[1], ARGV[3])
+redis.call('set', KEYS[2], version .. ':' .. ARGV[1], 'px', ARGV[2])
+return version
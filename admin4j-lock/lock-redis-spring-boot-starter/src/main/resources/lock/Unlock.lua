@@ -0,0 +1,14 @@
+-- 解锁，只删除自己持有的锁，并通知等待的节点
+-- KEYS[1..n]：锁 key
+-- ARGV[1]：持有者:fencing token
+-- ARGV[2]：解锁通知 channel
+-- 返回解锁的 key 数量，小于 n 时部分锁已经过期或者被其他持有者占用
+local released = 0
+for i = 1, #KEYS do
+    if redis.call('get', KEYS[i]) == ARGV[1] then
+        redis.call('del', KEYS[i])
+        redis.call('publish', ARGV[2], KEYS[i])
+        released = released + 1
+    end
+end
+return released
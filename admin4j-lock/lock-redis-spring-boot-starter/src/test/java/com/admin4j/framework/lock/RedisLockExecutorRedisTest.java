@@ -0,0 +1,194 @@
+package com.admin4j.framework.lock;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 连接本地 redis(localhost:6379) 的测试，连不上时跳过
+ *
+ * @author andanyang
+ * @since 2024/3/28 10:00
+ */
+public class RedisLockExecutorRedisTest {
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate stringRedisTemplate;
+    private RedisLockExecutor lockExecutor;
+    private String lockKey;
+
+    @Before
+    public void setUp() {
+
+        Assume.assumeTrue("redis localhost:6379 unavailable", reachable());
+        connectionFactory = new LettuceConnectionFactory("localhost", 6379);
+        connectionFactory.afterPropertiesSet();
+        stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+        lockExecutor = newExecutor();
+        lockKey = "DL:test:" + UUID.randomUUID();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+
+        if (lockExecutor == null) {
+            return;
+        }
+        lockExecutor.destroy();
+        stringRedisTemplate.delete(lockKey);
+        stringRedisTemplate.delete(RedisLockExecutor.fencingKey(lockKey));
+        connectionFactory.destroy();
+    }
+
+    private static boolean reachable() {
+
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress("localhost", 6379), 200);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private RedisLockExecutor newExecutor() {
+
+        RedisLockExecutor executor = new RedisLockExecutor(stringRedisTemplate);
+        executor.afterPropertiesSet();
+        return executor;
+    }
+
+    private LockInfo lockInfo(RedisLockExecutor executor, int waitSeconds, int leaseSeconds) {
+
+        LockInfo lockInfo = new LockInfo();
+        lockInfo.setLockKey(lockKey);
+        lockInfo.setWaitTimeOutSeconds(waitSeconds);
+        lockInfo.setLeaseTime(leaseSeconds);
+        executor.initSetLockInstance(lockInfo);
+        return lockInfo;
+    }
+
+    @Test
+    public void testAcquireAndFencingToken() throws Exception {
+
+        LockInfo first = lockInfo(lockExecutor, 0, 0);
+        Assert.assertTrue(lockExecutor.tryLock(first));
+        long token = first.getFencingToken();
+        Assert.assertTrue(token > 0);
+        Assert.assertEquals(token, lockExecutor.currentFencingToken(lockKey));
+
+        // 其他线程获取失败
+        Boolean other = CompletableFuture.supplyAsync(() -> lockExecutor.tryLock(lockInfo(lockExecutor, 0, 0))).get();
+        Assert.assertFalse(other);
+
+        lockExecutor.unlock(first);
+        Assert.assertFalse(stringRedisTemplate.hasKey(lockKey));
+
+        LockInfo second = lockInfo(lockExecutor, 0, 0);
+        Assert.assertTrue(lockExecutor.tryLock(second));
+        Assert.assertTrue(second.getFencingToken() > token);
+        lockExecutor.unlock(second);
+    }
+
+    /**
+     * 非持有者解锁时忽略，锁仍然有效
+     */
+    @Test
+    public void testNonOwnerUnlock() throws Exception {
+
+        LockInfo owner = lockInfo(lockExecutor, 0, 0);
+        Assert.assertTrue(lockExecutor.tryLock(owner));
+
+        CompletableFuture.runAsync(() -> lockExecutor.unlock(lockInfo(lockExecutor, 0, 0))).get();
+        RedisLockExecutor otherNode = newExecutor();
+        try {
+            otherNode.unlock(lockInfo(otherNode, 0, 0));
+            Assert.assertTrue(stringRedisTemplate.hasKey(lockKey));
+            Assert.assertFalse(otherNode.tryLock(lockInfo(otherNode, 0, 0)));
+        } finally {
+            otherNode.destroy();
+        }
+
+        lockExecutor.unlock(owner);
+        Assert.assertFalse(stringRedisTemplate.hasKey(lockKey));
+    }
+
+    /**
+     * 未指定 leaseTime 的锁持有期间自动续期
+     */
+    @Test
+    public void testRenewal() throws InterruptedException {
+
+        lockExecutor.setDefaultLeaseMillis(600);
+        LockInfo lockInfo = lockInfo(lockExecutor, 0, 0);
+        Assert.assertTrue(lockExecutor.tryLock(lockInfo));
+
+        Thread.sleep(1500);
+        Assert.assertTrue(stringRedisTemplate.hasKey(lockKey));
+        Long ttl = stringRedisTemplate.getExpire(lockKey, TimeUnit.MILLISECONDS);
+        Assert.assertTrue("ttl " + ttl, ttl != null && ttl > 0 && ttl <= 600);
+
+        lockExecutor.unlock(lockInfo);
+        Assert.assertFalse(stringRedisTemplate.hasKey(lockKey));
+    }
+
+    /**
+     * 指定了 leaseTime 的锁到期后自动释放，其他节点可以获取
+     */
+    @Test
+    public void testExpire() throws Exception {
+
+        Assert.assertTrue(lockExecutor.tryLock(lockInfo(lockExecutor, 0, 1)));
+
+        RedisLockExecutor otherNode = newExecutor();
+        try {
+            Assert.assertFalse(otherNode.tryLock(lockInfo(otherNode, 0, 1)));
+            Thread.sleep(1200);
+            LockInfo lockInfo = lockInfo(otherNode, 0, 1);
+            Assert.assertTrue(otherNode.tryLock(lockInfo));
+            otherNode.unlock(lockInfo);
+        } finally {
+            otherNode.destroy();
+        }
+    }
+
+    /**
+     * 等待的节点通过解锁通知唤醒，不等待锁的剩余租期
+     */
+    @Test
+    public void testUnlockNotification() throws Exception {
+
+        LockInfo owner = lockInfo(lockExecutor, 0, 0);
+        Assert.assertTrue(lockExecutor.tryLock(owner));
+
+        RedisLockExecutor otherNode = newExecutor();
+        try {
+            CompletableFuture<Long> waited = CompletableFuture.supplyAsync(() -> {
+                LockInfo lockInfo = lockInfo(otherNode, 10, 0);
+                Assert.assertTrue(otherNode.tryLock(lockInfo));
+                long acquiredAt = System.nanoTime();
+                otherNode.unlock(lockInfo);
+                return acquiredAt;
+            });
+            Thread.sleep(300);
+            long unlockedAt = System.nanoTime();
+            lockExecutor.unlock(owner);
+
+            long wakeUpMillis = TimeUnit.NANOSECONDS.toMillis(waited.get(10, TimeUnit.SECONDS) - unlockedAt);
+            // 没有通知时最多等待 5 秒后重试
+            Assert.assertTrue("wake up " + wakeUpMillis, wakeUpMillis < 1000);
+        } finally {
+            otherNode.destroy();
+        }
+    }
+}
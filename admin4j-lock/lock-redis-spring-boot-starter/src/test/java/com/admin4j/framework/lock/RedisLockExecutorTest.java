@@ -0,0 +1,22 @@
+package com.admin4j.framework.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+
+/**
+ * @author andanyang
+ * @since 2024/3/19 11:00
+ */
+public class RedisLockExecutorTest {
+
+    @Test
+    public void testFencingKeySlot() {
+
+        for (String lockKey : new String[]{"DL:order:1", "DL:{tenant1}:order:1", "DL:{order"}) {
+            String fencingKey = RedisLockExecutor.fencingKey(lockKey);
+            Assert.assertNotEquals(lockKey, fencingKey);
+            Assert.assertEquals(ClusterSlotHashUtil.calculateSlot(lockKey), ClusterSlotHashUtil.calculateSlot(fencingKey));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.admin4j.framework.lock.configuration;
+
+import com.admin4j.framework.lock.RedisLockExecutor;
+import com.admin4j.framework.lock.RedisSingleFlightStore;
+import com.admin4j.framework.lock.idempotent.IdempotentResultStore;
+import com.admin4j.redis.RedisValueSerializer;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.FilteredClassLoader;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+/**
+ * 只检查 bean 注册，不连接 redis
+ *
+ * @author andanyang
+ * @since 2024/3/28 10:00
+ */
+public class RedisLockAutoConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(RedisLockAutoConfiguration.class))
+            .withBean(StringRedisTemplate.class, () -> new StringRedisTemplate(new LettuceConnectionFactory()));
+
+    @Test
+    public void testJdkSerializer() {
+
+        contextRunner.run(context -> {
+            Assert.assertNull(context.getStartupFailure());
+            Assert.assertNotNull(context.getBean(RedisLockExecutor.class));
+            Assert.assertNotNull(context.getBean(RedisSingleFlightStore.class));
+            Assert.assertEquals(1, context.getBeansOfType(IdempotentResultStore.class).size());
+            Assert.assertTrue(context.containsBean("redisIdempotentResultStore"));
+        });
+    }
+
+    @Test
+    public void testRedisValueSerializer() {
+
+        contextRunner
+                .withBean(RedisValueSerializer.class, JsonValueSerializer::new)
+                .run(context -> {
+                    Assert.assertNull(context.getStartupFailure());
+                    Assert.assertEquals(1, context.getBeansOfType(IdempotentResultStore.class).size());
+                    Assert.assertTrue(context.containsBean("redisValueIdempotentResultStore"));
+                });
+    }
+
+    @Test
+    public void testWithoutRedisValueSerializerClass() {
+
+        contextRunner
+                .withClassLoader(new FilteredClassLoader(RedisValueSerializer.class))
+                .run(context -> {
+                    Assert.assertNull(context.getStartupFailure());
+                    Assert.assertTrue(context.containsBean("redisIdempotentResultStore"));
+                });
+    }
+
+    static class JsonValueSerializer extends JdkSerializationRedisSerializer implements RedisValueSerializer<Object> {
+    }
+}
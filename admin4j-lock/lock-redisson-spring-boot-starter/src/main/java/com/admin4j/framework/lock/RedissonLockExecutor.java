@@ -1,15 +1,22 @@
 package com.admin4j.framework.lock;
 
+import com.admin4j.framework.lock.exception.DistributedLockException;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.redisson.RedissonMultiLock;
 import org.redisson.api.RLock;
 import org.redisson.api.RReadWriteLock;
 import org.redisson.api.RedissonClient;
 
+import java.util.List;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * 异步加锁使用 RLock 的异步接口，以生成的 threadId 作为持有者，可以在任意线程解锁
+ *
  * @author andanyang
  * @since 2023/4/18 11:07
  */
@@ -18,6 +25,11 @@ import java.util.concurrent.TimeUnit;
 public class RedissonLockExecutor extends AbstractParentLockExecutor<RLock> {
 
 
+    /**
+     * 异步加锁的持有者 id，使用负数避免与线程 id 重复
+     */
+    private static final AtomicLong ASYNC_THREAD_ID = new AtomicLong();
+
     private final RedissonClient redissonClient;
 
 
@@ -62,30 +74,90 @@ public class RedissonLockExecutor extends AbstractParentLockExecutor<RLock> {
     protected void unlockSelf(LockInfo lockInfo) {
 
         RLock lock = (RLock) lockInfo.getLockInstance();
-        if (lock.isLocked()) {
+        // 联锁不支持 isLocked
+        if (lock instanceof RedissonMultiLock || lock.isLocked()) {
             lock.unlock();
         }
         log.debug("redisson UnLock success {}", lockInfo.getLockKey());
     }
 
+    @Override
+    public boolean isAsyncSupported() {
+        return true;
+    }
+
+    /**
+     * 异步加锁，waitTimeOutSeconds 大于 0 时等待超时以 DistributedLockException 异常完成
+     */
+    @Override
+    public CompletionStage<LockHandle> lockAsync(LockInfo lockInfo) {
+
+        if (lockInfo.getWaitTimeOutSeconds() <= 0) {
+            RLock lock = getLockInstanceSelf(lockInfo);
+            long threadId = ASYNC_THREAD_ID.decrementAndGet();
+            return lock.lockAsync(lockInfo.getLeaseTime(), TimeUnit.SECONDS, threadId)
+                    .thenApply(v -> handle(lock, threadId, lockInfo));
+        }
+        return tryLockAsync(lockInfo).thenApply(handle -> {
+            if (handle == null) {
+                throw new DistributedLockException("failed to acquire lock");
+            }
+            return handle;
+        });
+    }
+
+    /**
+     * 异步尝试加锁，最多等待 waitTimeOutSeconds，获取失败时为 null
+     */
+    @Override
+    public CompletionStage<LockHandle> tryLockAsync(LockInfo lockInfo) {
+
+        RLock lock = getLockInstanceSelf(lockInfo);
+        long threadId = ASYNC_THREAD_ID.decrementAndGet();
+        long waitTime = Math.max(0, lockInfo.getWaitTimeOutSeconds());
+        return lock.tryLockAsync(waitTime, lockInfo.getLeaseTime(), TimeUnit.SECONDS, threadId)
+                .thenApply(tryLock -> {
+                    log.debug("redisson async tryLock {} {}", tryLock ? "success" : "failed", lockInfo.getLockKey());
+                    return tryLock ? handle(lock, threadId, lockInfo) : null;
+                });
+    }
+
+    private LockHandle handle(RLock lock, long threadId, LockInfo lockInfo) {
+        return new DefaultLockHandle(lockInfo.getLockKey(), 0, () -> lock.unlockAsync(threadId));
+    }
+
     protected RLock getLockInstanceSelf(LockInfo lockInfo) {
 
+        if (lockInfo.isMultiKey()) {
+            // 联锁，按 lockKeys 的顺序加锁，任一失败时释放已获取的锁
+            List<String> lockKeys = lockInfo.getLockKeys();
+            RLock[] locks = new RLock[lockKeys.size()];
+            for (int i = 0; i < locks.length; i++) {
+                locks[i] = getLock(lockKeys.get(i), lockInfo);
+            }
+            return redissonClient.getMultiLock(locks);
+        }
+        return getLock(lockInfo.getLockKey(), lockInfo);
+    }
+
+    private RLock getLock(String lockKey, LockInfo lockInfo) {
+
         switch (lockInfo.getLockModel()) {
             case FAIR:
                 // 公平锁
-                return redissonClient.getFairLock(lockInfo.getLockKey());
+                return redissonClient.getFairLock(lockKey);
             case READ:
                 // 读之前加读锁，读锁的作用就是等待该lockkey释放写锁以后再读
-                RReadWriteLock readLock = redissonClient.getReadWriteLock(lockInfo.getLockKey());
+                RReadWriteLock readLock = redissonClient.getReadWriteLock(lockKey);
                 return readLock.readLock();
             case WRITE:
                 // 写之前加写锁，写锁加锁成功，读锁只能等待
-                RReadWriteLock writeLock = redissonClient.getReadWriteLock(lockInfo.getLockKey());
+                RReadWriteLock writeLock = redissonClient.getReadWriteLock(lockKey);
                 return writeLock.writeLock();
             case REENTRANT:
             default:
                 // 可重入锁
-                return redissonClient.getLock(lockInfo.getLockKey());
+                return redissonClient.getLock(lockKey);
         }
     }
 }
@@ -0,0 +1,182 @@
+package com.admin4j.framework.lock;
+
+import com.admin4j.framework.lock.exception.DistributedLockException;
+import com.admin4j.framework.lock.semaphore.DefaultSemaphorePermit;
+import com.admin4j.framework.lock.semaphore.SemaphoreExecutor;
+import com.admin4j.framework.lock.semaphore.SemaphorePermit;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RPermitExpirableSemaphore;
+import org.redisson.api.RedissonClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 RPermitExpirableSemaphore 的分布式信号量，许可到期由 redis 自动回收。
+ * 许可总数只在信号量不存在时设置，每个信号量只初始化一次。
+ * 没有设置 leaseMillis 的许可使用 lockWatchdogTimeout 作为租期并在后台续期，节点宕机后许可仍会回收。
+ * 一次获取多个许可时每轮最多等待 {@link #RETRY_MILLIS}，获取不全则释放已获取的许可后重试，不会互相持有部分许可而死锁
+ *
+ * @author andanyang
+ * @since 2024/3/26 10:00
+ */
+@Slf4j
+public class RedissonSemaphoreExecutor implements SemaphoreExecutor {
+
+    /**
+     * 一次获取多个许可时每轮的最长等待时间
+     */
+    private static final long RETRY_MILLIS = 100;
+
+    /**
+     * 已经设置过许可总数的信号量，超过上限后清空，只会多调用一次 trySetPermits
+     */
+    private static final int MAX_INITIALIZED = 10_000;
+
+    private final RedissonClient redissonClient;
+    private final long watchdogMillis;
+    private final ConcurrentHashMap<String, Boolean> initialized = new ConcurrentHashMap<>();
+
+    public RedissonSemaphoreExecutor(RedissonClient redissonClient) {
+        this.redissonClient = redissonClient;
+        this.watchdogMillis = redissonClient.getConfig().getLockWatchdogTimeout();
+    }
+
+    @Override
+    public SemaphorePermit tryAcquire(String name, int maxPermits, int permits, long waitMillis, long leaseMillis) {
+
+        RPermitExpirableSemaphore semaphore = getSemaphore(name, maxPermits);
+        boolean renew = leaseMillis <= 0;
+        long lease = renew ? watchdogMillis : leaseMillis;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, waitMillis));
+        try {
+            for (; ; ) {
+                long remaining = Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+                long attemptMillis;
+                if (permits == 1) {
+                    attemptMillis = waitMillis < 0 ? -1 : remaining;
+                } else {
+                    attemptMillis = waitMillis < 0 ? RETRY_MILLIS : Math.min(remaining, RETRY_MILLIS);
+                }
+                List<String> permitIds = acquireAll(semaphore, permits, attemptMillis, lease);
+                if (permitIds != null && renew) {
+                    return renewable(name, semaphore, permitIds);
+                }
+                if (permitIds != null) {
+                    return new DefaultSemaphorePermit(name, permits, () -> release(semaphore, permitIds));
+                }
+                if (waitMillis >= 0 && deadline - System.nanoTime() <= 0) {
+                    log.debug("redisson semaphore acquire failed {}", name);
+                    // 信号量可能已被删除，下次重新设置许可总数
+                    initialized.remove(name);
+                    return null;
+                }
+                // 随机退避，避免多个请求同时重试
+                long backoff = ThreadLocalRandom.current().nextLong(1, RETRY_MILLIS);
+                TimeUnit.MILLISECONDS.sleep(waitMillis < 0 ? backoff : Math.min(backoff, remaining));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DistributedLockException(e);
+        }
+    }
+
+    private RPermitExpirableSemaphore getSemaphore(String name, int maxPermits) {
+
+        RPermitExpirableSemaphore semaphore = redissonClient.getPermitExpirableSemaphore(name);
+        if (!initialized.containsKey(name)) {
+            semaphore.trySetPermits(maxPermits);
+            if (initialized.size() >= MAX_INITIALIZED) {
+                initialized.clear();
+            }
+            initialized.put(name, Boolean.TRUE);
+        }
+        return semaphore;
+    }
+
+    /**
+     * 获取 permits 个许可，总共最多等待 waitMillis，获取不全时释放已获取的许可
+     *
+     * @param waitMillis 小于 0 一直等待
+     * @return 获取失败返回 null
+     */
+    private static List<String> acquireAll(RPermitExpirableSemaphore semaphore, int permits, long waitMillis, long leaseMillis)
+            throws InterruptedException {
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, waitMillis));
+        List<String> permitIds = new ArrayList<>(permits);
+        try {
+            while (permitIds.size() < permits) {
+                String permitId;
+                if (waitMillis < 0) {
+                    permitId = semaphore.acquire(leaseMillis, TimeUnit.MILLISECONDS);
+                } else {
+                    long remaining = Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+                    permitId = semaphore.tryAcquire(remaining, leaseMillis, TimeUnit.MILLISECONDS);
+                }
+                if (permitId == null) {
+                    release(semaphore, permitIds);
+                    return null;
+                }
+                permitIds.add(permitId);
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            release(semaphore, permitIds);
+            throw e;
+        }
+        return permitIds;
+    }
+
+    /**
+     * 持有期间每 1/3 租期续期一次，释放后停止
+     */
+    private SemaphorePermit renewable(String name, RPermitExpirableSemaphore semaphore, List<String> permitIds) {
+
+        long period = Math.max(1, watchdogMillis / 3);
+        ScheduledFuture<?> renewal = Watchdog.SCHEDULER.scheduleAtFixedRate(() -> {
+            for (String permitId : permitIds) {
+                try {
+                    if (!semaphore.updateLeaseTime(permitId, watchdogMillis, TimeUnit.MILLISECONDS)) {
+                        log.warn("redisson semaphore permit {} of {} expired before renewal", permitId, name);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("redisson semaphore renew {} failed: {}", name, e.getMessage());
+                }
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        return new DefaultSemaphorePermit(name, permitIds.size(), () -> {
+            renewal.cancel(false);
+            release(semaphore, permitIds);
+        });
+    }
+
+    /**
+     * 释放许可，已经到期回收的许可忽略
+     */
+    private static void release(RPermitExpirableSemaphore semaphore, List<String> permitIds) {
+
+        for (String permitId : permitIds) {
+            if (!semaphore.tryRelease(permitId)) {
+                log.debug("redisson semaphore permit {} expired", permitId);
+            }
+        }
+    }
+
+    /**
+     * 许可续期，第一次使用时创建
+     */
+    private static final class Watchdog {
+
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redisson-semaphore-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -2,6 +2,8 @@ package com.admin4j.framework.lock.configuration;
 
 import com.admin4j.framework.lock.LockExecutor;
 import com.admin4j.framework.lock.RedissonLockExecutor;
+import com.admin4j.framework.lock.RedissonSemaphoreExecutor;
+import com.admin4j.framework.lock.semaphore.SemaphoreExecutor;
 import org.redisson.api.RedissonClient;
 import org.springframework.boot.autoconfigure.AutoConfigureOrder;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -28,4 +30,12 @@ public class RedissonLockAutoConfiguration {
         }
         return redissonLockExecutor;
     }
+
+    @Bean
+    @ConditionalOnClass(RedissonClient.class)
+    @Primary
+    @ConditionalOnMissingBean(RedissonSemaphoreExecutor.class)
+    public SemaphoreExecutor redissonSemaphoreExecutor(RedissonClient redissonClient) {
+        return new RedissonSemaphoreExecutor(redissonClient);
+    }
 }
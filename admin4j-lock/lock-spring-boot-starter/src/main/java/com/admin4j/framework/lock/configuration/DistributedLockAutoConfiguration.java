@@ -1,23 +1,48 @@
 package com.admin4j.framework.lock.configuration;
 
 
+import com.admin4j.framework.lock.LocalFirstLockExecutor;
+import com.admin4j.framework.lock.LocalSemaphoreExecutor;
 import com.admin4j.framework.lock.LockExecutor;
 import com.admin4j.framework.lock.aspect.DistributedLockAspect;
+import com.admin4j.framework.lock.aspect.DistributedSemaphoreAspect;
 import com.admin4j.framework.lock.aspect.IdempotentAspect;
+import com.admin4j.framework.lock.endpoint.LockEndpoint;
+import com.admin4j.framework.lock.idempotent.IdempotentResultStore;
+import com.admin4j.framework.lock.metrics.HotLockKeyMetrics;
+import com.admin4j.framework.lock.metrics.LockMetrics;
+import com.admin4j.framework.lock.metrics.MicrometerLockMetrics;
+import com.admin4j.framework.lock.properties.LocalFirstLockProperties;
+import com.admin4j.framework.lock.properties.LockMetricsProperties;
+import com.admin4j.framework.lock.semaphore.SemaphoreExecutor;
+import com.admin4j.framework.lock.singleflight.SingleFlightStore;
 import com.admin4j.framework.lock.util.DistributedLockUtil;
+import com.admin4j.framework.lock.util.DistributedSemaphoreUtil;
 import org.springframework.beans.BeansException;
-import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
 import org.springframework.boot.autoconfigure.AutoConfigureOrder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 
 /**
+ * 执行器、指标等在所有单例创建完成后设置到 DistributedLockUtil，避免在本类初始化时获取本类声明的 bean
+ *
  * @author andanyang
  * @since 2021/12/23 8:41
  */
+@Configuration(proxyBeanMethods = false)
 @AutoConfigureOrder(900)
-public class DistributedLockAutoConfiguration implements InitializingBean, ApplicationContextAware {
+@EnableConfigurationProperties({LockMetricsProperties.class, LocalFirstLockProperties.class})
+public class DistributedLockAutoConfiguration implements SmartInitializingSingleton, ApplicationContextAware {
 
     private ApplicationContext applicationContext;
 
@@ -27,18 +52,86 @@ public class DistributedLockAutoConfiguration implements InitializingBean, Appli
     }
 
     @Bean
-    public IdempotentAspect idempotentHandler() {
-        return new IdempotentAspect();
+    public IdempotentAspect idempotentHandler(ObjectProvider<IdempotentResultStore> idempotentResultStore) {
+
+        IdempotentAspect idempotentAspect = new IdempotentAspect();
+        idempotentAspect.setResultStore(idempotentResultStore.getIfAvailable());
+        return idempotentAspect;
+    }
+
+    @Bean
+    public DistributedSemaphoreAspect distributedSemaphoreHandler() {
+        return new DistributedSemaphoreAspect();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(LockMetrics.class)
+    @ConditionalOnMissingClass("io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(prefix = "admin4j.lock.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public HotLockKeyMetrics hotLockKeyMetrics(LockMetricsProperties properties) {
+        return new HotLockKeyMetrics(properties.getTopKeys(), properties.getContendedThreshold().toNanos());
     }
 
     @Override
-    public void afterPropertiesSet() throws Exception {
+    public void afterSingletonsInstantiated() {
+
+        DistributedLockUtil.setDefaultLockExecutor(defaultLockExecutor());
+        DistributedLockUtil.setLockMetrics(applicationContext.getBeanProvider(LockMetrics.class).getIfAvailable());
+        DistributedLockUtil.setSingleFlightStore(applicationContext.getBeanProvider(SingleFlightStore.class).getIfAvailable());
+        DistributedSemaphoreUtil.setDefaultSemaphoreExecutor(applicationContext.getBeanProvider(SemaphoreExecutor.class).getIfAvailable());
+    }
+
+    /**
+     * 默认执行器，开启 local-first 时包装为 LocalFirstLockExecutor
+     */
+    private LockExecutor<?> defaultLockExecutor() {
 
-        DistributedLockUtil.setDefaultLockExecutor(applicationContext.getBean(LockExecutor.class));
+        LockExecutor<?> lockExecutor = applicationContext.getBean(LockExecutor.class);
+        LocalFirstLockProperties localFirst = applicationContext.getBean(LocalFirstLockProperties.class);
+        if (localFirst.isEnabled()) {
+            lockExecutor = new LocalFirstLockExecutor(lockExecutor, localFirst.getMaxHandoffs());
+        }
+        return lockExecutor;
     }
 
     @Override
     public void setApplicationContext(ApplicationContext applicationContext) throws BeansException {
         this.applicationContext = applicationContext;
     }
+
+    /**
+     * 没有 redisson、zookeeper 时使用本地信号量
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnMissingBean(SemaphoreExecutor.class)
+    static class LocalSemaphoreConfiguration {
+
+        @Bean
+        public LocalSemaphoreExecutor localSemaphoreExecutor() {
+            return new LocalSemaphoreExecutor();
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(prefix = "admin4j.lock.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+    static class LockMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean(LockMetrics.class)
+        public MicrometerLockMetrics micrometerLockMetrics(LockMetricsProperties properties) {
+            return new MicrometerLockMetrics(properties.getTopKeys(), properties.getContendedThreshold().toNanos());
+        }
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+    static class LockEndpointConfiguration {
+
+        @Bean
+        @ConditionalOnAvailableEndpoint
+        public LockEndpoint lockEndpoint(ObjectProvider<HotLockKeyMetrics> hotLockKeyMetrics) {
+            return new LockEndpoint(hotLockKeyMetrics.getIfAvailable());
+        }
+    }
 }
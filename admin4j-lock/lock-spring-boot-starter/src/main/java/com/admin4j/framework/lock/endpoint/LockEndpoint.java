@@ -0,0 +1,53 @@
+package com.admin4j.framework.lock.endpoint;
+
+import com.admin4j.common.counter.SpaceSavingCounter;
+import com.admin4j.framework.lock.metrics.HotLockKeyMetrics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * /actuator/locks 竞争最多的锁 key，用于判断需要拆分的临界区。
+ * 计数为近似值，真实次数在 [count - error, count] 之间
+ *
+ * @author andanyang
+ * @since 2024/3/21 10:30
+ */
+@Endpoint(id = "locks")
+public class LockEndpoint {
+
+    private static final int DEFAULT_TOP = 20;
+
+    private final HotLockKeyMetrics hotLockKeyMetrics;
+
+    public LockEndpoint(HotLockKeyMetrics hotLockKeyMetrics) {
+        this.hotLockKeyMetrics = hotLockKeyMetrics;
+    }
+
+    /**
+     * @param top 返回的 key 数量，默认 20
+     */
+    @ReadOperation
+    public List<SpaceSavingCounter.Entry> hotKeys(@Nullable Integer top) {
+
+        if (hotLockKeyMetrics == null) {
+            return Collections.emptyList();
+        }
+        return hotLockKeyMetrics.hotKeys(top == null || top <= 0 ? DEFAULT_TOP : top);
+    }
+
+    /**
+     * 清空统计，拆分临界区后重新观察
+     */
+    @DeleteOperation
+    public void reset() {
+
+        if (hotLockKeyMetrics != null) {
+            hotLockKeyMetrics.clear();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.admin4j.framework.lock.metrics;
+
+import com.admin4j.framework.lock.LockExecutor;
+import com.admin4j.framework.lock.LockInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.util.ClassUtils;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 micrometer 的锁指标，引入 prometheus-spring-boot-starter 后通过 /actuator/prometheus 暴露：
+ * <ul>
+ *     <li>admin4j.lock.wait：等待锁的耗时直方图，标签 executor、name、result(acquired/failed)</li>
+ *     <li>admin4j.lock.hold：持有锁的耗时直方图，标签 executor、name</li>
+ *     <li>admin4j.lock.failures：获取锁失败次数，标签 executor、name</li>
+ * </ul>
+ * executor 为执行器类型(redisson、zookeeper、redis、striped、local)，name 为注解的 prefix
+ *
+ * @author andanyang
+ * @since 2024/3/21 10:00
+ */
+public class MicrometerLockMetrics extends HotLockKeyMetrics implements MeterBinder {
+
+    private final Map<Class<?>, Map<String, Meters>> meters = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    public MicrometerLockMetrics(int topKeys, long contendedNanos) {
+        super(topKeys, contendedNanos);
+    }
+
+    /**
+     * 执行器类型，类名去掉 LockExecutor 后缀
+     */
+    static String executorType(Class<?> executorClass) {
+
+        String name = ClassUtils.getUserClass(executorClass).getSimpleName();
+        if (name.endsWith("LockExecutor") && name.length() > "LockExecutor".length()) {
+            name = name.substring(0, name.length() - "LockExecutor".length());
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void onAcquired(LockExecutor<?> lockExecutor, LockInfo lockInfo, long waitNanos) {
+
+        super.onAcquired(lockExecutor, lockInfo, waitNanos);
+        Meters lockMeters = meters(lockExecutor, lockInfo);
+        if (lockMeters != null) {
+            lockMeters.acquiredWait.record(waitNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void onFailed(LockExecutor<?> lockExecutor, LockInfo lockInfo, long waitNanos) {
+
+        super.onFailed(lockExecutor, lockInfo, waitNanos);
+        Meters lockMeters = meters(lockExecutor, lockInfo);
+        if (lockMeters != null) {
+            lockMeters.failedWait.record(waitNanos, TimeUnit.NANOSECONDS);
+            lockMeters.failures.increment();
+        }
+    }
+
+    @Override
+    public void onReleased(LockExecutor<?> lockExecutor, LockInfo lockInfo, long holdNanos) {
+
+        Meters lockMeters = meters(lockExecutor, lockInfo);
+        if (lockMeters != null) {
+            lockMeters.hold.record(holdNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Meters meters(LockExecutor<?> lockExecutor, LockInfo lockInfo) {
+
+        MeterRegistry meterRegistry = this.registry;
+        if (meterRegistry == null || lockExecutor == null) {
+            return null;
+        }
+        String name = lockInfo.getName() == null ? "" : lockInfo.getName();
+        Map<String, Meters> executorMeters = meters.get(lockExecutor.getClass());
+        if (executorMeters == null) {
+            executorMeters = meters.computeIfAbsent(lockExecutor.getClass(), k -> new ConcurrentHashMap<>());
+        }
+        Meters lockMeters = executorMeters.get(name);
+        if (lockMeters == null) {
+            String executor = executorType(lockExecutor.getClass());
+            lockMeters = executorMeters.computeIfAbsent(name, k -> new Meters(meterRegistry, executor, k));
+        }
+        return lockMeters;
+    }
+
+    private static final class Meters {
+
+        private final Timer acquiredWait;
+        private final Timer failedWait;
+        private final Timer hold;
+        private final Counter failures;
+
+        Meters(MeterRegistry registry, String executor, String name) {
+            this.acquiredWait = waitTimer(registry, executor, name, "acquired");
+            this.failedWait = waitTimer(registry, executor, name, "failed");
+            this.hold = Timer.builder("admin4j.lock.hold")
+                    .description("time the lock is held")
+                    .tag("executor", executor)
+                    .tag("name", name)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.failures = Counter.builder("admin4j.lock.failures")
+                    .description("tryLock failures and lock wait timeouts")
+                    .tag("executor", executor)
+                    .tag("name", name)
+                    .register(registry);
+        }
+
+        private static Timer waitTimer(MeterRegistry registry, String executor, String name, String result) {
+            return Timer.builder("admin4j.lock.wait")
+                    .description("time spent waiting to acquire the lock")
+                    .tag("executor", executor)
+                    .tag("name", name)
+                    .tag("result", result)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.admin4j.framework.lock.properties;
+
+import com.admin4j.framework.lock.LocalFirstLockExecutor;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @author andanyang
+ * @since 2024/3/23 9:30
+ */
+@Data
+@ConfigurationProperties(prefix = "admin4j.lock.local-first")
+public class LocalFirstLockProperties {
+
+    /**
+     * 默认执行器是否先在本地排队，只由队首线程获取远程锁
+     */
+    private boolean enabled = false;
+
+    /**
+     * 获取一次远程锁后最多连续移交给本地线程的次数，超过后释放远程锁，0 不移交
+     */
+    private int maxHandoffs = LocalFirstLockExecutor.DEFAULT_MAX_HANDOFFS;
+}
@@ -0,0 +1,30 @@
+package com.admin4j.framework.lock.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * @author andanyang
+ * @since 2024/3/21 10:00
+ */
+@Data
+@ConfigurationProperties(prefix = "admin4j.lock.metrics")
+public class LockMetricsProperties {
+
+    /**
+     * 是否开启锁指标和热点 key 统计
+     */
+    private boolean enabled = true;
+
+    /**
+     * 最多统计的热点 key 数量
+     */
+    private int topKeys = 100;
+
+    /**
+     * 等待锁超过该时间计为一次竞争
+     */
+    private Duration contendedThreshold = Duration.ofMillis(10);
+}
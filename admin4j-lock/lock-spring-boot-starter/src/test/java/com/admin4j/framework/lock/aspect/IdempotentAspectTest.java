@@ -0,0 +1,109 @@
+package com.admin4j.framework.lock.aspect;
+
+import com.admin4j.common.service.ILoginUserInfoService;
+import com.admin4j.framework.lock.StripedLockExecutor;
+import com.admin4j.framework.lock.annotation.Idempotent;
+import com.admin4j.framework.lock.idempotent.IdempotentResultStore;
+import com.admin4j.framework.lock.util.DistributedLockUtil;
+import com.admin4j.spring.util.SpringUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author andanyang
+ * @since 2024/3/25 11:00
+ */
+public class IdempotentAspectTest {
+
+    private final Map<String, Object> stored = new ConcurrentHashMap<>();
+    private final OrderService target = new OrderService();
+    private OrderService orderService;
+    private volatile boolean storeDown;
+
+    @BeforeEach
+    public void setUp() {
+
+        DistributedLockUtil.setDefaultLockExecutor(new StripedLockExecutor());
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        applicationContext.registerBean(ILoginUserInfoService.class, () -> () -> 1L);
+        applicationContext.refresh();
+        new SpringUtils().setApplicationContext(applicationContext);
+
+        IdempotentAspect idempotentAspect = new IdempotentAspect();
+        idempotentAspect.setResultStore(new IdempotentResultStore() {
+            @Override
+            public Stored get(String key) {
+                if (storeDown) {
+                    throw new IllegalStateException("store down");
+                }
+                return stored.containsKey(key) ? new Stored(stored.get(key)) : null;
+            }
+
+            @Override
+            public void put(String key, Object value, long ttlMillis) {
+                if (storeDown) {
+                    throw new IllegalStateException("store down");
+                }
+                stored.put(key, value);
+            }
+        });
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAspect(idempotentAspect);
+        orderService = proxyFactory.getProxy();
+    }
+
+    @Test
+    public void testStoreResult() {
+
+        Assertions.assertEquals("order-1:1", orderService.submit(1));
+        Assertions.assertEquals("order-1:1", orderService.submit(1));
+        Assertions.assertEquals("order-2:2", orderService.submit(2));
+        Assertions.assertEquals(2, target.submitted.get());
+        Assertions.assertEquals(2, stored.size());
+
+        // 未开启 storeResult 时重复执行
+        orderService.cancel(1);
+        orderService.cancel(1);
+        Assertions.assertEquals(2, target.cancelled.get());
+    }
+
+    /**
+     * 存储读写失败都不影响业务调用，读取失败按未命中处理
+     */
+    @Test
+    public void testStoreDown() {
+
+        storeDown = true;
+        Assertions.assertEquals("order-1:1", orderService.submit(1));
+        Assertions.assertEquals("order-1:2", orderService.submit(1));
+        Assertions.assertTrue(stored.isEmpty());
+
+        storeDown = false;
+        Assertions.assertEquals("order-1:3", orderService.submit(1));
+        Assertions.assertEquals("order-1:3", orderService.submit(1));
+    }
+
+    public static class OrderService {
+
+        private final AtomicInteger submitted = new AtomicInteger();
+        private final AtomicInteger cancelled = new AtomicInteger();
+
+        @Idempotent(key = "#id", storeResult = true, ttl = 10)
+        public String submit(Integer id) {
+            return "order-" + id + ":" + submitted.incrementAndGet();
+        }
+
+        @Idempotent(key = "#id")
+        public void cancel(Integer id) {
+            cancelled.incrementAndGet();
+        }
+    }
+}
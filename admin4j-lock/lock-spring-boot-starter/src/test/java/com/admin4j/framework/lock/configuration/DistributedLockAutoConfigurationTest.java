@@ -0,0 +1,132 @@
+package com.admin4j.framework.lock.configuration;
+
+import com.admin4j.framework.lock.LocalFirstLockExecutor;
+import com.admin4j.framework.lock.LocalSemaphoreExecutor;
+import com.admin4j.framework.lock.LockInfo;
+import com.admin4j.framework.lock.endpoint.LockEndpoint;
+import com.admin4j.framework.lock.metrics.HotLockKeyMetrics;
+import com.admin4j.framework.lock.metrics.LockMetrics;
+import com.admin4j.framework.lock.metrics.MicrometerLockMetrics;
+import com.admin4j.framework.lock.semaphore.SemaphoreExecutor;
+import com.admin4j.framework.lock.semaphore.SemaphorePermit;
+import com.admin4j.framework.lock.util.DistributedLockUtil;
+import com.admin4j.framework.lock.util.DistributedSemaphoreUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.FilteredClassLoader;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author andanyang
+ * @since 2024/3/28 10:00
+ */
+public class DistributedLockAutoConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(LocalLockAutoConfiguration.class, DistributedLockAutoConfiguration.class));
+
+    @AfterEach
+    public void tearDown() {
+        DistributedLockUtil.setDefaultLockExecutor(null);
+        DistributedLockUtil.setLockMetrics(null);
+        DistributedSemaphoreUtil.setDefaultSemaphoreExecutor(null);
+    }
+
+    /**
+     * 只有本地锁时使用本地信号量
+     */
+    @Test
+    public void testLocalOnly() {
+
+        contextRunner.run(context -> {
+            Assertions.assertNull(context.getStartupFailure());
+            LocalSemaphoreExecutor semaphoreExecutor = context.getBean(LocalSemaphoreExecutor.class);
+            Assertions.assertEquals(1, context.getBeansOfType(SemaphoreExecutor.class).size());
+            Assertions.assertSame(semaphoreExecutor, DistributedSemaphoreUtil.getSemaphoreExecutor(null));
+
+            SemaphorePermit permit = DistributedSemaphoreUtil.acquire("local", 1, 1, 0, TimeUnit.MILLISECONDS);
+            Assertions.assertNotNull(permit);
+            Assertions.assertNull(DistributedSemaphoreUtil.acquire("local", 1, 1, 0, TimeUnit.MILLISECONDS));
+            permit.release();
+        });
+    }
+
+    @Test
+    public void testCustomSemaphoreExecutor() {
+
+        SemaphoreExecutor custom = new LocalSemaphoreExecutor();
+        contextRunner
+                .withBean("customSemaphoreExecutor", SemaphoreExecutor.class, () -> custom)
+                .run(context -> {
+                    Assertions.assertNull(context.getStartupFailure());
+                    Assertions.assertFalse(context.containsBean("localSemaphoreExecutor"));
+                    Assertions.assertSame(custom, DistributedSemaphoreUtil.getSemaphoreExecutor(null));
+                });
+    }
+
+    @Test
+    public void testWithMicrometer() {
+
+        contextRunner
+                .withPropertyValues("management.endpoints.web.exposure.include=locks")
+                .run(context -> {
+                    Assertions.assertNull(context.getStartupFailure());
+                    Assertions.assertEquals(1, context.getBeansOfType(LockMetrics.class).size());
+                    MicrometerLockMetrics lockMetrics = context.getBean(MicrometerLockMetrics.class);
+                    Assertions.assertSame(lockMetrics, DistributedLockUtil.getLockMetrics());
+                    Assertions.assertTrue(context.containsBean("lockEndpoint"));
+                    Assertions.assertNotNull(context.getBean(LockEndpoint.class));
+                    Assertions.assertSame(context.getBean("parentLockExecutor"), DistributedLockUtil.getLockExecutor(new LockInfo()));
+                });
+    }
+
+    @Test
+    public void testWithoutMicrometer() {
+
+        contextRunner
+                .withClassLoader(new FilteredClassLoader(MeterRegistry.class))
+                .run(context -> {
+                    Assertions.assertNull(context.getStartupFailure());
+                    Assertions.assertEquals(1, context.getBeansOfType(LockMetrics.class).size());
+                    HotLockKeyMetrics lockMetrics = context.getBean(HotLockKeyMetrics.class);
+                    Assertions.assertFalse(lockMetrics instanceof MicrometerLockMetrics);
+                    Assertions.assertSame(lockMetrics, DistributedLockUtil.getLockMetrics());
+                    Assertions.assertSame(context.getBean("parentLockExecutor"), DistributedLockUtil.getLockExecutor(new LockInfo()));
+                });
+    }
+
+    @Test
+    public void testMetricsDisabled() {
+
+        contextRunner
+                .withPropertyValues("admin4j.lock.metrics.enabled=false")
+                .run(context -> {
+                    Assertions.assertNull(context.getStartupFailure());
+                    Assertions.assertTrue(context.getBeansOfType(LockMetrics.class).isEmpty());
+                    Assertions.assertSame(LockMetrics.NOOP, DistributedLockUtil.getLockMetrics());
+                });
+    }
+
+    /**
+     * local-first 需要支持异步加锁的执行器，池化的本地锁启动失败
+     */
+    @Test
+    public void testLocalFirstRequiresAsync() {
+
+        contextRunner
+                .withPropertyValues("admin4j.lock.local-first.enabled=true")
+                .run(context -> Assertions.assertNotNull(context.getStartupFailure()));
+
+        contextRunner
+                .withPropertyValues("admin4j.lock.local-first.enabled=true", "admin4j.lock.local.type=striped")
+                .run(context -> {
+                    Assertions.assertNull(context.getStartupFailure());
+                    Assertions.assertTrue(DistributedLockUtil.getLockExecutor(new LockInfo()) instanceof LocalFirstLockExecutor);
+                });
+    }
+}
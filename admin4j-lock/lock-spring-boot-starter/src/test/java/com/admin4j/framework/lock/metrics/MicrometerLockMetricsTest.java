@@ -0,0 +1,63 @@
+package com.admin4j.framework.lock.metrics;
+
+import com.admin4j.common.counter.SpaceSavingCounter;
+import com.admin4j.framework.lock.RedissonLockExecutor;
+import com.admin4j.framework.lock.StripedLockExecutor;
+import com.admin4j.framework.lock.util.DistributedLockUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * @author andanyang
+ * @since 2024/3/21 11:00
+ */
+public class MicrometerLockMetricsTest {
+
+    @AfterEach
+    public void tearDown() {
+        DistributedLockUtil.setLockMetrics(null);
+    }
+
+    @Test
+    public void testMetrics() throws InterruptedException {
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerLockMetrics metrics = new MicrometerLockMetrics(10, 0);
+        metrics.bindTo(registry);
+        DistributedLockUtil.setLockMetrics(metrics);
+        DistributedLockUtil.setDefaultLockExecutor(new StripedLockExecutor());
+
+        DistributedLockUtil.lock("order:1", () -> {
+            // 持有期间其他线程 tryLock 失败
+            Thread thread = new Thread(() -> DistributedLockUtil.tryLock("order:1", () -> {
+            }));
+            thread.start();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Assertions.assertEquals(1, registry.get("admin4j.lock.wait").tag("executor", "striped")
+                .tag("name", "DL:").tag("result", "acquired").timer().count());
+        Assertions.assertEquals(1, registry.get("admin4j.lock.failures").tag("executor", "striped").counter().count(), 0);
+        Assertions.assertEquals(1, registry.get("admin4j.lock.hold").timer().count());
+
+        List<SpaceSavingCounter.Entry> hotKeys = metrics.hotKeys(10);
+        Assertions.assertEquals("DL:order:1", hotKeys.get(0).getKey());
+        // 阈值为 0 时每次加锁都计为竞争
+        Assertions.assertEquals(2, hotKeys.get(0).getCount());
+    }
+
+    @Test
+    public void testExecutorType() {
+
+        Assertions.assertEquals("redisson", MicrometerLockMetrics.executorType(RedissonLockExecutor.class));
+        Assertions.assertEquals("striped", MicrometerLockMetrics.executorType(StripedLockExecutor.class));
+    }
+}
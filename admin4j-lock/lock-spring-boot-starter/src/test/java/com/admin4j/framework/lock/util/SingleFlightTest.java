@@ -0,0 +1,99 @@
+package com.admin4j.framework.lock.util;
+
+import com.admin4j.framework.lock.StripedLockExecutor;
+import com.admin4j.framework.lock.singleflight.SingleFlightStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author andanyang
+ * @since 2024/3/22 11:00
+ */
+public class SingleFlightTest {
+
+    @BeforeEach
+    public void setUp() {
+        DistributedLockUtil.setDefaultLockExecutor(new StripedLockExecutor());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        DistributedLockUtil.setSingleFlightStore(null);
+    }
+
+    @Test
+    public void testCoalesce() throws InterruptedException, ExecutionException {
+
+        AtomicInteger computed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executorService.submit(() -> {
+                start.await();
+                return DistributedLockUtil.singleFlight("report", () -> {
+                    sleep(200);
+                    return computed.incrementAndGet();
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<Integer> future : futures) {
+            Assertions.assertEquals(1, future.get());
+        }
+        executorService.shutdown();
+        Assertions.assertEquals(1, computed.get());
+    }
+
+    @Test
+    public void testError() {
+
+        Assertions.assertThrows(IllegalStateException.class, () -> DistributedLockUtil.singleFlight("error", () -> {
+            throw new IllegalStateException("rebuild failed");
+        }));
+        // 失败后不保留 in-flight，下一次重新计算
+        Assertions.assertEquals("ok", DistributedLockUtil.singleFlight("error", () -> "ok"));
+    }
+
+    @Test
+    public void testPublished() {
+
+        // 等待锁期间其他节点发布了版本 1
+        DistributedLockUtil.setSingleFlightStore(new SingleFlightStore() {
+            @Override
+            public long version(String key) {
+                return 0;
+            }
+
+            @Override
+            public Published get(String key) {
+                return new Published(1, "remote");
+            }
+
+            @Override
+            public void publish(String key, Object value, long ttlMillis) {
+                Assertions.fail("published result should be reused");
+            }
+        });
+        Assertions.assertEquals("remote", DistributedLockUtil.singleFlight("report", () -> "local"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,27 +1,101 @@
 package com.admin4j.framework.lock;
 
+import com.admin4j.framework.lock.constant.LockModel;
 import com.admin4j.framework.lock.exception.DistributedLockException;
 import com.admin4j.framework.lock.exception.UnSupportException;
-import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.recipes.locks.InterProcessLock;
+import org.apache.curator.framework.recipes.locks.InterProcessMultiLock;
 import org.apache.curator.framework.recipes.locks.InterProcessMutex;
 import org.apache.curator.framework.recipes.locks.InterProcessReadWriteLock;
+import org.springframework.beans.factory.DisposableBean;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * InterProcessMutex 只能由加锁线程释放，异步加锁在后台线程中获取锁，
+ * 该线程持有锁直到 LockHandle 解锁，调用线程不阻塞。
+ * 后台线程最多 maxAsyncThreads 个，等待中和持有中的异步锁超过该数量时异步加锁以 DistributedLockException 异常完成
+ * <p>
+ * 同一个 path 复用 curator 的锁对象，重入计数和 watcher 在同一个对象上；加锁时占用引用，解锁后空闲，
+ * 缓存超过 maxCachedRecipes 时回收最早空闲的对象。锁节点的父节点由 curator 创建为容器节点，
+ * 服务端在子节点清空后删除；不支持容器节点时回收对象的同时在后台删除空的父节点
+ *
  * @author andanyang
  * @since 2023/4/18 11:25
  */
-@RequiredArgsConstructor
 @Slf4j
-public class ZookeeperLockExecutor extends AbstractParentLockExecutor<InterProcessLock> {
+public class ZookeeperLockExecutor extends AbstractParentLockExecutor<InterProcessLock> implements DisposableBean {
+
+    /**
+     * 默认最多缓存的锁对象数量
+     */
+    public static final int DEFAULT_MAX_CACHED_RECIPES = 1024;
+
+    /**
+     * 默认异步加锁的最大线程数
+     */
+    public static final int DEFAULT_MAX_ASYNC_THREADS = 256;
 
     private final CuratorFramework curatorFramework;
+    private final int maxCachedRecipes;
+    private final boolean deleteEmptyNodes;
+    private final ConcurrentHashMap<String, Recipe> recipes = new ConcurrentHashMap<>();
+    /**
+     * 空闲的锁对象，按空闲先后回收
+     */
+    private final Queue<Recipe> idleRecipes = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 异步加锁的后台线程，每个等待中或者持有中的异步锁占用一个线程，空闲 60 秒后回收
+     */
+    private final ThreadPoolExecutor asyncExecutor;
+
+    public ZookeeperLockExecutor(CuratorFramework curatorFramework) {
+        this(curatorFramework, DEFAULT_MAX_CACHED_RECIPES, true);
+    }
+
+    /**
+     * @param maxCachedRecipes 最多缓存的锁对象数量，持有中的锁不回收
+     * @param deleteEmptyNodes 回收锁对象时是否在后台删除空的父节点
+     */
+    public ZookeeperLockExecutor(CuratorFramework curatorFramework, int maxCachedRecipes, boolean deleteEmptyNodes) {
+        this(curatorFramework, maxCachedRecipes, deleteEmptyNodes, DEFAULT_MAX_ASYNC_THREADS);
+    }
+
+    /**
+     * @param maxAsyncThreads 异步加锁的最大线程数，即同时等待中和持有中的异步锁数量
+     */
+    public ZookeeperLockExecutor(CuratorFramework curatorFramework, int maxCachedRecipes, boolean deleteEmptyNodes,
+                                 int maxAsyncThreads) {
+        if (maxAsyncThreads <= 0) {
+            throw new IllegalArgumentException("maxAsyncThreads must be positive");
+        }
+        this.curatorFramework = curatorFramework;
+        this.maxCachedRecipes = maxCachedRecipes;
+        this.deleteEmptyNodes = deleteEmptyNodes;
+        this.asyncExecutor = new ThreadPoolExecutor(0, maxAsyncThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "zookeeper-lock-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
     /**
      * 根据锁信息获取锁
@@ -31,26 +105,95 @@ public class ZookeeperLockExecutor extends AbstractParentLockExecutor<InterProce
      */
     @Override
     public InterProcessLock getLockInstanceSelf(LockInfo lockInfo) {
-        InterProcessReadWriteLock interProcessReadWriteLock;
-        String lockKey = lockInfo.getLockKey();
+
+        if (lockInfo.isMultiKey()) {
+            // 联锁，按 lockKeys 的顺序加锁，任一失败时释放已获取的锁
+            List<InterProcessLock> locks = new ArrayList<>(lockInfo.getLockKeys().size());
+            for (String lockKey : lockInfo.getLockKeys()) {
+                locks.add(getLock(lockKey, lockInfo));
+            }
+            return new InterProcessMultiLock(locks);
+        }
+        return getLock(lockInfo.getLockKey(), lockInfo);
+    }
+
+    private InterProcessLock getLock(String lockKey, LockInfo lockInfo) {
+
+        if (lockInfo.getLockModel() == LockModel.FAIR) {
+            // 公平锁
+            throw new UnSupportException("Zookeeper Not supported FAIR Lock");
+        }
         if (!StringUtils.startsWith(lockKey, "/")) {
             lockKey = "/" + lockKey;
         }
-        switch (lockInfo.getLockModel()) {
-            case FAIR:
-                // 公平锁
-                throw new UnSupportException("Zookeeper Not supported FAIR Lock");
-            case READ:
-                interProcessReadWriteLock = new InterProcessReadWriteLock(curatorFramework, lockKey);
-                return interProcessReadWriteLock.readLock();
-            case WRITE:
-                // 写之前加写锁，写锁加锁成功，读锁只能等待
-                interProcessReadWriteLock = new InterProcessReadWriteLock(curatorFramework, lockKey);
-                return interProcessReadWriteLock.writeLock();
-            case REENTRANT:
-            default:
-                // 可重入锁
-                return new InterProcessMutex(curatorFramework, lockKey);
+        return new RecipeLock(lockKey, lockInfo.getLockModel());
+    }
+
+    /**
+     * 当前缓存的锁对象数量
+     */
+    public int size() {
+        return recipes.size();
+    }
+
+    /**
+     * 当前等待中和持有中的异步锁占用的线程数
+     */
+    public int getAsyncThreads() {
+        return asyncExecutor.getActiveCount();
+    }
+
+    /**
+     * 不再接受异步加锁，已持有的异步锁在解锁后释放
+     */
+    @Override
+    public void destroy() {
+        asyncExecutor.shutdown();
+    }
+
+    private Recipe retain(String path) {
+
+        for (; ; ) {
+            Recipe recipe = recipes.computeIfAbsent(path, Recipe::new);
+            if (recipe.retain()) {
+                return recipe;
+            }
+            // 已经被回收
+            recipes.remove(path, recipe);
+        }
+    }
+
+    private void release(Recipe recipe) {
+
+        if (recipe.refs.decrementAndGet() == 0 && recipe.idle.compareAndSet(false, true)) {
+            idleRecipes.add(recipe);
+        }
+        while (recipes.size() > maxCachedRecipes) {
+            Recipe eldest = idleRecipes.poll();
+            if (eldest == null) {
+                return;
+            }
+            eldest.idle.set(false);
+            if (eldest.refs.compareAndSet(0, -1)) {
+                recipes.remove(eldest.path, eldest);
+                deleteIfEmpty(eldest.path);
+            }
+        }
+    }
+
+    /**
+     * 后台删除空的父节点，有子节点或者已经删除时忽略
+     */
+    private void deleteIfEmpty(String path) {
+
+        if (!deleteEmptyNodes) {
+            return;
+        }
+        try {
+            curatorFramework.delete().inBackground((client, event) ->
+                    log.debug("zookeeper delete lock node {} {}", path, event.getResultCode())).forPath(path);
+        } catch (Exception e) {
+            log.debug("zookeeper delete lock node {} failed: {}", path, e.getMessage());
         }
     }
 
@@ -103,4 +246,234 @@ public class ZookeeperLockExecutor extends AbstractParentLockExecutor<InterProce
             throw new DistributedLockException(e);
         }
     }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return true;
+    }
+
+    /**
+     * 异步加锁，waitTimeOutSeconds 大于 0 时等待超时以 DistributedLockException 异常完成
+     */
+    @Override
+    public CompletionStage<LockHandle> lockAsync(LockInfo lockInfo) {
+        return acquireAsync(lockInfo, lockInfo.getWaitTimeOutSeconds() > 0 ? lockInfo.getWaitTimeOutSeconds() : -1, true);
+    }
+
+    /**
+     * 异步尝试加锁，最多等待 waitTimeOutSeconds，获取失败时为 null
+     */
+    @Override
+    public CompletionStage<LockHandle> tryLockAsync(LockInfo lockInfo) {
+        return acquireAsync(lockInfo, Math.max(0, lockInfo.getWaitTimeOutSeconds()), false);
+    }
+
+    /**
+     * @param waitSeconds 最长等待时间，-1 一直等待
+     */
+    private CompletionStage<LockHandle> acquireAsync(LockInfo lockInfo, int waitSeconds, boolean failOnTimeout) {
+
+        CompletableFuture<LockHandle> future = new CompletableFuture<>();
+        try {
+            asyncExecutor.execute(() -> holdAsync(lockInfo, waitSeconds, failOnTimeout, future));
+        } catch (RejectedExecutionException e) {
+            log.warn("zookeeper async lock rejected {}, async threads exhausted", lockInfo.getLockKey());
+            future.completeExceptionally(new DistributedLockException("too many zookeeper async locks: "
+                    + asyncExecutor.getMaximumPoolSize()));
+        }
+        return future;
+    }
+
+    /**
+     * 在后台线程中加锁并持有，直到 LockHandle 解锁
+     */
+    private void holdAsync(LockInfo lockInfo, int waitSeconds, boolean failOnTimeout, CompletableFuture<LockHandle> future) {
+
+        InterProcessLock lock;
+        try {
+            lock = getLockInstanceSelf(lockInfo);
+            boolean acquired = true;
+            if (waitSeconds < 0) {
+                lock.acquire();
+            } else {
+                acquired = lock.acquire(waitSeconds, TimeUnit.SECONDS);
+            }
+            if (!acquired) {
+                log.debug("zookeeper async tryLock failed {}", lockInfo.getLockKey());
+                if (failOnTimeout) {
+                    future.completeExceptionally(new DistributedLockException("failed to acquire lock"));
+                } else {
+                    future.complete(null);
+                }
+                return;
+            }
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            return;
+        }
+
+        CountDownLatch unlocked = new CountDownLatch(1);
+        CompletableFuture<Void> released = new CompletableFuture<>();
+        future.complete(new DefaultLockHandle(lockInfo.getLockKey(), 0, () -> {
+            unlocked.countDown();
+            return released;
+        }));
+        log.debug("zookeeper async Lock success {}", lockInfo.getLockKey());
+
+        // 持有锁直到解锁，在加锁线程中释放
+        boolean interrupted = false;
+        for (; ; ) {
+            try {
+                unlocked.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        try {
+            lock.release();
+            released.complete(null);
+            log.debug("zookeeper async UnLock success {}", lockInfo.getLockKey());
+        } catch (Exception e) {
+            released.completeExceptionally(new DistributedLockException(e));
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 同一个 path 共用的 curator 锁对象。refs 为 -1 时已经被回收
+     */
+    private final class Recipe {
+
+        private final String path;
+        private final AtomicInteger refs = new AtomicInteger();
+        /**
+         * 是否在空闲队列中
+         */
+        private final AtomicBoolean idle = new AtomicBoolean();
+        private InterProcessMutex mutex;
+        private InterProcessReadWriteLock readWriteLock;
+
+        Recipe(String path) {
+            this.path = path;
+        }
+
+        boolean retain() {
+            for (; ; ) {
+                int current = refs.get();
+                if (current < 0) {
+                    return false;
+                }
+                if (refs.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        synchronized InterProcessLock getLock(LockModel lockModel) {
+
+            switch (lockModel) {
+                case READ:
+                    return readWriteLock().readLock();
+                case WRITE:
+                    // 写之前加写锁，写锁加锁成功，读锁只能等待
+                    return readWriteLock().writeLock();
+                case REENTRANT:
+                default:
+                    // 可重入锁
+                    if (mutex == null) {
+                        mutex = new InterProcessMutex(curatorFramework, path);
+                    }
+                    return mutex;
+            }
+        }
+
+        private InterProcessReadWriteLock readWriteLock() {
+            if (readWriteLock == null) {
+                readWriteLock = new InterProcessReadWriteLock(curatorFramework, path);
+            }
+            return readWriteLock;
+        }
+    }
+
+    /**
+     * 锁实例，加锁时占用 path 的锁对象，加锁失败或者解锁后释放引用
+     */
+    private final class RecipeLock implements InterProcessLock {
+
+        private final String path;
+        private final LockModel lockModel;
+        private Recipe recipe;
+        private InterProcessLock lock;
+
+        RecipeLock(String path, LockModel lockModel) {
+            this.path = path;
+            this.lockModel = lockModel;
+        }
+
+        @Override
+        public void acquire() throws Exception {
+
+            InterProcessLock lock = retain();
+            try {
+                lock.acquire();
+            } catch (Exception e) {
+                releaseRecipe();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean acquire(long time, TimeUnit unit) throws Exception {
+
+            InterProcessLock lock = retain();
+            boolean acquired = false;
+            try {
+                acquired = lock.acquire(time, unit);
+                return acquired;
+            } finally {
+                if (!acquired) {
+                    releaseRecipe();
+                }
+            }
+        }
+
+        @Override
+        public void release() throws Exception {
+
+            if (lock == null) {
+                throw new IllegalMonitorStateException("You do not own the lock: " + path);
+            }
+            try {
+                lock.release();
+            } finally {
+                releaseRecipe();
+            }
+        }
+
+        @Override
+        public boolean isAcquiredInThisProcess() {
+            return lock != null && lock.isAcquiredInThisProcess();
+        }
+
+        private InterProcessLock retain() {
+
+            if (lock != null) {
+                throw new IllegalStateException("lock instance already acquired: " + path);
+            }
+            recipe = ZookeeperLockExecutor.this.retain(path);
+            lock = recipe.getLock(lockModel);
+            return lock;
+        }
+
+        private void releaseRecipe() {
+
+            Recipe recipe = this.recipe;
+            this.recipe = null;
+            this.lock = null;
+            ZookeeperLockExecutor.this.release(recipe);
+        }
+    }
 }
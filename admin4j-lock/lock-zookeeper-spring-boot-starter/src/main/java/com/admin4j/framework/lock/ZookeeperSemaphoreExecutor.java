@@ -0,0 +1,112 @@
+package com.admin4j.framework.lock;
+
+import com.admin4j.framework.lock.exception.DistributedLockException;
+import com.admin4j.framework.lock.semaphore.DefaultSemaphorePermit;
+import com.admin4j.framework.lock.semaphore.SemaphoreExecutor;
+import com.admin4j.framework.lock.semaphore.SemaphorePermit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.recipes.locks.InterProcessSemaphoreV2;
+import org.apache.curator.framework.recipes.locks.Lease;
+
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 InterProcessSemaphoreV2 的分布式信号量。
+ * 许可是临时节点，会话失效时由 zookeeper 回收；设置了 leaseMillis 时到期在后台释放。
+ * InterProcessSemaphoreV2 创建时不访问 zookeeper，每次获取时新建，不缓存。
+ * 一次获取多个许可时每轮最多等待 {@link #RETRY_MILLIS}，获取不全则释放已获取的许可后重试，不会互相持有部分许可而死锁
+ *
+ * @author andanyang
+ * @since 2024/3/26 10:00
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class ZookeeperSemaphoreExecutor implements SemaphoreExecutor {
+
+    /**
+     * 一次获取多个许可时每轮的最长等待时间
+     */
+    private static final long RETRY_MILLIS = 100;
+
+    private final CuratorFramework curatorFramework;
+
+    @Override
+    public SemaphorePermit tryAcquire(String name, int maxPermits, int permits, long waitMillis, long leaseMillis) {
+
+        String path = StringUtils.startsWith(name, "/") ? name : "/" + name;
+        InterProcessSemaphoreV2 semaphore = new InterProcessSemaphoreV2(curatorFramework, path, maxPermits);
+        Collection<Lease> leases;
+        try {
+            leases = acquire(semaphore, permits, waitMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DistributedLockException(e);
+        } catch (Exception e) {
+            throw new DistributedLockException(e);
+        }
+        if (leases == null) {
+            log.debug("zookeeper semaphore acquire failed {}", name);
+            return null;
+        }
+
+        if (leaseMillis <= 0) {
+            return new DefaultSemaphorePermit(name, permits, () -> semaphore.returnAll(leases));
+        }
+        ScheduledFuture<?>[] expire = new ScheduledFuture<?>[1];
+        DefaultSemaphorePermit permit = new DefaultSemaphorePermit(name, permits, () -> {
+            if (expire[0] != null) {
+                expire[0].cancel(false);
+            }
+            semaphore.returnAll(leases);
+        });
+        expire[0] = LeaseExpiry.SCHEDULER.schedule(permit::release, leaseMillis, TimeUnit.MILLISECONDS);
+        return permit;
+    }
+
+    /**
+     * @param waitMillis 最长等待时间，小于 0 一直等待
+     * @return 等待超时返回 null
+     */
+    private static Collection<Lease> acquire(InterProcessSemaphoreV2 semaphore, int permits, long waitMillis) throws Exception {
+
+        if (permits == 1 && waitMillis < 0) {
+            return semaphore.acquire(permits);
+        }
+        if (permits == 1) {
+            return semaphore.acquire(permits, waitMillis, TimeUnit.MILLISECONDS);
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, waitMillis));
+        for (; ; ) {
+            long remaining = Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+            // 超时时 curator 会释放本轮已获取的许可
+            Collection<Lease> leases = semaphore.acquire(permits, waitMillis < 0 ? RETRY_MILLIS : Math.min(remaining, RETRY_MILLIS),
+                    TimeUnit.MILLISECONDS);
+            if (leases != null || waitMillis >= 0 && deadline - System.nanoTime() <= 0) {
+                return leases;
+            }
+            // 随机退避，避免多个请求同时重试
+            long backoff = ThreadLocalRandom.current().nextLong(1, RETRY_MILLIS);
+            TimeUnit.MILLISECONDS.sleep(waitMillis < 0 ? backoff : Math.min(backoff, remaining));
+        }
+    }
+
+    /**
+     * 许可到期自动释放，第一次使用时创建
+     */
+    private static final class LeaseExpiry {
+
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "zookeeper-semaphore-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -2,11 +2,14 @@ package com.admin4j.framework.lock.configuration;
 
 import com.admin4j.framework.lock.LockExecutor;
 import com.admin4j.framework.lock.ZookeeperLockExecutor;
+import com.admin4j.framework.lock.ZookeeperSemaphoreExecutor;
+import com.admin4j.framework.lock.properties.ZookeeperLockProperties;
 import com.admin4j.framework.zookeeper.configuration.ZookeeperAutoConfiguration;
 import org.apache.curator.framework.CuratorFramework;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureOrder;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 
@@ -16,16 +19,25 @@ import org.springframework.context.annotation.Bean;
  */
 @AutoConfigureAfter(ZookeeperAutoConfiguration.class)
 @AutoConfigureOrder(800)
+@EnableConfigurationProperties(ZookeeperLockProperties.class)
 public class ZookeeperLockAutoConfiguration {
 
     @Bean
     @ConditionalOnBean(CuratorFramework.class)
-    public ZookeeperLockExecutor zookeeperLockExecutor(CuratorFramework curatorFramework, ApplicationContext applicationContext) {
+    public ZookeeperLockExecutor zookeeperLockExecutor(CuratorFramework curatorFramework, ZookeeperLockProperties properties,
+                                                       ApplicationContext applicationContext) {
 
-        ZookeeperLockExecutor zookeeperLockExecutor = new ZookeeperLockExecutor(curatorFramework);
+        ZookeeperLockExecutor zookeeperLockExecutor = new ZookeeperLockExecutor(curatorFramework,
+                properties.getMaxCachedRecipes(), properties.isDeleteEmptyNodes(), properties.getMaxAsyncThreads());
         if (applicationContext.containsBean("parentLockExecutor")) {
             zookeeperLockExecutor.setParent((LockExecutor<?>) applicationContext.getBean("parentLockExecutor"));
         }
         return zookeeperLockExecutor;
     }
+
+    @Bean
+    @ConditionalOnBean(CuratorFramework.class)
+    public ZookeeperSemaphoreExecutor zookeeperSemaphoreExecutor(CuratorFramework curatorFramework) {
+        return new ZookeeperSemaphoreExecutor(curatorFramework);
+    }
 }
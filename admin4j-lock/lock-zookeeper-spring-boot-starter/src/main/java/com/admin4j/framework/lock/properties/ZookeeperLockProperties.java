@@ -0,0 +1,29 @@
+package com.admin4j.framework.lock.properties;
+
+import com.admin4j.framework.lock.ZookeeperLockExecutor;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @author andanyang
+ * @since 2024/3/24 9:30
+ */
+@Data
+@ConfigurationProperties(prefix = "admin4j.lock.zookeeper")
+public class ZookeeperLockProperties {
+
+    /**
+     * 最多缓存的锁对象数量，超过后回收最早空闲的对象
+     */
+    private int maxCachedRecipes = ZookeeperLockExecutor.DEFAULT_MAX_CACHED_RECIPES;
+
+    /**
+     * 回收锁对象时是否删除空的父节点，zookeeper 3.5 以下不支持容器节点时需要开启
+     */
+    private boolean deleteEmptyNodes = true;
+
+    /**
+     * 异步加锁的最大线程数，每个等待中或者持有中的异步锁占用一个线程，超过后异步加锁失败
+     */
+    private int maxAsyncThreads = ZookeeperLockExecutor.DEFAULT_MAX_ASYNC_THREADS;
+}
@@ -0,0 +1,65 @@
+package com.admin4j.framework.lock;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 测试用单机 zookeeper，监听随机端口。
+ * 服务端依赖的 metrics-core 和 snappy-java 在 pom 中以 test scope 引入
+ *
+ * @author andanyang
+ * @since 2024/3/28 10:00
+ */
+class EmbeddedZookeeper implements AutoCloseable {
+
+    private final File dir;
+    private final ServerCnxnFactory factory;
+
+    private EmbeddedZookeeper() throws Exception {
+        dir = Files.createTempDirectory("zookeeper").toFile();
+        ZooKeeperServer server = new ZooKeeperServer(dir, dir, 2000);
+        factory = ServerCnxnFactory.createFactory(new InetSocketAddress("127.0.0.1", 0), 100);
+        factory.startup(server);
+    }
+
+    static EmbeddedZookeeper start() throws Exception {
+        return new EmbeddedZookeeper();
+    }
+
+    String getConnectString() {
+        return "127.0.0.1:" + factory.getLocalPort();
+    }
+
+    CuratorFramework newClient() throws InterruptedException {
+        CuratorFramework client = CuratorFrameworkFactory.newClient(getConnectString(), 10_000, 5_000, new RetryOneTime(100));
+        client.start();
+        if (!client.blockUntilConnected(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("zookeeper not connected");
+        }
+        return client;
+    }
+
+    @Override
+    public void close() {
+        factory.shutdown();
+        deleteAll(dir);
+    }
+
+    private static void deleteAll(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteAll(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,187 @@
+package com.admin4j.framework.lock;
+
+import com.admin4j.framework.lock.exception.DistributedLockException;
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author andanyang
+ * @since 2024/3/28 16:00
+ */
+public class ZookeeperLockExecutorTest {
+
+    private EmbeddedZookeeper zookeeper;
+    private CuratorFramework client;
+    private CuratorFramework otherClient;
+
+    @Before
+    public void setUp() throws Exception {
+        zookeeper = EmbeddedZookeeper.start();
+        client = zookeeper.newClient();
+        otherClient = zookeeper.newClient();
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        if (otherClient != null) {
+            otherClient.close();
+        }
+        if (zookeeper != null) {
+            zookeeper.close();
+        }
+    }
+
+    private static LockInfo lockInfo(ZookeeperLockExecutor executor, String lockKey, int waitTimeOutSeconds) {
+
+        LockInfo lockInfo = new LockInfo();
+        lockInfo.setLockKey(lockKey);
+        lockInfo.setWaitTimeOutSeconds(waitTimeOutSeconds);
+        executor.initSetLockInstance(lockInfo);
+        return lockInfo;
+    }
+
+    /**
+     * 同一个 key 复用锁对象，同一线程可重入，其他线程互斥
+     */
+    @Test
+    public void testRecipeReuse() throws Exception {
+
+        ZookeeperLockExecutor executor = new ZookeeperLockExecutor(client);
+        LockInfo first = lockInfo(executor, "reuse", 0);
+        executor.lock(first);
+        LockInfo reentrant = lockInfo(executor, "reuse", 0);
+        Assert.assertTrue(executor.tryLock(reentrant));
+        Assert.assertEquals(1, executor.size());
+
+        Boolean other = CompletableFuture.supplyAsync(() -> executor.tryLock(lockInfo(executor, "reuse", 0))).get();
+        Assert.assertFalse(other);
+        executor.unlock(reentrant);
+        executor.unlock(first);
+
+        int[] counter = new int[1];
+        CountDownLatch countDownLatch = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    LockInfo lockInfo = lockInfo(executor, "reuse", -1);
+                    executor.lock(lockInfo);
+                    try {
+                        counter[0]++;
+                    } finally {
+                        executor.unlock(lockInfo);
+                    }
+                }
+                countDownLatch.countDown();
+            }).start();
+        }
+        Assert.assertTrue(countDownLatch.await(60, TimeUnit.SECONDS));
+        Assert.assertEquals(200, counter[0]);
+        // 解锁后锁对象留在缓存中复用
+        Assert.assertEquals(1, executor.size());
+    }
+
+    /**
+     * 回收锁对象时删除空节点，其他客户端同时持有或者重新获取同一个 key 不受影响
+     */
+    @Test
+    public void testReapWhileReacquire() throws Exception {
+
+        ZookeeperLockExecutor executor = new ZookeeperLockExecutor(client, 1, true);
+        ZookeeperLockExecutor otherExecutor = new ZookeeperLockExecutor(otherClient);
+
+        LockInfo held = lockInfo(otherExecutor, "reap", 0);
+        otherExecutor.lock(held);
+        // 在 reap 的锁对象上排队超时后回收，删除的节点有子节点时失败
+        Assert.assertFalse(executor.tryLock(lockInfo(executor, "reap", 1)));
+        LockInfo evict = lockInfo(executor, "evict", 0);
+        executor.lock(evict);
+        executor.unlock(evict);
+        Assert.assertEquals(1, executor.size());
+        Thread.sleep(200);
+        Assert.assertNotNull(client.checkExists().forPath("/reap"));
+        Assert.assertFalse(executor.tryLock(lockInfo(executor, "reap", 0)));
+        otherExecutor.unlock(held);
+
+        // 一个客户端反复回收空节点，另一个客户端同时反复加锁
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger errors = new AtomicInteger();
+        Thread reaper = new Thread(() -> {
+            for (int i = 0; running.get(); i++) {
+                try {
+                    LockInfo lockInfo = lockInfo(executor, i % 2 == 0 ? "reap" : "evict", 1);
+                    if (executor.tryLock(lockInfo)) {
+                        executor.unlock(lockInfo);
+                    }
+                } catch (RuntimeException e) {
+                    errors.incrementAndGet();
+                }
+            }
+        });
+        reaper.start();
+        int acquired = 0;
+        try {
+            for (int i = 0; i < 100; i++) {
+                LockInfo lockInfo = lockInfo(otherExecutor, "reap", 10);
+                if (otherExecutor.tryLock(lockInfo)) {
+                    acquired++;
+                    otherExecutor.unlock(lockInfo);
+                }
+            }
+        } finally {
+            running.set(false);
+            reaper.join();
+        }
+        Assert.assertEquals(100, acquired);
+        Assert.assertEquals(0, errors.get());
+    }
+
+    /**
+     * 异步锁占用的线程数不超过 maxAsyncThreads
+     */
+    @Test
+    public void testBoundedAsyncThreads() throws Exception {
+
+        ZookeeperLockExecutor executor = new ZookeeperLockExecutor(client, 16, true, 2);
+        List<LockHandle> handles = new ArrayList<>();
+        handles.add(executor.lockAsync(lockInfo(executor, "async:1", 0)).toCompletableFuture().get(10, TimeUnit.SECONDS));
+        handles.add(executor.lockAsync(lockInfo(executor, "async:2", 0)).toCompletableFuture().get(10, TimeUnit.SECONDS));
+        Assert.assertEquals(2, executor.getAsyncThreads());
+
+        try {
+            executor.lockAsync(lockInfo(executor, "async:3", 0)).toCompletableFuture().get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof DistributedLockException);
+        }
+
+        handles.get(0).unlockAsync().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        // 解锁后线程回到线程池
+        LockHandle handle = null;
+        for (int i = 0; i < 100 && handle == null; i++) {
+            try {
+                handle = executor.lockAsync(lockInfo(executor, "async:3", 0)).toCompletableFuture().get(10, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                Thread.sleep(10);
+            }
+        }
+        Assert.assertNotNull(handle);
+        handle.unlockAsync().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        handles.get(1).unlockAsync().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        executor.destroy();
+    }
+}
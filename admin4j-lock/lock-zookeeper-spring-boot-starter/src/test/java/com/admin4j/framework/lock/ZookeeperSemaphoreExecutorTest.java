@@ -0,0 +1,116 @@
+package com.admin4j.framework.lock;
+
+import com.admin4j.framework.lock.semaphore.SemaphorePermit;
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author andanyang
+ * @since 2024/3/28 10:00
+ */
+public class ZookeeperSemaphoreExecutorTest {
+
+    private EmbeddedZookeeper zookeeper;
+    private CuratorFramework client;
+    private ZookeeperSemaphoreExecutor semaphoreExecutor;
+
+    @Before
+    public void setUp() throws Exception {
+        zookeeper = EmbeddedZookeeper.start();
+        client = zookeeper.newClient();
+        semaphoreExecutor = new ZookeeperSemaphoreExecutor(client);
+    }
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.close();
+        }
+        if (zookeeper != null) {
+            zookeeper.close();
+        }
+    }
+
+    @Test
+    public void testAcquireAndRelease() {
+
+        SemaphorePermit permit = semaphoreExecutor.tryAcquire("semaphore", 2, 2, 0, -1);
+        Assert.assertNotNull(permit);
+        Assert.assertNull(semaphoreExecutor.tryAcquire("semaphore", 2, 1, 50, -1));
+        permit.release();
+
+        SemaphorePermit again = semaphoreExecutor.tryAcquire("semaphore", 2, 1, 0, -1);
+        Assert.assertNotNull(again);
+        again.release();
+    }
+
+    /**
+     * 等待超时不能留下部分许可
+     */
+    @Test
+    public void testTimeoutReturnsPartialPermits() {
+
+        SemaphorePermit permit = semaphoreExecutor.tryAcquire("partial", 3, 2, 0, -1);
+        Assert.assertNotNull(permit);
+        Assert.assertNull(semaphoreExecutor.tryAcquire("partial", 3, 2, 200, -1));
+
+        SemaphorePermit last = semaphoreExecutor.tryAcquire("partial", 3, 1, 0, -1);
+        Assert.assertNotNull(last);
+        last.release();
+        permit.release();
+    }
+
+    /**
+     * 多个请求一直等待各自获取多个许可，不会互相持有部分许可而死锁
+     */
+    @Test(timeout = 60_000)
+    public void testMultiPermitsNoDeadlock() throws Exception {
+
+        int threads = 4;
+        int maxPermits = 3;
+        AtomicInteger holding = new AtomicInteger();
+        AtomicInteger maxHolding = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < 5; j++) {
+                    SemaphorePermit permit = semaphoreExecutor.tryAcquire("deadlock", maxPermits, 2, -1, -1);
+                    int current = holding.addAndGet(2);
+                    maxHolding.accumulateAndGet(current, Math::max);
+                    TimeUnit.MILLISECONDS.sleep(5);
+                    holding.addAndGet(-2);
+                    permit.release();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        Assert.assertTrue(maxHolding.get() <= maxPermits);
+    }
+
+    @Test
+    public void testLeaseExpire() throws InterruptedException {
+
+        Assert.assertNotNull(semaphoreExecutor.tryAcquire("lease", 1, 1, 0, 100));
+        Assert.assertNotNull(semaphoreExecutor.tryAcquire("lease", 1, 1, 2000, -1));
+    }
+}